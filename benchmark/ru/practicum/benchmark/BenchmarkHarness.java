@@ -0,0 +1,155 @@
+package ru.practicum.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Минимальная обвязка микробенчмарков по схеме JMH: итерации прогрева, затем итерации замера
+ * фиксированной длительности; результат — среднее время операции и его стандартное отклонение
+ * между итерациями.
+ *
+ * <p>Операции вызываются пачками, размер пачки растёт, пока пачка не займёт около миллисекунды,
+ * поэтому вызов {@link System#nanoTime()} не искажает быстрые операции. Результат каждой операции
+ * накапливается в {@code volatile}-поле, чтобы JIT не выбросил вычисление.</p>
+ */
+final class BenchmarkHarness {
+    private static final long TARGET_BATCH_NANOS = 1_000_000;
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private volatile int sink;
+
+    BenchmarkHarness(int warmupIterations, int measurementIterations, long iterationMillis) {
+        if (measurementIterations <= 0 || iterationMillis <= 0 || warmupIterations < 0) {
+            throw new IllegalArgumentException("Некорректные параметры замера");
+        }
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000;
+    }
+
+    /**
+     * Замеряемая операция. Номер вызова можно использовать, чтобы перебирать заранее
+     * подготовленные данные; возвращаемое значение поглощается обвязкой.
+     */
+    @FunctionalInterface
+    interface Operation {
+        Object run(int invocation) throws Exception;
+    }
+
+    record Result(String benchmark, int size, double nanosPerOp, double error, long operations) {
+
+        String format() {
+            return String.format(Locale.ROOT, "%-28s %10d %16.1f %12.1f %12d",
+                    benchmark, size, nanosPerOp, error, operations);
+        }
+
+        String key() {
+            return benchmark + "@" + size;
+        }
+    }
+
+    Result measure(String benchmark, int size, Operation operation) throws Exception {
+        int invocation = 0;
+        for (int i = 0; i < warmupIterations; i++) {
+            long[] iteration = iterate(operation, invocation);
+            invocation += (int) iteration[1];
+        }
+
+        double[] samples = new double[measurementIterations];
+        long operations = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            long[] iteration = iterate(operation, invocation);
+            invocation += (int) iteration[1];
+            operations += iteration[1];
+            samples[i] = (double) iteration[0] / iteration[1];
+        }
+
+        double mean = 0;
+        for (double sample : samples) {
+            mean += sample;
+        }
+        mean /= samples.length;
+        double variance = 0;
+        for (double sample : samples) {
+            variance += (sample - mean) * (sample - mean);
+        }
+        double error = samples.length > 1 ? Math.sqrt(variance / (samples.length - 1)) : 0;
+        return new Result(benchmark, size, mean, error, operations);
+    }
+
+    /**
+     * Выполняет одну итерацию и возвращает затраченное время и число операций.
+     */
+    private long[] iterate(Operation operation, int firstInvocation) throws Exception {
+        long elapsed = 0;
+        long operations = 0;
+        int batch = 1;
+        int invocation = firstInvocation;
+        int accumulator = 0;
+        while (elapsed < iterationNanos) {
+            long started = System.nanoTime();
+            for (int i = 0; i < batch; i++) {
+                Object result = operation.run(invocation++);
+                accumulator += result != null ? System.identityHashCode(result) : 0;
+            }
+            long batchNanos = System.nanoTime() - started;
+            elapsed += batchNanos;
+            operations += batch;
+            if (batchNanos < TARGET_BATCH_NANOS && batch < (1 << 20)) {
+                batch <<= 1;
+            }
+        }
+        sink += accumulator;
+        return new long[]{elapsed, operations};
+    }
+
+    static void writeResults(Path path, List<Result> results) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("benchmark,size,ns_per_op,error,operations\n");
+            for (Result result : results) {
+                writer.write(String.format(Locale.ROOT, "%s,%d,%.1f,%.1f,%d%n", result.benchmark(), result.size(),
+                        result.nanosPerOp(), result.error(), result.operations()));
+            }
+        }
+    }
+
+    /**
+     * Читает результаты, ранее сохранённые {@link #writeResults(Path, List)}, с ключом «имя@размер».
+     */
+    static Map<String, Double> readBaseline(Path path) throws IOException {
+        Map<String, Double> baseline = new HashMap<>();
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+            String[] fields = line.split(",");
+            if (fields.length >= 3) {
+                baseline.put(fields[0] + "@" + fields[1], Double.parseDouble(fields[2]));
+            }
+        }
+        return baseline;
+    }
+
+    /**
+     * Возвращает описания замеров, которые стали медленнее базовых больше чем на {@code tolerance}.
+     */
+    static List<String> findRegressions(List<Result> results, Map<String, Double> baseline, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        for (Result result : results) {
+            Double expected = baseline.get(result.key());
+            if (expected != null && result.nanosPerOp() > expected * (1 + tolerance)) {
+                regressions.add(String.format(Locale.ROOT, "%s: %.1f ns/op vs %.1f ns/op (+%.0f%%)",
+                        result.key(), result.nanosPerOp(), expected, (result.nanosPerOp() / expected - 1) * 100));
+            }
+        }
+        return regressions;
+    }
+}
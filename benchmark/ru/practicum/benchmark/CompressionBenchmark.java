@@ -0,0 +1,103 @@
+package ru.practicum.benchmark;
+
+import com.google.gson.Gson;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+import ru.practicum.service.InMemoryHistoryManager;
+import ru.practicum.service.InMemoryTaskManager;
+import ru.practicum.service.Managers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Соотношение процессорного времени и объёма ответа при сжатии gzip полных списков
+ * {@code GET /tasks} и {@code GET /epics} разного размера.
+ *
+ * <p>Для каждого размера и уровня сжатия печатает размер несжатого и сжатого JSON, степень
+ * сжатия, время сжатия одного ответа и скорость в МБ/с исходных данных. Уровень 0 — только
+ * упаковка в формат gzip без сжатия, для оценки накладных расходов.</p>
+ *
+ * <p>Запуск: {@code java ru.practicum.benchmark.CompressionBenchmark [задач ...]}</p>
+ */
+public class CompressionBenchmark {
+    private static final int[] DEFAULT_SIZES = {100, 10_000, 100_000};
+    private static final int[] LEVELS = {Deflater.NO_COMPRESSION, Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION,
+            Deflater.BEST_COMPRESSION};
+    private static final int SUBTASKS_PER_EPIC = 10;
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        BenchmarkHarness harness = new BenchmarkHarness(2, 5, 500);
+        Gson gson = Managers.getDefaultGson();
+        System.out.printf("%-8s %10s %6s %14s %14s %8s %14s %10s%n",
+                "list", "size", "level", "json bytes", "gzip bytes", "ratio", "us/response", "MB/s");
+        for (int size : sizes) {
+            InMemoryTaskManager manager = fill(size);
+            report(harness, "tasks", size, gson.toJson(manager.getAllTasks()).getBytes(StandardCharsets.UTF_8));
+            report(harness, "epics", size, gson.toJson(manager.getAllEpics()).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void report(BenchmarkHarness harness, String list, int size, byte[] json) throws Exception {
+        for (int level : LEVELS) {
+            int compressed = compress(json, level).length;
+            BenchmarkHarness.Result result = harness.measure("gzip." + list + "." + level, size,
+                    i -> compress(json, level));
+            double micros = result.nanosPerOp() / 1e3;
+            System.out.printf("%-8s %10d %6d %14d %14d %8.2f %14.1f %10.1f%n", list, size, level, json.length,
+                    compressed, (double) json.length / compressed, micros, json.length / micros);
+        }
+    }
+
+    private static byte[] compress(byte[] json, int level) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8 * 1024) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(json);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Заполняет менеджер задачами и эпиками с подзадачами: всего около {@code size} задач каждого вида.
+     */
+    private static InMemoryTaskManager fill(int size) {
+        InMemoryTaskManager manager = new InMemoryTaskManager(new InMemoryHistoryManager());
+        for (int i = 0; i < size; i++) {
+            Task task = new Task("Task " + i, "Description of task " + i, Duration.ofMinutes(30),
+                    BASE_TIME.plusHours(i));
+            task.setStatus(Status.values()[i % Status.values().length]);
+            manager.saveTask(task);
+        }
+        LocalDateTime subtasksStart = BASE_TIME.plusHours(size);
+        for (int i = 0; i < size / SUBTASKS_PER_EPIC; i++) {
+            Epic epic = new Epic("Epic " + i, "Description of epic " + i, Duration.ZERO, null);
+            manager.saveEpic(epic);
+            for (int j = 0; j < SUBTASKS_PER_EPIC; j++) {
+                int n = i * SUBTASKS_PER_EPIC + j;
+                manager.saveSubtask(new Subtask("Subtask " + n, "Description of subtask " + n,
+                        Duration.ofMinutes(15), subtasksStart.plusMinutes(20L * n), epic.getId()));
+            }
+        }
+        return manager;
+    }
+}
@@ -0,0 +1,102 @@
+package ru.practicum.benchmark;
+
+import ru.practicum.model.Epic;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+import ru.practicum.service.InMemoryHistoryManager;
+import ru.practicum.service.InMemoryTaskManager;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Память кучи на одну задачу и подзадачу в {@link InMemoryTaskManager}.
+ *
+ * <p>Для каждого вида сначала создаются сами объекты модели и замеряется занятая куча после
+ * сборки мусора, затем те же объекты сохраняются в менеджер и замер повторяется. Разница
+ * делится на число объектов: {@code objects} — объект с его полями (строки, время,
+ * продолжительность), {@code indexes} — всё, что добавляет менеджер: индексы по ID,
+ * упорядоченные множества, индексы интервалов и показатели эпиков.</p>
+ *
+ * <p>Замер по занятой куче, а не по раскладке классов: JOL в проекте не подключён, зато
+ * учитываются и таблицы, и узлы, и объекты времени, созданные менеджером. Запускать лучше
+ * с фиксированной кучей, например {@code -Xms2g -Xmx2g}.</p>
+ *
+ * <p>Запуск: {@code java ru.practicum.benchmark.FootprintBenchmark [объектов]}</p>
+ */
+public class FootprintBenchmark {
+    private static final int SUBTASKS_PER_EPIC = 10;
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+
+        System.out.printf("%-10s %10s %16s %16s %16s%n", "kind", "count", "objects B/item", "indexes B/item",
+                "total B/item");
+
+        InMemoryTaskManager manager = new InMemoryTaskManager(new InMemoryHistoryManager());
+        long before = usedHeap();
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(new Task("Task " + i, "Description of task " + i, Duration.ofMinutes(30),
+                    BASE_TIME.plusHours(i)));
+        }
+        long created = usedHeap();
+        tasks.forEach(manager::saveTask);
+        long saved = usedHeap();
+        report("task", count, before, created, saved);
+
+        int epicCount = count / SUBTASKS_PER_EPIC;
+        List<Epic> epics = new ArrayList<>(epicCount);
+        for (int i = 0; i < epicCount; i++) {
+            Epic epic = new Epic("Epic " + i, "Description of epic " + i, Duration.ZERO, null);
+            manager.saveEpic(epic);
+            epics.add(epic);
+        }
+
+        before = usedHeap();
+        List<Subtask> subtasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Epic epic = epics.get(i / SUBTASKS_PER_EPIC);
+            subtasks.add(new Subtask("Subtask " + i, "Description of subtask " + i, Duration.ofMinutes(15),
+                    BASE_TIME.plusMinutes(20L * i), epic.getId()));
+        }
+        created = usedHeap();
+        subtasks.forEach(manager::saveSubtask);
+        saved = usedHeap();
+        report("subtask", count, before, created, saved);
+
+        // Объекты должны дожить до последнего замера
+        if (manager.getAllTasks().size() + tasks.size() + subtasks.size() == 0) {
+            System.out.println();
+        }
+    }
+
+    private static void report(String kind, int count, long before, long created, long saved) {
+        double objects = (double) (created - before) / count;
+        double indexes = (double) (saved - created) / count;
+        System.out.printf("%-10s %10d %16.1f %16.1f %16.1f%n", kind, count, objects, indexes, objects + indexes);
+    }
+
+    /**
+     * Занятая куча после нескольких полных сборок мусора, когда объём перестал уменьшаться.
+     */
+    private static long usedHeap() throws InterruptedException {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(50);
+            long current = MEMORY.getHeapMemoryUsage().getUsed();
+            if (current >= used) {
+                return current;
+            }
+            used = current;
+        }
+        return used;
+    }
+}
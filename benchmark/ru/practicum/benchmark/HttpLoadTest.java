@@ -0,0 +1,144 @@
+package ru.practicum.benchmark;
+
+import ru.practicum.configuration.HttpTaskServer;
+import ru.practicum.configuration.HttpTaskServer.ExecutorMode;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Task;
+import ru.practicum.service.ConcurrentTaskManager;
+import ru.practicum.service.InMemoryHistoryManager;
+import ru.practicum.service.InMemoryTaskManager;
+import ru.practicum.service.TaskManager;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Нагрузочный тест HttpTaskServer в разных режимах обработки запросов.
+ *
+ * <p>Для каждого режима ({@link ExecutorMode}) поднимает локальный сервер с
+ * {@link ConcurrentTaskManager}, запускает заданное число одновременных клиентов и смешивает
+ * GET /tasks с POST /subtasks. Печатает p50/p99 задержки и пропускную способность.</p>
+ *
+ * <p>Запуск: {@code java ru.practicum.benchmark.HttpLoadTest [клиентов] [запросов на клиента] [потоков пула]}</p>
+ */
+public class HttpLoadTest {
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final int SEED_TASKS = 500;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int requestsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int poolThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("clients=%d, requests per client=%d, pool threads=%d%n", clients, requestsPerClient, poolThreads);
+        System.out.printf("%-12s %10s %10s %10s %12s %8s%n", "mode", "p50 ms", "p99 ms", "max ms", "req/s", "errors");
+        for (ExecutorMode mode : ExecutorMode.values()) {
+            run(mode, clients, requestsPerClient, poolThreads);
+        }
+    }
+
+    private static void run(ExecutorMode mode, int clients, int requestsPerClient, int poolThreads) throws Exception {
+        TaskManager manager = new ConcurrentTaskManager(new InMemoryTaskManager(new InMemoryHistoryManager()));
+        Epic epic = new Epic("Load epic", "Description", Duration.ZERO, null);
+        manager.saveEpic(epic);
+        for (int i = 0; i < SEED_TASKS; i++) {
+            manager.saveTask(new Task("Task " + i, "Description", Duration.ofMinutes(30), BASE_TIME.plusHours(i)));
+        }
+
+        HttpTaskServer server = new HttpTaskServer(manager, mode, poolThreads);
+        server.start();
+        AtomicInteger slot = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clientThreads)
+                    .build();
+
+            // Прогрев
+            sendAll(client, clientThreads, epic.getId(), Math.min(clients, 100), 10, slot, errors);
+            errors.set(0);
+
+            long start = System.nanoTime();
+            long[] latencies = sendAll(client, clientThreads, epic.getId(), clients, requestsPerClient, slot, errors);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Arrays.sort(latencies);
+            System.out.printf("%-12s %10.2f %10.2f %10.2f %12.0f %8d%n", mode,
+                    percentile(latencies, 0.50) / 1e6,
+                    percentile(latencies, 0.99) / 1e6,
+                    latencies[latencies.length - 1] / 1e6,
+                    latencies.length / seconds,
+                    errors.get());
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static long[] sendAll(HttpClient client, ExecutorService clientThreads, int epicId, int clients,
+                                  int requestsPerClient, AtomicInteger slot, AtomicInteger errors) throws Exception {
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            futures.add(clientThreads.submit(() -> {
+                long[] latencies = new long[requestsPerClient];
+                for (int r = 0; r < requestsPerClient; r++) {
+                    HttpRequest request = r % 2 == 0 ? getTasks() : postSubtask(epicId, slot.getAndIncrement());
+                    long started = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[r] = System.nanoTime() - started;
+                }
+                return latencies;
+            }));
+        }
+
+        long[] all = new long[clients * requestsPerClient];
+        int position = 0;
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get();
+            System.arraycopy(latencies, 0, all, position, latencies.length);
+            position += latencies.length;
+        }
+        return all;
+    }
+
+    private static HttpRequest getTasks() {
+        return HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .GET()
+                .build();
+    }
+
+    private static HttpRequest postSubtask(int epicId, int slot) {
+        String json = String.format("""
+                {"name":"Subtask %d","description":"Load","status":"NEW","duration":"PT10M","startTime":"%s","epicId":%d}
+                """, slot, BASE_TIME.plusYears(1).plusMinutes(15L * slot), epicId);
+        return HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/subtasks"))
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+}
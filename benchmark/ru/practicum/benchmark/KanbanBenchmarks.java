@@ -0,0 +1,307 @@
+package ru.practicum.benchmark;
+
+import com.google.gson.Gson;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+import ru.practicum.service.FileBackedTaskManager;
+import ru.practicum.service.InMemoryHistoryManager;
+import ru.practicum.service.InMemoryTaskManager;
+import ru.practicum.service.Managers;
+import ru.practicum.service.PersistencePolicy;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Набор микробенчмарков горячих путей {@link InMemoryTaskManager}, {@link InMemoryHistoryManager},
+ * {@link FileBackedTaskManager} и сериализации эпика в JSON для хранилищ разного размера.
+ *
+ * <p>Для каждого размера хранилище заполняется заново: задачи идут через час по 30 минут,
+ * на каждый эпик приходится {@value #SUBTASKS_PER_EPIC} подзадач. Операции сохранения добавляют
+ * задачи после последней, поэтому за время замера хранилище немного растёт.</p>
+ *
+ * <p>Запуск одной командой:</p>
+ * <pre>
+ * java -Xmx6g ru.practicum.benchmark.KanbanBenchmarks [--sizes=1000,100000,1000000] [--filter=regex]
+ *      [--warmup=3] [--iterations=5] [--time=1000] [--output=results.csv]
+ *      [--baseline=results.csv] [--tolerance=0.15]
+ * </pre>
+ *
+ * <p>С {@code --baseline} результаты сравниваются с сохранённым прогоном; если какой-либо замер
+ * стал медленнее больше чем на {@code tolerance}, программа завершается с кодом 1.</p>
+ */
+public class KanbanBenchmarks {
+    private static final int[] DEFAULT_SIZES = {1_000, 100_000, 1_000_000};
+    private static final int SUBTASKS_PER_EPIC = 100;
+    private static final int RANDOM_IDS = 1 << 16;
+    private static final String BINARY_EXTENSION = ".bin";
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private final BenchmarkHarness harness;
+    private final Pattern filter;
+    private final List<BenchmarkHarness.Result> results = new ArrayList<>();
+
+    private KanbanBenchmarks(BenchmarkHarness harness, Pattern filter) {
+        this.harness = harness;
+        this.filter = filter;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = DEFAULT_SIZES;
+        String filter = ".*";
+        int warmup = 3;
+        int iterations = 5;
+        long time = 1_000;
+        Path output = null;
+        Path baseline = null;
+        double tolerance = 0.15;
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            if (option.length != 2) {
+                usage(arg);
+            }
+            switch (option[0]) {
+                case "--sizes" -> sizes = Arrays.stream(option[1].split(",")).mapToInt(Integer::parseInt).toArray();
+                case "--filter" -> filter = option[1];
+                case "--warmup" -> warmup = Integer.parseInt(option[1]);
+                case "--iterations" -> iterations = Integer.parseInt(option[1]);
+                case "--time" -> time = Long.parseLong(option[1]);
+                case "--output" -> output = Path.of(option[1]);
+                case "--baseline" -> baseline = Path.of(option[1]);
+                case "--tolerance" -> tolerance = Double.parseDouble(option[1]);
+                default -> usage(arg);
+            }
+        }
+
+        KanbanBenchmarks benchmarks = new KanbanBenchmarks(new BenchmarkHarness(warmup, iterations, time),
+                Pattern.compile(filter));
+        System.out.printf("%-28s %10s %16s %12s %12s%n", "benchmark", "size", "ns/op", "± stdev", "ops");
+        for (int size : sizes) {
+            benchmarks.runAll(size);
+        }
+
+        if (output != null) {
+            BenchmarkHarness.writeResults(output, benchmarks.results);
+        }
+        if (baseline != null) {
+            List<String> regressions = BenchmarkHarness.findRegressions(benchmarks.results,
+                    BenchmarkHarness.readBaseline(baseline), tolerance);
+            regressions.forEach(regression -> System.out.println("REGRESSION " + regression));
+            if (!regressions.isEmpty()) {
+                System.exit(1);
+            }
+        }
+    }
+
+    private static void usage(String arg) {
+        System.err.println("Unknown option: " + arg);
+        System.err.println("Usage: KanbanBenchmarks [--sizes=n,...] [--filter=regex] [--warmup=n] [--iterations=n]"
+                + " [--time=ms] [--output=file] [--baseline=file] [--tolerance=fraction]");
+        System.exit(2);
+    }
+
+    private void runAll(int size) throws Exception {
+        taskManagerBenchmarks(size);
+        subtaskBenchmarks(size);
+        historyBenchmarks(size);
+        fileBackedBenchmarks(size, ".csv");
+        fileBackedBenchmarks(size, BINARY_EXTENSION);
+        gsonBenchmark(size);
+    }
+
+    private boolean enabled(String benchmark) {
+        return filter.matcher(benchmark).find();
+    }
+
+    private void run(String benchmark, int size, BenchmarkHarness.Operation operation) throws Exception {
+        BenchmarkHarness.Result result = harness.measure(benchmark, size, operation);
+        results.add(result);
+        System.out.println(result.format());
+    }
+
+    private void taskManagerBenchmarks(int size) throws Exception {
+        if (!enabled("manager.saveTask") && !enabled("manager.getTaskById")
+                && !enabled("manager.getPrioritizedTasks")) {
+            return;
+        }
+        InMemoryTaskManager manager = new InMemoryTaskManager(new InMemoryHistoryManager());
+        int[] ids = fillTasks(manager, size);
+        int[] randomIds = randomSample(ids);
+
+        if (enabled("manager.getTaskById")) {
+            run("manager.getTaskById", size, i -> manager.getTaskById(randomIds[i & (RANDOM_IDS - 1)]));
+        }
+        if (enabled("manager.getPrioritizedTasks")) {
+            run("manager.getPrioritizedTasks", size, i -> manager.getPrioritizedTasks());
+        }
+        if (enabled("manager.saveTask")) {
+            run("manager.saveTask", size, i -> {
+                Task task = new Task("Task", "Description", Duration.ofMinutes(30), BASE_TIME.plusHours(size + i));
+                manager.saveTask(task);
+                return task;
+            });
+        }
+    }
+
+    private void subtaskBenchmarks(int size) throws Exception {
+        if (!enabled("manager.saveSubtask") && !enabled("manager.updateSubtask")) {
+            return;
+        }
+        InMemoryTaskManager manager = new InMemoryTaskManager(new InMemoryHistoryManager());
+        int[] epicIds = fillEpics(manager, size);
+        List<Subtask> subtasks = manager.getAllSubtasks();
+        Random random = new Random(42);
+        Subtask[] sample = new Subtask[RANDOM_IDS];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = subtasks.get(random.nextInt(subtasks.size()));
+        }
+
+        if (enabled("manager.updateSubtask")) {
+            // Обновление приходит новым объектом, как из HTTP; чередование статусов пересчитывает эпик
+            run("manager.updateSubtask", size, i -> {
+                Subtask update = new Subtask(sample[i & (RANDOM_IDS - 1)]);
+                update.setStatus((i & 1) == 0 ? Status.DONE : Status.IN_PROGRESS);
+                manager.updateSubtask(update);
+                return update;
+            });
+        }
+        if (enabled("manager.saveSubtask")) {
+            run("manager.saveSubtask", size, i -> {
+                Subtask subtask = new Subtask("Subtask", "Description", Duration.ofMinutes(15),
+                        BASE_TIME.plusHours(size + i), epicIds[i % epicIds.length]);
+                manager.saveSubtask(subtask);
+                return subtask;
+            });
+        }
+    }
+
+    private void historyBenchmarks(int size) throws Exception {
+        if (!enabled("history.add") && !enabled("history.getHistory")) {
+            return;
+        }
+        InMemoryHistoryManager history = new InMemoryHistoryManager();
+        Task[] tasks = new Task[size];
+        for (int i = 0; i < size; i++) {
+            tasks[i] = new Task(i + 1, "Task " + i, "Description", Duration.ofMinutes(30), BASE_TIME.plusHours(i));
+            history.add(tasks[i]);
+        }
+        Random random = new Random(42);
+        Task[] sample = new Task[RANDOM_IDS];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = tasks[random.nextInt(size)];
+        }
+
+        if (enabled("history.add")) {
+            run("history.add", size, i -> {
+                Task task = sample[i & (RANDOM_IDS - 1)];
+                history.add(task);
+                return task;
+            });
+        }
+        if (enabled("history.getHistory")) {
+            run("history.getHistory", size, i -> history.getHistory());
+        }
+    }
+
+    private void fileBackedBenchmarks(int size, String extension) throws Exception {
+        String format = extension.substring(1);
+        String save = "fileBacked.save." + format;
+        String load = "fileBacked.loadFromFile." + format;
+        if (!enabled(save) && !enabled(load)) {
+            return;
+        }
+        File file = File.createTempFile("kanban_benchmark", extension);
+        File journal = new File(file.getPath() + ".journal");
+        file.deleteOnExit();
+        journal.deleteOnExit();
+
+        // Заполнение через журнал: в режиме снимка каждое сохранение переписывало бы весь файл
+        try (FileBackedTaskManager filler = new FileBackedTaskManager(file, FileBackedTaskManager.StorageMode.JOURNAL,
+                PersistencePolicy.async(1 << 16))) {
+            fillTasks(filler, size / 2);
+            fillEpics(filler, size - size / 2);
+        }
+        FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(file);
+
+        if (enabled(save)) {
+            run(save, size, i -> {
+                manager.compact();
+                return file;
+            });
+        }
+        if (enabled(load)) {
+            run(load, size, i -> FileBackedTaskManager.loadFromFile(file));
+        }
+        Files.deleteIfExists(journal.toPath());
+        Files.deleteIfExists(file.toPath());
+    }
+
+    private void gsonBenchmark(int size) throws Exception {
+        if (!enabled("gson.toJson.epic")) {
+            return;
+        }
+        Gson gson = Managers.getDefaultGson();
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, null);
+        epic.setId(1);
+        for (int i = 0; i < size; i++) {
+            Subtask subtask = new Subtask("Subtask " + i, "Description", Duration.ofMinutes(15),
+                    BASE_TIME.plusMinutes(20L * i), 1);
+            subtask.setId(i + 2);
+            epic.addSubtask(subtask);
+        }
+        run("gson.toJson.epic", size, i -> gson.toJson(epic));
+    }
+
+    /**
+     * Добавляет {@code count} непересекающихся задач и возвращает их ID.
+     */
+    private static int[] fillTasks(InMemoryTaskManager manager, int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            Task task = new Task("Task " + i, "Description", Duration.ofMinutes(30), BASE_TIME.minusHours(count - i));
+            manager.saveTask(task);
+            ids[i] = task.getId();
+        }
+        return ids;
+    }
+
+    /**
+     * Добавляет эпики по {@value #SUBTASKS_PER_EPIC} подзадач, всего {@code count} объектов,
+     * и возвращает ID эпиков. Подзадачи лежат до задач из {@link #fillTasks}.
+     */
+    private static int[] fillEpics(InMemoryTaskManager manager, int count) {
+        int epicCount = Math.max(1, count / (SUBTASKS_PER_EPIC + 1));
+        int[] epicIds = new int[epicCount];
+        LocalDateTime start = BASE_TIME.minusYears(500);
+        int subtaskCount = count - epicCount;
+        for (int e = 0; e < epicCount; e++) {
+            Epic epic = new Epic("Epic " + e, "Description", Duration.ZERO, null);
+            manager.saveEpic(epic);
+            epicIds[e] = epic.getId();
+        }
+        for (int i = 0; i < subtaskCount; i++) {
+            manager.saveSubtask(new Subtask("Subtask " + i, "Description", Duration.ofMinutes(15),
+                    start.plusMinutes(20L * i), epicIds[i / SUBTASKS_PER_EPIC % epicCount]));
+        }
+        return epicIds;
+    }
+
+    private static int[] randomSample(int[] ids) {
+        Random random = new Random(42);
+        int[] sample = new int[RANDOM_IDS];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = ids[random.nextInt(ids.length)];
+        }
+        return sample;
+    }
+}
@@ -0,0 +1,208 @@
+package ru.practicum.benchmark;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpPrincipal;
+import ru.practicum.configuration.TaskHandler;
+import ru.practicum.model.Task;
+import ru.practicum.service.InMemoryHistoryManager;
+import ru.practicum.service.InMemoryTaskManager;
+import ru.practicum.service.Managers;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Память, выделяемая обработчиком на один запрос, без сети и HttpServer.
+ *
+ * <p>Запросы передаются {@link TaskHandler} напрямую через заглушку {@link HttpExchange}
+ * с заранее созданными URI, телом и {@code Content-Length}, ответ отбрасывается. Объём выделенной памяти берётся
+ * из {@code com.sun.management.ThreadMXBean#getThreadAllocatedBytes} текущего потока
+ * и делится на число запросов. Сценарии:</p>
+ * <ul>
+ *     <li>{@code route 405} — только маршрутизация и короткий ответ об ошибке;</li>
+ *     <li>{@code GET /tasks/{id}} — маршрутизация, поиск и сериализация задачи;</li>
+ *     <li>{@code POST /tasks} — разбор тела небольшой задачи и её обновление;</li>
+ *     <li>{@code POST /tasks 64K} — то же с описанием длиной 64 КБ.</li>
+ * </ul>
+ *
+ * <p>Запуск: {@code java ru.practicum.benchmark.RequestAllocationBenchmark [запросов]}</p>
+ */
+public class RequestAllocationBenchmark {
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        InMemoryTaskManager manager = new InMemoryTaskManager(new InMemoryHistoryManager());
+        Task task = new Task("Task", "Description", Duration.ofMinutes(30), BASE_TIME);
+        manager.saveTask(task);
+        Gson gson = Managers.getDefaultGson();
+        TaskHandler handler = new TaskHandler(manager, gson);
+
+        byte[] small = gson.toJson(task).getBytes(StandardCharsets.UTF_8);
+        Task large = new Task(task.getId(), "Task", "x".repeat(64 * 1024), Duration.ofMinutes(30), BASE_TIME);
+        byte[] big = gson.toJson(large).getBytes(StandardCharsets.UTF_8);
+
+        System.out.printf("%-20s %14s %14s%n", "request", "bytes/request", "ns/request");
+        measure(handler, "route 405", "PUT", "/tasks/" + task.getId(), new byte[0], requests);
+        measure(handler, "GET /tasks/{id}", "GET", "/tasks/" + task.getId(), new byte[0], requests);
+        measure(handler, "POST /tasks", "POST", "/tasks", small, requests);
+        measure(handler, "POST /tasks 64K", "POST", "/tasks", big, requests / 20);
+    }
+
+    private static void measure(HttpHandler handler, String name, String method, String path, byte[] body,
+                                int requests) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        URI uri = URI.create("http://localhost:8080" + path);
+        for (int i = 0; i < requests / 2; i++) { // Прогрев
+            handler.handle(new BenchmarkExchange(method, uri, body));
+        }
+
+        long thread = Thread.currentThread().threadId();
+        long allocated = 0;
+        long started = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            BenchmarkExchange exchange = new BenchmarkExchange(method, uri, body);
+            long before = threads.getThreadAllocatedBytes(thread);
+            handler.handle(exchange);
+            allocated += threads.getThreadAllocatedBytes(thread) - before;
+        }
+        long elapsed = System.nanoTime() - started;
+        System.out.printf("%-20s %14d %14d%n", name, allocated / requests, elapsed / requests);
+    }
+
+    /**
+     * Заглушка обмена: тело запроса читается из массива, ответ отбрасывается.
+     */
+    private static final class BenchmarkExchange extends HttpExchange {
+        // В отличие от OutputStream.nullOutputStream(), не закрывается и годится для всех запросов
+        private static final OutputStream DISCARD = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+
+        private final String method;
+        private final URI uri;
+        private final Headers requestHeaders = new Headers();
+        private final Headers responseHeaders = new Headers();
+        private InputStream requestBody;
+        private OutputStream responseBody = DISCARD;
+        private int responseCode = -1;
+
+        private BenchmarkExchange(String method, URI uri, byte[] body) {
+            this.method = method;
+            this.uri = uri;
+            // Как у потока HttpServer: без быстрого readAllBytes из ByteArrayInputStream
+            this.requestBody = new FilterInputStream(new ByteArrayInputStream(body)) {
+            };
+            if (body.length > 0) {
+                requestHeaders.set("Content-Length", Integer.toString(body.length));
+            }
+        }
+
+        @Override
+        public Headers getRequestHeaders() {
+            return requestHeaders;
+        }
+
+        @Override
+        public Headers getResponseHeaders() {
+            return responseHeaders;
+        }
+
+        @Override
+        public URI getRequestURI() {
+            return uri;
+        }
+
+        @Override
+        public String getRequestMethod() {
+            return method;
+        }
+
+        @Override
+        public HttpContext getHttpContext() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public InputStream getRequestBody() {
+            return requestBody;
+        }
+
+        @Override
+        public OutputStream getResponseBody() {
+            return responseBody;
+        }
+
+        @Override
+        public void sendResponseHeaders(int rCode, long responseLength) {
+            responseCode = rCode;
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public int getResponseCode() {
+            return responseCode;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public String getProtocol() {
+            return "HTTP/1.1";
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return null;
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+        }
+
+        @Override
+        public void setStreams(InputStream i, OutputStream o) {
+            if (i != null) {
+                requestBody = i;
+            }
+            if (o != null) {
+                responseBody = o;
+            }
+        }
+
+        @Override
+        public HttpPrincipal getPrincipal() {
+            return null;
+        }
+    }
+}
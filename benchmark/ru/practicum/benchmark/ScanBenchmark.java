@@ -0,0 +1,99 @@
+package ru.practicum.benchmark;
+
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+import ru.practicum.service.ColumnarTaskManager;
+import ru.practicum.service.InMemoryHistoryManager;
+import ru.practicum.service.InMemoryTaskManager;
+import ru.practicum.service.TaskManager;
+import ru.practicum.service.TaskQuery;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Выборки и агрегаты по подзадачам в {@link InMemoryTaskManager} и {@link ColumnarTaskManager}.
+ *
+ * <p>Подзадачи равномерно распределены по статусам и по времени начала с шагом 20 минут.
+ * Сценарии:</p>
+ * <ul>
+ *     <li>{@code week.stream} — подзадачи в работе, начинающиеся на заданной неделе: полный
+ *     список и фильтр потоком, как это делает клиент без {@code findSubtasks};</li>
+ *     <li>{@code week.page} — та же выборка первой страницей из 100 подзадач через {@code findSubtasks};</li>
+ *     <li>{@code byStatus} — число подзадач по статусам и их суммарная продолжительность:
+ *     полный список для {@link InMemoryTaskManager}, {@code summarize} для столбцового хранилища.</li>
+ * </ul>
+ *
+ * <p>Запуск: {@code java ru.practicum.benchmark.ScanBenchmark [подзадач ...]}</p>
+ */
+public class ScanBenchmark {
+    private static final int[] DEFAULT_SIZES = {10_000, 100_000, 1_000_000};
+    private static final int SUBTASKS_PER_EPIC = 10;
+    private static final int PAGE = 100;
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        BenchmarkHarness harness = new BenchmarkHarness(3, 5, 500);
+        System.out.printf("%-28s %10s %16s %12s %12s%n", "benchmark", "size", "ns/op", "error", "ops");
+        for (int size : sizes) {
+            // Неделя в середине диапазона времени начала подзадач
+            LocalDateTime from = BASE_TIME.plusMinutes(20L * size / 2);
+            LocalDateTime to = from.plusWeeks(1);
+            TaskQuery week = new TaskQuery(null, PAGE, Set.of(Status.IN_PROGRESS), from, to);
+
+            InMemoryTaskManager inMemory = fill(new InMemoryTaskManager(new InMemoryHistoryManager()), size);
+            print(harness.measure("inMemory.week.stream", size, i -> inMemory.getAllSubtasks().stream()
+                    .filter(s -> s.getStatus() == Status.IN_PROGRESS && s.getStartTime() != null
+                            && !s.getStartTime().isBefore(from) && s.getStartTime().isBefore(to))
+                    .limit(PAGE)
+                    .toList()));
+            print(harness.measure("inMemory.week.page", size, i -> inMemory.findSubtasks(week)));
+            print(harness.measure("inMemory.byStatus", size, i -> {
+                Map<Status, Long> byStatus = new EnumMap<>(Status.class);
+                Duration total = Duration.ZERO;
+                for (Subtask subtask : inMemory.getAllSubtasks()) {
+                    byStatus.merge(subtask.getStatus(), 1L, Long::sum);
+                    total = total.plus(subtask.getDuration());
+                }
+                return total.getSeconds() + byStatus.size();
+            }));
+
+            ColumnarTaskManager columnar = fill(new ColumnarTaskManager(new InMemoryHistoryManager()), size);
+            print(harness.measure("columnar.week.page", size, i -> columnar.findSubtasks(week)));
+            print(harness.measure("columnar.byStatus", size, i -> columnar.summarize(Subtask.class,
+                    TaskQuery.firstPage(0))));
+        }
+    }
+
+    private static void print(BenchmarkHarness.Result result) {
+        System.out.println(result.format());
+    }
+
+    private static <T extends TaskManager> T fill(T manager, int size) {
+        Status[] statuses = Status.values();
+        for (int i = 0; i < size / SUBTASKS_PER_EPIC; i++) {
+            Epic epic = new Epic("Epic " + i, "Description of epic " + i, Duration.ZERO, null);
+            manager.saveEpic(epic);
+            for (int j = 0; j < SUBTASKS_PER_EPIC; j++) {
+                int n = i * SUBTASKS_PER_EPIC + j;
+                Subtask subtask = new Subtask("Subtask " + n, "Description of subtask " + n,
+                        Duration.ofMinutes(15), BASE_TIME.plusMinutes(20L * n), epic.getId());
+                subtask.setStatus(statuses[n % statuses.length]);
+                manager.saveSubtask(subtask);
+            }
+        }
+        return manager;
+    }
+}
@@ -0,0 +1,107 @@
+package ru.practicum.benchmark;
+
+import ru.practicum.service.FileBackedTaskManager;
+import ru.practicum.service.PersistencePolicy;
+import ru.practicum.service.SnapshotConverter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Замер холодного старта {@link FileBackedTaskManager#loadFromFile(File)} на больших файлах.
+ *
+ * <p>Для каждого размера генерирует CSV в формате менеджера: задачи, эпики по 100 подзадач
+ * и сами подзадачи. Затем загружает файл без проверки пересечений и с отложенной проверкой,
+ * а также тот же снимок в двоичном формате, и печатает время загрузки и прирост занятой памяти.</p>
+ *
+ * <p>Запуск: {@code java -Xmx4g ru.practicum.benchmark.StartupBenchmark [строк ...]}</p>
+ */
+public class StartupBenchmark {
+    private static final int[] DEFAULT_SIZES = {10_000, 100_000, 1_000_000};
+    private static final int SUBTASKS_PER_EPIC = 100;
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.printf("%10s %12s %14s %16s %12s %14s %12s%n",
+                "rows", "file MB", "load ms", "validated ms", "binary MB", "binary ms", "heap MB");
+        for (int size : sizes) {
+            File file = File.createTempFile("startup_benchmark", ".csv");
+            file.deleteOnExit();
+            writeSnapshot(file, size);
+
+            load(file, false); // Прогрев
+            long usedBefore = usedHeap();
+            long started = System.nanoTime();
+            FileBackedTaskManager manager = load(file, false);
+            double loadMillis = (System.nanoTime() - started) / 1e6;
+            long heap = usedHeap() - usedBefore;
+
+            started = System.nanoTime();
+            load(file, true);
+            double validatedMillis = (System.nanoTime() - started) / 1e6;
+
+            File binary = File.createTempFile("startup_benchmark", ".bin");
+            binary.deleteOnExit();
+            SnapshotConverter.convert(file, binary);
+            load(binary, false); // Прогрев
+            started = System.nanoTime();
+            load(binary, false);
+            double binaryMillis = (System.nanoTime() - started) / 1e6;
+
+            System.out.printf("%10d %12.1f %14.0f %16.0f %12.1f %14.0f %12.1f%n", size, file.length() / 1e6,
+                    loadMillis, validatedMillis, binary.length() / 1e6, binaryMillis, heap / 1e6);
+            if (manager.getAllTasks().isEmpty()) {
+                throw new IllegalStateException("Nothing was loaded");
+            }
+        }
+    }
+
+    private static FileBackedTaskManager load(File file, boolean validateOverlaps) {
+        return FileBackedTaskManager.loadFromFile(file, FileBackedTaskManager.StorageMode.SNAPSHOT,
+                PersistencePolicy.sync(), validateOverlaps);
+    }
+
+    /**
+     * Пишет снимок: половина строк — задачи, остальное — эпики и их подзадачи.
+     */
+    private static void writeSnapshot(File file, int rows) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8))) {
+            writer.write("id,type,name,status,description,epic,startTime,duration,epicId\n");
+            int id = 1;
+            int tasks = rows / 2;
+            for (int i = 0; i < tasks; i++) {
+                writer.write(id++ + ",TASK,Task " + i + ",NEW,Description," + BASE_TIME.plusMinutes(30L * i) + ",PT30M\n");
+            }
+            int epicId = 0;
+            for (int i = 0; id <= rows; i++) {
+                if (i % SUBTASKS_PER_EPIC == 0) {
+                    epicId = id++;
+                    writer.write(epicId + ",EPIC,Epic " + epicId + ",NEW,Description,null,null\n");
+                    continue;
+                }
+                writer.write(id++ + ",SUBTASK,Subtask " + i + ",DONE,Description,"
+                        + BASE_TIME.plusMinutes(20L * i) + ",PT15M," + epicId + "\n");
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
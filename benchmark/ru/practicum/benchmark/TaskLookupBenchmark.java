@@ -0,0 +1,114 @@
+package ru.practicum.benchmark;
+
+import ru.practicum.model.Epic;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+import ru.practicum.service.InMemoryHistoryManager;
+import ru.practicum.service.InMemoryTaskManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Замер задержки поиска, обновления и удаления по ID в зависимости от размера хранилища.
+ *
+ * <p>Для каждого размера заполняет {@link InMemoryTaskManager} непересекающимися задачами
+ * и подзадачами, затем выполняет серию случайных обращений по ID и печатает среднее время
+ * одной операции. При индексе по ID кривая должна оставаться плоской.</p>
+ *
+ * <p>Запуск: {@code java ru.practicum.benchmark.TaskLookupBenchmark [размер ...]}</p>
+ */
+public class TaskLookupBenchmark {
+    private static final int[] DEFAULT_SIZES = {1_000, 10_000, 20_000};
+    private static final int OPERATIONS = 200_000;
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    public static void main(String[] args) {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.printf("%10s %14s %14s %14s %14s%n",
+                "size", "getTask ns", "getSubtask ns", "updateTask ns", "delete+save ns");
+        for (int size : sizes) {
+            run(size);
+        }
+    }
+
+    private static void run(int size) {
+        InMemoryTaskManager manager = new InMemoryTaskManager(new InMemoryHistoryManager());
+        Epic epic = new Epic("Epic", "Benchmark epic", Duration.ZERO, null);
+        manager.saveEpic(epic);
+
+        int[] taskIds = new int[size / 2];
+        int[] subtaskIds = new int[size - taskIds.length];
+        for (int i = 0; i < taskIds.length; i++) {
+            Task task = new Task("Task " + i, "Description", Duration.ofMinutes(30), BASE_TIME.plusHours(i));
+            manager.saveTask(task);
+            taskIds[i] = task.getId();
+        }
+        for (int i = 0; i < subtaskIds.length; i++) {
+            Subtask subtask = new Subtask("Subtask " + i, "Description", Duration.ofMinutes(30),
+                    BASE_TIME.plusHours(i), epic.getId());
+            manager.saveSubtask(subtask);
+            subtaskIds[i] = subtask.getId();
+        }
+
+        Random random = new Random(42);
+        // Прогрев JIT
+        measureGetTask(manager, taskIds, random, OPERATIONS);
+        measureGetSubtask(manager, subtaskIds, random, OPERATIONS);
+
+        long getTaskNs = measureGetTask(manager, taskIds, random, OPERATIONS);
+        long getSubtaskNs = measureGetSubtask(manager, subtaskIds, random, OPERATIONS);
+        long updateTaskNs = measureUpdateTask(manager, taskIds, random, OPERATIONS / 10);
+        long deleteNs = measureDeleteAndSave(manager, taskIds, random, OPERATIONS / 100);
+
+        System.out.printf("%10d %14d %14d %14d %14d%n", size, getTaskNs, getSubtaskNs, updateTaskNs, deleteNs);
+    }
+
+    private static long measureGetTask(InMemoryTaskManager manager, int[] ids, Random random, int operations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            manager.getTaskById(ids[random.nextInt(ids.length)]);
+        }
+        return (System.nanoTime() - start) / operations;
+    }
+
+    private static long measureGetSubtask(InMemoryTaskManager manager, int[] ids, Random random, int operations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            manager.getSubtaskById(ids[random.nextInt(ids.length)]);
+        }
+        return (System.nanoTime() - start) / operations;
+    }
+
+    private static long measureUpdateTask(InMemoryTaskManager manager, int[] ids, Random random, int operations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            Task task = manager.getTaskById(ids[random.nextInt(ids.length)]);
+            Task update = new Task(task);
+            update.setName("Updated " + i);
+            manager.updateTask(update);
+        }
+        return (System.nanoTime() - start) / operations;
+    }
+
+    private static long measureDeleteAndSave(InMemoryTaskManager manager, int[] ids, Random random, int operations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            int index = random.nextInt(ids.length);
+            Task task = manager.getTaskById(ids[index]);
+            manager.deleteTaskById(task.getId());
+            Task copy = new Task(task.getName(), task.getDescription(), task.getDuration(), task.getStartTime());
+            manager.saveTask(copy);
+            ids[index] = copy.getId();
+        }
+        return (System.nanoTime() - start) / operations;
+    }
+}
@@ -1,23 +1,246 @@
 package ru.practicum.configuration;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpHandler;
+import ru.practicum.exception.PayloadTooLargeException;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+import ru.practicum.service.HistoryManager;
+import ru.practicum.service.HistorySessions;
 import ru.practicum.service.TaskManager;
+import ru.practicum.service.TaskQuery;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 public abstract class BaseHttpHandler implements HttpHandler {
     protected final TaskManager taskManager;
     protected final Gson gson;
+    protected final HistorySessions sessions;
+    protected final ResponseCache responseCache;
+    private long maxBodyBytes = MAX_BODY_BYTES;
     protected static final String HEADER_CONTENT_TYPE = "Content-Type";
+    protected static final String HEADER_SESSION_ID = "X-Session-Id";
     protected static final String MIME_APPLICATION_JSON_UTF8 = "application/json;charset=utf-8";
+    protected static final String HEADER_NEXT_CURSOR = "X-Next-Cursor";
+    private static final String CURSOR_SEPARATOR = "@";
+    protected static final String HEADER_CACHE = "X-Cache";
+    protected static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    protected static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    protected static final String HEADER_VARY = "Vary";
+    private static final String GZIP = "gzip";
+    /**
+     * Ответы короче порога в байтах не сжимаются: заголовок и словарь gzip съели бы выигрыш.
+     * Задаётся свойством {@code kanban.http.gzip.min}, отрицательное значение отключает сжатие.
+     */
+    static final int GZIP_MIN_BYTES = Integer.getInteger("kanban.http.gzip.min", 1024);
+    /**
+     * Уровень сжатия, свойство {@code kanban.http.gzip.level}; соотношение времени и размера
+     * для разных уровней печатает {@code CompressionBenchmark}.
+     */
+    static final int GZIP_LEVEL = Integer.getInteger("kanban.http.gzip.level", Deflater.BEST_SPEED);
+    protected static final String HEADER_ETAG = "ETag";
+    protected static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    protected static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    protected static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+    /**
+     * Случайная метка запуска в ETag: версии разных запусков сервера начинаются с нуля
+     * и без неё совпадали бы.
+     */
+    private static final String ETAG_PREFIX = "W/\"" + Long.toHexString(new SecureRandom().nextLong()) + "-";
+    private static final int RESPONSE_BUFFER_SIZE = 8 * 1024;
+    private static final int REQUEST_BUFFER_SIZE = 8 * 1024;
+    private static final int MIN_REQUEST_BUFFER_SIZE = 64;
+    /**
+     * Максимальный размер тела запроса в байтах, свойство {@code kanban.http.body.max}.
+     */
+    static final long MAX_BODY_BYTES = Long.getLong("kanban.http.body.max", 4L * 1024 * 1024);
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1_000;
+    private static final Set<String> QUERY_PARAMETERS = Set.of("after", "limit", "status", "from", "to", "fields");
 
     public BaseHttpHandler(TaskManager taskManager, Gson gson) {
+        this(taskManager, gson, null);
+    }
+
+    /**
+     * @param sessions истории клиентов; {@code null}, если все просмотры пишутся в общую историю
+     */
+    public BaseHttpHandler(TaskManager taskManager, Gson gson, HistorySessions sessions) {
+        this(taskManager, gson, sessions, null);
+    }
+
+    /**
+     * @param sessions      истории клиентов; {@code null}, если все просмотры пишутся в общую историю
+     * @param responseCache кеш готовых ответов; {@code null}, если ответы всегда собираются заново
+     */
+    public BaseHttpHandler(TaskManager taskManager, Gson gson, HistorySessions sessions, ResponseCache responseCache) {
         this.taskManager = taskManager;
         this.gson = gson;
+        this.sessions = sessions;
+        this.responseCache = responseCache;
+    }
+
+    /**
+     * Возвращает историю клиента по заголовку {@code X-Session-Id} или {@code null},
+     * если заголовка нет и просмотр относится к общей истории.
+     */
+    static HistoryManager sessionHistory(HttpExchange exchange, HistorySessions sessions) {
+        String sessionId = exchange.getRequestHeaders().getFirst(HEADER_SESSION_ID);
+        if (sessions == null || sessionId == null || sessionId.isBlank()) {
+            return null;
+        }
+        return sessions.get(sessionId);
+    }
+
+    protected Task getTaskById(HttpExchange exchange, int id) {
+        HistoryManager history = sessionHistory(exchange, sessions);
+        return history != null ? taskManager.getTaskById(id, history) : taskManager.getTaskById(id);
+    }
+
+    protected Epic getEpicById(HttpExchange exchange, int id) {
+        HistoryManager history = sessionHistory(exchange, sessions);
+        return history != null ? taskManager.getEpicById(id, history) : taskManager.getEpicById(id);
+    }
+
+    protected Subtask getSubtaskById(HttpExchange exchange, int id) {
+        HistoryManager history = sessionHistory(exchange, sessions);
+        return history != null ? taskManager.getSubtaskById(id, history) : taskManager.getSubtaskById(id);
+    }
+
+    /**
+     * Меняет максимальный размер тела запроса этого обработчика, по умолчанию {@link #MAX_BODY_BYTES}.
+     */
+    void setMaxBodyBytes(long maxBodyBytes) {
+        if (maxBodyBytes <= 0) {
+            throw new IllegalArgumentException("Размер тела должен быть положительным");
+        }
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    /**
+     * Разбирает тело запроса прямо из потока через {@link JsonReader}, не собирая его в строку.
+     *
+     * @return объект или {@code null}, если тело пустое
+     * @throws PayloadTooLargeException если тело больше допустимого
+     * @throws JsonSyntaxException      если тело не JSON или после объекта есть ещё данные
+     */
+    protected <T> T readJson(HttpExchange exchange, Class<T> type) throws IOException {
+        JsonReader reader = openJsonReader(exchange);
+        T value = gson.fromJson(reader, type);
+        if (value != null && reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonSyntaxException("Лишние данные после JSON в теле запроса");
+        }
+        return value;
+    }
+
+    /**
+     * Открывает тело запроса для потокового чтения JSON. Заявленный {@code Content-Length}
+     * больше допустимого отклоняется сразу, без чтения; без него размер
+     * проверяется по мере чтения.
+     *
+     * @throws PayloadTooLargeException если тело больше допустимого
+     */
+    protected JsonReader openJsonReader(HttpExchange exchange) {
+        long declared = -1;
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength != null) {
+            try {
+                declared = Long.parseLong(contentLength.trim());
+            } catch (NumberFormatException e) {
+                // Некорректную длину проверит сам HttpServer, здесь поможет ограничение при чтении
+            }
+        }
+        if (declared > maxBodyBytes) {
+            throw new PayloadTooLargeException(maxBodyBytes);
+        }
+        // Буфер декодера по размеру тела: InputStreamReader всегда берёт 8 КБ, больше самого запроса
+        int buffer = declared >= 0 && declared < REQUEST_BUFFER_SIZE
+                ? Math.max((int) declared, MIN_REQUEST_BUFFER_SIZE) : REQUEST_BUFFER_SIZE;
+        InputStream body = new LimitedInputStream(exchange.getRequestBody(), maxBodyBytes);
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        return gson.newJsonReader(Channels.newReader(Channels.newChannel(body), decoder, buffer));
+    }
+
+    /**
+     * Поток, который выбрасывает {@link PayloadTooLargeException}, как только прочитано
+     * больше {@code limit} байт.
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long remaining;
+
+        private LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(int read) {
+            remaining -= read;
+            if (remaining < 0) {
+                throw new PayloadTooLargeException(limit);
+            }
+        }
     }
 
     /**
@@ -36,4 +259,500 @@ public abstract class BaseHttpHandler implements HttpHandler {
             os.write(resp);
         }
     }
+
+    /**
+     * Потоковая отправка объекта в JSON с указанным HTTP-статусом.
+     *
+     * @param exchange объект HttpExchange.
+     * @param body     объект ответа.
+     * @param status   HTTP-статус.
+     * @throws IOException в случае ошибок ввода-вывода.
+     * @see #streamJson(HttpExchange, Gson, int, JsonBody)
+     */
+    protected void sendJson(HttpExchange exchange, Object body, int status) throws IOException {
+        streamJson(exchange, gson, status, writer -> gson.toJson(body, body.getClass(), writer));
+    }
+
+    /**
+     * Тело ответа, которое пишется прямо в {@link JsonWriter}.
+     */
+    @FunctionalInterface
+    interface JsonBody {
+        void write(JsonWriter writer) throws IOException;
+    }
+
+    /**
+     * Пишет JSON сразу в тело ответа с chunked-кодированием, не собирая его в строку и массив байт:
+     * память на запрос ограничена буфером записи и не зависит от размера ответа.
+     * Заголовки отправляются до сериализации, поэтому ошибка посреди записи обрывает ответ
+     * вместо смены статуса. Если клиент принимает gzip, ответ сжимается на лету
+     * (см. {@link #openJsonBody(HttpExchange, int)}).
+     */
+    static void streamJson(HttpExchange exchange, Gson gson, int status, JsonBody body) throws IOException {
+        writeJson(openJsonBody(exchange, status), gson, body);
+    }
+
+    private static void writeJson(OutputStream out, Gson gson, JsonBody body) throws IOException {
+        try (JsonWriter writer = gson.newJsonWriter(new BufferedWriter(
+                new OutputStreamWriter(out, StandardCharsets.UTF_8), RESPONSE_BUFFER_SIZE))) {
+            body.write(writer);
+        }
+    }
+
+    /**
+     * Открывает тело JSON-ответа. Без {@code Accept-Encoding: gzip} заголовки отправляются сразу
+     * и тело идёт chunked. Иначе решение откладывается, пока не записано {@link #GZIP_MIN_BYTES}
+     * байт: короткий ответ уходит несжатым с известной длиной, длинный — сжатым потоком.
+     */
+    static OutputStream openJsonBody(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().add(HEADER_CONTENT_TYPE, MIME_APPLICATION_JSON_UTF8);
+        if (GZIP_MIN_BYTES >= 0) {
+            exchange.getResponseHeaders().set(HEADER_VARY, HEADER_ACCEPT_ENCODING);
+        }
+        if (GZIP_MIN_BYTES < 0 || !acceptsGzip(exchange)) {
+            exchange.sendResponseHeaders(status, 0);
+            return exchange.getResponseBody();
+        }
+        return new DeferredGzipOutputStream(exchange, status);
+    }
+
+    /**
+     * Проверяет, принимает ли клиент gzip: явно или через {@code *}, с ненулевым весом {@code q}.
+     */
+    static boolean acceptsGzip(HttpExchange exchange) {
+        List<String> values = exchange.getRequestHeaders().get(HEADER_ACCEPT_ENCODING);
+        if (values == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String value : values) {
+            for (String coding : value.split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].trim().toLowerCase(Locale.ROOT);
+                double quality = 1;
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim();
+                    if (parameter.startsWith("q=")) {
+                        try {
+                            quality = Double.parseDouble(parameter.substring(2));
+                        } catch (NumberFormatException e) {
+                            quality = 0;
+                        }
+                    }
+                }
+                if (name.equals(GZIP) || name.equals("x-gzip")) {
+                    gzip = quality;
+                } else if (name.equals("*")) {
+                    any = quality;
+                }
+            }
+        }
+        Double quality = gzip != null ? gzip : any;
+        return quality != null && quality > 0;
+    }
+
+    private static OutputStream gzip(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, RESPONSE_BUFFER_SIZE) {
+            {
+                def.setLevel(GZIP_LEVEL);
+            }
+        };
+    }
+
+    /**
+     * Тело ответа, которое копит первые байты до порога сжатия и только тогда отправляет
+     * заголовки: при закрытии до порога — без сжатия и с длиной, при превышении —
+     * с {@code Content-Encoding: gzip} и chunked-кодированием.
+     */
+    private static final class DeferredGzipOutputStream extends OutputStream {
+        private final HttpExchange exchange;
+        private final int status;
+        private ByteArrayOutputStream head = new ByteArrayOutputStream();
+        private OutputStream out;
+        // Буфер для write(int), чтобы не создавать массив на каждый байт
+        private final byte[] single = new byte[1];
+
+        private DeferredGzipOutputStream(HttpExchange exchange, int status) {
+            this.exchange = exchange;
+            this.status = status;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            single[0] = (byte) b;
+            write(single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (out == null && head.size() + len < GZIP_MIN_BYTES) {
+                head.write(b, off, len);
+                return;
+            }
+            if (out == null) {
+                exchange.getResponseHeaders().set(HEADER_CONTENT_ENCODING, GZIP);
+                exchange.sendResponseHeaders(status, 0);
+                out = gzip(exchange.getResponseBody());
+                head.writeTo(out);
+                head = null;
+            }
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // До решения о сжатии сбрасывать нечего; сжатый поток сбрасывается при закрытии,
+            // чтобы не дробить блоки deflate
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out == null) {
+                exchange.sendResponseHeaders(status, head.size() > 0 ? head.size() : -1);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    head.writeTo(body);
+                }
+                return;
+            }
+            out.close();
+        }
+    }
+
+    /**
+     * Отправляет ответ 200 из кеша по ключу {@code key} или собирает его, передавая клиенту потоком
+     * и одновременно сохраняя в кеш, если он не больше допустимого размера записи. Заголовок
+     * {@code X-Cache} сообщает, откуда взят ответ.
+     *
+     * @param version версия данных, прочитанная до чтения данных ответа
+     * @param body    запись ответа; вызывается только при промахе
+     */
+    protected void sendCached(HttpExchange exchange, String key, long version, JsonBody body) throws IOException {
+        if (responseCache == null) {
+            streamJson(exchange, gson, 200, body);
+            return;
+        }
+        byte[] cached = responseCache.get(key);
+        if (cached != null) {
+            exchange.getResponseHeaders().set(HEADER_CACHE, "HIT");
+            sendCachedBytes(exchange, key, cached);
+            return;
+        }
+        exchange.getResponseHeaders().set(HEADER_CACHE, "MISS");
+        // Копируется несжатый JSON: сжатая версия сохраняется отдельно при первом попадании
+        CapturingOutputStream capture = new CapturingOutputStream(openJsonBody(exchange, 200), responseCache.maxEntryBytes());
+        writeJson(capture, gson, body);
+        byte[] response = capture.captured();
+        if (response != null) {
+            responseCache.put(key, response, version);
+        }
+    }
+
+    /**
+     * Отправляет ответ из кеша с известной длиной. Сжатая версия строится один раз и хранится
+     * в кеше рядом с исходной.
+     */
+    private void sendCachedBytes(HttpExchange exchange, String key, byte[] cached) throws IOException {
+        byte[] response = cached;
+        Headers headers = exchange.getResponseHeaders();
+        headers.add(HEADER_CONTENT_TYPE, MIME_APPLICATION_JSON_UTF8);
+        if (GZIP_MIN_BYTES >= 0) {
+            headers.set(HEADER_VARY, HEADER_ACCEPT_ENCODING);
+        }
+        if (GZIP_MIN_BYTES >= 0 && cached.length >= GZIP_MIN_BYTES && acceptsGzip(exchange)) {
+            response = responseCache.getCompressed(key);
+            if (response == null) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(cached.length / 4);
+                try (OutputStream gzip = gzip(compressed)) {
+                    gzip.write(cached);
+                }
+                response = compressed.toByteArray();
+                responseCache.putCompressed(key, cached, response);
+            }
+            headers.set(HEADER_CONTENT_ENCODING, GZIP);
+        }
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(response);
+        }
+    }
+
+    /**
+     * Как {@link #sendCached(HttpExchange, String, long, JsonBody)} для объекта, который
+     * сериализуется целиком; {@code body} вызывается только при промахе.
+     */
+    protected void sendCachedJson(HttpExchange exchange, String key, long version, Supplier<?> body) throws IOException {
+        sendCached(exchange, key, version, writer -> {
+            Object value = body.get();
+            gson.toJson(value, value.getClass(), writer);
+        });
+    }
+
+    /**
+     * Поток ответа, сохраняющий копию записанного, пока она не превысила {@code limit} байт.
+     */
+    private static final class CapturingOutputStream extends FilterOutputStream {
+        private final int limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        private CapturingOutputStream(OutputStream out, int limit) {
+            super(out);
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (copy != null && copy.size() < limit) {
+                copy.write(b);
+            } else {
+                copy = null;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            capture(b, off, len);
+        }
+
+        private void capture(byte[] b, int off, int len) {
+            if (copy != null && copy.size() + len <= limit) {
+                copy.write(b, off, len);
+            } else {
+                copy = null;
+            }
+        }
+
+        /**
+         * Записанный ответ или {@code null}, если он превысил ограничение.
+         */
+        private byte[] captured() {
+            return copy != null ? copy.toByteArray() : null;
+        }
+    }
+
+    /**
+     * Условный GET для списков. Ставит заголовки {@code ETag} и {@code Last-Modified} по версии
+     * данных менеджера; если клиент прислал совпадающий {@code If-None-Match} или не более старый
+     * {@code If-Modified-Since}, отвечает {@code 304} без тела и возвращает {@code true}.
+     *
+     * <p>Версия читается до данных, поэтому ответ не может оказаться старше своего ETag: в худшем
+     * случае клиент получит тело заново. {@code If-None-Match} важнее {@code If-Modified-Since},
+     * у которого точность — секунда. Пока идёт секунда последнего изменения, в ней возможны
+     * новые записи, поэтому {@code Last-Modified} не отправляется, а {@code If-Modified-Since}
+     * не учитывается — такие ответы проверяются только по ETag. Не подходит для запросов по ID:
+     * они пишут просмотр в историю, и ответ 304 потерял бы его.</p>
+     *
+     * @return {@code true}, если ответ 304 уже отправлен
+     */
+    protected boolean respondNotModified(HttpExchange exchange) throws IOException {
+        long version = taskManager.getVersion();
+        Instant lastModified = taskManager.getLastModified().truncatedTo(ChronoUnit.SECONDS);
+        boolean settled = lastModified.isBefore(Instant.now().truncatedTo(ChronoUnit.SECONDS));
+        String etag = ETAG_PREFIX + version + "\"";
+
+        Headers response = exchange.getResponseHeaders();
+        response.set(HEADER_ETAG, etag);
+        if (settled) {
+            response.set(HEADER_LAST_MODIFIED, DateTimeFormatter.RFC_1123_DATE_TIME.format(lastModified.atOffset(ZoneOffset.UTC)));
+        }
+        response.set("Cache-Control", "no-cache");
+
+        Headers request = exchange.getRequestHeaders();
+        boolean notModified;
+        if (request.containsKey(HEADER_IF_NONE_MATCH)) {
+            notModified = matchesEtag(request.get(HEADER_IF_NONE_MATCH), etag);
+        } else {
+            notModified = settled && notModifiedSince(request.getFirst(HEADER_IF_MODIFIED_SINCE), lastModified);
+        }
+        if (notModified) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+        }
+        return notModified;
+    }
+
+    /**
+     * Слабое сравнение ETag: префикс {@code W/} не учитывается, {@code *} совпадает с любым.
+     */
+    private static boolean matchesEtag(List<String> headerValues, String etag) {
+        String opaque = etag.substring(2);
+        for (String value : headerValues) {
+            for (String candidate : value.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(opaque)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean notModifiedSince(String header, Instant lastModified) {
+        if (header == null) {
+            return false;
+        }
+        try {
+            Instant since = Instant.from(DateTimeFormatter.RFC_1123_DATE_TIME.parse(header));
+            return !lastModified.isAfter(since);
+        } catch (DateTimeParseException e) {
+            // Некорректная дата игнорируется, как того требует RFC 9110
+            return false;
+        }
+    }
+
+    /**
+     * Проверяет, запрошена ли страница списка, а не весь список.
+     */
+    protected static boolean isPageRequest(Map<String, String> params) {
+        return params.keySet().stream().anyMatch(QUERY_PARAMETERS::contains);
+    }
+
+    /**
+     * Отправляет страницу списка по параметрам {@code after}, {@code limit}, {@code status},
+     * {@code from}, {@code to} и {@code fields}. Выборка выполняется менеджером, поэтому полный
+     * список не строится. Если страница заполнена, курсор следующей передаётся в заголовке
+     * {@code X-Next-Cursor}: ID и время начала последнего элемента через {@code @}, например
+     * {@code 17@2025-01-01T10:00}, или {@code 17@} у элемента без времени. Такой курсор задаёт
+     * место в порядке списка и остаётся верным, даже если элемент успели удалить. Параметр
+     * {@code after} принимает и просто ID — тогда элемент должен существовать.
+     *
+     * @param find запрос страницы у менеджера задач
+     */
+    protected <T extends Task> void sendPage(HttpExchange exchange, Map<String, String> params,
+                                             Function<TaskQuery, List<T>> find) throws IOException {
+        TaskQuery query;
+        List<T> page;
+        try {
+            query = parseTaskQuery(params);
+            page = find.apply(query);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            sendText(exchange, "{\"error\":\"Invalid query parameters\"}", 400);
+            return;
+        }
+        List<String> fields = params.containsKey("fields") ? List.of(params.get("fields").split(",")) : List.of();
+
+        if (!page.isEmpty() && page.size() == query.limit()) {
+            exchange.getResponseHeaders().add(HEADER_NEXT_CURSOR, formatCursor(page.getLast()));
+        }
+        streamJson(exchange, gson, 200, writer -> {
+            writer.beginArray();
+            for (T task : page) {
+                if (fields.isEmpty()) {
+                    gson.toJson(task, task.getClass(), writer);
+                } else {
+                    writeFields(writer, gson.toJsonTree(task).getAsJsonObject(), fields);
+                }
+            }
+            writer.endArray();
+        });
+    }
+
+    /**
+     * Отвечает самым ранним свободным интервалом для задачи или подзадачи:
+     * {@code {"startTime": ..., "endTime": ...}}. Продолжительность передаётся параметром
+     * {@code duration} в формате ISO-8601 ({@code PT30M}), нижняя граница — параметром
+     * {@code from}, по умолчанию текущее время.
+     */
+    protected void sendEarliestSlot(HttpExchange exchange, Class<? extends Task> type) throws IOException {
+        Map<String, String> params = parseQuery(exchange);
+        LocalDateTime start;
+        Duration duration;
+        try {
+            if (!params.containsKey("duration")) {
+                throw new IllegalArgumentException("Duration is required");
+            }
+            duration = Duration.parse(params.get("duration"));
+            LocalDateTime from = params.containsKey("from") ? LocalDateTime.parse(params.get("from"))
+                    : LocalDateTime.now();
+            start = taskManager.findEarliestSlot(duration, from, type);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            sendText(exchange, "{\"error\":\"Invalid query parameters\"}", 400);
+            return;
+        }
+        streamJson(exchange, gson, 200, writer -> {
+            writer.beginObject();
+            writer.name("startTime");
+            gson.toJson(start, LocalDateTime.class, writer);
+            writer.name("endTime");
+            gson.toJson(start.plus(duration), LocalDateTime.class, writer);
+            writer.endObject();
+        });
+    }
+
+    private void writeFields(JsonWriter writer, JsonObject json, List<String> fields) throws IOException {
+        writer.beginObject();
+        for (String field : fields) {
+            JsonElement value = json.get(field.trim());
+            if (value != null) {
+                writer.name(field.trim());
+                gson.toJson(value, writer);
+            }
+        }
+        writer.endObject();
+    }
+
+    private static String formatCursor(Task task) {
+        return task.getId() + CURSOR_SEPARATOR + (task.getStartTime() != null ? task.getStartTime() : "");
+    }
+
+    private static TaskQuery.Cursor parseCursor(String value) {
+        int separator = value.indexOf(CURSOR_SEPARATOR);
+        if (separator < 0) {
+            return new TaskQuery.Cursor(Integer.parseInt(value), null, false);
+        }
+        String time = value.substring(separator + 1);
+        return new TaskQuery.Cursor(Integer.parseInt(value.substring(0, separator)),
+                time.isEmpty() ? null : LocalDateTime.parse(time), true);
+    }
+
+    /**
+     * Размер страницы из параметра {@code limit}: по умолчанию {@value #DEFAULT_PAGE_SIZE},
+     * больше {@value #MAX_PAGE_SIZE} не выдаётся.
+     *
+     * @throws IllegalArgumentException если {@code limit} не положительный
+     */
+    protected static int parseLimit(Map<String, String> params) {
+        int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : DEFAULT_PAGE_SIZE;
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    private static TaskQuery parseTaskQuery(Map<String, String> params) {
+        TaskQuery.Cursor after = params.containsKey("after") ? parseCursor(params.get("after")) : null;
+        int limit = parseLimit(params);
+        Set<Status> statuses = EnumSet.noneOf(Status.class);
+        if (params.containsKey("status")) {
+            for (String status : params.get("status").split(",")) {
+                statuses.add(Status.valueOf(status.trim().toUpperCase(Locale.ROOT)));
+            }
+        }
+        LocalDateTime from = params.containsKey("from") ? LocalDateTime.parse(params.get("from")) : null;
+        LocalDateTime to = params.containsKey("to") ? LocalDateTime.parse(params.get("to")) : null;
+        return new TaskQuery(after, limit, statuses, from, to);
+    }
+
+    /**
+     * Разбор параметров строки запроса.
+     *
+     * @param exchange объект HttpExchange.
+     * @return параметры запроса; пустая карта, если параметров нет.
+     */
+    protected Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isBlank()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator >= 0 ? pair.substring(0, separator) : pair;
+            String value = separator >= 0 ? pair.substring(separator + 1) : "";
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
 }
\ No newline at end of file
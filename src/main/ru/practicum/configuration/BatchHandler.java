@@ -0,0 +1,194 @@
+package ru.practicum.configuration;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.exception.BatchException;
+import ru.practicum.exception.PayloadTooLargeException;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+import ru.practicum.service.Operation;
+import ru.practicum.service.TaskManager;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * {@code POST /batch} — пакет изменений, применяемый целиком или не применяемый вовсе
+ * (см. {@link TaskManager#applyBatch(List)}).
+ *
+ * <p>Тело запроса — массив операций:</p>
+ * <pre>
+ * [{"op": "create", "type": "epic", "task": {...}},
+ *  {"op": "create", "type": "subtask", "task": {..., "epicId": -1}},
+ *  {"op": "update", "type": "task", "task": {"id": 5, ...}},
+ *  {"op": "delete", "id": 7}]
+ * </pre>
+ *
+ * <p>Ответ содержит результат каждой операции по порядку: {@code id} и статус, как у одиночного
+ * запроса ({@code 201} для создания, {@code 200} для изменения и удаления). Если операция не
+ * прошла проверку, ответ — {@code 406}: у неё статус {@code 406} и описание ошибки, у остальных —
+ * {@code 424}, то есть не применены из-за неё.</p>
+ */
+public class BatchHandler extends BaseHttpHandler {
+
+    public BatchHandler(TaskManager taskManager, Gson gson) {
+        super(taskManager, gson);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+
+        try {
+            if ("POST".equalsIgnoreCase(method)) {
+                handleBatch(exchange);
+            } else {
+                sendText(exchange, "{\"error\":\"Method Not Allowed\"}", 405);
+            }
+        } catch (Exception e) {
+            sendText(exchange, "{\"error\":\"Internal Server Error\"}", 500);
+        }
+    }
+
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        List<Operation> operations;
+        try (JsonReader reader = openJsonReader(exchange)) {
+            operations = readOperations(reader);
+        } catch (PayloadTooLargeException e) {
+            sendText(exchange, gson.toJson(error(e.getMessage())), 413);
+            return;
+        } catch (JsonParseException | MalformedJsonException | EOFException | IllegalArgumentException
+                 | IllegalStateException | DateTimeParseException | NullPointerException e) {
+            sendText(exchange, gson.toJson(error("Invalid batch: " + e.getMessage())), 400);
+            return;
+        }
+
+        List<Integer> ids;
+        try {
+            ids = taskManager.applyBatch(operations);
+        } catch (BatchException e) {
+            JsonObject response = error(e.getMessage());
+            response.addProperty("index", e.getIndex());
+            JsonArray results = new JsonArray(operations.size());
+            for (int i = 0; i < operations.size(); i++) {
+                JsonObject result = new JsonObject();
+                result.addProperty("index", i);
+                result.addProperty("status", i == e.getIndex() ? 406 : 424);
+                if (i == e.getIndex()) {
+                    result.addProperty("error", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                }
+                results.add(result);
+            }
+            response.add("results", results);
+            sendJson(exchange, response, 406);
+            return;
+        }
+
+        JsonArray results = new JsonArray(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            JsonObject result = new JsonObject();
+            result.addProperty("index", i);
+            result.addProperty("id", ids.get(i));
+            result.addProperty("status", operations.get(i).type() == Operation.Type.CREATE ? 201 : 200);
+            results.add(result);
+        }
+        JsonObject response = new JsonObject();
+        response.add("results", results);
+        sendJson(exchange, response, 200);
+    }
+
+    /**
+     * Читает операции прямо из потока. Задача операции разбирается сразу в объект нужного
+     * класса, если {@code type} встретился раньше {@code task}; иначе её дерево JSON
+     * сохраняется до конца объекта операции.
+     */
+    private List<Operation> readOperations(JsonReader reader) throws IOException {
+        List<Operation> operations = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            operations.add(readOperation(reader, operations.size()));
+        }
+        reader.endArray();
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new IllegalArgumentException("unexpected data after operations");
+        }
+        return operations;
+    }
+
+    private Operation readOperation(JsonReader reader, int index) throws IOException {
+        Operation.Type op = null;
+        Class<? extends Task> type = null;
+        Integer id = null;
+        Task task = null;
+        JsonElement pendingTask = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "op" -> op = Operation.Type.valueOf(reader.nextString().toUpperCase(Locale.ROOT));
+                case "type" -> type = taskClass(reader.nextString());
+                case "id" -> id = reader.nextInt();
+                case "task" -> {
+                    if (type != null) {
+                        task = gson.fromJson(reader, type);
+                    } else {
+                        pendingTask = JsonParser.parseReader(reader);
+                    }
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (op == null) {
+            throw new IllegalArgumentException("operation " + index + " has no op");
+        }
+        if (op == Operation.Type.DELETE) {
+            if (id == null) {
+                throw new IllegalArgumentException("operation " + index + " has no id");
+            }
+            return Operation.delete(id);
+        }
+        if (pendingTask != null) {
+            if (type == null) {
+                throw new IllegalArgumentException("operation " + index + " has no type");
+            }
+            task = gson.fromJson(pendingTask, type);
+        }
+        if (task == null) {
+            throw new IllegalArgumentException("operation " + index + " has no task");
+        }
+        if (task.getStatus() == null) {
+            task.setStatus(Status.NEW);
+        }
+        return new Operation(op, task, null);
+    }
+
+    private static Class<? extends Task> taskClass(String type) {
+        return switch (type.toLowerCase(Locale.ROOT)) {
+            case "task" -> Task.class;
+            case "epic" -> Epic.class;
+            case "subtask" -> Subtask.class;
+            default -> throw new IllegalArgumentException("unknown type " + type);
+        };
+    }
+
+    private static JsonObject error(String message) {
+        JsonObject error = new JsonObject();
+        error.addProperty("error", message);
+        return error;
+    }
+}
@@ -1,88 +1,111 @@
 package ru.practicum.configuration;
 
 import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.exception.PayloadTooLargeException;
 import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
 import ru.practicum.model.Subtask;
+import ru.practicum.service.HistorySessions;
 import ru.practicum.service.TaskManager;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class EpicHandler extends BaseHttpHandler {
+    private static final Type SUBTASK_LIST = new TypeToken<List<Subtask>>() {
+    }.getType();
+
+    private static final Router<EpicHandler> ROUTER = new Router<EpicHandler>()
+            .on("GET", "/epics", (handler, exchange, id) -> handler.handleGetAllEpics(exchange))
+            .on("GET", "/epics/{id}", EpicHandler::handleGetEpicById)
+            .on("GET", "/epics/{id}/subtasks", EpicHandler::handleGetSubtasksByEpicId)
+            .on("POST", "/epics", (handler, exchange, id) -> handler.handleCreateOrUpdateEpic(exchange))
+            .on("DELETE", "/epics", (handler, exchange, id) -> handler.handleDeleteAllEpics(exchange))
+            .on("DELETE", "/epics/{id}", EpicHandler::handleDeleteEpicById);
 
     public EpicHandler(TaskManager taskManager, Gson gson) {
         super(taskManager, gson);
     }
 
+    public EpicHandler(TaskManager taskManager, Gson gson, HistorySessions sessions) {
+        super(taskManager, gson, sessions);
+    }
+
+    public EpicHandler(TaskManager taskManager, Gson gson, HistorySessions sessions, ResponseCache responseCache) {
+        super(taskManager, gson, sessions, responseCache);
+    }
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        String method = exchange.getRequestMethod();
-        String path = exchange.getRequestURI().getPath();
-        String[] parts = path.split("/");
-
         try {
-            if ("GET".equalsIgnoreCase(method) && parts.length == 4 && "subtasks".equals(parts[3])) {
-                int epicId = Integer.parseInt(parts[2]);
-                handleGetSubtasksByEpicId(exchange, epicId);
-            } else if ("GET".equalsIgnoreCase(method) && parts.length == 2) {
-                handleGetAllEpics(exchange);
-            } else if ("GET".equalsIgnoreCase(method) && parts.length == 3) {
-                int id = Integer.parseInt(parts[2]);
-                handleGetEpicById(exchange, id);
-            } else if ("POST".equalsIgnoreCase(method) && parts.length == 2) {
-                handleCreateOrUpdateEpic(exchange);
-            } else if ("DELETE".equalsIgnoreCase(method) && parts.length == 2) {
-                handleDeleteAllEpics(exchange);
-            } else if ("DELETE".equalsIgnoreCase(method) && parts.length == 3) {
-                int id = Integer.parseInt(parts[2]);
-                handleDeleteEpicById(exchange, id);
-            } else {
+            if (!ROUTER.dispatch(this, exchange)) {
                 sendText(exchange, "{\"error\":\"Method Not Allowed\"}", 405);
             }
         } catch (NumberFormatException e) {
             sendText(exchange, "{\"error\":\"Invalid Epic ID\"}", 400);
+        } catch (PayloadTooLargeException e) {
+            sendText(exchange, "{\"error\":\"Payload Too Large\"}", 413);
         } catch (Exception e) {
             sendText(exchange, "{\"error\":\"Internal Server Error\"}", 500);
         }
     }
 
+    /**
+     * Без параметров возвращает все эпики в прежнем формате с полем {@code epicId}.
+     * Страница ({@code ?after=&limit=&status=&from=&to=&fields=}) возвращает эпики в том же
+     * формате, что и GET /epics/{id}; {@code fields} позволяет не передавать подзадачи.
+     */
     private void handleGetAllEpics(HttpExchange exchange) throws IOException {
-        List<Epic> epics = taskManager.getAllEpics();
-
-        List<Map<String, Object>> responseList = epics.stream().map(epic -> {
-            Map<String, Object> epicData = new HashMap<>();
-            epicData.put("epicId", epic.getId());
-            epicData.put("name", epic.getName());
-            epicData.put("description", epic.getDescription());
-            epicData.put("status", epic.getStatus());
-            epicData.put("duration", epic.getDuration());
-            epicData.put("startTime", epic.getStartTime());
-            epicData.put("subtasks", epic.getSubtasks());
-            return epicData;
-        }).collect(Collectors.toList());
-
-        sendText(exchange, gson.toJson(responseList), 200);
+        if (respondNotModified(exchange)) {
+            return;
+        }
+        Map<String, String> params = parseQuery(exchange);
+        if (isPageRequest(params)) {
+            sendPage(exchange, params, taskManager::findEpics);
+            return;
+        }
+        long version = taskManager.getVersion();
+
+        // Каждый эпик пишется сразу в ответ, без промежуточного списка карт
+        sendCached(exchange, ResponseCache.collectionPath(Epic.class), version, writer -> {
+            writer.beginArray();
+            for (Epic epic : taskManager.getAllEpics()) {
+                writer.beginObject();
+                writer.name("epicId").value(epic.getId());
+                writer.name("name").value(epic.getName());
+                writer.name("description").value(epic.getDescription());
+                writer.name("status");
+                gson.toJson(epic.getStatus(), Status.class, writer);
+                writer.name("duration");
+                gson.toJson(epic.getDuration(), Duration.class, writer);
+                writer.name("startTime");
+                gson.toJson(epic.getStartTime(), LocalDateTime.class, writer);
+                writer.name("subtasks");
+                gson.toJson(epic.getSubtasks(), SUBTASK_LIST, writer);
+                writer.endObject();
+            }
+            writer.endArray();
+        });
     }
 
     private void handleGetEpicById(HttpExchange exchange, int id) throws IOException {
-        Epic epic = taskManager.getEpicById(id);
+        long version = taskManager.getVersion();
+        Epic epic = getEpicById(exchange, id);
         if (epic != null) {
-            sendText(exchange, gson.toJson(epic), 200);
+            sendCachedJson(exchange, "/epics/" + id, version, () -> epic);
         } else {
             sendText(exchange, "{\"error\":\"Epic not found\"}", 404);
         }
     }
 
     private void handleCreateOrUpdateEpic(HttpExchange exchange) throws IOException {
-        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
-        System.out.println("Получен JSON: " + body);
-
-        Epic epic = gson.fromJson(body, Epic.class);
+        Epic epic = readJson(exchange, Epic.class);
         System.out.println("Парсинг успешен: " + epic);
 
         try {
@@ -92,14 +115,14 @@ public class EpicHandler extends BaseHttpHandler {
                 System.out.println("ID не передан, создаем новый эпик.");
             }
 
-            if (epic.getId() != null && taskManager.getEpicById(epic.getId()) != null) {
+            if (epic.getId() != null && getEpicById(exchange, epic.getId()) != null) {
                 System.out.println("Обновление существующего эпика...");
                 taskManager.updateEpic(epic);
-                sendText(exchange, gson.toJson(epic), 200);
+                sendJson(exchange, epic, 200);
             } else {
                 System.out.println("Создание нового эпика...");
                 taskManager.saveEpic(epic);
-                sendText(exchange, gson.toJson(epic), 201);
+                sendJson(exchange, epic, 201);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -109,10 +132,11 @@ public class EpicHandler extends BaseHttpHandler {
     }
 
     private void handleGetSubtasksByEpicId(HttpExchange exchange, int epicId) throws IOException {
-        Epic epic = taskManager.getEpicById(epicId);
+        long version = taskManager.getVersion();
+        Epic epic = getEpicById(exchange, epicId);
         if (epic != null) {
-            List<Subtask> subtasks = taskManager.getAllSubtasksByEpic(epic);
-            sendText(exchange, gson.toJson(subtasks), 200);
+            sendCachedJson(exchange, "/epics/" + epicId + "/subtasks", version,
+                    () -> taskManager.getAllSubtasksByEpic(epic));
         } else {
             sendText(exchange, "{\"error\":\"Epic not found\"}", 404);
         }
@@ -124,7 +148,7 @@ public class EpicHandler extends BaseHttpHandler {
     }
 
     private void handleDeleteEpicById(HttpExchange exchange, int id) throws IOException {
-        Epic epic = taskManager.getEpicById(id);
+        Epic epic = getEpicById(exchange, id);
         if (epic != null) {
             taskManager.deleteEpicById(id);
             sendText(exchange, "{\"message\":\"Epic deleted successfully\"}", 200);
@@ -3,10 +3,14 @@ package ru.practicum.configuration;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import ru.practicum.model.Task;
+import ru.practicum.service.HistoryManager;
+import ru.practicum.service.HistorySessions;
 import ru.practicum.service.TaskManager;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import static ru.practicum.configuration.BaseHttpHandler.HEADER_CONTENT_TYPE;
 import static ru.practicum.configuration.BaseHttpHandler.MIME_APPLICATION_JSON_UTF8;
@@ -14,10 +18,16 @@ import static ru.practicum.configuration.BaseHttpHandler.MIME_APPLICATION_JSON_U
 public class HistoryHandler implements HttpHandler {
     private final TaskManager taskManager;
     private final Gson gson;
+    private final HistorySessions sessions;
 
     public HistoryHandler(TaskManager taskManager, Gson gson) {
+        this(taskManager, gson, null);
+    }
+
+    public HistoryHandler(TaskManager taskManager, Gson gson, HistorySessions sessions) {
         this.taskManager = taskManager;
         this.gson = gson;
+        this.sessions = sessions;
     }
 
     @Override
@@ -32,11 +42,13 @@ public class HistoryHandler implements HttpHandler {
     }
 
     /**
-     * Обрабатывает GET-запрос на получение истории задач.
+     * Обрабатывает GET-запрос на получение истории задач: истории клиента, если передан
+     * заголовок {@code X-Session-Id}, иначе общей.
      */
     private void handleGetHistory(HttpExchange exchange) throws IOException {
-        String responseJson = gson.toJson(taskManager.getHistory());
-        sendText(exchange, responseJson, 200);
+        HistoryManager history = BaseHttpHandler.sessionHistory(exchange, sessions);
+        List<Task> tasks = history != null ? taskManager.getHistory(history) : taskManager.getHistory();
+        BaseHttpHandler.streamJson(exchange, gson, 200, writer -> gson.toJson(tasks, tasks.getClass(), writer));
     }
 
     /**
@@ -1,55 +1,239 @@
 package ru.practicum.configuration;
 
 import com.google.gson.Gson;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
+import ru.practicum.service.ConcurrentTaskManager;
 import ru.practicum.service.FileBackedTaskManager;
+import ru.practicum.service.HistorySessions;
+import ru.practicum.service.InMemoryHistoryManager;
 import ru.practicum.service.Managers;
+import ru.practicum.service.PersistencePolicy;
 import ru.practicum.service.TaskManager;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class HttpTaskServer {
     private static final int PORT = 8080;
+    private static final String EXECUTOR_PROPERTY = "kanban.http.executor";
+    private static final String THREADS_PROPERTY = "kanban.http.threads";
+    private static final String STORAGE_PROPERTY = "kanban.storage";
+    private static final String PERSISTENCE_PROPERTY = "kanban.persistence";
+    private static final String FILE_PROPERTY = "kanban.file";
+    private static final String SESSIONS_PROPERTY = "kanban.history.sessions";
+    private static final String SESSION_CAPACITY_PROPERTY = "kanban.history.session.capacity";
+    private static final String SESSION_IDLE_PROPERTY = "kanban.history.session.idle";
+    private static final String CACHE_BYTES_PROPERTY = "kanban.http.cache.bytes";
+    private static final String CACHE_ENTRY_PROPERTY = "kanban.http.cache.entry";
+    private static final int MAX_SESSION_ID_LENGTH = 128;
+
     private final HttpServer server;
     private final TaskManager taskManager;
     private final Gson gson;
+    private final HistorySessions historySessions;
+    private final ResponseCache responseCache;
+    private final ExecutorMode executorMode;
+    private final int threads;
+    private ExecutorService executor;
+
+    /**
+     * Режим обработки запросов.
+     */
+    public enum ExecutorMode {
+        /**
+         * Все запросы обрабатываются одним потоком-диспетчером HttpServer.
+         */
+        DISPATCHER,
+        /**
+         * Запросы обрабатываются пулом потоков фиксированного размера.
+         * Менеджер задач должен быть потокобезопасным, например {@link ConcurrentTaskManager}.
+         */
+        FIXED_POOL,
+        /**
+         * Каждый запрос обрабатывается в отдельном виртуальном потоке.
+         * Подходит для большого числа одновременных соединений; требования к менеджеру те же,
+         * что и для {@link #FIXED_POOL}.
+         */
+        VIRTUAL
+    }
 
+    /**
+     * Создаёт сервер с режимом из системных свойств {@code kanban.http.executor}
+     * ({@code dispatcher}, {@code fixed_pool} или {@code virtual}) и {@code kanban.http.threads}.
+     * По умолчанию запросы обрабатываются потоком-диспетчером.
+     */
     public HttpTaskServer(TaskManager taskManager) throws IOException {
+        this(taskManager, executorModeFromProperties(), Integer.getInteger(THREADS_PROPERTY, defaultThreads()));
+    }
+
+    /**
+     * @param taskManager  менеджер задач
+     * @param executorMode режим обработки запросов
+     * @param threads      размер пула для режима {@link ExecutorMode#FIXED_POOL}
+     */
+    public HttpTaskServer(TaskManager taskManager, ExecutorMode executorMode, int threads) throws IOException {
+        if (executorMode == ExecutorMode.FIXED_POOL && threads <= 0) {
+            throw new IllegalArgumentException("Thread pool size must be positive: " + threads);
+        }
         this.server = HttpServer.create(new InetSocketAddress(PORT), 0);
         this.taskManager = taskManager;
         this.gson = Managers.getDefaultGson();
+        this.historySessions = historySessionsFromProperties();
+        this.responseCache = responseCacheFromProperties(taskManager);
+        this.executorMode = executorMode;
+        this.threads = threads;
         initContext();
     }
 
     private void initContext() {
-        server.createContext("/tasks", new TaskHandler(taskManager, gson));
-        server.createContext("/subtasks", new SubtaskHandler(taskManager, gson));
-        server.createContext("/epics", new EpicHandler(taskManager, gson));
-        server.createContext("/history", new HistoryHandler(taskManager, gson));
-        server.createContext("/prioritized", new PrioritizedHandler(taskManager, gson));
+        createContext("/tasks", new TaskHandler(taskManager, gson, historySessions, responseCache));
+        createContext("/subtasks", new SubtaskHandler(taskManager, gson, historySessions, responseCache));
+        createContext("/epics", new EpicHandler(taskManager, gson, historySessions, responseCache));
+        createContext("/history", new HistoryHandler(taskManager, gson, historySessions));
+        createContext("/prioritized", new PrioritizedHandler(taskManager, gson, responseCache));
+        createContext("/batch", new BatchHandler(taskManager, gson));
+    }
+
+    private void createContext(String path, HttpHandler handler) {
+        server.createContext(path, handler).getFilters().add(sessionIdFilter());
+    }
+
+    /**
+     * Истории клиентов, передающих заголовок {@code X-Session-Id}. Число сессий, размер истории
+     * сессии и время бездействия в секундах задаются свойствами {@code kanban.history.sessions},
+     * {@code kanban.history.session.capacity} и {@code kanban.history.session.idle}; вместе
+     * первые два ограничивают общее число хранимых просмотров. Эпики хранятся без подзадач.
+     */
+    private static HistorySessions historySessionsFromProperties() {
+        int capacity = Integer.getInteger(SESSION_CAPACITY_PROPERTY, 100);
+        return new HistorySessions(Integer.getInteger(SESSIONS_PROPERTY, 1_000),
+                Duration.ofSeconds(Integer.getInteger(SESSION_IDLE_PROPERTY, 1_800)),
+                () -> new InMemoryHistoryManager(capacity, InMemoryHistoryManager.Retention.VIEW));
+    }
+
+    /**
+     * Кеш готовых ответов для GET по ID и полных списков. Общий объём и размер одного ответа
+     * в байтах задаются свойствами {@code kanban.http.cache.bytes} (по умолчанию 16 МБ,
+     * {@code 0} отключает кеш) и {@code kanban.http.cache.entry} (по умолчанию 256 КБ).
+     */
+    private static ResponseCache responseCacheFromProperties(TaskManager taskManager) {
+        long maxBytes = Long.getLong(CACHE_BYTES_PROPERTY, 16L * 1024 * 1024);
+        if (maxBytes <= 0) {
+            return null;
+        }
+        return new ResponseCache(taskManager, maxBytes, Integer.getInteger(CACHE_ENTRY_PROPERTY, 256 * 1024));
+    }
+
+    /**
+     * Кеш ответов с его показателями или {@code null}, если кеш отключён.
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Отклоняет слишком длинные ID сессий до обработчика, чтобы они не занимали память реестра.
+     */
+    private static Filter sessionIdFilter() {
+        return new Filter() {
+            @Override
+            public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+                String sessionId = exchange.getRequestHeaders().getFirst(BaseHttpHandler.HEADER_SESSION_ID);
+                if (sessionId != null && sessionId.length() > MAX_SESSION_ID_LENGTH) {
+                    byte[] response = "{\"error\":\"Invalid session id\"}".getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().add(BaseHttpHandler.HEADER_CONTENT_TYPE, BaseHttpHandler.MIME_APPLICATION_JSON_UTF8);
+                    exchange.sendResponseHeaders(400, response.length);
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        os.write(response);
+                    }
+                    return;
+                }
+                chain.doFilter(exchange);
+            }
+
+            @Override
+            public String description() {
+                return "Checks the X-Session-Id header";
+            }
+        };
     }
 
     public void start() {
-        server.setExecutor(null);
+        executor = switch (executorMode) {
+            case DISPATCHER -> null;
+            case FIXED_POOL -> Executors.newFixedThreadPool(threads);
+            case VIRTUAL -> Executors.newVirtualThreadPerTaskExecutor();
+        };
+        server.setExecutor(executor);
+        if (responseCache != null) {
+            taskManager.addChangeListener(responseCache);
+        }
         server.start();
-        System.out.println("HTTP server started on port " + PORT);
+        System.out.println("HTTP server started on port " + PORT + " (" + executorMode + ")");
     }
 
+    /**
+     * Останавливает сервер, дожидается обработки начатых запросов и записывает на диск
+     * все подтверждённые клиентам изменения.
+     */
     public void stop() {
         server.stop(0);
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (responseCache != null) {
+            taskManager.removeChangeListener(responseCache);
+        }
+        taskManager.flush();
         System.out.println("HTTP server stopped.");
     }
 
+    private static ExecutorMode executorModeFromProperties() {
+        String mode = System.getProperty(EXECUTOR_PROPERTY, ExecutorMode.DISPATCHER.name());
+        return ExecutorMode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+    }
+
+    private static int defaultThreads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
     public static void main(String[] args) throws IOException {
-        File file = new File("tasks.csv");
+        // Снимок с расширением .bin хранится в двоичном формате и загружается без разбора текста
+        File file = new File(System.getProperty(FILE_PROPERTY, "tasks.csv"));
 
-        // Загружаем данные из файла
-        TaskManager taskManager = FileBackedTaskManager.loadFromFile(file);
+        // Загружаем данные из файла; обёртка позволяет обрабатывать запросы параллельно.
+        // -Dkanban.storage=journal включает запись изменений в журнал вместо перезаписи файла,
+        // -Dkanban.persistence задаёт политику записи журнала (см. PersistencePolicy.parse)
+        FileBackedTaskManager.StorageMode storageMode = FileBackedTaskManager.StorageMode.valueOf(
+                System.getProperty(STORAGE_PROPERTY, "snapshot").trim().toUpperCase(Locale.ROOT));
+        PersistencePolicy persistencePolicy = PersistencePolicy.parse(System.getProperty(PERSISTENCE_PROPERTY, "sync"));
+        TaskManager taskManager = new ConcurrentTaskManager(
+                FileBackedTaskManager.loadFromFile(file, storageMode, persistencePolicy));
 
         // Создаем и запускаем сервер
-        HttpTaskServer server = new HttpTaskServer(taskManager);
+        ExecutorMode mode = System.getProperty(EXECUTOR_PROPERTY) != null ? executorModeFromProperties() : ExecutorMode.FIXED_POOL;
+        HttpTaskServer server = new HttpTaskServer(taskManager, mode, Integer.getInteger(THREADS_PROPERTY, defaultThreads()));
         server.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            taskManager.close();
+        }));
     }
-}
\ No newline at end of file
+}
@@ -6,13 +6,20 @@ import ru.practicum.model.Task;
 import ru.practicum.service.TaskManager;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
 
 class PrioritizedHandler extends BaseHttpHandler {
     public PrioritizedHandler(TaskManager taskManager, Gson gson) {
         super(taskManager, gson);
     }
 
+    public PrioritizedHandler(TaskManager taskManager, Gson gson, ResponseCache responseCache) {
+        super(taskManager, gson, null, responseCache);
+    }
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         String method = exchange.getRequestMethod();
@@ -23,19 +30,41 @@ class PrioritizedHandler extends BaseHttpHandler {
             } else {
                 sendText(exchange, "{\"error\":\"Method Not Allowed\"}", 405);
             }
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            sendText(exchange, "{\"error\":\"Invalid query parameters\"}", 400);
         } catch (Exception e) {
             sendText(exchange, "{\"error\":\"Internal Server Error\"}", 500);
         }
     }
 
     private void handleGetPrioritizedTasks(HttpExchange exchange) throws IOException {
-        // Получаем приоритетные задачи из TaskManager
-        List<Task> prioritizedTasks = taskManager.getPrioritizedTasks();
+        if (respondNotModified(exchange)) {
+            return;
+        }
+        Map<String, String> params = parseQuery(exchange);
 
-        // Формируем JSON-ответ
-        String jsonResponse = gson.toJson(prioritizedTasks);
+        // Календарь ?from=&to=: задачи, занятые в интервале, включая начавшиеся раньше from
+        if (params.containsKey("to")) {
+            if (!params.containsKey("from") || params.containsKey("limit")) {
+                throw new IllegalArgumentException("Интервал задаётся параметрами from и to без limit");
+            }
+            List<Task> inRange = taskManager.getTasksInRange(LocalDateTime.parse(params.get("from")),
+                    LocalDateTime.parse(params.get("to")));
+            sendJson(exchange, inRange, 200);
+            return;
+        }
+
+        // Получаем приоритетные задачи из TaskManager: весь список или страницу ?from=&limit=.
+        // Один from — страница размера по умолчанию, limit ограничен как у остальных списков
+        if (params.containsKey("limit") || params.containsKey("from")) {
+            LocalDateTime from = params.containsKey("from") ? LocalDateTime.parse(params.get("from")) : LocalDateTime.MIN;
+            List<Task> prioritizedTasks = taskManager.getPrioritizedTasks(from, parseLimit(params));
+            // Отправляем успешный ответ с кодом 200, JSON пишется прямо в тело ответа
+            sendJson(exchange, prioritizedTasks, 200);
+            return;
+        }
 
-        // Отправляем успешный ответ с кодом 200
-        sendText(exchange, jsonResponse, 200);
+        // Весь список отдаётся из кеша, пока задачи и подзадачи не изменятся
+        sendCachedJson(exchange, "/prioritized", taskManager.getVersion(), taskManager::getPrioritizedTasks);
     }
 }
\ No newline at end of file
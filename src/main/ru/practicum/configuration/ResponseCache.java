@@ -0,0 +1,206 @@
+package ru.practicum.configuration;
+
+import ru.practicum.model.Epic;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+import ru.practicum.service.TaskChangeListener;
+import ru.practicum.service.TaskManager;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Кеш готовых JSON-ответов в UTF-8 для объектов и списков, ключ — канонический путь запроса:
+ * {@code /tasks/5}, {@code /epics/3/subtasks}, {@code /tasks}, {@code /prioritized}.
+ * Рядом с ответом хранится его сжатая версия, если её запрашивали.
+ *
+ * <p>Размер ограничен суммой длин ответов, при переполнении вытесняются давно не запрошенные
+ * (LRU). Записи сбрасываются точечно по уведомлениям {@link TaskChangeListener}: изменение
+ * задачи сбрасывает её ответ и списки, в которые она входит, а не весь кеш.</p>
+ *
+ * <p>Ответ сохраняется, только если версия менеджера не изменилась с момента, прочитанного
+ * до чтения данных. Слушатели вызываются после увеличения версии, поэтому ответ, собранный
+ * до изменения, либо не попадёт в кеш, либо будет сброшен уведомлением.</p>
+ */
+public class ResponseCache implements TaskChangeListener {
+    /**
+     * Примерные накладные расходы на запись: ключ, узел карты и массив.
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final String PRIORITIZED = "/prioritized";
+
+    private final TaskManager taskManager;
+    private final long maxBytes;
+    private final int maxEntryBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Показатели кеша.
+     *
+     * @param hits      число ответов из кеша
+     * @param misses    число запросов, ответ на которые пришлось собирать
+     * @param evictions число записей, вытесненных из-за ограничения размера
+     * @param entries   число хранимых ответов
+     * @param bytes     занятая ответами память с учётом накладных расходов
+     */
+    public record Metrics(long hits, long misses, long evictions, int entries, long bytes) {
+    }
+
+    /**
+     * Создаёт пустой кеш. Записи сбрасываются, только пока кеш подписан на изменения менеджера
+     * через {@link TaskManager#addChangeListener(TaskChangeListener)}: это делает
+     * {@link HttpTaskServer#start()}, а {@link HttpTaskServer#stop()} отписывает его.
+     *
+     * @param maxBytes      общий объём хранимых ответов
+     * @param maxEntryBytes максимальный размер одного ответа; большие списки не кешируются
+     *                      и по-прежнему передаются потоком
+     */
+    public ResponseCache(TaskManager taskManager, long maxBytes, int maxEntryBytes) {
+        if (maxBytes <= 0 || maxEntryBytes <= 0) {
+            throw new IllegalArgumentException("Размер кеша должен быть положительным");
+        }
+        this.taskManager = taskManager;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    int maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    /**
+     * Возвращает сохранённый ответ и учитывает попадание или промах.
+     */
+    synchronized byte[] get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits++;
+            return entry.plain;
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Возвращает сжатую версию ответа, если она уже построена. Попадания не учитываются:
+     * перед этим ответ уже получен через {@link #get(String)}.
+     */
+    synchronized byte[] getCompressed(String key) {
+        Entry entry = entries.get(key);
+        return entry != null ? entry.compressed : null;
+    }
+
+    /**
+     * Сохраняет сжатую версию ответа {@code plain}, если запись не сброшена и не заменена
+     * с тех пор, как он был получен.
+     */
+    synchronized void putCompressed(String key, byte[] plain, byte[] compressed) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.plain != plain || entry.compressed != null) {
+            return;
+        }
+        entry.compressed = compressed;
+        bytes += compressed.length;
+        evict();
+    }
+
+    /**
+     * Сохраняет ответ, собранный из данных версии {@code version}, если с тех пор ничего не менялось.
+     */
+    synchronized void put(String key, byte[] response, long version) {
+        if (response.length > maxEntryBytes || taskManager.getVersion() != version) {
+            return;
+        }
+        Entry entry = new Entry(response);
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            bytes -= weight(key, previous);
+        }
+        bytes += weight(key, entry);
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Entry> entry = eldest.next();
+            bytes -= weight(entry.getKey(), entry.getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized Metrics metrics() {
+        return new Metrics(hits, misses, evictions, entries.size(), bytes);
+    }
+
+    @Override
+    public void changed(Class<? extends Task> type, Integer id) {
+        String collection = collectionPath(type);
+        synchronized (this) {
+            if (id == null) {
+                removeIf(key -> key.startsWith(collection));
+            } else {
+                remove(collection + "/" + id);
+                if (type == Epic.class) {
+                    remove(collection + "/" + id + "/subtasks");
+                }
+            }
+            remove(collection);
+            if (type != Epic.class) {
+                remove(PRIORITIZED);
+            }
+        }
+    }
+
+    /**
+     * Путь списка объектов указанного типа, он же префикс путей самих объектов.
+     */
+    static String collectionPath(Class<? extends Task> type) {
+        if (type == Epic.class) {
+            return "/epics";
+        }
+        return type == Subtask.class ? "/subtasks" : "/tasks";
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= weight(key, removed);
+        }
+    }
+
+    private void removeIf(Predicate<String> condition) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (condition.test(entry.getKey())) {
+                bytes -= weight(entry.getKey(), entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    private static long weight(String key, Entry entry) {
+        long compressed = entry.compressed != null ? entry.compressed.length : 0;
+        return entry.plain.length + compressed + 2L * key.length() + ENTRY_OVERHEAD;
+    }
+
+    /**
+     * Ответ и его сжатая gzip версия, которая строится при первом запросе с поддержкой сжатия.
+     */
+    private static final class Entry {
+        private final byte[] plain;
+        private byte[] compressed;
+
+        private Entry(byte[] plain) {
+            this.plain = plain;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package ru.practicum.configuration;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Таблица маршрутов обработчика: метод и шаблон пути вида {@code /epics/{id}/subtasks}.
+ *
+ * <p>Шаблоны разбираются один раз при регистрации на сегменты. Запрос сопоставляется
+ * проходом по строке пути через {@code indexOf} и {@code regionMatches}, без регулярных
+ * выражений, {@code split} и промежуточных строк: идентификатор читается прямо из пути
+ * {@link Integer#parseInt(CharSequence, int, int, int)}. Завершающий {@code /} игнорируется.</p>
+ *
+ * <p>Действия получают обработчик параметром, а не захватывают его, поэтому таблица строится
+ * один раз на класс обработчика в статическом поле, а не в каждом экземпляре.</p>
+ *
+ * <p>Маршруты проверяются в порядке регистрации. Если сегменты совпали, а на месте
+ * {@code {id}} не число, выбрасывается {@link NumberFormatException}, как и раньше
+ * при разборе пути, — обработчик отвечает {@code 400}.</p>
+ *
+ * @param <H> тип обработчика, методы которого вызывают маршруты
+ */
+final class Router<H> {
+    private static final String PARAMETER = "{id}";
+    private static final int NO_MATCH = Integer.MIN_VALUE;
+
+    private final List<Route<H>> routes = new ArrayList<>();
+
+    /**
+     * Действие маршрута.
+     */
+    @FunctionalInterface
+    interface Action<H> {
+        /**
+         * @param handler обработчик, принявший запрос
+         * @param id      значение {@code {id}} из пути или {@code -1}, если в шаблоне его нет
+         */
+        void handle(H handler, HttpExchange exchange, int id) throws IOException;
+    }
+
+    /**
+     * Регистрирует маршрут.
+     *
+     * @param method  HTTP-метод, сравнивается без учёта регистра
+     * @param pattern шаблон пути; сегмент {@code {id}} — целое число, не больше одного на шаблон
+     */
+    Router<H> on(String method, String pattern, Action<H> action) {
+        routes.add(new Route<>(method, compile(pattern), action));
+        return this;
+    }
+
+    /**
+     * Выполняет первый подходящий маршрут.
+     *
+     * @return {@code false}, если маршрута для метода и пути нет
+     */
+    boolean dispatch(H handler, HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        int end = path.length();
+        if (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        for (Route<H> route : routes) {
+            if (route.method.equalsIgnoreCase(method)) {
+                int id = match(route.segments, path, end);
+                if (id != NO_MATCH) {
+                    route.action.handle(handler, exchange, id);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Сопоставляет путь {@code path[0, end)} с сегментами шаблона.
+     *
+     * @return значение {@code {id}}, {@code -1}, если его нет в шаблоне, или {@link #NO_MATCH}
+     */
+    private static int match(String[] segments, String path, int end) {
+        int start = 0;
+        int parameterStart = -1;
+        int parameterEnd = -1;
+        for (String segment : segments) {
+            if (start >= end || path.charAt(start) != '/') {
+                return NO_MATCH;
+            }
+            start++;
+            int next = path.indexOf('/', start);
+            if (next < 0 || next > end) {
+                next = end;
+            }
+            if (segment == null) {
+                parameterStart = start;
+                parameterEnd = next;
+            } else if (next - start != segment.length() || !path.regionMatches(start, segment, 0, segment.length())) {
+                return NO_MATCH;
+            }
+            start = next;
+        }
+        if (start != end) {
+            return NO_MATCH;
+        }
+        return parameterStart < 0 ? -1 : Integer.parseInt(path, parameterStart, parameterEnd, 10);
+    }
+
+    /**
+     * Разбирает шаблон на сегменты; {@code null} обозначает {@code {id}}.
+     */
+    private static String[] compile(String pattern) {
+        if (!pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Шаблон пути должен начинаться с /: " + pattern);
+        }
+        List<String> segments = new ArrayList<>();
+        boolean parameter = false;
+        int start = 1;
+        while (start <= pattern.length()) {
+            int next = pattern.indexOf('/', start);
+            if (next < 0) {
+                next = pattern.length();
+            }
+            String segment = pattern.substring(start, next);
+            if (segment.isEmpty()) {
+                throw new IllegalArgumentException("Пустой сегмент в шаблоне " + pattern);
+            }
+            if (PARAMETER.equals(segment)) {
+                if (parameter) {
+                    throw new IllegalArgumentException("Больше одного {id} в шаблоне " + pattern);
+                }
+                parameter = true;
+                segments.add(null);
+            } else {
+                segments.add(segment);
+            }
+            start = next + 1;
+        }
+        return segments.toArray(new String[0]);
+    }
+
+    private record Route<H>(String method, String[] segments, Action<H> action) {
+    }
+}
@@ -2,74 +2,84 @@ package ru.practicum.configuration;
 
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.exception.PayloadTooLargeException;
 import ru.practicum.model.Subtask;
+import ru.practicum.service.HistorySessions;
 import ru.practicum.service.TaskManager;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 public class SubtaskHandler extends BaseHttpHandler {
+    private static final Router<SubtaskHandler> ROUTER = new Router<SubtaskHandler>()
+            .on("GET", "/subtasks", (handler, exchange, id) -> handler.handleGetAllSubtasks(exchange))
+            .on("GET", "/subtasks/slot", (handler, exchange, id) -> handler.sendEarliestSlot(exchange, Subtask.class))
+            .on("GET", "/subtasks/{id}", SubtaskHandler::handleGetSubtaskById)
+            .on("POST", "/subtasks", (handler, exchange, id) -> handler.handleCreateOrUpdateSubtask(exchange))
+            .on("DELETE", "/subtasks", (handler, exchange, id) -> handler.handleDeleteAllSubtasks(exchange))
+            .on("DELETE", "/subtasks/{id}", SubtaskHandler::handleDeleteSubtaskById);
 
     public SubtaskHandler(TaskManager taskManager, Gson gson) {
         super(taskManager, gson);
     }
 
+    public SubtaskHandler(TaskManager taskManager, Gson gson, HistorySessions sessions) {
+        super(taskManager, gson, sessions);
+    }
+
+    public SubtaskHandler(TaskManager taskManager, Gson gson, HistorySessions sessions, ResponseCache responseCache) {
+        super(taskManager, gson, sessions, responseCache);
+    }
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        String method = exchange.getRequestMethod();
-        String path = exchange.getRequestURI().getPath();
-        String[] parts = path.split("/");
-
         try {
-            if ("GET".equalsIgnoreCase(method) && parts.length == 2) {
-                handleGetAllSubtasks(exchange);
-            } else if ("GET".equalsIgnoreCase(method) && parts.length == 3) {
-                int id = Integer.parseInt(parts[2]);
-                handleGetSubtaskById(exchange, id);
-            } else if ("POST".equalsIgnoreCase(method) && parts.length == 2) {
-                handleCreateOrUpdateSubtask(exchange);
-            } else if ("DELETE".equalsIgnoreCase(method) && parts.length == 2) {
-                handleDeleteAllSubtasks(exchange);
-            } else if ("DELETE".equalsIgnoreCase(method) && parts.length == 3) {
-                int id = Integer.parseInt(parts[2]);
-                handleDeleteSubtaskById(exchange, id);
-            } else {
+            if (!ROUTER.dispatch(this, exchange)) {
                 sendText(exchange, "{\"error\":\"Method Not Allowed\"}", 405);
             }
         } catch (NumberFormatException e) {
             sendText(exchange, "{\"error\":\"Invalid Subtask ID\"}", 400);
+        } catch (PayloadTooLargeException e) {
+            sendText(exchange, "{\"error\":\"Payload Too Large\"}", 413);
         } catch (Exception e) {
             sendText(exchange, "{\"error\":\"Internal Server Error\"}", 500);
         }
     }
 
     private void handleGetAllSubtasks(HttpExchange exchange) throws IOException {
-        String response = gson.toJson(taskManager.getAllSubtasks());
-        sendText(exchange, response, 200);
+        if (respondNotModified(exchange)) {
+            return;
+        }
+        Map<String, String> params = parseQuery(exchange);
+        if (isPageRequest(params)) {
+            sendPage(exchange, params, taskManager::findSubtasks);
+            return;
+        }
+        sendCachedJson(exchange, "/subtasks", taskManager.getVersion(), taskManager::getAllSubtasks);
     }
 
     private void handleGetSubtaskById(HttpExchange exchange, int id) throws IOException {
-        Subtask subtask = taskManager.getSubtaskById(id);
+        long version = taskManager.getVersion();
+        Subtask subtask = getSubtaskById(exchange, id);
         if (subtask != null) {
-            sendText(exchange, gson.toJson(subtask), 200);
+            sendCachedJson(exchange, "/subtasks/" + id, version, () -> subtask);
         } else {
             sendText(exchange, "{\"error\":\"Subtask not found\"}", 404);
         }
     }
 
     private void handleCreateOrUpdateSubtask(HttpExchange exchange) throws IOException {
-        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
-        Subtask subtask = gson.fromJson(body, Subtask.class);
+        Subtask subtask = readJson(exchange, Subtask.class);
 
         try {
             if (subtask.getId() == null) {
                 // Если ID отсутствует, создаем новую подзадачу
                 taskManager.saveSubtask(subtask);
-                sendText(exchange, gson.toJson(subtask), 201);
+                sendJson(exchange, subtask, 201);
             } else {
                 // Если ID указан, проверяем, существует ли подзадача
                 taskManager.updateSubtask(subtask);
-                sendText(exchange, gson.toJson(subtask), 200);
+                sendJson(exchange, subtask, 200);
             }
         } catch (IllegalArgumentException e) {
             sendText(exchange, "{\"error\":\"" + e.getMessage() + "\"}", 406);
@@ -82,7 +92,7 @@ public class SubtaskHandler extends BaseHttpHandler {
     }
 
     private void handleDeleteSubtaskById(HttpExchange exchange, int id) throws IOException {
-        Subtask subtask = taskManager.getSubtaskById(id);
+        Subtask subtask = getSubtaskById(exchange, id);
         if (subtask != null) {
             taskManager.deleteSubtaskById(id);
             sendText(exchange, "{\"message\":\"Subtask deleted successfully\"}", 200);
@@ -2,69 +2,79 @@ package ru.practicum.configuration;
 
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.exception.PayloadTooLargeException;
 import ru.practicum.model.Status;
 import ru.practicum.model.Task;
+import ru.practicum.service.HistorySessions;
 import ru.practicum.service.TaskManager;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 public class TaskHandler extends BaseHttpHandler {
     private final TaskManager taskManager;
     private final Gson gson;
+    private static final Router<TaskHandler> ROUTER = new Router<TaskHandler>()
+            .on("GET", "/tasks", (handler, exchange, id) -> handler.handleGetAllTasks(exchange))
+            .on("GET", "/tasks/slot", (handler, exchange, id) -> handler.sendEarliestSlot(exchange, Task.class))
+            .on("GET", "/tasks/{id}", TaskHandler::handleGetTaskById)
+            .on("POST", "/tasks", (handler, exchange, id) -> handler.handleCreateOrUpdateTask(exchange))
+            .on("DELETE", "/tasks", (handler, exchange, id) -> handler.handleDeleteAllTasks(exchange))
+            .on("DELETE", "/tasks/{id}", TaskHandler::handleDeleteTaskById);
 
     public TaskHandler(TaskManager taskManager, Gson gson) {
-        super(taskManager, gson);
+        this(taskManager, gson, null);
+    }
+
+    public TaskHandler(TaskManager taskManager, Gson gson, HistorySessions sessions) {
+        this(taskManager, gson, sessions, null);
+    }
+
+    public TaskHandler(TaskManager taskManager, Gson gson, HistorySessions sessions, ResponseCache responseCache) {
+        super(taskManager, gson, sessions, responseCache);
         this.taskManager = taskManager;
         this.gson = gson;
     }
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        String method = exchange.getRequestMethod();
-        String path = exchange.getRequestURI().getPath();
-        String[] parts = path.split("/");
-
         try {
-            if ("GET".equalsIgnoreCase(method) && parts.length == 2) {
-                handleGetAllTasks(exchange);
-            } else if ("GET".equalsIgnoreCase(method) && parts.length == 3) {
-                int id = Integer.parseInt(parts[2]);
-                handleGetTaskById(exchange, id);
-            } else if ("POST".equalsIgnoreCase(method) && parts.length == 2) {
-                handleCreateOrUpdateTask(exchange);
-            } else if ("DELETE".equalsIgnoreCase(method) && parts.length == 2) {
-                handleDeleteAllTasks(exchange);
-            } else if ("DELETE".equalsIgnoreCase(method) && parts.length == 3) {
-                int id = Integer.parseInt(parts[2]);
-                handleDeleteTaskById(exchange, id);
-            } else {
+            if (!ROUTER.dispatch(this, exchange)) {
                 sendText(exchange, "{\"error\":\"Method Not Allowed\"}", 405);
             }
         } catch (NumberFormatException e) {
             sendText(exchange, "{\"error\":\"Invalid Task ID\"}", 400);
+        } catch (PayloadTooLargeException e) {
+            sendText(exchange, "{\"error\":\"Payload Too Large\"}", 413);
         } catch (Exception e) {
             sendText(exchange, "{\"error\":\"Internal Server Error\"}", 500);
         }
     }
 
     private void handleGetAllTasks(HttpExchange exchange) throws IOException {
-        String response = gson.toJson(taskManager.getAllTasks());
-        sendText(exchange, response, 200);
+        if (respondNotModified(exchange)) {
+            return;
+        }
+        Map<String, String> params = parseQuery(exchange);
+        if (isPageRequest(params)) {
+            sendPage(exchange, params, taskManager::findTasks);
+            return;
+        }
+        sendCachedJson(exchange, "/tasks", taskManager.getVersion(), taskManager::getAllTasks);
     }
 
     private void handleGetTaskById(HttpExchange exchange, int id) throws IOException {
-        Task task = taskManager.getTaskById(id);
+        long version = taskManager.getVersion();
+        Task task = getTaskById(exchange, id);
         if (task != null) {
-            sendText(exchange, gson.toJson(task), 200);
+            sendCachedJson(exchange, "/tasks/" + id, version, () -> task);
         } else {
             sendText(exchange, "{\"error\":\"Task not found\"}", 404);
         }
     }
 
     private void handleCreateOrUpdateTask(HttpExchange exchange) throws IOException {
-        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
-        Task task = gson.fromJson(body, Task.class);
+        Task task = readJson(exchange, Task.class);
         if (task.getStatus() == null) {
             task.setStatus(Status.NEW);
         }
@@ -72,11 +82,11 @@ public class TaskHandler extends BaseHttpHandler {
             if (task.getId() == null) {
                 // Если ID отсутствует, создаем новую задачу
                 taskManager.saveTask(task);
-                sendText(exchange, gson.toJson(task), 201);
+                sendJson(exchange, task, 201);
             } else {
                 // Если ID указан, проверяем, существует ли задача
                 taskManager.updateTask(task);
-                sendText(exchange, gson.toJson(task), 200);
+                sendJson(exchange, task, 200);
             }
         } catch (IllegalArgumentException e) {
             sendText(exchange, "{\"error\":\"" + e.getMessage() + "\"}", 406);
@@ -89,7 +99,7 @@ public class TaskHandler extends BaseHttpHandler {
     }
 
     private void handleDeleteTaskById(HttpExchange exchange, int id) throws IOException {
-        Task task = taskManager.getTaskById(id);
+        Task task = getTaskById(exchange, id);
         if (task != null) {
             taskManager.deleteTaskById(id);
             sendText(exchange, "{\"message\":\"Task deleted successfully\"}", 200);
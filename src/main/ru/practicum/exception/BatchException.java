@@ -0,0 +1,22 @@
+package ru.practicum.exception;
+
+/**
+ * Операция пакета не выполнена, поэтому не применён весь пакет.
+ */
+public class BatchException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final int index;
+
+    public BatchException(int index, String description, Throwable cause) {
+        super("Операция " + index + ": " + description, cause);
+        this.index = index;
+    }
+
+    /**
+     * Индекс операции, которая не прошла проверку.
+     */
+    public int getIndex() {
+        return index;
+    }
+}
@@ -0,0 +1,12 @@
+package ru.practicum.exception;
+
+/**
+ * Тело запроса больше допустимого размера.
+ */
+public class PayloadTooLargeException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public PayloadTooLargeException(long limit) {
+        super("Тело запроса больше " + limit + " байт");
+    }
+}
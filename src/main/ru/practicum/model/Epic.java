@@ -5,13 +5,21 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 
+/**
+ * Эпик. Как и у остальных задач, равенство и хеш-код определяются только ID,
+ * без списка подзадач.
+ */
 public class Epic extends Task {
 
     private LocalDateTime endTime;
     private List<Subtask> subtasks = new ArrayList<>();
 
+    // Итоги по подзадачам, уже учтённым addSubtask; в JSON не попадают
+    private transient int countedSubtasks;
+    private transient LocalDateTime earliestSubtaskStart;
+    private transient Duration totalSubtaskDuration = Duration.ZERO;
+
     public Epic(String name, String description, Duration duration, LocalDateTime startTime) {
         super(name, description, duration, startTime);
         setStatus(Status.NEW);
@@ -27,15 +35,37 @@ public class Epic extends Task {
         super(other);
         this.subtasks = new ArrayList<>(other.subtasks);
         this.endTime = other.endTime;
+        this.countedSubtasks = other.countedSubtasks;
+        this.earliestSubtaskStart = other.earliestSubtaskStart;
+        this.totalSubtaskDuration = other.totalSubtaskDuration;
     }
 
+    /**
+     * Подзадачи эпика. У эпика, сохранённого в менеджере, это представление состава эпика
+     * только для чтения: подзадачи добавляются и удаляются через менеджер.
+     */
     public List<Subtask> getSubtasks() {
         return subtasks;
     }
 
+    /**
+     * Добавляет подзадачу в эпик, который ещё не сохранён в менеджере, и учитывает её время.
+     * Список подзадач сохранённого эпика доступен только для чтения, поэтому здесь метод
+     * бросает {@link UnsupportedOperationException}: подзадачу нужно сохранить через
+     * {@code TaskManager.saveSubtask}.
+     */
     public void addSubtask(Subtask subtask) {
         subtasks.add(subtask);
-        recalculateFields();
+        includeInFields(subtask);
+    }
+
+    @Override
+    public LocalDateTime getEndTime() {
+        return endTime != null ? endTime : super.getEndTime();
+    }
+
+    public void setEndTime(LocalDateTime endTime) {
+        this.endTime = endTime;
     }
 
     @Override
@@ -48,19 +78,37 @@ public class Epic extends Task {
         super.setId(id);
     }
 
-    private void recalculateFields() {
-        subtasks.stream()
-                .map(Subtask::getStartTime)
-                .filter(Objects::nonNull)
-                .min(LocalDateTime::compareTo)
-                .ifPresent(this::setStartTime);
-
-        Duration totalDuration = subtasks.stream()
-                .map(Subtask::getDuration)
-                .filter(Objects::nonNull)
-                .reduce(Duration.ZERO, Duration::plus);
+    /**
+     * Учитывает новую подзадачу во времени эпика без прохода по остальным подзадачам:
+     * время начала — минимум по подзадачам, продолжительность — сумма по подзадачам.
+     * Итоги хранятся отдельно от полей эпика, поэтому собственное время эпика в минимум
+     * не попадает. Если список подзадач заменили, итоги сначала пересчитываются по нему.
+     */
+    private void includeInFields(Subtask subtask) {
+        if (countedSubtasks != subtasks.size() - 1 || totalSubtaskDuration == null) {
+            earliestSubtaskStart = null;
+            totalSubtaskDuration = Duration.ZERO;
+            for (int i = 0; i < subtasks.size() - 1; i++) {
+                count(subtasks.get(i));
+            }
+        }
+        count(subtask);
+        countedSubtasks = subtasks.size();
+
+        if (earliestSubtaskStart != null) {
+            setStartTime(earliestSubtaskStart);
+        }
+        setDuration(totalSubtaskDuration);
+    }
 
-        setDuration(totalDuration);
+    private void count(Subtask subtask) {
+        LocalDateTime start = subtask.getStartTime();
+        if (start != null && (earliestSubtaskStart == null || start.isBefore(earliestSubtaskStart))) {
+            earliestSubtaskStart = start;
+        }
+        if (subtask.getDuration() != null) {
+            totalSubtaskDuration = totalSubtaskDuration.plus(subtask.getDuration());
+        }
     }
 
     @Override
@@ -76,21 +124,9 @@ public class Epic extends Task {
                 '}';
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        if (!super.equals(o)) return false;
-        Epic epic = (Epic) o;
-        return Objects.equals(subtasks, epic.subtasks);
-    }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(super.hashCode(), subtasks);
-    }
-
     public void setSubtasks(List<Subtask> subtasks) {
         this.subtasks = subtasks;
+        // Новый список учитывается целиком при следующем addSubtask
+        this.countedSubtasks = -1;
     }
 }
@@ -93,6 +93,18 @@ public class Task {
         this.startTime = startTime;
     }
 
+    /**
+     * Время окончания задачи: время начала плюс продолжительность.
+     *
+     * @return время окончания или null, если время начала не задано
+     */
+    public LocalDateTime getEndTime() {
+        if (startTime == null) {
+            return null;
+        }
+        return duration != null ? startTime.plus(duration) : startTime;
+    }
+
     @Override
     public String toString() {
         return "Task{" +
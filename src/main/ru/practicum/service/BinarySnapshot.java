@@ -0,0 +1,209 @@
+package ru.practicum.service;
+
+import ru.practicum.exception.ManagerSaveException;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Двоичный формат снимка {@link FileBackedTaskManager}.
+ *
+ * <p>Файл состоит из заголовка, записей фиксированной длины и кучи строк:</p>
+ * <pre>
+ * заголовок: magic:int, version:int, count:int, reserved:int
+ * запись:    id:int, type:byte, status:byte, flags:byte, reserved:byte, epicId:int,
+ *            startEpochSecond:long, startNano:int, durationSeconds:long, durationNano:int,
+ *            nameOffset:int, nameLength:int, descriptionOffset:int, descriptionLength:int
+ * куча:      названия и описания в UTF-8; длина -1 означает null
+ * </pre>
+ *
+ * <p>Время начала хранится в секундах от эпохи (UTC) без часового пояса, как и
+ * {@link LocalDateTime}. Записи идут в порядке задачи, эпики, подзадачи, поэтому загрузка
+ * идёт одним проходом. Файл читается через {@link FileChannel#map}: страницы подгружаются
+ * ОС по мере чтения, текст не разбирается.</p>
+ */
+final class BinarySnapshot {
+    static final String EXTENSION = ".bin";
+
+    private static final int MAGIC = 0x4B4E4231; // "KNB1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 52;
+
+    private static final byte TYPE_TASK = 0;
+    private static final byte TYPE_EPIC = 1;
+    private static final byte TYPE_SUBTASK = 2;
+
+    private static final byte HAS_START_TIME = 1;
+    private static final byte HAS_DURATION = 2;
+
+    private static final Status[] STATUSES = Status.values();
+
+    private BinarySnapshot() {
+    }
+
+    /**
+     * Снимки с расширением {@code .bin} записываются в двоичном формате.
+     */
+    static boolean isBinaryName(File file) {
+        return file.getName().endsWith(EXTENSION);
+    }
+
+    /**
+     * Проверяет, что файл начинается с сигнатуры двоичного снимка.
+     */
+    static boolean isBinary(File file) {
+        if (file.length() < HEADER_SIZE) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(header, 0);
+            return header.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при загрузке файла", e);
+        }
+    }
+
+    static void write(File file, List<Task> tasks, List<Epic> epics, List<Subtask> subtasks) throws IOException {
+        ByteArrayOutputStream heap = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(tasks.size() + epics.size() + subtasks.size());
+            out.writeInt(0);
+
+            for (Task task : tasks) {
+                writeRecord(out, heap, task, TYPE_TASK, 0);
+            }
+            for (Epic epic : epics) {
+                writeRecord(out, heap, epic, TYPE_EPIC, 0);
+            }
+            for (Subtask subtask : subtasks) {
+                writeRecord(out, heap, subtask, TYPE_SUBTASK, subtask.getEpicId());
+            }
+            heap.writeTo(out);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, ByteArrayOutputStream heap, Task task,
+                                    byte type, int epicId) throws IOException {
+        LocalDateTime startTime = task.getStartTime();
+        Duration duration = task.getDuration();
+        Status status = task.getStatus() != null ? task.getStatus() : Status.NEW;
+
+        out.writeInt(task.getId());
+        out.writeByte(type);
+        out.writeByte(status.ordinal());
+        out.writeByte((startTime != null ? HAS_START_TIME : 0) | (duration != null ? HAS_DURATION : 0));
+        out.writeByte(0);
+        out.writeInt(epicId);
+        out.writeLong(startTime != null ? startTime.toEpochSecond(ZoneOffset.UTC) : 0);
+        out.writeInt(startTime != null ? startTime.getNano() : 0);
+        out.writeLong(duration != null ? duration.getSeconds() : 0);
+        out.writeInt(duration != null ? duration.getNano() : 0);
+        writeString(out, heap, task.getName());
+        writeString(out, heap, task.getDescription());
+    }
+
+    private static void writeString(DataOutputStream out, ByteArrayOutputStream heap, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(0);
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(heap.size());
+        out.writeInt(bytes.length);
+        heap.write(bytes);
+    }
+
+    /**
+     * Передаёт объекты снимка обработчику в порядке записей.
+     */
+    static void read(File file, Consumer<Task> handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Двоичный снимок больше 2 ГБ не поддерживается");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Файл не является двоичным снимком");
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IllegalArgumentException("Неподдерживаемая версия снимка: " + buffer.getInt(4));
+            }
+            int count = buffer.getInt(8);
+            long heapStart = HEADER_SIZE + (long) count * RECORD_SIZE;
+            if (count < 0 || heapStart > buffer.limit()) {
+                throw new IllegalArgumentException("Повреждённый заголовок снимка");
+            }
+
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < count; i++) {
+                int record = HEADER_SIZE + i * RECORD_SIZE;
+                int id = buffer.getInt(record);
+                byte type = buffer.get(record + 4);
+                byte statusOrdinal = buffer.get(record + 5);
+                if (statusOrdinal < 0 || statusOrdinal >= STATUSES.length) {
+                    throw new IllegalArgumentException("Неизвестный статус: " + statusOrdinal);
+                }
+                Status status = STATUSES[statusOrdinal];
+                byte flags = buffer.get(record + 6);
+                int epicId = buffer.getInt(record + 8);
+                LocalDateTime startTime = (flags & HAS_START_TIME) == 0 ? null
+                        : LocalDateTime.ofEpochSecond(buffer.getLong(record + 12), buffer.getInt(record + 20), ZoneOffset.UTC);
+                // Как и в CSV, отсутствующая продолжительность читается как ноль
+                Duration duration = (flags & HAS_DURATION) == 0 ? Duration.ZERO
+                        : Duration.ofSeconds(buffer.getLong(record + 24), buffer.getInt(record + 32));
+
+                int nameLength = buffer.getInt(record + 40);
+                int descriptionLength = buffer.getInt(record + 48);
+                if (Math.max(nameLength, descriptionLength) > scratch.length) {
+                    scratch = new byte[Math.max(nameLength, descriptionLength)];
+                }
+                String name = readString(buffer, heapStart, buffer.getInt(record + 36), nameLength, scratch);
+                String description = readString(buffer, heapStart, buffer.getInt(record + 44), descriptionLength, scratch);
+
+                Task task = switch (type) {
+                    case TYPE_TASK -> new Task(id, name, description, duration, startTime);
+                    case TYPE_EPIC -> new Epic(name, description, duration, startTime);
+                    case TYPE_SUBTASK -> new Subtask(name, description, duration, startTime, epicId);
+                    default -> throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
+                };
+                task.setId(id);
+                task.setStatus(status);
+                handler.accept(task);
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer buffer, long heapStart, int offset, int length, byte[] scratch) {
+        if (length < 0) {
+            return null;
+        }
+        if (offset < 0 || heapStart + offset + length > buffer.limit()) {
+            throw new IllegalArgumentException("Строка выходит за границы снимка");
+        }
+        buffer.get((int) (heapStart + offset), scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,1200 @@
+package ru.practicum.service;
+
+import ru.practicum.exception.BatchException;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Менеджер задач, хранящий поля по столбцам: каждое поле — параллельный массив примитивов,
+ * индекс в нём — номер слота объекта. Слоты удалённых объектов попадают в список свободных
+ * и занимаются новыми объектами, поэтому массивы не растут при удалениях и вставках.
+ *
+ * <p>Выборки ({@link #findTasks(TaskQuery)} и другие страницы, приоритетный список)
+ * и агрегаты ({@link #summarize(Class, TaskQuery)}) — это один проход по массивам статусов
+ * и времени начала, без объектов и разыменований. Страница собирается в ограниченной куче
+ * номеров слотов за O(n log limit); объекты создаются только для попавших в неё.
+ * Агрегаты на больших хранилищах считаются параллельно через fork/join.</p>
+ *
+ * <p>Объекты {@link Task}, {@link Epic} и {@link Subtask} создаются заново при каждом чтении:
+ * изменение полученного объекта не меняет хранилище, для этого есть методы {@code update*}.
+ * Поля эпика рассчитываются по подзадачам при каждом их изменении проходом по подзадачам
+ * эпика; время окончания — при чтении эпика. Пересечения проверяются по тем же индексам
+ * интервалов, что и в {@link InMemoryTaskManager}.</p>
+ *
+ * <p>Полные списки ({@link #getAllTasks()} и другие) сортируются при чтении, поэтому менеджер
+ * подходит для нагрузки с частыми выборками и агрегатами, а не для частого чтения полных
+ * списков. Не потокобезопасен, для параллельного доступа оборачивается в
+ * {@link ConcurrentTaskManager}.</p>
+ */
+public final class ColumnarTaskManager implements TaskManager {
+    private static final byte FREE = 0;
+    private static final byte TASK = 1;
+    private static final byte EPIC = 2;
+    private static final byte SUBTASK = 3;
+    private static final byte NO_STATUS = -1;
+    private static final long NO_VALUE = Long.MIN_VALUE;
+    private static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final Status[] STATUSES = Status.values();
+    /**
+     * Начиная с этого числа слотов агрегаты считаются параллельно.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 15;
+
+    private final AtomicInteger idCounter = new AtomicInteger(1);
+    private final AtomicLong version = new AtomicLong();
+    private volatile Instant lastModified = Instant.now();
+    private final List<TaskChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final HistoryManager historyManager;
+
+    // Столбцы: время — секунды от эпохи в UTC и наносекунды, NO_VALUE — время или продолжительность не заданы
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private long[] startSeconds = new long[INITIAL_CAPACITY];
+    private int[] startNanos = new int[INITIAL_CAPACITY];
+    private long[] durationSeconds = new long[INITIAL_CAPACITY];
+    private int[] durationNanos = new int[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private String[] descriptions = new String[INITIAL_CAPACITY];
+
+    // Подзадачи эпика — двусвязный список слотов в порядке добавления
+    private int[] parents = new int[INITIAL_CAPACITY];
+    private int[] firstChildren = new int[INITIAL_CAPACITY];
+    private int[] lastChildren = new int[INITIAL_CAPACITY];
+    private int[] nextSiblings = new int[INITIAL_CAPACITY];
+    private int[] previousSiblings = new int[INITIAL_CAPACITY];
+
+    // Слот по ID: ID выдаются подряд, поэтому хватает плотного массива
+    private int[] slotsById = filled(INITIAL_CAPACITY);
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    private int used;
+    private final int[] counts = new int[SUBTASK + 1];
+
+    private final TimeSlotIndex taskSlots = new TimeSlotIndex();
+    private final TimeSlotIndex subtaskSlots = new TimeSlotIndex();
+
+    /**
+     * Итоги агрегата по выборке.
+     *
+     * @param count         число объектов
+     * @param byStatus      число объектов по статусам; статусы без объектов отсутствуют
+     * @param totalDuration суммарная продолжительность объектов, у которых она задана
+     */
+    public record Summary(long count, Map<Status, Long> byStatus, Duration totalDuration) {
+    }
+
+    public ColumnarTaskManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+        if (historyManager instanceof InMemoryHistoryManager inMemoryHistory) {
+            inMemoryHistory.bind(this::findById);
+        }
+    }
+
+    @Override
+    public void saveTask(Task task) {
+        validateTask(task);
+        task.setId(idCounter.getAndIncrement());
+        int slot = allocate(task.getId(), TASK);
+        write(slot, task);
+        taskSlots.put(task);
+        changed(Task.class, task.getId());
+    }
+
+    @Override
+    public void saveEpic(Epic epic) {
+        epic.setId(idCounter.getAndIncrement());
+        if (epic.getSubtasks() == null) {
+            epic.setSubtasks(new ArrayList<>());
+        }
+        int slot = allocate(epic.getId(), EPIC);
+        names[slot] = epic.getName();
+        descriptions[slot] = epic.getDescription();
+        recalculateEpic(slot);
+        applyEpicFields(slot, epic);
+        changed(Epic.class, epic.getId());
+    }
+
+    @Override
+    public void saveSubtask(Subtask subtask) {
+        validateTask(subtask);
+        int epicSlot = subtask.getEpicId() != null ? slotOf(subtask.getEpicId(), EPIC) : NONE;
+        if (epicSlot == NONE) {
+            throw new IllegalArgumentException("Эпик с ID " + subtask.getEpicId() + " не найден.");
+        }
+        subtask.setId(idCounter.getAndIncrement());
+        attachSubtask(subtask, epicSlot);
+        changed(Subtask.class, subtask.getId());
+        notifyListeners(Epic.class, subtask.getEpicId());
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        return getTaskById(id, historyManager);
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return getEpicById(id, historyManager);
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return getSubtaskById(id, historyManager);
+    }
+
+    @Override
+    public Task getTaskById(int id, HistoryManager history) {
+        return viewed(slotOf(id, TASK), history);
+    }
+
+    @Override
+    public Epic getEpicById(int id, HistoryManager history) {
+        return (Epic) viewed(slotOf(id, EPIC), history);
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id, HistoryManager history) {
+        return (Subtask) viewed(slotOf(id, SUBTASK), history);
+    }
+
+    private Task viewed(int slot, HistoryManager history) {
+        if (slot == NONE) {
+            return null;
+        }
+        Task task = materialize(slot);
+        history.add(task);
+        return task;
+    }
+
+    /**
+     * Как и {@link InMemoryTaskManager#updateTask(Task)}, меняет название, описание,
+     * время начала и продолжительность; статус задачи не меняется.
+     */
+    @Override
+    public void updateTask(Task task) {
+        if (task == null || task.getId() == null) {
+            throw new IllegalArgumentException("Task is null or ID is not set");
+        }
+        int slot = slotOf(task.getId(), TASK);
+        if (slot == NONE) {
+            throw new IllegalArgumentException("Task with ID " + task.getId() + " does not exist");
+        }
+        validateTask(task);
+
+        names[slot] = task.getName();
+        descriptions[slot] = task.getDescription();
+        writeTime(slot, task.getStartTime(), task.getDuration());
+        taskSlots.put(task);
+        changed(Task.class, task.getId());
+    }
+
+    /**
+     * Меняет название и описание эпика: остальные поля рассчитываются по подзадачам.
+     */
+    @Override
+    public void updateEpic(Epic epic) {
+        if (epic == null || epic.getId() == null) {
+            throw new IllegalArgumentException("Epic is null or ID is not set");
+        }
+        int slot = slotOf(epic.getId(), EPIC);
+        if (slot == NONE) {
+            throw new IllegalArgumentException("Epic with ID " + epic.getId() + " does not exist");
+        }
+        names[slot] = epic.getName();
+        descriptions[slot] = epic.getDescription();
+        changed(Epic.class, epic.getId());
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        if (subtask == null || subtask.getId() == null) {
+            throw new IllegalArgumentException("Subtask is null or ID is not set");
+        }
+        int slot = slotOf(subtask.getId(), SUBTASK);
+        if (slot == NONE) {
+            throw new IllegalArgumentException("Subtask with ID " + subtask.getId() + " does not exist");
+        }
+        validateTask(subtask);
+
+        write(slot, subtask);
+        subtaskSlots.put(subtask);
+        recalculateEpic(parents[slot]);
+        changed(Subtask.class, subtask.getId());
+        notifyListeners(Epic.class, ids[parents[slot]]);
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        int slot = slotOf(id, TASK);
+        if (slot == NONE) {
+            throw new IllegalArgumentException("Task with ID " + id + " does not exist");
+        }
+        release(slot);
+        taskSlots.remove(id);
+        historyManager.remove(id);
+        changed(Task.class, id);
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        int slot = slotOf(id, EPIC);
+        if (slot == NONE) {
+            return;
+        }
+        int[] subtaskIds = new int[countChildren(slot)];
+        int index = 0;
+        for (int child = firstChildren[slot]; child != NONE; ) {
+            int next = nextSiblings[child];
+            subtaskIds[index++] = ids[child];
+            subtaskSlots.remove(ids[child]);
+            historyManager.remove(ids[child]);
+            release(child);
+            child = next;
+        }
+        release(slot);
+        historyManager.remove(id);
+        changed(Epic.class, id);
+        for (int subtaskId : subtaskIds) {
+            notifyListeners(Subtask.class, subtaskId);
+        }
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        int slot = slotOf(id, SUBTASK);
+        if (slot == NONE) {
+            return;
+        }
+        int epicId = detachSubtask(slot);
+        historyManager.remove(id);
+        changed(Subtask.class, id);
+        notifyListeners(Epic.class, epicId);
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return materializeAll(select(Scan.all(TASK, true), Integer.MAX_VALUE));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Epic> getAllEpics() {
+        return (List<Epic>) (List<?>) materializeAll(select(Scan.all(EPIC, false), Integer.MAX_VALUE));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Subtask> getAllSubtasks() {
+        return (List<Subtask>) (List<?>) materializeAll(select(Scan.all(SUBTASK, true), Integer.MAX_VALUE));
+    }
+
+    @Override
+    public List<Task> findTasks(TaskQuery query) {
+        return page(TASK, true, query);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Epic> findEpics(TaskQuery query) {
+        // Эпики без времени начала стоят в начале порядка, как в getAllEpics
+        return (List<Epic>) (List<?>) page(EPIC, false, query);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Subtask> findSubtasks(TaskQuery query) {
+        return (List<Subtask>) (List<?>) page(SUBTASK, true, query);
+    }
+
+    private List<Task> page(byte kind, boolean nullsLast, TaskQuery query) {
+        Scan scan = Scan.of(kind, nullsLast, query);
+        TaskQuery.Cursor after = query.after();
+        if (after != null && !after.keyed()) {
+            int cursor = slotOf(after.id(), kind);
+            if (cursor == NONE) {
+                throw new IllegalArgumentException("Задача-курсор не найдена: " + after.id());
+            }
+            scan = scan.after(startSeconds[cursor], startNanos[cursor], ids[cursor]);
+        }
+        return materializeAll(select(scan, query.limit()));
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasksByEpic(Epic epic) {
+        int slot = epic.getId() != null ? slotOf(epic.getId(), EPIC) : NONE;
+        if (slot == NONE) {
+            return List.of();
+        }
+        List<Subtask> subtasks = new ArrayList<>(countChildren(slot));
+        for (int child = firstChildren[slot]; child != NONE; child = nextSiblings[child]) {
+            subtasks.add(materializeSubtask(child));
+        }
+        return subtasks;
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        for (int slot = 0; slot < used; slot++) {
+            if (kinds[slot] == TASK) {
+                historyManager.remove(ids[slot]);
+                release(slot);
+            }
+        }
+        taskSlots.clear();
+        changed(Task.class, null);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        for (int slot = 0; slot < used; slot++) {
+            if (kinds[slot] == EPIC || kinds[slot] == SUBTASK) {
+                historyManager.remove(ids[slot]);
+                release(slot);
+            }
+        }
+        subtaskSlots.clear();
+        changed(Epic.class, null);
+        notifyListeners(Subtask.class, null);
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        for (int slot = 0; slot < used; slot++) {
+            if (kinds[slot] == SUBTASK) {
+                historyManager.remove(ids[slot]);
+                release(slot);
+            }
+        }
+        for (int slot = 0; slot < used; slot++) {
+            if (kinds[slot] == EPIC) {
+                firstChildren[slot] = NONE;
+                lastChildren[slot] = NONE;
+                recalculateEpic(slot);
+            }
+        }
+        subtaskSlots.clear();
+        changed(Subtask.class, null);
+        notifyListeners(Epic.class, null);
+    }
+
+    /**
+     * Применяет операции по порядку обычными методами менеджера и при ошибке выполняет
+     * обратные операции, как {@link InMemoryTaskManager#applyBatch(List)}.
+     */
+    @Override
+    public List<Integer> applyBatch(List<Operation> operations) {
+        List<Integer> ids = new ArrayList<>(operations.size());
+        Deque<Runnable> undo = new ArrayDeque<>();
+        for (int i = 0; i < operations.size(); i++) {
+            try {
+                ids.add(apply(operations.get(i), ids, undo));
+            } catch (RuntimeException e) {
+                rollback(undo, e);
+                if (e instanceof IllegalArgumentException || e instanceof NullPointerException) {
+                    throw new BatchException(i, e.getMessage(), e);
+                }
+                throw e;
+            }
+        }
+        return ids;
+    }
+
+    private static void rollback(Deque<Runnable> undo, RuntimeException cause) {
+        try {
+            while (!undo.isEmpty()) {
+                undo.pop().run();
+            }
+        } catch (RuntimeException failure) {
+            failure.addSuppressed(cause);
+            throw failure;
+        }
+    }
+
+    private int apply(Operation operation, List<Integer> created, Deque<Runnable> undo) {
+        return switch (operation.type()) {
+            case CREATE -> {
+                Task task = operation.task();
+                if (task instanceof Subtask subtask && subtask.getEpicId() != null && subtask.getEpicId() < 0) {
+                    int index = -subtask.getEpicId() - 1;
+                    if (index >= created.size()) {
+                        throw new IllegalArgumentException("Ссылка на эпик ещё не созданной операции " + index);
+                    }
+                    subtask.setEpicId(created.get(index));
+                }
+                if (task instanceof Subtask subtask) {
+                    saveSubtask(subtask);
+                } else if (task instanceof Epic epic) {
+                    saveEpic(epic);
+                } else {
+                    saveTask(task);
+                }
+                int id = task.getId();
+                undo.push(() -> deleteById(id));
+                yield id;
+            }
+            case UPDATE -> {
+                Task task = operation.task();
+                Task existing = task.getId() != null ? findById(task.getId()) : null;
+                if (existing == null || existing.getClass() != task.getClass()) {
+                    throw new IllegalArgumentException("Объект с ID " + task.getId() + " не найден");
+                }
+                // Найденный объект уже копия хранилища
+                if (task instanceof Subtask subtask) {
+                    updateSubtask(subtask);
+                    undo.push(() -> updateSubtask((Subtask) existing));
+                } else if (task instanceof Epic epic) {
+                    updateEpic(epic);
+                    undo.push(() -> updateEpic((Epic) existing));
+                } else {
+                    updateTask(task);
+                    undo.push(() -> updateTask(existing));
+                }
+                yield task.getId();
+            }
+            case DELETE -> {
+                int id = operation.id();
+                Task existing = findById(id);
+                if (existing == null) {
+                    throw new IllegalArgumentException("Объект с ID " + id + " не найден");
+                }
+                deleteById(id);
+                undo.push(() -> restore(existing));
+                yield id;
+            }
+        };
+    }
+
+    private void deleteById(int id) {
+        int slot = id > 0 && id < slotsById.length ? slotsById[id] : NONE;
+        if (slot == NONE) {
+            return;
+        }
+        switch (kinds[slot]) {
+            case TASK -> deleteTaskById(id);
+            case EPIC -> deleteEpicById(id);
+            case SUBTASK -> deleteSubtaskById(id);
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Возвращает удалённый объект с прежним ID; эпик — вместе с подзадачами из его списка.
+     * Пересечения не проверяются.
+     */
+    private void restore(Task task) {
+        if (task instanceof Subtask subtask) {
+            attachSubtask(subtask, slotOf(subtask.getEpicId(), EPIC));
+            changed(Subtask.class, subtask.getId());
+            notifyListeners(Epic.class, subtask.getEpicId());
+        } else if (task instanceof Epic epic) {
+            int slot = allocate(epic.getId(), EPIC);
+            names[slot] = epic.getName();
+            descriptions[slot] = epic.getDescription();
+            recalculateEpic(slot);
+            changed(Epic.class, epic.getId());
+            epic.getSubtasks().forEach(this::restore);
+        } else {
+            write(allocate(task.getId(), TASK), task);
+            taskSlots.put(task);
+            changed(Task.class, task.getId());
+        }
+    }
+
+    /**
+     * Сводка по объектам указанного типа, отобранным по статусам и времени начала из
+     * {@code filter}; курсор и лимит не учитываются. Один проход по столбцам, на больших
+     * хранилищах — параллельно по частям.
+     */
+    public Summary summarize(Class<? extends Task> type, TaskQuery filter) {
+        Scan scan = Scan.of(kindOf(type), true, filter);
+        long[] totals = used >= PARALLEL_THRESHOLD
+                ? ForkJoinPool.commonPool().invoke(new SummaryTask(scan, 0, used))
+                : summarize(scan, 0, used);
+
+        Map<Status, Long> byStatus = new EnumMap<>(Status.class);
+        long count = 0;
+        for (int i = 0; i <= STATUSES.length; i++) {
+            count += totals[i];
+            if (i < STATUSES.length && totals[i] > 0) {
+                byStatus.put(STATUSES[i], totals[i]);
+            }
+        }
+        Duration total = Duration.ofSeconds(totals[STATUSES.length + 1], totals[STATUSES.length + 2]);
+        return new Summary(count, Collections.unmodifiableMap(byStatus), total);
+    }
+
+    /**
+     * Итоги по слотам [from, to): число объектов по статусам (последний счётчик — без статуса),
+     * затем сумма секунд и наносекунд продолжительности.
+     */
+    private long[] summarize(Scan scan, int from, int to) {
+        // Столбцы в локальных переменных: цикл не перечитывает поля объекта
+        byte[] kinds = this.kinds;
+        byte[] statuses = this.statuses;
+        long[] durationSeconds = this.durationSeconds;
+        int[] durationNanos = this.durationNanos;
+        boolean filtered = scan.statusMask != 0 || scan.timedOnly;
+        int none = STATUSES.length;
+        long[] totals = new long[none + 3];
+        long seconds = 0;
+        long nanos = 0;
+        for (int slot = from; slot < to; slot++) {
+            if (kinds[slot] != scan.kind || filtered && !matches(slot, scan)) {
+                continue;
+            }
+            byte status = statuses[slot];
+            totals[status == NO_STATUS ? none : status]++;
+            long duration = durationSeconds[slot];
+            if (duration != NO_VALUE) {
+                seconds += duration;
+                nanos += durationNanos[slot];
+            }
+        }
+        totals[none + 1] = seconds;
+        totals[none + 2] = nanos;
+        return totals;
+    }
+
+    /**
+     * Подзадача свёртки диапазона слотов. Задачи ForkJoin здесь не сериализуются, поэтому
+     * условия выборки не входят в сериализуемое состояние.
+     */
+    private final class SummaryTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Scan scan;
+        private final int from;
+        private final int to;
+
+        private SummaryTask(Scan scan, int from, int to) {
+            this.scan = scan;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return summarize(scan, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            SummaryTask left = new SummaryTask(scan, from, middle);
+            left.fork();
+            long[] totals = new SummaryTask(scan, middle, to).compute();
+            long[] leftTotals = left.join();
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += leftTotals[i];
+            }
+            return totals;
+        }
+    }
+
+    /**
+     * Условия выборки по столбцам. Время — секунды и наносекунды, {@link #NO_VALUE} — без границы.
+     *
+     * @param kind       тип объектов
+     * @param nullsLast  объекты без времени начала идут в конце порядка, а не в начале
+     * @param statusMask допустимые статусы битами по ordinal; 0 — любой статус
+     * @param timedOnly  отбрасывать объекты без времени начала
+     * @param paged      отбирать только объекты после курсора {@code afterSecond}, {@code afterNano},
+     *                   {@code afterId} в порядке списка
+     */
+    private record Scan(byte kind, boolean nullsLast, int statusMask, boolean timedOnly,
+                        long fromSecond, int fromNano, long toSecond, int toNano,
+                        boolean paged, long afterSecond, int afterNano, int afterId) {
+
+        static Scan all(byte kind, boolean nullsLast) {
+            return new Scan(kind, nullsLast, 0, false, NO_VALUE, 0, NO_VALUE, 0, false, NO_VALUE, 0, 0);
+        }
+
+        static Scan of(byte kind, boolean nullsLast, TaskQuery query) {
+            int mask = 0;
+            for (Status status : query.statuses()) {
+                mask |= 1 << status.ordinal();
+            }
+            Scan scan = new Scan(kind, nullsLast, mask, query.hasTimeFilter(),
+                    seconds(query.from()), nanos(query.from()), seconds(query.to()), nanos(query.to()),
+                    false, NO_VALUE, 0, 0);
+            TaskQuery.Cursor after = query.after();
+            if (after != null && after.keyed()) {
+                scan = scan.after(seconds(after.startTime()), nanos(after.startTime()), after.id());
+            }
+            return scan;
+        }
+
+        static Scan timed(LocalDateTime from, LocalDateTime to) {
+            return new Scan(TASK, true, 0, true, seconds(from), nanos(from), seconds(to), nanos(to),
+                    false, NO_VALUE, 0, 0);
+        }
+
+        Scan after(long second, int nano, int id) {
+            return new Scan(kind, nullsLast, statusMask, timedOnly, fromSecond, fromNano, toSecond, toNano,
+                    true, second, nano, id);
+        }
+    }
+
+    private boolean matches(int slot, Scan scan) {
+        if (scan.statusMask != 0 && (statuses[slot] == NO_STATUS || (scan.statusMask & 1 << statuses[slot]) == 0)) {
+            return false;
+        }
+        long start = startSeconds[slot];
+        if (start == NO_VALUE) {
+            return !scan.timedOnly;
+        }
+        if (scan.fromSecond != NO_VALUE && compare(start, startNanos[slot], scan.fromSecond, scan.fromNano) < 0) {
+            return false;
+        }
+        return scan.toSecond == NO_VALUE || compare(start, startNanos[slot], scan.toSecond, scan.toNano) < 0;
+    }
+
+    /**
+     * Отбирает до {@code limit} слотов, подходящих под условия, в порядке времени начала и ID.
+     * Лучшие слоты держатся в куче с худшим наверху, поэтому проход стоит O(n log limit)
+     * и память на результат не больше {@code limit}.
+     */
+    private int[] select(Scan scan, int limit) {
+        return select(scan, FREE, limit);
+    }
+
+    /**
+     * То же, но вместе с основным типом отбирается {@code also}, например подзадачи
+     * для приоритетного списка.
+     *
+     * @param also второй тип или {@link #FREE}, если он не нужен
+     */
+    private int[] select(Scan scan, byte also, int limit) {
+        int candidates = counts[scan.kind] + (also != FREE ? counts[also] : 0);
+        int[] heap = new int[Math.min(limit, candidates)];
+        if (heap.length == 0) {
+            return heap;
+        }
+        int size = 0;
+        for (int slot = 0; slot < used; slot++) {
+            byte kind = kinds[slot];
+            if (kind != scan.kind && (kind != also || kind == FREE) || !matches(slot, scan)
+                    || scan.paged && compareOrder(startSeconds[slot], startNanos[slot], ids[slot],
+                    scan.afterSecond, scan.afterNano, scan.afterId, scan.nullsLast) <= 0) {
+                continue;
+            }
+            if (size < heap.length) {
+                heap[size] = slot;
+                siftUp(heap, size++, scan.nullsLast);
+            } else if (compareOrder(slot, heap[0], scan.nullsLast) < 0) {
+                heap[0] = slot;
+                siftDown(heap, 0, size, scan.nullsLast);
+            }
+        }
+        // Сортировка кучей: худший слот уходит в конец
+        for (int end = size - 1; end > 0; end--) {
+            int top = heap[0];
+            heap[0] = heap[end];
+            heap[end] = top;
+            siftDown(heap, 0, end, scan.nullsLast);
+        }
+        return size == heap.length ? heap : Arrays.copyOf(heap, size);
+    }
+
+    private void siftUp(int[] heap, int index, boolean nullsLast) {
+        int slot = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (compareOrder(heap[parent], slot, nullsLast) >= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = slot;
+    }
+
+    private void siftDown(int[] heap, int index, int size, boolean nullsLast) {
+        int slot = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && compareOrder(heap[child + 1], heap[child], nullsLast) > 0) {
+                child++;
+            }
+            if (compareOrder(heap[child], slot, nullsLast) <= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = slot;
+    }
+
+    /**
+     * Порядок списков менеджера: по времени начала, затем по ID.
+     */
+    private int compareOrder(int slot1, int slot2, boolean nullsLast) {
+        return compareOrder(startSeconds[slot1], startNanos[slot1], ids[slot1],
+                startSeconds[slot2], startNanos[slot2], ids[slot2], nullsLast);
+    }
+
+    private static int compareOrder(long second1, int nano1, int id1, long second2, int nano2, int id2,
+                                    boolean nullsLast) {
+        boolean noStart1 = second1 == NO_VALUE;
+        boolean noStart2 = second2 == NO_VALUE;
+        if (noStart1 || noStart2) {
+            if (noStart1 && noStart2) {
+                return Integer.compare(id1, id2);
+            }
+            return noStart1 == nullsLast ? 1 : -1;
+        }
+        int compareByTime = compare(second1, nano1, second2, nano2);
+        return compareByTime != 0 ? compareByTime : Integer.compare(id1, id2);
+    }
+
+    private static int compare(long second1, int nano1, long second2, int nano2) {
+        int compareBySecond = Long.compare(second1, second2);
+        return compareBySecond != 0 ? compareBySecond : Integer.compare(nano1, nano2);
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public void addChangeListener(TaskChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(TaskChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Отмечает изменение и уведомляет слушателей в том же порядке, что и {@link InMemoryTaskManager}.
+     */
+    private void changed(Class<? extends Task> type, Integer id) {
+        lastModified = Instant.now();
+        version.incrementAndGet();
+        notifyListeners(type, id);
+    }
+
+    private void notifyListeners(Class<? extends Task> type, Integer id) {
+        for (TaskChangeListener listener : listeners) {
+            listener.changed(type, id);
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public List<Task> getHistory(HistoryManager history) {
+        List<Task> viewed = history.getHistory();
+        List<Task> result = new ArrayList<>(viewed.size());
+        for (Task task : viewed) {
+            // Удаления чистят только общую историю, поэтому остальные проверяются при чтении
+            if (findById(task.getId()) != null) {
+                result.add(task);
+            } else {
+                history.remove(task.getId());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return Collections.unmodifiableList(materializeAll(
+                select(Scan.all(TASK, true), SUBTASK, Integer.MAX_VALUE)));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative");
+        }
+        Objects.requireNonNull(from, "Time must not be null");
+        return materializeAll(select(Scan.timed(from, null), SUBTASK, limit));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return List.of();
+        }
+        return Collections.unmodifiableList(materializeAll(
+                select(Scan.timed(from, to), SUBTASK, Integer.MAX_VALUE)));
+    }
+
+    /**
+     * Ищет по индексам интервалов, как {@link InMemoryTaskManager#getTasksInRange}, и сливает
+     * слоты задач и подзадач, упорядоченные по времени начала.
+     */
+    @Override
+    public List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to) {
+        Objects.requireNonNull(from, "Time must not be null");
+        Objects.requireNonNull(to, "Time must not be null");
+        if (!from.isBefore(to)) {
+            return List.of();
+        }
+        IntStream.Builder taskSlotsInRange = IntStream.builder();
+        taskSlots.forEachInRange(from, to, id -> taskSlotsInRange.add(slotsById[id]));
+        IntStream.Builder subtaskSlotsInRange = IntStream.builder();
+        subtaskSlots.forEachInRange(from, to, id -> subtaskSlotsInRange.add(slotsById[id]));
+
+        int[] left = taskSlotsInRange.build().toArray();
+        int[] right = subtaskSlotsInRange.build().toArray();
+        int[] merged = new int[left.length + right.length];
+        for (int i = 0, l = 0, r = 0; i < merged.length; i++) {
+            merged[i] = r == right.length || l < left.length && compareOrder(left[l], right[r], true) <= 0
+                    ? left[l++] : right[r++];
+        }
+        return Collections.unmodifiableList(materializeAll(merged));
+    }
+
+    @Override
+    public LocalDateTime findEarliestSlot(Duration duration, LocalDateTime notBefore, Class<? extends Task> type) {
+        Objects.requireNonNull(notBefore, "Time must not be null");
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("Duration must not be negative");
+        }
+        if (type == Subtask.class) {
+            return subtaskSlots.findEarliestSlot(notBefore, duration);
+        }
+        if (type == Task.class) {
+            return taskSlots.findEarliestSlot(notBefore, duration);
+        }
+        throw new IllegalArgumentException("Свободное время ищется только для задач и подзадач: " + type);
+    }
+
+    /**
+     * Возвращает копию задачи, эпика или подзадачи по ID без записи в историю просмотров.
+     */
+    Task findById(int id) {
+        int slot = id > 0 && id < slotsById.length ? slotsById[id] : NONE;
+        return slot != NONE ? materialize(slot) : null;
+    }
+
+    private void validateTask(Task newTask) {
+        if (newTask.getStartTime() == null) {
+            return;
+        }
+        if (newTask instanceof Subtask) {
+            Integer overlapId = subtaskSlots.findOverlap(newTask.getStartTime(), newTask.getEndTime(), newTask.getId());
+            if (overlapId != null) {
+                throw new IllegalArgumentException("Подзадача пересекается с другой подзадачей: " + findById(overlapId));
+            }
+        } else if (!(newTask instanceof Epic)) {
+            Integer overlapId = taskSlots.findOverlap(newTask.getStartTime(), newTask.getEndTime(), newTask.getId());
+            if (overlapId != null) {
+                throw new IllegalArgumentException("Задача пересекается с другой задачей: " + findById(overlapId));
+            }
+        }
+    }
+
+    private void attachSubtask(Subtask subtask, int epicSlot) {
+        int slot = allocate(subtask.getId(), SUBTASK);
+        write(slot, subtask);
+        parents[slot] = epicSlot;
+        int last = lastChildren[epicSlot];
+        previousSiblings[slot] = last;
+        nextSiblings[slot] = NONE;
+        if (last == NONE) {
+            firstChildren[epicSlot] = slot;
+        } else {
+            nextSiblings[last] = slot;
+        }
+        lastChildren[epicSlot] = slot;
+        subtaskSlots.put(subtask);
+        recalculateEpic(epicSlot);
+    }
+
+    /**
+     * Удаляет подзадачу из хранилища и списка эпика и пересчитывает эпик.
+     *
+     * @return ID эпика
+     */
+    private int detachSubtask(int slot) {
+        int epicSlot = parents[slot];
+        int previous = previousSiblings[slot];
+        int next = nextSiblings[slot];
+        if (previous == NONE) {
+            firstChildren[epicSlot] = next;
+        } else {
+            nextSiblings[previous] = next;
+        }
+        if (next == NONE) {
+            lastChildren[epicSlot] = previous;
+        } else {
+            previousSiblings[next] = previous;
+        }
+        subtaskSlots.remove(ids[slot]);
+        release(slot);
+        recalculateEpic(epicSlot);
+        return ids[epicSlot];
+    }
+
+    private int countChildren(int epicSlot) {
+        int count = 0;
+        for (int child = firstChildren[epicSlot]; child != NONE; child = nextSiblings[child]) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Пересчитывает статус, время начала и продолжительность эпика по его подзадачам
+     * по тем же правилам, что и {@link EpicAggregate}.
+     */
+    private void recalculateEpic(int epicSlot) {
+        int size = 0;
+        int done = 0;
+        int fresh = 0;
+        long minSecond = NO_VALUE;
+        int minNano = 0;
+        long totalSeconds = 0;
+        long totalNanos = 0;
+        for (int child = firstChildren[epicSlot]; child != NONE; child = nextSiblings[child]) {
+            size++;
+            if (statuses[child] == Status.DONE.ordinal()) {
+                done++;
+            } else if (statuses[child] == Status.NEW.ordinal()) {
+                fresh++;
+            }
+            if (startSeconds[child] != NO_VALUE && (minSecond == NO_VALUE
+                    || compare(startSeconds[child], startNanos[child], minSecond, minNano) < 0)) {
+                minSecond = startSeconds[child];
+                minNano = startNanos[child];
+            }
+            if (durationSeconds[child] != NO_VALUE) {
+                totalSeconds += durationSeconds[child];
+                totalNanos += durationNanos[child];
+            }
+        }
+
+        if (size == 0) {
+            statuses[epicSlot] = (byte) Status.NEW.ordinal();
+            startSeconds[epicSlot] = NO_VALUE;
+            durationSeconds[epicSlot] = NO_VALUE;
+            return;
+        }
+        Status status = done == size ? Status.DONE : fresh == size ? Status.NEW : Status.IN_PROGRESS;
+        statuses[epicSlot] = (byte) status.ordinal();
+        startSeconds[epicSlot] = minSecond;
+        startNanos[epicSlot] = minNano;
+        Duration total = Duration.ofSeconds(totalSeconds, totalNanos);
+        durationSeconds[epicSlot] = total.getSeconds();
+        durationNanos[epicSlot] = total.getNano();
+    }
+
+    /**
+     * Переносит рассчитанные поля эпика в объект, как это делает {@link InMemoryTaskManager}
+     * с сохраняемым эпиком.
+     */
+    private void applyEpicFields(int slot, Epic epic) {
+        epic.setStatus(status(slot));
+        epic.setStartTime(startTime(slot));
+        epic.setDuration(duration(slot));
+        epic.setEndTime(epicEndTime(slot));
+    }
+
+    private LocalDateTime epicEndTime(int epicSlot) {
+        LocalDateTime end = null;
+        for (int child = firstChildren[epicSlot]; child != NONE; child = nextSiblings[child]) {
+            if (startSeconds[child] != NO_VALUE) {
+                LocalDateTime childEnd = startTime(child);
+                if (durationSeconds[child] != NO_VALUE) {
+                    childEnd = childEnd.plus(duration(child));
+                }
+                if (end == null || childEnd.isAfter(end)) {
+                    end = childEnd;
+                }
+            }
+        }
+        return end;
+    }
+
+    private List<Task> materializeAll(int[] slots) {
+        List<Task> result = new ArrayList<>(slots.length);
+        for (int slot : slots) {
+            result.add(materialize(slot));
+        }
+        return result;
+    }
+
+    private Task materialize(int slot) {
+        return switch (kinds[slot]) {
+            case TASK -> {
+                Task task = new Task(ids[slot], names[slot], descriptions[slot], duration(slot), startTime(slot));
+                task.setStatus(status(slot));
+                yield task;
+            }
+            case SUBTASK -> materializeSubtask(slot);
+            case EPIC -> {
+                Epic epic = new Epic(names[slot], descriptions[slot], duration(slot), startTime(slot));
+                epic.setId(ids[slot]);
+                applyEpicFields(slot, epic);
+                List<Subtask> subtasks = new ArrayList<>(countChildren(slot));
+                for (int child = firstChildren[slot]; child != NONE; child = nextSiblings[child]) {
+                    subtasks.add(materializeSubtask(child));
+                }
+                epic.setSubtasks(subtasks);
+                yield epic;
+            }
+            default -> throw new IllegalStateException("Пустой слот " + slot);
+        };
+    }
+
+    private Subtask materializeSubtask(int slot) {
+        Subtask subtask = new Subtask(names[slot], descriptions[slot], duration(slot), startTime(slot),
+                ids[parents[slot]]);
+        subtask.setId(ids[slot]);
+        subtask.setStatus(status(slot));
+        return subtask;
+    }
+
+    private Status status(int slot) {
+        return statuses[slot] == NO_STATUS ? null : STATUSES[statuses[slot]];
+    }
+
+    private LocalDateTime startTime(int slot) {
+        return startSeconds[slot] == NO_VALUE ? null
+                : LocalDateTime.ofEpochSecond(startSeconds[slot], startNanos[slot], ZoneOffset.UTC);
+    }
+
+    private Duration duration(int slot) {
+        return durationSeconds[slot] == NO_VALUE ? null : Duration.ofSeconds(durationSeconds[slot], durationNanos[slot]);
+    }
+
+    private void write(int slot, Task task) {
+        names[slot] = task.getName();
+        descriptions[slot] = task.getDescription();
+        statuses[slot] = task.getStatus() == null ? NO_STATUS : (byte) task.getStatus().ordinal();
+        writeTime(slot, task.getStartTime(), task.getDuration());
+    }
+
+    private void writeTime(int slot, LocalDateTime start, Duration duration) {
+        startSeconds[slot] = seconds(start);
+        startNanos[slot] = nanos(start);
+        durationSeconds[slot] = duration == null ? NO_VALUE : duration.getSeconds();
+        durationNanos[slot] = duration == null ? 0 : duration.getNano();
+    }
+
+    private static long seconds(LocalDateTime time) {
+        return time == null ? NO_VALUE : time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static int nanos(LocalDateTime time) {
+        return time == null ? 0 : time.getNano();
+    }
+
+    private int slotOf(int id, byte kind) {
+        int slot = id > 0 && id < slotsById.length ? slotsById[id] : NONE;
+        return slot != NONE && kinds[slot] == kind ? slot : NONE;
+    }
+
+    private static byte kindOf(Class<? extends Task> type) {
+        if (type == Epic.class) {
+            return EPIC;
+        }
+        return type == Subtask.class ? SUBTASK : TASK;
+    }
+
+    /**
+     * Занимает слот из списка свободных или новый в конце столбцов.
+     */
+    private int allocate(int id, byte kind) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (used == kinds.length) {
+                grow(kinds.length * 2);
+            }
+            slot = used++;
+        }
+        if (id >= slotsById.length) {
+            int length = slotsById.length;
+            slotsById = Arrays.copyOf(slotsById, Math.max(length * 2, id + 1));
+            Arrays.fill(slotsById, length, slotsById.length, NONE);
+        }
+        slotsById[id] = slot;
+        kinds[slot] = kind;
+        ids[slot] = id;
+        parents[slot] = NONE;
+        firstChildren[slot] = NONE;
+        lastChildren[slot] = NONE;
+        counts[kind]++;
+        return slot;
+    }
+
+    /**
+     * Освобождает слот; связи с эпиком должны быть сняты заранее, если эпик остаётся.
+     */
+    private void release(int slot) {
+        counts[kinds[slot]]--;
+        slotsById[ids[slot]] = NONE;
+        kinds[slot] = FREE;
+        names[slot] = null;
+        descriptions[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private void grow(int capacity) {
+        kinds = Arrays.copyOf(kinds, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        startSeconds = Arrays.copyOf(startSeconds, capacity);
+        startNanos = Arrays.copyOf(startNanos, capacity);
+        durationSeconds = Arrays.copyOf(durationSeconds, capacity);
+        durationNanos = Arrays.copyOf(durationNanos, capacity);
+        names = Arrays.copyOf(names, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        firstChildren = Arrays.copyOf(firstChildren, capacity);
+        lastChildren = Arrays.copyOf(lastChildren, capacity);
+        nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        previousSiblings = Arrays.copyOf(previousSiblings, capacity);
+    }
+
+    private static int[] filled(int length) {
+        int[] array = new int[length];
+        Arrays.fill(array, NONE);
+        return array;
+    }
+}
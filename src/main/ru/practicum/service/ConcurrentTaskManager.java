@@ -0,0 +1,341 @@
+package ru.practicum.service;
+
+import ru.practicum.model.Epic;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Потокобезопасная обёртка над любым {@link TaskManager}.
+ *
+ * <p>Чтения выполняются под общей блокировкой чтения и масштабируются по ядрам,
+ * изменения — под эксклюзивной блокировкой записи. Поэтому проверка пересечений,
+ * пересчёт эпиков и запись в файл выполняются атомарно относительно других операций.</p>
+ *
+ * <p>Поиск по ID тоже идёт под блокировкой чтения: он изменяет только историю просмотров,
+ * а {@link InMemoryHistoryManager} синхронизирован отдельно. Это относится и к историям
+ * отдельных клиентов, передаваемым в перегрузки с {@link HistoryManager}.</p>
+ *
+ * <p>Все задачи возвращаются копиями, снятыми под блокировкой чтения, эпики — вместе с копиями
+ * подзадач: делегат меняет сохранённые объекты на месте, а ответ сериализуется уже после снятия
+ * блокировки. Изменение полученной копии не затрагивает хранилище и его индексы.</p>
+ *
+ * <p>Если делегат — {@link FileBackedTaskManager} с журналом, ожидание записи изменения на диск
+ * выполняется после снятия блокировки записи: изменения из разных потоков успевают накопиться
+ * и фиксируются вместе.</p>
+ */
+public class ConcurrentTaskManager implements TaskManager {
+    private final TaskManager delegate;
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    /**
+     * @param delegate менеджер, к которому после оборачивания нельзя обращаться напрямую
+     */
+    public ConcurrentTaskManager(TaskManager delegate) {
+        this.delegate = delegate;
+        ReadWriteLock lock = new ReentrantReadWriteLock();
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+    }
+
+    private <T> T read(Supplier<T> action) {
+        readLock.lock();
+        try {
+            return action.get();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void write(Runnable action) {
+        if (delegate instanceof FileBackedTaskManager fileBacked) {
+            long ticket;
+            writeLock.lock();
+            try {
+                ticket = fileBacked.applyDeferred(action);
+            } finally {
+                writeLock.unlock();
+            }
+            fileBacked.awaitCommit(ticket);
+            return;
+        }
+
+        writeLock.lock();
+        try {
+            action.run();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Копия эпика, не связанная с данными делегата.
+     */
+    private static Epic snapshot(Epic epic) {
+        if (epic == null) {
+            return null;
+        }
+        Epic copy = new Epic(epic);
+        copy.getSubtasks().replaceAll(Subtask::new);
+        return copy;
+    }
+
+    private static Task snapshot(Task task) {
+        if (task instanceof Epic epic) {
+            return snapshot(epic);
+        }
+        if (task instanceof Subtask subtask) {
+            return new Subtask(subtask);
+        }
+        return task == null ? null : new Task(task);
+    }
+
+    private static Subtask snapshot(Subtask subtask) {
+        return subtask == null ? null : new Subtask(subtask);
+    }
+
+    private static List<Epic> snapshots(List<Epic> epics) {
+        List<Epic> copies = new ArrayList<>(epics.size());
+        for (Epic epic : epics) {
+            copies.add(snapshot(epic));
+        }
+        return copies;
+    }
+
+    /**
+     * Копии задач списка с сохранением их типов: в приоритетном списке и в истории
+     * встречаются задачи, подзадачи и эпики.
+     */
+    private static <T extends Task> List<T> copies(List<T> tasks) {
+        List<T> copies = new ArrayList<>(tasks.size());
+        for (T task : tasks) {
+            @SuppressWarnings("unchecked")
+            T copy = (T) snapshot(task);
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    @Override
+    public void saveTask(Task task) {
+        write(() -> delegate.saveTask(task));
+    }
+
+    @Override
+    public void saveEpic(Epic epic) {
+        write(() -> delegate.saveEpic(epic));
+    }
+
+    @Override
+    public void saveSubtask(Subtask subtask) {
+        write(() -> delegate.saveSubtask(subtask));
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        return read(() -> snapshot(delegate.getTaskById(id)));
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return read(() -> snapshot(delegate.getEpicById(id)));
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return read(() -> snapshot(delegate.getSubtaskById(id)));
+    }
+
+    @Override
+    public Task getTaskById(int id, HistoryManager history) {
+        return read(() -> snapshot(delegate.getTaskById(id, history)));
+    }
+
+    @Override
+    public Epic getEpicById(int id, HistoryManager history) {
+        return read(() -> snapshot(delegate.getEpicById(id, history)));
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id, HistoryManager history) {
+        return read(() -> snapshot(delegate.getSubtaskById(id, history)));
+    }
+
+    /**
+     * Пакет выполняется под одной блокировкой записи, поэтому читатели не видят его частично.
+     */
+    @Override
+    public List<Integer> applyBatch(List<Operation> operations) {
+        List<Integer> ids = new ArrayList<>(operations.size());
+        write(() -> ids.addAll(delegate.applyBatch(operations)));
+        return ids;
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        write(() -> delegate.updateTask(task));
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        write(() -> delegate.updateEpic(epic));
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        write(() -> delegate.updateSubtask(subtask));
+    }
+
+    @Override
+    public void deleteTaskById(int id) {
+        write(() -> delegate.deleteTaskById(id));
+    }
+
+    @Override
+    public void deleteEpicById(int id) {
+        write(() -> delegate.deleteEpicById(id));
+    }
+
+    @Override
+    public void deleteSubtaskById(int id) {
+        write(() -> delegate.deleteSubtaskById(id));
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return read(() -> copies(delegate.getAllTasks()));
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return read(() -> snapshots(delegate.getAllEpics()));
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return read(() -> copies(delegate.getAllSubtasks()));
+    }
+
+    @Override
+    public List<Task> findTasks(TaskQuery query) {
+        return read(() -> copies(delegate.findTasks(query)));
+    }
+
+    @Override
+    public List<Epic> findEpics(TaskQuery query) {
+        return read(() -> snapshots(delegate.findEpics(query)));
+    }
+
+    @Override
+    public List<Subtask> findSubtasks(TaskQuery query) {
+        return read(() -> copies(delegate.findSubtasks(query)));
+    }
+
+    @Override
+    public List<Subtask> getAllSubtasksByEpic(Epic epic) {
+        // Копируем под блокировкой: делегат может вернуть живой список эпика
+        return read(() -> copies(delegate.getAllSubtasksByEpic(epic)));
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        write(delegate::deleteAllTasks);
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        write(delegate::deleteAllEpics);
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        write(delegate::deleteAllSubtasks);
+    }
+
+    /**
+     * Версия читается без блокировки: она атомарна и меняется только вместе с данными.
+     */
+    @Override
+    public long getVersion() {
+        return delegate.getVersion();
+    }
+
+    @Override
+    public Instant getLastModified() {
+        return delegate.getLastModified();
+    }
+
+    /**
+     * Слушатели вызываются делегатом под блокировкой записи.
+     */
+    @Override
+    public void addChangeListener(TaskChangeListener listener) {
+        delegate.addChangeListener(listener);
+    }
+
+    @Override
+    public void removeChangeListener(TaskChangeListener listener) {
+        delegate.removeChangeListener(listener);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return read(() -> copies(delegate.getHistory()));
+    }
+
+    @Override
+    public List<Task> getHistory(HistoryManager history) {
+        return read(() -> copies(delegate.getHistory(history)));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return read(() -> copies(delegate.getPrioritizedTasks()));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, int limit) {
+        return read(() -> copies(delegate.getPrioritizedTasks(from, limit)));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return read(() -> copies(delegate.getPrioritizedTasks(from, to)));
+    }
+
+    @Override
+    public List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to) {
+        return read(() -> copies(delegate.getTasksInRange(from, to)));
+    }
+
+    @Override
+    public LocalDateTime findEarliestSlot(Duration duration, LocalDateTime notBefore, Class<? extends Task> type) {
+        return read(() -> delegate.findEarliestSlot(duration, notBefore, type));
+    }
+
+    @Override
+    public void flush() {
+        // Делегат сам синхронизирует запись на диск; блокировка задержала бы другие изменения
+        delegate.flush();
+    }
+
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            delegate.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
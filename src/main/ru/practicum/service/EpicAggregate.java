@@ -0,0 +1,109 @@
+package ru.practicum.service;
+
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.TreeMap;
+
+/**
+ * Накопительные показатели подзадач одного эпика.
+ *
+ * <p>Хранит количество подзадач по статусам, суммарную продолжительность и упорядоченные
+ * мультимножества времён начала и окончания. Добавление и удаление подзадачи стоит O(log k),
+ * поэтому статус и время эпика не требуют полного прохода по его подзадачам.</p>
+ *
+ * <p>Для каждой подзадачи запоминается учтённый вклад, поэтому удаление корректно
+ * даже если поля подзадачи уже изменили снаружи.</p>
+ */
+class EpicAggregate {
+    private final IntMap<Contribution> contributions = new IntMap<>();
+    private final int[] statusCounts = new int[Status.values().length];
+    private final TreeMap<LocalDateTime, Integer> startTimes = new TreeMap<>();
+    private final TreeMap<LocalDateTime, Integer> endTimes = new TreeMap<>();
+    private Duration totalDuration = Duration.ZERO;
+
+    /**
+     * Учитывает подзадачу. Если подзадача уже учтена, её прежний вклад заменяется.
+     */
+    void put(Subtask subtask) {
+        remove(subtask.getId());
+        Contribution contribution = new Contribution(subtask.getStatus(), subtask.getDuration(),
+                subtask.getStartTime(), subtask.getEndTime());
+        contributions.put(subtask.getId(), contribution);
+
+        if (contribution.status() != null) {
+            statusCounts[contribution.status().ordinal()]++;
+        }
+        if (contribution.duration() != null) {
+            totalDuration = totalDuration.plus(contribution.duration());
+        }
+        if (contribution.startTime() != null) {
+            startTimes.merge(contribution.startTime(), 1, Integer::sum);
+            endTimes.merge(contribution.endTime(), 1, Integer::sum);
+        }
+    }
+
+    void remove(int subtaskId) {
+        Contribution contribution = contributions.remove(subtaskId);
+        if (contribution == null) {
+            return;
+        }
+
+        if (contribution.status() != null) {
+            statusCounts[contribution.status().ordinal()]--;
+        }
+        if (contribution.duration() != null) {
+            totalDuration = totalDuration.minus(contribution.duration());
+        }
+        if (contribution.startTime() != null) {
+            decrement(startTimes, contribution.startTime());
+            decrement(endTimes, contribution.endTime());
+        }
+    }
+
+    void clear() {
+        contributions.clear();
+        totalDuration = Duration.ZERO;
+        startTimes.clear();
+        endTimes.clear();
+        Arrays.fill(statusCounts, 0);
+    }
+
+    /**
+     * Переносит накопленные показатели в поля эпика: статус, время начала,
+     * продолжительность и время окончания.
+     */
+    void applyTo(Epic epic) {
+        int size = contributions.size();
+        if (size == 0) {
+            epic.setStatus(Status.NEW);
+            epic.setStartTime(null);
+            epic.setDuration(null);
+            epic.setEndTime(null);
+            return;
+        }
+
+        if (statusCounts[Status.DONE.ordinal()] == size) {
+            epic.setStatus(Status.DONE);
+        } else if (statusCounts[Status.NEW.ordinal()] == size) {
+            epic.setStatus(Status.NEW);
+        } else {
+            epic.setStatus(Status.IN_PROGRESS);
+        }
+
+        epic.setStartTime(startTimes.isEmpty() ? null : startTimes.firstKey());
+        epic.setEndTime(endTimes.isEmpty() ? null : endTimes.lastKey());
+        epic.setDuration(totalDuration);
+    }
+
+    private static void decrement(TreeMap<LocalDateTime, Integer> times, LocalDateTime time) {
+        times.computeIfPresent(time, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private record Contribution(Status status, Duration duration, LocalDateTime startTime, LocalDateTime endTime) {
+    }
+}
@@ -6,21 +6,62 @@ import ru.practicum.model.Status;
 import ru.practicum.model.Subtask;
 import ru.practicum.model.Task;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.time.Duration;
-import java.time.LocalDateTime;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 public class FileBackedTaskManager extends InMemoryTaskManager {
+    private static final String HEADER = "id,type,name,status,description,epic,startTime,duration,epicId\n";
+    // Сколько записей журнала накапливается до внеочередного сжатия
+    private static final int COMPACTION_THRESHOLD = 1_000;
+    private static final long COMPACTION_INTERVAL_SECONDS = 60;
+
+    /**
+     * Способ записи изменений на диск.
+     */
+    public enum StorageMode {
+        /**
+         * После каждого изменения файл перезаписывается целиком.
+         */
+        SNAPSHOT,
+        /**
+         * Каждое изменение дописывается одной строкой в журнал {@code <файл>.journal}.
+         * Фоновый поток периодически сворачивает журнал в снимок и очищает его.
+         * Когда изменение попадает на диск, определяет {@link PersistencePolicy}.
+         */
+        JOURNAL
+    }
 
     private final File file;
+    private volatile TaskJournal journal;
+    private ScheduledExecutorService compactor;
+    private boolean compactionQueued;
+    // Периодическое сворачивание ставится при первой записи журнала, а не в конструкторе,
+    // чтобы поток сворачивания не получил менеджер до окончания его создания
+    private boolean compactionScheduled;
     private boolean isLoading = false;
+    // Операции пакета не записываются по одной: пакет фиксируется целиком (см. applyBatch)
+    private boolean inBatch = false;
+    // Откат пакета не удался: память расходится с файлом, и она больше не записывается (см. rollback)
+    private volatile boolean diverged = false;
+    // Номер последней записи журнала, ожидание которой отложено вызывающим кодом (см. applyDeferred)
+    private final ThreadLocal<long[]> deferredCommit = new ThreadLocal<>();
 
     /**
      * Конструктор инициализирует новый FileBackedTaskManager с файлом для автосохранения.
@@ -28,38 +69,271 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
      * @param file файл для сохранения данных
      */
     public FileBackedTaskManager(File file) {
-        super(new InMemoryHistoryManager());
+        this(file, StorageMode.SNAPSHOT);
+    }
+
+    /**
+     * @param file        файл снимка; журнал хранится рядом с ним
+     * @param storageMode способ записи изменений
+     */
+    public FileBackedTaskManager(File file, StorageMode storageMode) {
+        this(file, storageMode, PersistencePolicy.sync());
+    }
+
+    /**
+     * @param file              файл снимка; журнал хранится рядом с ним
+     * @param storageMode       способ записи изменений
+     * @param persistencePolicy политика записи журнала на диск; в режиме снимка не используется
+     */
+    public FileBackedTaskManager(File file, StorageMode storageMode, PersistencePolicy persistencePolicy) {
+        super(Managers.getDefaultHistoryManager());
         this.file = file;
+        if (storageMode == StorageMode.JOURNAL) {
+            journal = new TaskJournal(TaskJournal.journalFile(file), persistencePolicy);
+            compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "task-journal-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
     }
 
     /**
      * Сохранение данных в файл.
      */
     private void save() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, false))) {
-            writer.write("id,type,name,status,description,epic,startTime,duration,epicId\n");
+        writeSnapshot(file, journal != null); // Журнал будет очищен, снимок должен быть на диске до этого
+    }
+
+    /**
+     * Записывает снимок текущего состояния в указанный файл: в двоичном формате, если
+     * имя файла оканчивается на {@code .bin}, иначе в CSV. Снимок пишется во временный файл
+     * и заменяет старый переименованием, поэтому при сбое на диске остаётся целая версия.
+     */
+    void writeSnapshot(File target, boolean force) {
+        File tempFile = new File(target.getPath() + ".tmp");
+        try {
+            if (BinarySnapshot.isBinaryName(target)) {
+                BinarySnapshot.write(tempFile, getAllTasks(), getAllEpics(), getAllSubtasks());
+            } else {
+                writeCsv(tempFile);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения данных в файл", e);
+        }
+        if (force) {
+            forceToDisk(tempFile);
+        }
+
+        try {
+            try {
+                Files.move(tempFile.toPath(), target.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения данных в файл", e);
+        }
+    }
+
+    private void writeCsv(File target) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(target, StandardCharsets.UTF_8, false))) {
+            writer.write(HEADER);
 
             for (Task task : getAllTasks()) {
                 writer.write(taskToString(task));
+                writer.write('\n');
             }
             for (Epic epic : getAllEpics()) {
                 writer.write(taskToString(epic));
+                writer.write('\n');
             }
             for (Subtask subtask : getAllSubtasks()) {
                 writer.write(taskToString(subtask));
+                writer.write('\n');
             }
+        }
+    }
+
+    private static void forceToDisk(File target) {
+        try (FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
         } catch (IOException e) {
             throw new ManagerSaveException("Ошибка сохранения данных в файл", e);
         }
     }
 
+    /**
+     * Сворачивает журнал в снимок: записывает текущее состояние в файл и очищает журнал.
+     * Если сбой случится между этими шагами, при загрузке журнал будет повторно применён
+     * к новому снимку, что не меняет результат.
+     */
+    public synchronized void compact() {
+        compactionQueued = false;
+        save();
+        if (journal != null) {
+            journal.reset();
+        }
+    }
+
+    private synchronized void compactIfNeeded() {
+        if (journal == null || journal.size() == 0 || diverged) {
+            return;
+        }
+        try {
+            compact();
+        } catch (ManagerSaveException e) {
+            System.err.println("Не удалось свернуть журнал: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Применяет изменение и фиксирует его: в режиме снимка перезаписывает файл, в режиме журнала
+     * дописывает запись. Ожидание записи журнала на диск выполняется уже без блокировки менеджера,
+     * чтобы одновременные изменения фиксировались вместе.
+     */
+    private void mutate(Runnable change, Supplier<String> record) {
+        long ticket;
+        synchronized (this) {
+            if (diverged) {
+                throw new ManagerSaveException("Данные в памяти расходятся с файлом " + file
+                        + ", менеджер нужно загрузить заново", null);
+            }
+            change.run();
+            ticket = persist(record);
+        }
+        long[] deferred = deferredCommit.get();
+        if (deferred != null) {
+            deferred[0] = Math.max(deferred[0], ticket);
+        } else {
+            awaitCommit(ticket);
+        }
+    }
+
+    /**
+     * @return номер записи журнала или 0, если ждать нечего
+     */
+    private long persist(Supplier<String> record) {
+        if (isLoading || inBatch) {
+            return 0;
+        }
+        if (journal == null) {
+            save();
+            return 0;
+        }
+        long ticket = journal.append(record.get());
+        if (!compactionScheduled) {
+            compactionScheduled = true;
+            compactor.scheduleWithFixedDelay(this::compactIfNeeded,
+                    COMPACTION_INTERVAL_SECONDS, COMPACTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+        if (journal.size() >= COMPACTION_THRESHOLD && !compactionQueued) {
+            compactionQueued = true;
+            compactor.execute(this::compactIfNeeded);
+        }
+        return ticket;
+    }
+
+    /**
+     * Выполняет изменения, не дожидаясь записи журнала на диск.
+     * Используется {@link ConcurrentTaskManager}, чтобы ждать записи уже после снятия своей блокировки.
+     *
+     * @return номер последней записи журнала для {@link #awaitCommit(long)}
+     */
+    long applyDeferred(Runnable mutation) {
+        long[] ticket = {0};
+        deferredCommit.set(ticket);
+        try {
+            mutation.run();
+        } finally {
+            deferredCommit.remove();
+        }
+        return ticket[0];
+    }
+
+    /**
+     * Ждёт, пока запись журнала с указанным номером окажется на диске согласно политике записи.
+     */
+    void awaitCommit(long ticket) {
+        TaskJournal current = journal;
+        if (ticket > 0 && current != null) {
+            current.awaitCommit(ticket);
+        }
+    }
+
+    /**
+     * Записывает на диск все изменения, добавленные в журнал к этому моменту.
+     */
+    @Override
+    public void flush() {
+        TaskJournal current = journal;
+        if (current != null) {
+            current.flush();
+        }
+    }
+
+    /**
+     * Показатели записи журнала; в режиме снимка — нулевые.
+     */
+    public PersistenceMetrics getPersistenceMetrics() {
+        TaskJournal current = journal;
+        return current != null ? current.metrics() : PersistenceMetrics.EMPTY;
+    }
+
+    private String putRecord(int id) {
+        return TaskJournal.PUT + "," + taskToString(findById(id));
+    }
+
+    /**
+     * Записи пакета: итоговое состояние каждого затронутого объекта или его удаление.
+     */
+    private String batchRecord(List<Operation> operations, List<Integer> ids) {
+        StringBuilder record = new StringBuilder(TaskJournal.BATCH).append(',').append(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            int id = ids.get(i);
+            record.append('\n');
+            if (operations.get(i).type() == Operation.Type.DELETE || findById(id) == null) {
+                record.append(deleteRecord(id));
+            } else {
+                record.append(putRecord(id));
+            }
+        }
+        return record.toString();
+    }
+
+    private static String deleteRecord(int id) {
+        return TaskJournal.DELETE + "," + id;
+    }
+
+    private static String clearRecord(String type) {
+        return TaskJournal.CLEAR + "," + type;
+    }
+
+    /**
+     * Сворачивает журнал в снимок и останавливает фоновое сжатие.
+     * После закрытия изменения записываются перезаписью снимка.
+     */
+    @Override
+    public synchronized void close() {
+        if (journal == null) {
+            return;
+        }
+        compactor.shutdownNow();
+        if (!diverged) {
+            compact();
+        }
+        journal.close();
+        journal = null;
+    }
+
     /**
      * Преобразование задачи в строку для записи в файл.
      */
     private String taskToString(Task task) {
         Status status = task.getStatus() != null ? task.getStatus() : Status.NEW;
         if (task instanceof Subtask subtask) {
-            return String.format("%d,SUBTASK,%s,%s,%s,%s,%s,%d\n",
+            return String.format("%d,SUBTASK,%s,%s,%s,%s,%s,%d",
                     subtask.getId(),
                     subtask.getName(),
                     status,
@@ -68,7 +342,7 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
                     subtask.getDuration(),
                     subtask.getEpicId());
         } else if (task instanceof Epic epic) {
-            return String.format("%d,EPIC,%s,%s,%s,%s,%s\n",
+            return String.format("%d,EPIC,%s,%s,%s,%s,%s",
                     epic.getId(),
                     epic.getName(),
                     status,
@@ -77,7 +351,7 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
                     epic.getDuration());
         }
 
-        return String.format("%d,TASK,%s,%s,%s,%s,%s\n",
+        return String.format("%d,TASK,%s,%s,%s,%s,%s",
                 task.getId(),
                 task.getName(),
                 status,
@@ -93,194 +367,294 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
      * @return объект FileBackedTaskManager с загруженными данными
      */
     public static FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager manager = new FileBackedTaskManager(file);
-
-        if (!file.exists() || file.length() == 0) {
-            return manager; // Пустой файл
-        }
-
-        manager.isLoading = true;
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            reader.readLine(); // Пропускаем заголовок
-
-            List<String> subtasksToLoad = new ArrayList<>(); // Временный список для подзадач
-
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.isBlank()) continue;
+        return loadFromFile(file, StorageMode.SNAPSHOT);
+    }
 
-                try {
-                    String[] fields = line.split(",");
-                    if (fields.length < 7) {
-                        throw new IllegalArgumentException("Некорректный формат строки: недостаточно данных");
-                    }
+    /**
+     * Загрузка задач из снимка и журнала изменений. ID задач сохраняются.
+     * Если журнал не пуст, после загрузки он сворачивается в снимок.
+     *
+     * @param file        файл снимка
+     * @param storageMode способ записи последующих изменений
+     * @return объект FileBackedTaskManager с загруженными данными
+     */
+    public static FileBackedTaskManager loadFromFile(File file, StorageMode storageMode) {
+        return loadFromFile(file, storageMode, PersistencePolicy.sync());
+    }
 
-                    String type = fields[1];
+    /**
+     * Загрузка задач из снимка и журнала изменений с заданной политикой записи журнала.
+     *
+     * @param file              файл снимка
+     * @param storageMode       способ записи последующих изменений
+     * @param persistencePolicy политика записи журнала на диск
+     * @return объект FileBackedTaskManager с загруженными данными
+     */
+    public static FileBackedTaskManager loadFromFile(File file, StorageMode storageMode,
+                                                     PersistencePolicy persistencePolicy) {
+        return loadFromFile(file, storageMode, persistencePolicy, false);
+    }
 
-                    switch (type) {
-                        case "TASK" -> {
-                            Task task = parseTask(line);
-                            manager.saveTask(task);
-                        }
-                        case "EPIC" -> {
-                            Epic epic = (Epic) parseTask(line);
-                            manager.saveEpic(epic);
-                        }
-                        case "SUBTASK" -> subtasksToLoad.add(line); // Откладываем загрузку подзадач
-                        default -> throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
+    /**
+     * Загрузка задач из снимка и журнала изменений.
+     *
+     * <p>Строки не проверяются на пересечения по одной: файл записан менеджером, который уже
+     * проверил каждое изменение. Если файлу нельзя доверять, {@code validateOverlaps} включает
+     * одну общую проверку после загрузки.</p>
+     *
+     * @param file              файл снимка
+     * @param storageMode       способ записи последующих изменений
+     * @param persistencePolicy политика записи журнала на диск
+     * @param validateOverlaps  проверить пересечения после загрузки
+     * @return объект FileBackedTaskManager с загруженными данными
+     */
+    public static FileBackedTaskManager loadFromFile(File file, StorageMode storageMode,
+                                                     PersistencePolicy persistencePolicy, boolean validateOverlaps) {
+        File journalFile = TaskJournal.journalFile(file);
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, storageMode, persistencePolicy);
+
+        int replayed;
+        synchronized (manager) {
+            manager.isLoading = true;
+            try {
+                TaskCsvReader journalReader = new TaskCsvReader(Reader.nullReader());
+                manager.loadSnapshot();
+                replayed = TaskJournal.replay(journalFile, record -> manager.applyJournalRecord(record, journalReader));
+                if (validateOverlaps) {
+                    try {
+                        manager.validateAllOverlaps();
+                    } catch (IllegalArgumentException e) {
+                        throw new ManagerSaveException("Загруженные задачи пересекаются", e);
                     }
-                } catch (IllegalArgumentException e) {
-                    throw new ManagerSaveException("Ошибка при разборе строки: " + line, e);
                 }
+            } finally {
+                manager.isLoading = false;
             }
 
-            // 🔹 Теперь загружаем подзадачи, когда все эпики уже есть
-            for (String subtaskLine : subtasksToLoad) {
-                try {
-                    Subtask subtask = (Subtask) parseTask(subtaskLine);
-                    manager.saveSubtask(subtask); // Теперь эпик точно должен существовать
-                } catch (IllegalArgumentException e) {
-                    throw new ManagerSaveException("Ошибка при разборе подзадачи: " + subtaskLine, e);
+            if (replayed > 0) {
+                manager.compact();
+                if (storageMode == StorageMode.SNAPSHOT) {
+                    try {
+                        Files.deleteIfExists(journalFile.toPath());
+                    } catch (IOException e) {
+                        throw new ManagerSaveException("Не удалось удалить журнал: " + journalFile, e);
+                    }
                 }
             }
-
-            // 🔹 Пересчёт времени для всех эпиков
-            for (Epic epic : manager.getAllEpics()) {
-                manager.updateEpicTime(epic);
-            }
-        } catch (IOException e) {
-            throw new ManagerSaveException("Ошибка при загрузке файла", e);
-        } finally {
-            manager.isLoading = false;
         }
 
         return manager;
     }
 
-    private static Task parseTask(String line) {
-        System.out.println("Разбираем строку: " + line); // Дебаг
+    /**
+     * Читает снимок за один проход, сразу добавляя строки в индексы.
+     * Формат определяется по содержимому файла: двоичный снимок начинается с сигнатуры.
+     */
+    private void loadSnapshot() {
+        if (!file.exists() || file.length() == 0) {
+            return; // Пустой файл
+        }
+
+        // Подзадачи, встреченные раньше своего эпика; в файлах, записанных менеджером, их нет
+        List<Subtask> subtasksToLoad = new ArrayList<>();
 
-        if (line == null || line.isBlank()) {
-            throw new IllegalArgumentException("Некорректный формат строки: " + line);
+        if (BinarySnapshot.isBinary(file)) {
+            try {
+                BinarySnapshot.read(file, task -> restoreLoaded(task, subtasksToLoad));
+            } catch (IllegalArgumentException e) {
+                throw new ManagerSaveException("Ошибка при разборе двоичного снимка: " + file, e);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при загрузке файла", e);
+            }
+        } else {
+            try (TaskCsvReader reader = new TaskCsvReader(new FileReader(file, StandardCharsets.UTF_8))) {
+                reader.nextLine(); // Пропускаем заголовок
+
+                while (reader.nextLine()) {
+                    if (reader.isBlank()) continue;
+
+                    try {
+                        restoreLoaded(reader.parseTask(), subtasksToLoad);
+                    } catch (IllegalArgumentException e) {
+                        throw new ManagerSaveException("Ошибка при разборе строки: " + reader.currentLine(), e);
+                    }
+                }
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при загрузке файла", e);
+            }
         }
 
-        String[] fields = line.split(",");
-        if (fields.length < 5) {
-            throw new IllegalArgumentException("Некорректный формат строки: " + line);
+        for (Subtask subtask : subtasksToLoad) {
+            try {
+                restoreSubtask(subtask);
+            } catch (IllegalArgumentException e) {
+                throw new ManagerSaveException("Ошибка при разборе подзадачи: " + subtask, e);
+            }
         }
+    }
 
-        Integer id = fields[0].equals("null") ? null : Integer.parseInt(fields[0]);
-        String type = fields[1];
-        String name = fields[2];
-        Status status = fields[3].equals("null") ? null : Status.valueOf(fields[3]);
-        String description = fields[4];
-        LocalDateTime startTime = fields[5].equals("null") ? null : LocalDateTime.parse(fields[5]);
-        Duration duration = fields[6].equals("null") ? Duration.ZERO : Duration.parse(fields[6]);
-
-        System.out.println("Создан объект: " + id + " " + type + " " + name); // Дебаг
-
-        return switch (type) {
-            case "TASK" -> {
-                Task task = new Task(id, name, description, duration, startTime);
-                task.setId(id);
-                task.setStatus(status != null ? status : Status.NEW);
-                yield task;
+    private void restoreLoaded(Task task, List<Subtask> subtasksToLoad) {
+        if (task instanceof Subtask subtask) {
+            if (findById(subtask.getEpicId()) instanceof Epic) {
+                restoreSubtask(subtask);
+            } else {
+                subtasksToLoad.add(subtask);
             }
-            case "EPIC" -> {
-                Epic epic = new Epic(name, description, duration, startTime);
-                if (id != null) {
-                    epic.setId(id);
-                }
-                epic.setStatus(status != null ? status : Status.NEW);
-                yield epic;
+        } else if (task instanceof Epic epic) {
+            restoreEpic(epic);
+        } else {
+            restoreTask(task);
+        }
+    }
+
+    /**
+     * Применяет одну запись журнала. Пересечения не проверяются: запись прошла проверку,
+     * когда попала в журнал, а при повторном применении к новому снимку промежуточные
+     * состояния могут временно пересекаться.
+     */
+    private void applyJournalRecord(String record, TaskCsvReader reader) {
+        try {
+            int comma = record.indexOf(',');
+            if (comma < 0) {
+                throw new IllegalArgumentException("Некорректная запись журнала");
             }
-            case "SUBTASK" -> {
-                if (fields.length < 8) {
-                    throw new IllegalArgumentException("Подзадача должна содержать ID эпика: " + line);
+            String payload = record.substring(comma + 1);
+            switch (record.substring(0, comma)) {
+                case TaskJournal.PUT -> {
+                    Task task = reader.parse(payload);
+                    if (task instanceof Subtask subtask) {
+                        // Эпик мог быть удалён позже в журнале и уже отсутствует в снимке
+                        if (findById(subtask.getEpicId()) instanceof Epic) {
+                            restoreSubtask(subtask);
+                        }
+                    } else if (task instanceof Epic epic) {
+                        restoreEpic(epic);
+                    } else {
+                        restoreTask(task);
+                    }
                 }
-                int epicId = Integer.parseInt(fields[7]);
-                Subtask subtask = new Subtask(name, description, duration, startTime, epicId);
-                if (id != null) {
-                    subtask.setId(id);
+                case TaskJournal.DELETE -> deleteIfPresent(Integer.parseInt(payload));
+                case TaskJournal.CLEAR -> {
+                    switch (payload) {
+                        case "TASK" -> deleteAllTasks();
+                        case "EPIC" -> deleteAllEpics();
+                        case "SUBTASK" -> deleteAllSubtasks();
+                        default -> throw new IllegalArgumentException("Неизвестный тип задачи: " + payload);
+                    }
                 }
-                subtask.setStatus(status != null ? status : Status.NEW);
-                yield subtask;
+                default -> throw new IllegalArgumentException("Неизвестная операция журнала");
             }
-            default -> throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
-        };
+        } catch (IllegalArgumentException e) {
+            throw new ManagerSaveException("Ошибка при разборе записи журнала: " + record, e);
+        }
+    }
+
+    private void deleteIfPresent(int id) {
+        Task existing = findById(id);
+        if (existing instanceof Subtask) {
+            deleteSubtaskById(id);
+        } else if (existing instanceof Epic) {
+            deleteEpicById(id);
+        } else if (existing != null) {
+            deleteTaskById(id);
+        }
     }
 
     @Override
     public void saveTask(Task task) {
-        super.saveTask(task);
-        if (!isLoading) save();
+        mutate(() -> super.saveTask(task), () -> putRecord(task.getId()));
     }
 
     @Override
     public void saveEpic(Epic epic) {
         System.out.println("Сохраняем эпик: " + epic.getId());
-        super.saveEpic(epic);
-        if (!isLoading) save();
+        mutate(() -> super.saveEpic(epic), () -> putRecord(epic.getId()));
     }
 
     @Override
     public void saveSubtask(Subtask subtask) {
-        super.saveSubtask(subtask);
-        if (!isLoading) save();
+        mutate(() -> super.saveSubtask(subtask), () -> putRecord(subtask.getId()));
     }
 
     @Override
     public void deleteTaskById(int id) {
-        super.deleteTaskById(id);
-        if (!isLoading) save();
+        mutate(() -> super.deleteTaskById(id), () -> deleteRecord(id));
     }
 
     @Override
     public void deleteEpicById(int id) {
-        super.deleteEpicById(id);
-        if (!isLoading) save();
+        mutate(() -> super.deleteEpicById(id), () -> deleteRecord(id));
     }
 
     @Override
     public void deleteSubtaskById(int id) {
-        super.deleteSubtaskById(id);
-        if (!isLoading) save();
+        mutate(() -> super.deleteSubtaskById(id), () -> deleteRecord(id));
     }
 
     @Override
     public void deleteAllTasks() {
-        super.deleteAllTasks();
-        if (!isLoading) save();
+        mutate(super::deleteAllTasks, () -> clearRecord("TASK"));
     }
 
     @Override
     public void deleteAllEpics() {
-        super.deleteAllEpics();
-        if (!isLoading) save();
+        mutate(super::deleteAllEpics, () -> clearRecord("EPIC"));
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        super.updateEpic(epic);
-        if (!isLoading) save();
+        mutate(() -> super.updateEpic(epic), () -> putRecord(epic.getId()));
     }
 
     @Override
     public void updateSubtask(Subtask subtask) {
-        super.updateSubtask(subtask);
-        if (!isLoading) save();
+        mutate(() -> super.updateSubtask(subtask), () -> putRecord(subtask.getId()));
     }
 
     @Override
     public void deleteAllSubtasks() {
-        super.deleteAllSubtasks();
-        if (!isLoading) save();
+        mutate(super::deleteAllSubtasks, () -> clearRecord("SUBTASK"));
     }
 
     @Override
     public void updateTask(Task task) {
-        super.updateTask(task);
-        if (!isLoading) save();
+        mutate(() -> super.updateTask(task), () -> putRecord(task.getId()));
+    }
+
+    /**
+     * Операции пакета не записываются по одной: в режиме снимка файл перезаписывается один раз,
+     * в режиме журнала пакет дописывается одной группой записей и фиксируется одним ожиданием.
+     */
+    @Override
+    public List<Integer> applyBatch(List<Operation> operations) {
+        if (operations.isEmpty()) {
+            return List.of();
+        }
+        List<Integer> ids = new ArrayList<>(operations.size());
+        mutate(() -> {
+            inBatch = true;
+            try {
+                ids.addAll(super.applyBatch(operations));
+            } finally {
+                inBatch = false;
+            }
+        }, () -> batchRecord(operations, ids));
+        return ids;
+    }
+
+    /**
+     * Операции пакета ещё не записаны в файл, поэтому неудавшийся откат оставляет в памяти
+     * состояние, которого нет на диске. Об этом сообщается {@link ManagerSaveException}, а
+     * дальнейшие изменения и сворачивание журнала отклоняются, чтобы это состояние не попало
+     * в файл: менеджер нужно загрузить из файла заново.
+     */
+    @Override
+    void rollback(Deque<Runnable> undo, RuntimeException cause) {
+        try {
+            super.rollback(undo, cause);
+        } catch (RuntimeException failure) {
+            diverged = true;
+            throw new ManagerSaveException("Не удалось откатить пакет, данные в памяти расходятся с файлом " + file, failure);
+        }
     }
 }
@@ -5,6 +5,10 @@ import ru.practicum.model.Task;
 import java.util.List;
 
 public interface HistoryManager {
+    /**
+     * Записывает просмотр. Передаётся объект, хранящийся в менеджере задач, поэтому реализация
+     * сама решает, копировать ли его.
+     */
     void add(Task task);
 
     List<Task> getHistory();
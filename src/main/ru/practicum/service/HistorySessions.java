@@ -0,0 +1,98 @@
+package ru.practicum.service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Истории просмотров отдельных клиентов, по одной {@link HistoryManager} на сессию.
+ *
+ * <p>Сессии хранятся в порядке последнего обращения. Сессия, к которой не обращались дольше
+ * {@code idleTimeout}, удаляется при следующем обращении к реестру; при превышении
+ * {@code maxSessions} вытесняется самая давняя. Вместе с ограниченным размером каждой истории
+ * это ограничивает общую память всех историй.</p>
+ *
+ * <p>Реестр синхронизирован, но блокировка держится только на время поиска сессии:
+ * запись и чтение истории идут под блокировкой самой истории.</p>
+ */
+public class HistorySessions {
+    private final int maxSessions;
+    private final long idleTimeoutNanos;
+    private final Supplier<HistoryManager> historyFactory;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param maxSessions    максимальное число одновременно хранимых сессий
+     * @param idleTimeout    время бездействия, после которого сессия удаляется
+     * @param historyFactory создаёт историю новой сессии; размер истории должен быть ограничен
+     */
+    public HistorySessions(int maxSessions, Duration idleTimeout, Supplier<HistoryManager> historyFactory) {
+        this(maxSessions, idleTimeout, historyFactory, System::nanoTime);
+    }
+
+    HistorySessions(int maxSessions, Duration idleTimeout, Supplier<HistoryManager> historyFactory, LongSupplier clock) {
+        if (maxSessions <= 0) {
+            throw new IllegalArgumentException("Число сессий должно быть положительным: " + maxSessions);
+        }
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Время жизни сессии должно быть положительным: " + idleTimeout);
+        }
+        this.maxSessions = maxSessions;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.historyFactory = historyFactory;
+        this.clock = clock;
+    }
+
+    /**
+     * Возвращает историю сессии, создавая её при первом обращении.
+     */
+    public synchronized HistoryManager get(String sessionId) {
+        long now = clock.getAsLong();
+        expireIdle(now);
+
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            if (sessions.size() >= maxSessions) {
+                Iterator<Map.Entry<String, Session>> eldest = sessions.entrySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+            session = new Session(historyFactory.get());
+            sessions.put(sessionId, session);
+        }
+        session.lastAccess = now;
+        return session.history;
+    }
+
+    public synchronized int size() {
+        expireIdle(clock.getAsLong());
+        return sessions.size();
+    }
+
+    /**
+     * Удаляет просроченные сессии. Они лежат в начале порядка обращений, поэтому проход
+     * останавливается на первой живой.
+     */
+    private void expireIdle(long now) {
+        Iterator<Session> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().lastAccess < idleTimeoutNanos) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    private static final class Session {
+        private final HistoryManager history;
+        private long lastAccess;
+
+        private Session(HistoryManager history) {
+            this.history = history;
+        }
+    }
+}
@@ -1,33 +1,106 @@
 package ru.practicum.service;
 
+import ru.practicum.model.Epic;
+import ru.practicum.model.Subtask;
 import ru.practicum.model.Task;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.function.IntFunction;
+
+/**
+ * История просмотров на двусвязном списке с индексом по ID.
+ * Методы синхронизированы, поэтому один экземпляр можно использовать из нескольких потоков.
+ *
+ * <p>Размер истории ограничен: при переполнении вытесняется самый давний просмотр (голова
+ * списка) за O(1). Что хранится для каждого просмотра, задаёт {@link Retention}.</p>
+ */
 public class InMemoryHistoryManager implements HistoryManager {
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    /**
+     * Что история хранит для каждого просмотра.
+     */
+    public enum Retention {
+        /**
+         * Снимок на момент просмотра: эпики копируются вместе со списком подзадач, подзадачи копируются.
+         */
+        COPY,
+        /**
+         * Облегчённый снимок: эпик копируется без списка подзадач, остальное как в {@link #COPY}.
+         */
+        VIEW,
+        /**
+         * Только ID: {@link #getHistory()} возвращает текущие объекты менеджера задач.
+         */
+        ID
+    }
 
+    private final int capacity;
+    private final Retention retention;
     private final Map<Integer, Node<Task>> historyNode = new HashMap<>();
     private Node<Task> head;
     private Node<Task> tail;
+    private IntFunction<Task> resolver;
+
+    public InMemoryHistoryManager() {
+        this(DEFAULT_CAPACITY, Retention.COPY);
+    }
+
+    /**
+     * @param capacity  максимальное число просмотров в истории
+     * @param retention что хранить для каждого просмотра
+     */
+    public InMemoryHistoryManager(int capacity, Retention retention) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + capacity);
+        }
+        this.capacity = capacity;
+        this.retention = retention;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public Retention getRetention() {
+        return retention;
+    }
+
+    /**
+     * Задаёт поиск задачи по ID для режима {@link Retention#ID}. Вызывается менеджером задач,
+     * которому передана история.
+     */
+    synchronized void bind(IntFunction<Task> resolver) {
+        this.resolver = resolver;
+    }
 
     @Override
-    public void add(Task task) {
+    public synchronized void add(Task task) {
         if (task == null) {
             throw new IllegalArgumentException("Task cannot be null");
         }
-        linkLast(task);
+        if (task.getId() == null) {
+            throw new IllegalArgumentException("Task id cannot be null");
+        }
+        linkLast(task.getId(), retain(task));
+        if (historyNode.size() > capacity) {
+            removeNode(head);
+        }
     }
 
     @Override
-    public List<Task> getHistory() {
-        List<Task> result = new ArrayList<>();
+    public synchronized List<Task> getHistory() {
+        List<Task> result = new ArrayList<>(historyNode.size());
         Node<Task> current = head;
 
         while (current != null) {
-            result.add(current.element);
+            Task task = retention == Retention.ID ? resolve(current.id) : current.element;
+            if (task != null) {
+                result.add(task);
+            }
             current = current.next;
         }
 
@@ -35,22 +108,56 @@ public class InMemoryHistoryManager implements HistoryManager {
     }
 
     @Override
-    public void remove(int id) {
+    public synchronized void remove(int id) {
         Node<Task> taskNode = historyNode.get(id);
         if (taskNode != null) {
             removeNode(taskNode);
         }
     }
 
-    private void linkLast(Task task) {
+    private Task retain(Task task) {
+        return switch (retention) {
+            case ID -> null;
+            case VIEW -> task instanceof Epic epic ? view(epic) : copy(task);
+            case COPY -> copy(task);
+        };
+    }
+
+    private static Task copy(Task task) {
+        if (task instanceof Epic epic) {
+            return new Epic(epic);
+        }
+        if (task instanceof Subtask subtask) {
+            return new Subtask(subtask);
+        }
+        return task;
+    }
+
+    private static Epic view(Epic epic) {
+        Epic view = new Epic(epic.getName(), epic.getDescription(), epic.getDuration(), epic.getStartTime());
+        view.setId(epic.getId());
+        view.setStatus(epic.getStatus());
+        view.setEndTime(epic.getEndTime());
+        return view;
+    }
+
+    private Task resolve(int id) {
+        if (resolver == null) {
+            throw new IllegalStateException("История по ID не привязана к менеджеру задач");
+        }
+        return resolver.apply(id);
+    }
+
+    private void linkLast(int id, Task element) {
         // Удаляем старую запись, если она существует
-        if (historyNode.containsKey(task.getId())) {
-            removeNode(historyNode.get(task.getId()));
+        Node<Task> existing = historyNode.get(id);
+        if (existing != null) {
+            removeNode(existing);
         }
 
         // Добавляем новый узел в конец
         final Node<Task> oldTail = tail;
-        final Node<Task> newNode = new Node<>(oldTail, task, null);
+        final Node<Task> newNode = new Node<>(oldTail, id, element, null);
         tail = newNode;
 
         if (oldTail == null) {
@@ -59,7 +166,7 @@ public class InMemoryHistoryManager implements HistoryManager {
             oldTail.next = newNode;
         }
 
-        historyNode.put(task.getId(), newNode);
+        historyNode.put(id, newNode);
     }
 
     private void removeNode(Node<Task> node) {
@@ -82,7 +189,7 @@ public class InMemoryHistoryManager implements HistoryManager {
         }
 
         // Удаляем из мапы
-        historyNode.remove(node.element.getId());
+        historyNode.remove(node.id);
 
         // Обнуляем ссылки узла для GC
         node.next = null;
@@ -90,12 +197,14 @@ public class InMemoryHistoryManager implements HistoryManager {
     }
 
     static class Node<E> {
+        public final int id;
         public E element;
         public Node<E> next;
         public Node<E> prev;
 
-        public Node(Node<E> prev, E element, Node<E> next) {
+        public Node(Node<E> prev, int id, E element, Node<E> next) {
             this.prev = prev;
+            this.id = id;
             this.element = element;
             this.next = next;
         }
@@ -1,27 +1,34 @@
 package ru.practicum.service;
 
+import ru.practicum.exception.BatchException;
 import ru.practicum.model.Epic;
 import ru.practicum.model.Status;
 import ru.practicum.model.Subtask;
 import ru.practicum.model.Task;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NavigableSet;
 import java.util.Objects;
+import java.util.PrimitiveIterator;
 import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
 
 public class InMemoryTaskManager implements TaskManager {
-    private int idCounter = 1;
-    private final HistoryManager historyManager;
-
-    private final TreeSet<Epic> priorityEpics = new TreeSet<>(Comparator.comparing(
-            (Epic epic) -> epic.getStartTime() != null ? epic.getStartTime() : LocalDateTime.MIN
-    ).thenComparing(Epic::getId));
-
-    private final TreeSet<Task> priorityTasks = new TreeSet<>((task1, task2) -> {
+    // Порядок по времени начала, задачи без времени идут в конец; при равном времени — по ID
+    private static final Comparator<Task> PRIORITY_ORDER = (task1, task2) -> {
         if (task1.getStartTime() == null && task2.getStartTime() == null) {
             return Integer.compare(task1.getId(), task2.getId());
         }
@@ -29,79 +36,122 @@ public class InMemoryTaskManager implements TaskManager {
         if (task2.getStartTime() == null) return -1;
         int compareByTime = task1.getStartTime().compareTo(task2.getStartTime());
         return compareByTime != 0 ? compareByTime : Integer.compare(task1.getId(), task2.getId());
-    });
+    };
+
+    private final AtomicInteger idCounter = new AtomicInteger(1);
+    private final AtomicLong version = new AtomicLong();
+    private volatile Instant lastModified = Instant.now();
+    // Слитый список задач и подзадач для getPrioritizedTasks() и версия, по которой он построен
+    private volatile PrioritizedSnapshot prioritized;
+    private final List<TaskChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final HistoryManager historyManager;
 
-    private final TreeSet<Subtask> prioritySubtasks = new TreeSet<>((subtask1, subtask2) -> {
-        if (subtask1.getStartTime() == null && subtask2.getStartTime() == null) {
-            return Integer.compare(subtask1.getId(), subtask2.getId());
-        }
-        if (subtask1.getStartTime() == null) return 1;
-        if (subtask2.getStartTime() == null) return -1;
-        int compareByTime = subtask1.getStartTime().compareTo(subtask2.getStartTime());
-        return compareByTime != 0 ? compareByTime : Integer.compare(subtask1.getId(), subtask2.getId());
-    });
+    // Индексы по ID: поиск, обновление и удаление без обхода TreeSet и без упаковки ключей
+    private final IntMap<Task> tasks = new IntMap<>();
+    private final IntMap<Epic> epics = new IntMap<>();
+    private final IntMap<Subtask> subtasks = new IntMap<>();
+
+    // Индексы интервалов для проверки пересечений, отдельно для каждого типа
+    private final TimeSlotIndex taskSlots = new TimeSlotIndex();
+    private final TimeSlotIndex subtaskSlots = new TimeSlotIndex();
+
+    // Накопительные показатели подзадач по ID эпика
+    private final IntMap<EpicAggregate> epicAggregates = new IntMap<>();
 
+    // Состав эпиков: ID эпика → отсортированные ID его подзадач
+    private final IntMap<SortedIntSet> epicSubtaskIds = new IntMap<>();
+
+    private final TreeSet<Epic> priorityEpics = new TreeSet<>(Comparator.comparing(
+            (Epic epic) -> epic.getStartTime() != null ? epic.getStartTime() : LocalDateTime.MIN
+    ).thenComparing(Epic::getId));
+
+    private final TreeSet<Task> priorityTasks = new TreeSet<>(PRIORITY_ORDER);
+
+    // Общий порядок задач и подзадач получается слиянием двух множеств при чтении,
+    // отдельное третье множество стоило бы по узлу на каждую задачу и подзадачу
+    private final TreeSet<Subtask> prioritySubtasks = new TreeSet<>(PRIORITY_ORDER);
+
+    // История только запоминает поиск по ID и вызывает его при чтении, уже после создания менеджера
+    @SuppressWarnings("this-escape")
     public InMemoryTaskManager(HistoryManager historyManager) {
         this.historyManager = historyManager;
+        if (historyManager instanceof InMemoryHistoryManager inMemoryHistory) {
+            inMemoryHistory.bind(this::findById);
+        }
     }
 
     @Override
     public void saveTask(Task task) {
         validateTask(task);
-        task.setId(idCounter++);
-        if (task.getStartTime() != null) {
-            priorityTasks.add(task);
-        }
+        task.setId(idCounter.getAndIncrement());
+        indexTask(task);
+        changed(Task.class, task.getId());
     }
 
+    /**
+     * Сохраняет эпик без подзадач: подзадачи попадают в эпик только через {@link #saveSubtask(Subtask)},
+     * а список подзадач переданного объекта заменяется представлением состава эпика.
+     */
     @Override
     public void saveEpic(Epic epic) {
-        epic.setId(idCounter++);
-        updateEpicTime(epic);
-
-        priorityEpics.add(epic);
+        epic.setId(idCounter.getAndIncrement());
+        registerEpic(epic);
+        indexEpic(epic);
+        changed(Epic.class, epic.getId());
         System.out.println("Добавлен эпик в priorityEpics: " + epic.getId());
     }
 
     @Override
     public void saveSubtask(Subtask subtask) {
         validateTask(subtask);
-        Epic epic = priorityEpics.stream()
-                .filter(e -> Objects.equals(e.getId(), subtask.getEpicId()))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Эпик с ID " + subtask.getEpicId() + " не найден."));
-        subtask.setId(idCounter++);
-        if (subtask.getStartTime() != null) {
-            prioritySubtasks.add(subtask);
+        Epic epic = epics.get(subtask.getEpicId());
+        if (epic == null) {
+            throw new IllegalArgumentException("Эпик с ID " + subtask.getEpicId() + " не найден.");
         }
-        epic.addSubtask(subtask);
-        updateEpicStatus(epic);
-        updateEpicTime(epic);
+        subtask.setId(idCounter.getAndIncrement());
+        attachSubtask(subtask, epic);
+        changed(Subtask.class, subtask.getId());
+        notifyListeners(Epic.class, epic.getId());
     }
 
     @Override
     public Task getTaskById(int id) {
-        Task task = priorityTasks.stream().filter(t -> t.getId() == id).findFirst().orElse(null);
+        return getTaskById(id, historyManager);
+    }
+
+    @Override
+    public Epic getEpicById(int id) {
+        return getEpicById(id, historyManager);
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id) {
+        return getSubtaskById(id, historyManager);
+    }
+
+    @Override
+    public Task getTaskById(int id, HistoryManager history) {
+        Task task = tasks.get(id);
         if (task != null) {
-            historyManager.add(task);
+            history.add(task);
         }
         return task;
     }
 
     @Override
-    public Epic getEpicById(int id) {
-        Epic epic = priorityEpics.stream().filter(e -> e.getId() == id).findFirst().orElse(null);
+    public Epic getEpicById(int id, HistoryManager history) {
+        Epic epic = epics.get(id);
         if (epic != null) {
-            historyManager.add(new Epic(epic));
+            history.add(epic);
         }
         return epic;
     }
 
     @Override
-    public Subtask getSubtaskById(int id) {
-        Subtask subtask = prioritySubtasks.stream().filter(s -> s.getId() == id).findFirst().orElse(null);
+    public Subtask getSubtaskById(int id, HistoryManager history) {
+        Subtask subtask = subtasks.get(id);
         if (subtask != null) {
-            historyManager.add(new Subtask(subtask));
+            history.add(subtask);
         }
         return subtask;
     }
@@ -112,14 +162,14 @@ public class InMemoryTaskManager implements TaskManager {
             throw new IllegalArgumentException("Task is null or ID is not set");
         }
 
-        // Ищем задачу в TreeSet по ID
-        Task existingTask = priorityTasks.stream()
-                .filter(t -> Objects.equals(t.getId(), task.getId()))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Task with ID " + task.getId() + " does not exist"));
+        Task existingTask = tasks.get(task.getId());
+        if (existingTask == null) {
+            throw new IllegalArgumentException("Task with ID " + task.getId() + " does not exist");
+        }
+        validateTask(task);
 
         // Удаляем старую версию задачи из TreeSet
-        priorityTasks.remove(existingTask);
+        removeFromPriority(priorityTasks, existingTask);
 
         // Обновляем поля задачи
         existingTask.setName(task.getName());
@@ -129,6 +179,8 @@ public class InMemoryTaskManager implements TaskManager {
 
         // Добавляем обновленную задачу обратно в TreeSet
         priorityTasks.add(existingTask);
+        taskSlots.put(existingTask);
+        changed(Task.class, existingTask.getId());
     }
 
     @Override
@@ -137,12 +189,12 @@ public class InMemoryTaskManager implements TaskManager {
             throw new IllegalArgumentException("Epic is null or ID is not set");
         }
 
-        Epic existingEpic = priorityEpics.stream()
-                .filter(e -> Objects.equals(e.getId(), epic.getId()))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Epic with ID " + epic.getId() + " does not exist"));
+        Epic existingEpic = epics.get(epic.getId());
+        if (existingEpic == null) {
+            throw new IllegalArgumentException("Epic with ID " + epic.getId() + " does not exist");
+        }
 
-        priorityEpics.remove(existingEpic);
+        removeFromPriority(priorityEpics, existingEpic);
 
         existingEpic.setName(epic.getName());
         existingEpic.setDescription(epic.getDescription());
@@ -150,69 +202,86 @@ public class InMemoryTaskManager implements TaskManager {
         existingEpic.setDuration(epic.getDuration());
 
         priorityEpics.add(existingEpic);
+        changed(Epic.class, existingEpic.getId());
     }
 
     @Override
     public void updateSubtask(Subtask subtask) {
-        prioritySubtasks.remove(subtask);
+        if (subtask == null || subtask.getId() == null) {
+            throw new IllegalArgumentException("Subtask is null or ID is not set");
+        }
+
+        Subtask existingSubtask = subtasks.get(subtask.getId());
+        if (existingSubtask == null) {
+            throw new IllegalArgumentException("Subtask with ID " + subtask.getId() + " does not exist");
+        }
+
         validateTask(subtask);
-        prioritySubtasks.add(subtask);
+        removeFromPriority(prioritySubtasks, existingSubtask);
+
+        existingSubtask.setName(subtask.getName());
+        existingSubtask.setDescription(subtask.getDescription());
+        existingSubtask.setStatus(subtask.getStatus());
+        existingSubtask.setStartTime(subtask.getStartTime());
+        existingSubtask.setDuration(subtask.getDuration());
+
+        prioritySubtasks.add(existingSubtask);
+        subtaskSlots.put(existingSubtask);
 
-        Epic epic = getEpicById(subtask.getEpicId());
+        Epic epic = epics.get(existingSubtask.getEpicId());
         if (epic != null) {
-            updateEpicStatus(epic);
-            updateEpicTime(epic);
+            epicAggregates.get(epic.getId()).put(existingSubtask);
+            removeFromPriority(priorityEpics, epic);
+            updateEpicFields(epic);
+            priorityEpics.add(epic);
         }
+        changed(Subtask.class, existingSubtask.getId());
+        notifyListeners(Epic.class, existingSubtask.getEpicId());
     }
 
     @Override
     public void deleteTaskById(int id) {
-        // Находим задачу в TreeSet
-        Task taskToDelete = priorityTasks.stream()
-                .filter(task -> task.getId() == id)
-                .findFirst()
-                .orElse(null);
-
-        if (taskToDelete != null) {
-            // Удаляем точный объект из TreeSet
-            boolean removed = priorityTasks.remove(taskToDelete);
-
-            // Проверяем, удалось ли удалить задачу
-            if (!removed) {
-                throw new IllegalStateException("Failed to remove task with ID " + id + " from TreeSet");
-            }
-
-            // Удаляем задачу из истории
-            historyManager.remove(id);
-        } else {
+        Task taskToDelete = tasks.remove(id);
+        if (taskToDelete == null) {
             throw new IllegalArgumentException("Task with ID " + id + " does not exist");
         }
+
+        removeFromPriority(priorityTasks, taskToDelete);
+        taskSlots.remove(id);
+        historyManager.remove(id);
+        changed(Task.class, id);
     }
 
     @Override
     public void deleteEpicById(int id) {
-        Epic epic = getEpicById(id);
+        Epic epic = epics.remove(id);
         if (epic != null) {
-            for (Subtask subtask : epic.getSubtasks()) {
-                deleteSubtaskById(subtask.getId());
+            int[] subtaskIds = epicSubtaskIds.remove(id).toArray();
+            for (int subtaskId : subtaskIds) {
+                removeFromPriority(prioritySubtasks, subtasks.remove(subtaskId));
+                subtaskSlots.remove(subtaskId);
+                historyManager.remove(subtaskId);
             }
-            priorityEpics.remove(epic);
+            // Представление больше не связано с менеджером, у удалённого эпика остаётся снимок
+            epic.setSubtasks(new ArrayList<>());
+            removeFromPriority(priorityEpics, epic);
+            epicAggregates.remove(id);
             historyManager.remove(id);
+            changed(Epic.class, id);
+            for (int subtaskId : subtaskIds) {
+                notifyListeners(Subtask.class, subtaskId);
+            }
         }
     }
 
     @Override
     public void deleteSubtaskById(int id) {
-        Subtask subtask = getSubtaskById(id);
+        Subtask subtask = subtasks.get(id);
         if (subtask != null) {
-            prioritySubtasks.remove(subtask);
-            Epic epic = getEpicById(subtask.getEpicId());
-            if (epic != null) {
-                epic.getSubtasks().remove(subtask);
-                updateEpicStatus(epic);
-                updateEpicTime(epic);
-            }
+            detachSubtask(subtask);
             historyManager.remove(id);
+            changed(Subtask.class, id);
+            notifyListeners(Epic.class, subtask.getEpicId());
         }
     }
 
@@ -231,139 +300,677 @@ public class InMemoryTaskManager implements TaskManager {
         return new ArrayList<>(prioritySubtasks);
     }
 
+    @Override
+    public List<Task> findTasks(TaskQuery query) {
+        return page(priorityTasks, tasks, query, true, (time, id) -> new Task(id, null, null, null, time));
+    }
+
+    @Override
+    public List<Epic> findEpics(TaskQuery query) {
+        // Эпики без времени начала стоят в начале порядка
+        return page(priorityEpics, epics, query, false, (time, id) -> {
+            Epic probe = new Epic(null, null, null, time);
+            probe.setId(id);
+            return probe;
+        });
+    }
+
+    @Override
+    public List<Subtask> findSubtasks(TaskQuery query) {
+        return page(prioritySubtasks, subtasks, query, true, (time, id) -> {
+            Subtask probe = new Subtask(null, null, null, time, null);
+            probe.setId(id);
+            return probe;
+        });
+    }
+
+    /**
+     * Собирает страницу, начиная с курсора или нижней границы времени, и обходит только
+     * элементы после неё; полный список не копируется.
+     *
+     * @param nullsLast задачи без времени начала стоят в конце порядка, а не в начале
+     * @param probe     пробный элемент с заданными временем начала и ID: по нему ищется место
+     *                  курсора с ключом сортировки и нижней границы времени
+     */
+    private static <T extends Task> List<T> page(NavigableSet<T> ordered, IntMap<T> byId, TaskQuery query,
+                                                 boolean nullsLast, BiFunction<LocalDateTime, Integer, T> probe) {
+        NavigableSet<T> view = ordered;
+        T cursor = null;
+        TaskQuery.Cursor after = query.after();
+        if (after != null) {
+            // Курсору с ключом не нужен сам элемент: место в порядке находится по пробному
+            cursor = after.keyed() ? probe.apply(after.startTime(), after.id()) : byId.get(after.id());
+            if (cursor == null) {
+                throw new IllegalArgumentException("Задача-курсор не найдена: " + after.id());
+            }
+            view = view.tailSet(cursor, false);
+        }
+        if (query.from() != null) {
+            T lowerBound = probe.apply(query.from(), Integer.MIN_VALUE);
+            if (cursor == null || ordered.comparator().compare(lowerBound, cursor) > 0) {
+                view = ordered.tailSet(lowerBound, true);
+            }
+        }
+
+        List<T> page = new ArrayList<>(Math.min(query.limit(), byId.size()));
+        Iterator<T> iterator = view.iterator();
+        while (page.size() < query.limit() && iterator.hasNext()) {
+            T task = iterator.next();
+            LocalDateTime start = task.getStartTime();
+            if (query.hasTimeFilter() && start == null) {
+                if (nullsLast) {
+                    break;
+                }
+                continue;
+            }
+            if (query.to() != null && !start.isBefore(query.to())) {
+                break;
+            }
+            if (query.matchesStatus(task)) {
+                page.add(task);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Возвращает представление подзадач эпика в порядке ID только для чтения: подзадачи
+     * находятся по ID при обходе, и представление отражает последующие изменения эпика.
+     */
     @Override
     public List<Subtask> getAllSubtasksByEpic(Epic epic) {
-        return epic.getSubtasks();
+        Epic stored = epic.getId() != null ? epics.get(epic.getId()) : null;
+        return stored != null ? stored.getSubtasks() : List.of();
     }
 
     @Override
     public void deleteAllTasks() {
+        tasks.forEach(task -> historyManager.remove(task.getId()));
+        tasks.clear();
         priorityTasks.clear();
+        taskSlots.clear();
+        changed(Task.class, null);
     }
 
     @Override
     public void deleteAllEpics() {
-        for (Epic epic : priorityEpics) {
-            for (Subtask subtask : epic.getSubtasks()) {
-                prioritySubtasks.remove(subtask);
-            }
-        }
+        subtasks.forEach(subtask -> historyManager.remove(subtask.getId()));
+        epics.forEach(epic -> historyManager.remove(epic.getId()));
+        subtasks.clear();
+        prioritySubtasks.clear();
+        subtaskSlots.clear();
+        epics.clear();
         priorityEpics.clear();
+        epicAggregates.clear();
+        epicSubtaskIds.clear();
+        changed(Epic.class, null);
+        notifyListeners(Subtask.class, null);
     }
 
     @Override
     public void deleteAllSubtasks() {
-        for (Epic epic : priorityEpics) {
-            epic.getSubtasks().clear();
-            updateEpicStatus(epic);
-            updateEpicTime(epic);
-        }
+        subtasks.forEach(subtask -> historyManager.remove(subtask.getId()));
+        subtasks.clear();
         prioritySubtasks.clear();
+        subtaskSlots.clear();
+
+        priorityEpics.clear();
+        epics.forEach(epic -> {
+            epicSubtaskIds.get(epic.getId()).clear();
+            epicAggregates.get(epic.getId()).clear();
+            updateEpicFields(epic);
+            priorityEpics.add(epic);
+        });
+        changed(Subtask.class, null);
+        notifyListeners(Epic.class, null);
     }
 
-    private void updateEpicStatus(Epic epic) {
-        List<Subtask> subtasks = epic.getSubtasks();
-        if (subtasks == null || subtasks.isEmpty()) {
-            epic.setStatus(Status.NEW);
-            return;
+    /**
+     * Применяет операции по порядку обычными методами менеджера, поэтому каждая проверяется по
+     * индексам интервалов с учётом предыдущих операций пакета. Для каждой применённой операции
+     * запоминается обратная; если очередная операция не прошла проверку, обратные выполняются
+     * в обратном порядке и данные возвращаются к исходному состоянию. Записи истории удалённых
+     * объектов при откате не восстанавливаются.
+     */
+    @Override
+    public List<Integer> applyBatch(List<Operation> operations) {
+        List<Integer> ids = new ArrayList<>(operations.size());
+        Deque<Runnable> undo = new ArrayDeque<>();
+        for (int i = 0; i < operations.size(); i++) {
+            try {
+                ids.add(apply(operations.get(i), ids, undo));
+            } catch (RuntimeException e) {
+                rollback(undo, e);
+                if (e instanceof IllegalArgumentException || e instanceof NullPointerException) {
+                    throw new BatchException(i, e.getMessage(), e);
+                }
+                throw e;
+            }
         }
+        return ids;
+    }
 
-        boolean allDone = subtasks.stream().allMatch(subtask -> subtask.getStatus() == Status.DONE);
-        boolean allNew = subtasks.stream().allMatch(subtask -> subtask.getStatus() == Status.NEW);
+    /**
+     * Выполняет обратные операции пакета. Если откат сам не удался, его ошибка выбрасывается
+     * с исходной в подавленных.
+     */
+    void rollback(Deque<Runnable> undo, RuntimeException cause) {
+        try {
+            while (!undo.isEmpty()) {
+                undo.pop().run();
+            }
+        } catch (RuntimeException failure) {
+            failure.addSuppressed(cause);
+            throw failure;
+        }
+    }
 
-        if (allDone) {
-            epic.setStatus(Status.DONE);
-        } else if (allNew) {
-            epic.setStatus(Status.NEW);
-        } else {
-            epic.setStatus(Status.IN_PROGRESS);
+    private int apply(Operation operation, List<Integer> created, Deque<Runnable> undo) {
+        return switch (operation.type()) {
+            case CREATE -> {
+                Task task = operation.task();
+                if (task instanceof Subtask subtask && subtask.getEpicId() != null && subtask.getEpicId() < 0) {
+                    int index = -subtask.getEpicId() - 1;
+                    if (index >= created.size()) {
+                        throw new IllegalArgumentException("Ссылка на эпик ещё не созданной операции " + index);
+                    }
+                    subtask.setEpicId(created.get(index));
+                }
+                if (task instanceof Subtask subtask) {
+                    saveSubtask(subtask);
+                } else if (task instanceof Epic epic) {
+                    saveEpic(epic);
+                } else {
+                    saveTask(task);
+                }
+                int id = task.getId();
+                undo.push(() -> deleteById(id));
+                yield id;
+            }
+            case UPDATE -> {
+                Task task = operation.task();
+                Task existing = task.getId() != null ? findById(task.getId()) : null;
+                if (existing == null || existing.getClass() != task.getClass()) {
+                    throw new IllegalArgumentException("Объект с ID " + task.getId() + " не найден");
+                }
+                if (task instanceof Subtask subtask) {
+                    Subtask previous = new Subtask((Subtask) existing);
+                    updateSubtask(subtask);
+                    undo.push(() -> updateSubtask(previous));
+                } else if (task instanceof Epic epic) {
+                    Epic previous = new Epic((Epic) existing);
+                    updateEpic(epic);
+                    undo.push(() -> updateEpic(previous));
+                } else {
+                    Task previous = new Task(existing);
+                    updateTask(task);
+                    undo.push(() -> updateTask(previous));
+                }
+                yield task.getId();
+            }
+            case DELETE -> {
+                int id = operation.id();
+                Task existing = findById(id);
+                if (existing == null) {
+                    throw new IllegalArgumentException("Объект с ID " + id + " не найден");
+                }
+                if (existing instanceof Epic epic) {
+                    List<Subtask> epicSubtasks = new ArrayList<>(epic.getSubtasks());
+                    deleteById(id);
+                    undo.push(() -> {
+                        restoreEpic(epic);
+                        epicSubtasks.forEach(this::restoreSubtask);
+                    });
+                } else {
+                    deleteById(id);
+                    undo.push(() -> {
+                        if (existing instanceof Subtask subtask) {
+                            restoreSubtask(subtask);
+                        } else {
+                            restoreTask(existing);
+                        }
+                    });
+                }
+                yield id;
+            }
+        };
+    }
+
+    private void deleteById(int id) {
+        Task existing = findById(id);
+        if (existing instanceof Subtask) {
+            deleteSubtaskById(id);
+        } else if (existing instanceof Epic) {
+            deleteEpicById(id);
+        } else if (existing != null) {
+            deleteTaskById(id);
         }
     }
 
-    void updateEpicTime(Epic epic) {
-        if (epic.getSubtasks() == null) {
-            epic.setSubtasks(new ArrayList<>()); // Инициализация пустого списка
+    /**
+     * Восстанавливает задачу с уже назначенным ID, например при загрузке из файла.
+     * Задача с тем же ID заменяется. Пересечения не проверяются.
+     */
+    void restoreTask(Task task) {
+        Task existing = tasks.get(task.getId());
+        if (existing != null) {
+            removeFromPriority(priorityTasks, existing);
         }
+        indexTask(task);
+        reserveId(task.getId());
+        changed(Task.class, task.getId());
+    }
 
-        List<Subtask> subtasks = epic.getSubtasks();
-        if (subtasks.isEmpty()) {
-            epic.setStartTime(null);
-            epic.setDuration(null);
+    /**
+     * Восстанавливает эпик с уже назначенным ID. У существующего эпика обновляются только
+     * название и описание: остальные поля рассчитываются по подзадачам.
+     */
+    void restoreEpic(Epic epic) {
+        Epic existing = epics.get(epic.getId());
+        if (existing != null) {
+            existing.setName(epic.getName());
+            existing.setDescription(epic.getDescription());
+            changed(Epic.class, existing.getId());
             return;
         }
+        registerEpic(epic);
+        indexEpic(epic);
+        reserveId(epic.getId());
+        changed(Epic.class, epic.getId());
+    }
+
+    /**
+     * Восстанавливает подзадачу с уже назначенным ID. Подзадача с тем же ID заменяется.
+     * Пересечения не проверяются.
+     */
+    void restoreSubtask(Subtask subtask) {
+        Epic epic = epics.get(subtask.getEpicId());
+        if (epic == null) {
+            throw new IllegalArgumentException("Эпик с ID " + subtask.getEpicId() + " не найден.");
+        }
+        Subtask existing = subtasks.get(subtask.getId());
+        if (existing != null) {
+            detachSubtask(existing);
+        }
+        attachSubtask(subtask, epic);
+        reserveId(subtask.getId());
+        changed(Subtask.class, subtask.getId());
+        notifyListeners(Epic.class, epic.getId());
+        if (existing != null && !existing.getEpicId().equals(epic.getId())) {
+            notifyListeners(Epic.class, existing.getEpicId());
+        }
+    }
 
-        LocalDateTime startTime = subtasks.stream()
-                .map(Subtask::getStartTime)
-                .filter(Objects::nonNull)
-                .min(LocalDateTime::compareTo)
-                .orElse(null);
+    /**
+     * Проверяет на пересечения все задачи и подзадачи разом, например после загрузки
+     * без построчной проверки. Эпики не проверяются, как и при сохранении.
+     */
+    void validateAllOverlaps() {
+        validateAllOverlaps(priorityTasks);
+        validateAllOverlaps(prioritySubtasks);
+    }
 
-        Duration totalDuration = subtasks.stream()
-                .map(Subtask::getDuration)
-                .filter(Objects::nonNull)
-                .reduce(Duration.ZERO, Duration::plus);
+    private void validateAllOverlaps(TreeSet<? extends Task> ordered) {
+        for (Task task : ordered) {
+            if (task.getStartTime() == null) {
+                break; // Дальше идут только задачи без времени начала
+            }
+            validateTask(task);
+        }
+    }
+
+    /**
+     * Возвращает задачу, эпик или подзадачу по ID без записи в историю просмотров.
+     */
+    Task findById(int id) {
+        Task task = tasks.get(id);
+        if (task != null) {
+            return task;
+        }
+        Epic epic = epics.get(id);
+        return epic != null ? epic : subtasks.get(id);
+    }
 
-        epic.setStartTime(startTime);
-        epic.setDuration(totalDuration);
+    private void reserveId(int id) {
+        idCounter.accumulateAndGet(id + 1, Math::max);
     }
 
-    private boolean isOverlapping(Task newTask, Task existingTask) {
-        if (newTask.getStartTime() == null || existingTask.getStartTime() == null) {
-            return false;
+    private void indexTask(Task task) {
+        tasks.put(task.getId(), task);
+        priorityTasks.add(task);
+        taskSlots.put(task);
+    }
+
+    /**
+     * Заводит пустой состав и показатели эпика и пересчитывает его поля.
+     */
+    private void registerEpic(Epic epic) {
+        SortedIntSet subtaskIds = new SortedIntSet();
+        epicSubtaskIds.put(epic.getId(), subtaskIds);
+        epic.setSubtasks(new EpicSubtasks(subtaskIds));
+        epicAggregates.put(epic.getId(), new EpicAggregate());
+        updateEpicFields(epic);
+    }
+
+    private void indexEpic(Epic epic) {
+        epics.put(epic.getId(), epic);
+        priorityEpics.add(epic);
+    }
+
+    /**
+     * Добавляет подзадачу в индексы и пересчитывает её эпик.
+     */
+    private void attachSubtask(Subtask subtask, Epic epic) {
+        subtasks.put(subtask.getId(), subtask);
+        prioritySubtasks.add(subtask);
+        subtaskSlots.put(subtask);
+
+        removeFromPriority(priorityEpics, epic);
+        epicSubtaskIds.get(epic.getId()).add(subtask.getId());
+        epicAggregates.get(epic.getId()).put(subtask);
+        updateEpicFields(epic);
+        priorityEpics.add(epic);
+    }
+
+    /**
+     * Удаляет подзадачу из индексов и пересчитывает её эпик. История не изменяется.
+     */
+    private void detachSubtask(Subtask subtask) {
+        int id = subtask.getId();
+        subtasks.remove(id);
+        removeFromPriority(prioritySubtasks, subtask);
+        subtaskSlots.remove(id);
+        Epic epic = epics.get(subtask.getEpicId());
+        if (epic != null) {
+            removeFromPriority(priorityEpics, epic);
+            epicSubtaskIds.get(epic.getId()).remove(id);
+            epicAggregates.get(epic.getId()).remove(id);
+            updateEpicFields(epic);
+            priorityEpics.add(epic);
         }
-        LocalDateTime newTaskStart = newTask.getStartTime();
-        LocalDateTime newTaskEnd = newTaskStart.plus(newTask.getDuration());
-        LocalDateTime existingTaskStart = existingTask.getStartTime();
-        LocalDateTime existingTaskEnd = existingTaskStart.plus(existingTask.getDuration());
-        return newTaskStart.isBefore(existingTaskEnd) && existingTaskStart.isBefore(newTaskEnd);
     }
 
-    private void validateTask(Task newTask) {
-        for (Task existingTask : getPrioritizedTasks()) {
-            // Пропускаем проверку самой задачи
-            if (Objects.equals(existingTask.getId(), newTask.getId())) {
-                continue;
-            }
+    /**
+     * Подзадачи эпика как список только для чтения поверх его состава: подзадачи находятся
+     * по ID при обращении, поэтому список не хранит объекты и не копируется при изменениях.
+     *
+     * <p>Представление читает индексы менеджера без синхронизации, как и остальные методы
+     * этого класса. Для доступа из нескольких потоков менеджер оборачивается в
+     * {@link ConcurrentTaskManager}, который отдаёт эпики и их подзадачи копиями, снятыми
+     * под блокировкой чтения.</p>
+     */
+    private final class EpicSubtasks extends AbstractList<Subtask> {
+        private final SortedIntSet ids;
+
+        private EpicSubtasks(SortedIntSet ids) {
+            this.ids = ids;
+        }
 
-            // Проверка пересечения для подзадач
-            if (newTask instanceof Subtask && existingTask instanceof Subtask) {
-                if (isOverlapping(newTask, existingTask)) {
-                    throw new IllegalArgumentException("Подзадача пересекается с другой подзадачей: " + existingTask);
-                }
-            }
+        @Override
+        public Subtask get(int index) {
+            return subtasks.get(ids.get(index));
+        }
 
-            // Проверка пересечения для задач
-            if (!(newTask instanceof Epic || newTask instanceof Subtask) && !(existingTask instanceof Epic || existingTask instanceof Subtask)) {
-                if (isOverlapping(newTask, existingTask)) {
-                    throw new IllegalArgumentException("Задача пересекается с другой задачей: " + existingTask);
+        @Override
+        public int size() {
+            return ids.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            // Подзадачи равны по ID, поэтому достаточно бинарного поиска в составе
+            return o instanceof Subtask subtask && subtask.getId() != null && ids.contains(subtask.getId());
+        }
+
+        @Override
+        public boolean add(Subtask subtask) {
+            throw new UnsupportedOperationException("Subtasks of a stored epic are added via TaskManager.saveSubtask");
+        }
+
+        @Override
+        public Iterator<Subtask> iterator() {
+            PrimitiveIterator.OfInt iterator = ids.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
                 }
-            }
 
-            // Проверка пересечения для эпиков
-            if (newTask instanceof Epic && existingTask instanceof Epic) {
-                if (isOverlapping(newTask, existingTask)) {
-                    throw new IllegalArgumentException("Эпик пересекается с другим эпиком: " + existingTask);
+                @Override
+                public Subtask next() {
+                    return subtasks.get(iterator.nextInt());
                 }
+            };
+        }
+    }
+
+    /**
+     * Удаляет элемент из упорядоченного по времени множества.
+     * Если время начала объекта изменили снаружи уже после вставки, компаратор его не найдёт —
+     * в этом случае удаляем по ID полным проходом (редкий путь).
+     */
+    private static <T extends Task> void removeFromPriority(TreeSet<T> priority, T element) {
+        if (!priority.remove(element)) {
+            priority.removeIf(existing -> Objects.equals(existing.getId(), element.getId()));
+        }
+    }
+
+    /**
+     * Пересчитывает статус, время начала, продолжительность и время окончания эпика
+     * по накопленным показателям его подзадач.
+     */
+    void updateEpicFields(Epic epic) {
+        EpicAggregate aggregate = epicAggregates.get(epic.getId());
+        if (aggregate != null) {
+            aggregate.applyTo(epic);
+        }
+    }
+
+    /**
+     * Проверяет, что интервал задачи не пересекается с задачами того же типа:
+     * задачи с задачами, подзадачи с подзадачами. Время эпика выводится из подзадач,
+     * поэтому эпики не проверяются.
+     * Поиск идёт по индексу интервалов и занимает O(log n).
+     */
+    void validateTask(Task newTask) {
+        if (newTask.getStartTime() == null) {
+            return;
+        }
+
+        if (newTask instanceof Subtask) {
+            Integer overlapId = subtaskSlots.findOverlap(newTask.getStartTime(), newTask.getEndTime(), newTask.getId());
+            if (overlapId != null) {
+                throw new IllegalArgumentException("Подзадача пересекается с другой подзадачей: " + subtasks.get(overlapId));
+            }
+        } else if (!(newTask instanceof Epic)) {
+            Integer overlapId = taskSlots.findOverlap(newTask.getStartTime(), newTask.getEndTime(), newTask.getId());
+            if (overlapId != null) {
+                throw new IllegalArgumentException("Задача пересекается с другой задачей: " + tasks.get(overlapId));
             }
         }
     }
 
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public void addChangeListener(TaskChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(TaskChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Отмечает изменение данных и уведомляет слушателей. Время записывается до версии, поэтому
+     * прочитавший новую версию увидит и время не раньше этого изменения; слушатели вызываются
+     * после версии, чтобы кеш, сверяющий версию перед записью, не сохранил устаревший ответ.
+     */
+    private void changed(Class<? extends Task> type, Integer id) {
+        lastModified = Instant.now();
+        version.incrementAndGet();
+        notifyListeners(type, id);
+    }
+
+    private void notifyListeners(Class<? extends Task> type, Integer id) {
+        for (TaskChangeListener listener : listeners) {
+            listener.changed(type, id);
+        }
+    }
+
     @Override
     public List<Task> getHistory() {
         return historyManager.getHistory();
     }
 
+    @Override
+    public List<Task> getHistory(HistoryManager history) {
+        List<Task> viewed = history.getHistory();
+        List<Task> result = new ArrayList<>(viewed.size());
+        for (Task task : viewed) {
+            // Удаления чистят только общую историю, поэтому остальные проверяются при чтении
+            if (findById(task.getId()) != null) {
+                result.add(task);
+            } else {
+                history.remove(task.getId());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Возвращает неизменяемый снимок задач и подзадач в порядке времени начала.
+     * Множества задач и подзадач поддерживаются отсортированными при каждом изменении,
+     * поэтому снимок получается их слиянием за один проход, без сортировки. Снимок строится
+     * при первом чтении после изменения и отдаётся повторно, пока версия данных не изменится:
+     * запись его только делает устаревшим, а чтения без записей между ними стоят O(1).
+     */
     @Override
     public List<Task> getPrioritizedTasks() {
-        List<Task> prioritizedTasks = new ArrayList<>();
+        long current = version.get();
+        PrioritizedSnapshot snapshot = prioritized;
+        if (snapshot == null || snapshot.version() != current) {
+            int size = priorityTasks.size() + prioritySubtasks.size();
+            snapshot = new PrioritizedSnapshot(current, Collections.unmodifiableList(
+                    merge(priorityTasks.iterator(), prioritySubtasks.iterator(), size, size, false)));
+            prioritized = snapshot;
+        }
+        return snapshot.tasks();
+    }
 
-        // Объединяем задачи и подзадачи в один список
-        prioritizedTasks.addAll(priorityTasks);
-        prioritizedTasks.addAll(prioritySubtasks);
+    private record PrioritizedSnapshot(long version, List<Task> tasks) {
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative");
+        }
+        // Задачи без времени начала идут в конце обоих множеств, на них слияние останавливается
+        return merge(priorityTasks.tailSet(timeProbe(from), true).iterator(),
+                prioritySubtasks.tailSet(subtaskProbe(from), true).iterator(),
+                limit, Math.min(limit, priorityTasks.size() + prioritySubtasks.size()), true);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return List.of();
+        }
+        return Collections.unmodifiableList(merge(
+                priorityTasks.subSet(timeProbe(from), true, timeProbe(to), false).iterator(),
+                prioritySubtasks.subSet(subtaskProbe(from), true, subtaskProbe(to), false).iterator(),
+                Integer.MAX_VALUE, 16, false));
+    }
+
+    /**
+     * Задачи и подзадачи ищутся по индексам интервалов, которые и так поддерживаются для
+     * проверки пересечений: обход дерева упорядочен по времени начала, поэтому два результата
+     * только сливаются. Память — пропорционально числу найденных задач.
+     */
+    @Override
+    public List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to) {
+        Objects.requireNonNull(from, "Time must not be null");
+        Objects.requireNonNull(to, "Time must not be null");
+        if (!from.isBefore(to)) {
+            return List.of();
+        }
+        List<Task> inRange = new ArrayList<>();
+        taskSlots.forEachInRange(from, to, id -> inRange.add(tasks.get(id)));
+        int taskCount = inRange.size();
+        subtaskSlots.forEachInRange(from, to, id -> inRange.add(subtasks.get(id)));
+        return Collections.unmodifiableList(merge(inRange.subList(0, taskCount).iterator(),
+                inRange.subList(taskCount, inRange.size()).iterator(), Integer.MAX_VALUE, inRange.size(), false));
+    }
 
-        // Сортируем по `startTime`, при этом `null`-значения идут в конец
-        prioritizedTasks.sort(Comparator.comparing(Task::getStartTime, Comparator.nullsLast(Comparator.naturalOrder())));
+    /**
+     * Ищет по тому же индексу интервалов, что и проверка пересечений при сохранении,
+     * поэтому найденное время гарантированно её проходит.
+     */
+    @Override
+    public LocalDateTime findEarliestSlot(Duration duration, LocalDateTime notBefore, Class<? extends Task> type) {
+        Objects.requireNonNull(notBefore, "Time must not be null");
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("Duration must not be negative");
+        }
+        if (type == Subtask.class) {
+            return subtaskSlots.findEarliestSlot(notBefore, duration);
+        }
+        if (type == Task.class) {
+            return taskSlots.findEarliestSlot(notBefore, duration);
+        }
+        throw new IllegalArgumentException("Свободное время ищется только для задач и подзадач: " + type);
+    }
+
+    /**
+     * Сливает две упорядоченные по {@link #PRIORITY_ORDER} последовательности в список.
+     *
+     * @param limit     максимальный размер результата
+     * @param capacity  ожидаемый размер результата
+     * @param timedOnly остановиться на первой задаче без времени начала
+     */
+    private static List<Task> merge(Iterator<? extends Task> left, Iterator<? extends Task> right, int limit,
+                                    int capacity, boolean timedOnly) {
+        List<Task> merged = new ArrayList<>(capacity);
+        Task nextLeft = left.hasNext() ? left.next() : null;
+        Task nextRight = right.hasNext() ? right.next() : null;
+        while (merged.size() < limit && (nextLeft != null || nextRight != null)) {
+            Task next;
+            if (nextRight == null || nextLeft != null && PRIORITY_ORDER.compare(nextLeft, nextRight) <= 0) {
+                next = nextLeft;
+                nextLeft = left.hasNext() ? left.next() : null;
+            } else {
+                next = nextRight;
+                nextRight = right.hasNext() ? right.next() : null;
+            }
+            if (timedOnly && next.getStartTime() == null) {
+                break;
+            }
+            merged.add(next);
+        }
+        return merged;
+    }
+
+    /**
+     * Пробный элемент для поиска в упорядоченном множестве: меньше любой задачи
+     * с тем же временем начала.
+     */
+    private static Task timeProbe(LocalDateTime time) {
+        return new Task(Integer.MIN_VALUE, null, null, null, Objects.requireNonNull(time, "Time must not be null"));
+    }
 
-        return prioritizedTasks;
+    private static Subtask subtaskProbe(LocalDateTime time) {
+        Subtask probe = new Subtask(null, null, null, Objects.requireNonNull(time, "Time must not be null"), null);
+        probe.setId(Integer.MIN_VALUE);
+        return probe;
     }
-}
\ No newline at end of file
+}
@@ -7,6 +7,7 @@ import ru.practicum.configuration.LocalDateTimeTypeAdapter;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Locale;
 
 /**
  * Класс-утилита Managers предоставляет стандартные методы для создания
@@ -17,6 +18,8 @@ import java.time.LocalDateTime;
  * менеджеров задач и истории.</p>
  */
 public class Managers {
+    static final String HISTORY_CAPACITY_PROPERTY = "kanban.history.capacity";
+    static final String HISTORY_RETENTION_PROPERTY = "kanban.history.retention";
 
     /**
      * Приватный конструктор предотвращает создание экземпляров класса.
@@ -34,14 +37,30 @@ public class Managers {
         return new InMemoryTaskManager(getDefaultHistoryManager());
     }
 
+    /**
+     * Создает TaskManager со столбцовым хранилищем {@link ColumnarTaskManager} для нагрузки
+     * с частыми выборками по статусу и времени и агрегатами.
+     *
+     * @return Новый экземпляр ColumnarTaskManager
+     */
+    public static ColumnarTaskManager getColumnarTaskManager() {
+        return new ColumnarTaskManager(getDefaultHistoryManager());
+    }
+
     /**
      * Создает и возвращает стандартный экземпляр HistoryManager, использующий
      * {@link InMemoryHistoryManager} для хранения истории задач в памяти.
      *
+     * <p>Размер истории и режим хранения задаются свойствами {@code -Dkanban.history.capacity}
+     * и {@code -Dkanban.history.retention} ({@code copy}, {@code view} или {@code id}).</p>
+     *
      * @return Новый экземпляр HistoryManager
      */
     public static HistoryManager getDefaultHistoryManager() {
-        return new InMemoryHistoryManager();
+        int capacity = Integer.getInteger(HISTORY_CAPACITY_PROPERTY, InMemoryHistoryManager.DEFAULT_CAPACITY);
+        InMemoryHistoryManager.Retention retention = InMemoryHistoryManager.Retention.valueOf(System.getProperty(
+                HISTORY_RETENTION_PROPERTY, InMemoryHistoryManager.Retention.COPY.name()).trim().toUpperCase(Locale.ROOT));
+        return new InMemoryHistoryManager(capacity, retention);
     }
 
     /**
@@ -0,0 +1,45 @@
+package ru.practicum.service;
+
+import ru.practicum.model.Task;
+
+/**
+ * Операция пакета {@link TaskManager#applyBatch(java.util.List)}.
+ *
+ * <p>Вид объекта определяется классом {@code task}: задача, эпик или подзадача. Подзадача,
+ * создаваемая в том же пакете, что и её эпик, может сослаться на него отрицательным
+ * {@code epicId}: {@code -1} — эпик, созданный операцией с индексом 0, {@code -2} — с индексом 1
+ * и так далее.</p>
+ *
+ * @param type вид операции
+ * @param task создаваемый или изменяемый объект; для удаления — {@code null}
+ * @param id   ID удаляемого объекта; для создания и изменения — {@code null}
+ */
+public record Operation(Type type, Task task, Integer id) {
+
+    public enum Type {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    public Operation {
+        if (type == null) {
+            throw new IllegalArgumentException("Не указан вид операции");
+        }
+        if (type == Type.DELETE ? id == null : task == null) {
+            throw new IllegalArgumentException("Не указан объект операции " + type);
+        }
+    }
+
+    public static Operation create(Task task) {
+        return new Operation(Type.CREATE, task, null);
+    }
+
+    public static Operation update(Task task) {
+        return new Operation(Type.UPDATE, task, null);
+    }
+
+    public static Operation delete(int id) {
+        return new Operation(Type.DELETE, null, id);
+    }
+}
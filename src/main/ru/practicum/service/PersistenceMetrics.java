@@ -0,0 +1,18 @@
+package ru.practicum.service;
+
+import java.time.Duration;
+
+/**
+ * Показатели записи журнала изменений на диск.
+ *
+ * @param queueDepth           изменения, подтверждённые или ожидающие, но ещё не записанные на диск
+ * @param commits              число выполненных фиксаций ({@code force})
+ * @param committedRecords     число записей, попавших на диск
+ * @param averageCommitLatency средняя продолжительность фиксации
+ * @param maxCommitLatency     максимальная продолжительность фиксации
+ */
+public record PersistenceMetrics(int queueDepth, long commits, long committedRecords,
+                                 Duration averageCommitLatency, Duration maxCommitLatency) {
+
+    public static final PersistenceMetrics EMPTY = new PersistenceMetrics(0, 0, 0, Duration.ZERO, Duration.ZERO);
+}
@@ -0,0 +1,120 @@
+package ru.practicum.service;
+
+import java.util.Locale;
+
+/**
+ * Политика записи журнала изменений {@link FileBackedTaskManager} на диск.
+ *
+ * <p>Действует в режиме {@link FileBackedTaskManager.StorageMode#JOURNAL}. Во всех режимах
+ * одновременные изменения, ожидающие записи, фиксируются одним вызовом
+ * {@link java.nio.channels.FileChannel#force(boolean)}.</p>
+ */
+public final class PersistencePolicy {
+
+    /**
+     * Способ фиксации изменений.
+     */
+    public enum Mode {
+        /**
+         * Изменение подтверждается после записи на диск. Фиксацию выполняет сам вызывающий поток.
+         */
+        SYNC,
+        /**
+         * Изменения копятся и фиксируются фоновым потоком раз в заданный интервал или при
+         * накоплении заданного числа записей. Изменение подтверждается после фиксации.
+         */
+        GROUP_COMMIT,
+        /**
+         * Изменение подтверждается сразу, запись выполняет фоновый поток. Очередь ограничена:
+         * при её заполнении изменения ждут освобождения места.
+         */
+        ASYNC
+    }
+
+    private final Mode mode;
+    private final long intervalMillis;
+    private final int batchSize;
+
+    private PersistencePolicy(Mode mode, long intervalMillis, int batchSize) {
+        this.mode = mode;
+        this.intervalMillis = intervalMillis;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Запись на диск при каждом изменении.
+     */
+    public static PersistencePolicy sync() {
+        return new PersistencePolicy(Mode.SYNC, 0, 0);
+    }
+
+    /**
+     * Групповая фиксация.
+     *
+     * @param intervalMillis максимальная задержка фиксации в миллисекундах
+     * @param maxMutations   число изменений, при котором фиксация выполняется досрочно
+     */
+    public static PersistencePolicy groupCommit(long intervalMillis, int maxMutations) {
+        if (intervalMillis <= 0 || maxMutations <= 0) {
+            throw new IllegalArgumentException("Group commit interval and size must be positive");
+        }
+        return new PersistencePolicy(Mode.GROUP_COMMIT, intervalMillis, maxMutations);
+    }
+
+    /**
+     * Отложенная запись.
+     *
+     * @param queueCapacity максимальное число изменений, ещё не записанных на диск
+     */
+    public static PersistencePolicy async(int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        return new PersistencePolicy(Mode.ASYNC, 0, queueCapacity);
+    }
+
+    /**
+     * Разбирает политику из строки: {@code sync}, {@code group_commit:<мс>:<изменений>}
+     * или {@code async:<размер очереди>}.
+     */
+    public static PersistencePolicy parse(String value) {
+        String[] parts = value.trim().toLowerCase(Locale.ROOT).split(":");
+        try {
+            return switch (parts[0]) {
+                case "sync" -> sync();
+                case "group_commit" -> groupCommit(Long.parseLong(parts[1]), Integer.parseInt(parts[2]));
+                case "async" -> async(Integer.parseInt(parts[1]));
+                default -> throw new IllegalArgumentException("Unknown persistence policy: " + value);
+            };
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Incomplete persistence policy: " + value, e);
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Интервал групповой фиксации в миллисекундах.
+     */
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * Размер группы для {@link Mode#GROUP_COMMIT} или ёмкость очереди для {@link Mode#ASYNC}.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public String toString() {
+        return switch (mode) {
+            case SYNC -> "sync";
+            case GROUP_COMMIT -> "group_commit:" + intervalMillis + ":" + batchSize;
+            case ASYNC -> "async:" + batchSize;
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.service;
+
+import java.io.File;
+
+/**
+ * Преобразование снимков {@link FileBackedTaskManager} между CSV и двоичным форматом.
+ *
+ * <p>Формат результата определяется по имени файла: {@code .bin} — двоичный, иначе CSV.
+ * Формат источника определяется по содержимому. ID задач сохраняются.</p>
+ *
+ * <p>Запуск: {@code java ru.practicum.service.SnapshotConverter tasks.csv tasks.bin}</p>
+ */
+public final class SnapshotConverter {
+
+    private SnapshotConverter() {
+    }
+
+    /**
+     * @param source снимок в любом формате; журнал рядом с ним сворачивается в снимок
+     * @param target файл результата
+     */
+    public static void convert(File source, File target) {
+        FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(source);
+        manager.writeSnapshot(target, true);
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: SnapshotConverter <source> <target>");
+            System.exit(2);
+        }
+        long started = System.nanoTime();
+        convert(new File(args[0]), new File(args[1]));
+        System.out.printf("Converted %s -> %s in %d ms%n", args[0], args[1], (System.nanoTime() - started) / 1_000_000);
+    }
+}
@@ -0,0 +1,170 @@
+package ru.practicum.service;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Множество {@code int} в отсортированном массиве — компактный список ID подзадач эпика.
+ *
+ * <p>ID выдаются по возрастанию, поэтому новый элемент почти всегда больше всех и добавляется
+ * в конец за O(1). Поиск — бинарный, O(log k). Удалённый элемент не сдвигает массив, а только
+ * помечается в битовой маске; массив уплотняется, когда помеченных становится больше половины,
+ * так что удаление стоит O(log k) в среднем. Вставка в середину (восстановление с прежним ID)
+ * сдвигает хвост массива и стоит O(k).</p>
+ *
+ * <p>Обход идёт по возрастанию. Чтение множество не изменяет, поэтому его можно читать
+ * из нескольких потоков под общей блокировкой чтения. Не потокобезопасно.</p>
+ */
+final class SortedIntSet {
+    private static final int[] EMPTY = new int[0];
+    private static final long[] NO_BITS = new long[0];
+
+    private int[] values = EMPTY;
+    // Бит ячейки установлен, если элемент удалён
+    private long[] removedBits = NO_BITS;
+    private int length;
+    private int removed;
+
+    int size() {
+        return length - removed;
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    boolean contains(int value) {
+        int index = Arrays.binarySearch(values, 0, length, value);
+        return index >= 0 && !isRemoved(index);
+    }
+
+    /**
+     * @return {@code false}, если элемент уже был в множестве
+     */
+    boolean add(int value) {
+        if (length == 0 || value > values[length - 1]) {
+            ensureCapacity(length + 1);
+            values[length++] = value;
+            return true;
+        }
+        int index = Arrays.binarySearch(values, 0, length, value);
+        if (index >= 0) {
+            if (!isRemoved(index)) {
+                return false;
+            }
+            removedBits[index >>> 6] &= ~(1L << index);
+            removed--;
+            return true;
+        }
+        // Редкий путь: сдвиг хвоста, поэтому сначала убираем удалённые ячейки
+        compact();
+        int insertAt = -Arrays.binarySearch(values, 0, length, value) - 1;
+        ensureCapacity(length + 1);
+        System.arraycopy(values, insertAt, values, insertAt + 1, length - insertAt);
+        values[insertAt] = value;
+        length++;
+        return true;
+    }
+
+    /**
+     * @return {@code false}, если элемента не было
+     */
+    boolean remove(int value) {
+        int index = Arrays.binarySearch(values, 0, length, value);
+        if (index < 0 || isRemoved(index)) {
+            return false;
+        }
+        removedBits[index >>> 6] |= 1L << index;
+        if (++removed * 2 > length) {
+            compact();
+        }
+        return true;
+    }
+
+    void clear() {
+        values = EMPTY;
+        removedBits = NO_BITS;
+        length = 0;
+        removed = 0;
+    }
+
+    /**
+     * Элемент по порядковому номеру среди оставшихся: O(1) без удалённых ячеек, иначе
+     * проход до нужной позиции.
+     */
+    int get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (removed == 0) {
+            return values[index];
+        }
+        for (int i = 0; ; i++) {
+            if (!isRemoved(i) && index-- == 0) {
+                return values[i];
+            }
+        }
+    }
+
+    PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int next = skipRemoved(0);
+
+            @Override
+            public boolean hasNext() {
+                return next < length;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next >= length) {
+                    throw new NoSuchElementException();
+                }
+                int value = values[next];
+                next = skipRemoved(next + 1);
+                return value;
+            }
+        };
+    }
+
+    int[] toArray() {
+        int[] result = new int[size()];
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (!isRemoved(i)) {
+                result[count++] = values[i];
+            }
+        }
+        return result;
+    }
+
+    private int skipRemoved(int index) {
+        while (index < length && isRemoved(index)) {
+            index++;
+        }
+        return index;
+    }
+
+    private boolean isRemoved(int index) {
+        return removed > 0 && (removedBits[index >>> 6] & 1L << index) != 0;
+    }
+
+    private void compact() {
+        if (removed == 0) {
+            return;
+        }
+        int[] live = toArray();
+        System.arraycopy(live, 0, values, 0, live.length);
+        Arrays.fill(removedBits, 0);
+        length = live.length;
+        removed = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            values = Arrays.copyOf(values, Math.max(capacity, Math.max(4, values.length * 2)));
+            removedBits = Arrays.copyOf(removedBits, (values.length + 63) >>> 6);
+        }
+    }
+}
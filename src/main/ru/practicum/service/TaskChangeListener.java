@@ -0,0 +1,21 @@
+package ru.practicum.service;
+
+import ru.practicum.model.Task;
+
+/**
+ * Получает уведомления об изменениях данных менеджера задач, например для сброса кешей.
+ *
+ * <p>Вызывается синхронно в потоке, выполнившем изменение, после увеличения
+ * {@link TaskManager#getVersion() версии}. Обработчик должен быть быстрым и не обращаться
+ * к менеджеру: у {@link ConcurrentTaskManager} он выполняется под блокировкой записи.
+ * Изменение подзадачи сопровождается уведомлением о её эпике, поля которого пересчитываются.</p>
+ */
+@FunctionalInterface
+public interface TaskChangeListener {
+
+    /**
+     * @param type тип изменённого объекта: {@code Task}, {@code Epic} или {@code Subtask}
+     * @param id   ID объекта или {@code null}, если изменились все объекты этого типа
+     */
+    void changed(Class<? extends Task> type, Integer id);
+}
@@ -0,0 +1,311 @@
+package ru.practicum.service;
+
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Потоковый разбор строк CSV в формате {@link FileBackedTaskManager}.
+ *
+ * <p>Строка читается в переиспользуемый буфер, поля размечаются смещениями без {@code split}
+ * и регулярных выражений. Числа, статус, время начала и продолжительность разбираются прямо
+ * из буфера; новые строки создаются только для названия и описания.</p>
+ */
+class TaskCsvReader implements Closeable {
+    // id,type,name,status,description,startTime,duration[,epicId]
+    private static final int MAX_FIELDS = 8;
+    private static final int ID = 0;
+    private static final int TYPE = 1;
+    private static final int NAME = 2;
+    private static final int STATUS = 3;
+    private static final int DESCRIPTION = 4;
+    private static final int START_TIME = 5;
+    private static final int DURATION = 6;
+    private static final int EPIC_ID = 7;
+
+    private final Reader reader;
+    private final char[] buffer = new char[64 * 1024];
+    private int position;
+    private int limit;
+
+    private char[] line = new char[256];
+    private int lineLength;
+    private final int[] fieldStarts = new int[MAX_FIELDS];
+    private final int[] fieldEnds = new int[MAX_FIELDS];
+    private int fieldCount;
+
+    TaskCsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Читает следующую строку в буфер.
+     *
+     * @return {@code false}, если файл закончился
+     */
+    boolean nextLine() throws IOException {
+        lineLength = 0;
+        boolean read = false;
+        while (true) {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    if (read) {
+                        tokenize();
+                    }
+                    return read;
+                }
+            }
+            read = true;
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            appendToLine(start, position - start);
+            if (position < limit) {
+                position++; // Пропускаем перевод строки
+                tokenize();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Разбирает переданную строку вместо чтения из файла, например запись журнала.
+     */
+    Task parse(String text) {
+        lineLength = 0;
+        ensureLineCapacity(text.length());
+        text.getChars(0, text.length(), line, 0);
+        lineLength = text.length();
+        tokenize();
+        return parseTask();
+    }
+
+    boolean isBlank() {
+        for (int i = 0; i < lineLength; i++) {
+            if (!Character.isWhitespace(line[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Текущая строка целиком; используется для сообщений об ошибках.
+     */
+    String currentLine() {
+        return new String(line, 0, lineLength);
+    }
+
+    /**
+     * Создаёт задачу, эпик или подзадачу из текущей строки.
+     */
+    Task parseTask() {
+        if (fieldCount < DURATION + 1) {
+            throw new IllegalArgumentException("Некорректный формат строки: недостаточно данных");
+        }
+        if (isNull(ID)) {
+            throw new IllegalArgumentException("Не задан ID");
+        }
+
+        int id = parseInt(ID);
+        String name = text(NAME);
+        Status status = isNull(STATUS) ? Status.NEW : parseStatus();
+        String description = text(DESCRIPTION);
+        LocalDateTime startTime = isNull(START_TIME) ? null : parseDateTime(START_TIME);
+        Duration duration = isNull(DURATION) ? Duration.ZERO : parseDuration(DURATION);
+
+        Task task;
+        if (fieldEquals(TYPE, "TASK")) {
+            task = new Task(id, name, description, duration, startTime);
+        } else if (fieldEquals(TYPE, "EPIC")) {
+            task = new Epic(name, description, duration, startTime);
+        } else if (fieldEquals(TYPE, "SUBTASK")) {
+            if (fieldCount < EPIC_ID + 1) {
+                throw new IllegalArgumentException("Подзадача должна содержать ID эпика");
+            }
+            task = new Subtask(name, description, duration, startTime, parseInt(EPIC_ID));
+        } else {
+            throw new IllegalArgumentException("Неизвестный тип задачи: " + text(TYPE));
+        }
+        task.setId(id);
+        task.setStatus(status);
+        return task;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void appendToLine(int start, int length) {
+        ensureLineCapacity(lineLength + length);
+        System.arraycopy(buffer, start, line, lineLength, length);
+        lineLength += length;
+    }
+
+    private void ensureLineCapacity(int capacity) {
+        if (capacity > line.length) {
+            line = Arrays.copyOf(line, Math.max(capacity, line.length * 2));
+        }
+    }
+
+    private void tokenize() {
+        if (lineLength > 0 && line[lineLength - 1] == '\r') {
+            lineLength--;
+        }
+        fieldCount = 0;
+        int start = 0;
+        for (int i = 0; i <= lineLength && fieldCount < MAX_FIELDS; i++) {
+            if (i == lineLength || line[i] == ',') {
+                fieldStarts[fieldCount] = start;
+                fieldEnds[fieldCount] = i;
+                fieldCount++;
+                start = i + 1;
+            }
+        }
+    }
+
+    private int length(int field) {
+        return fieldEnds[field] - fieldStarts[field];
+    }
+
+    private boolean fieldEquals(int field, String value) {
+        int length = length(field);
+        if (length != value.length()) {
+            return false;
+        }
+        int start = fieldStarts[field];
+        for (int i = 0; i < length; i++) {
+            if (line[start + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isNull(int field) {
+        return fieldEquals(field, "null");
+    }
+
+    private String text(int field) {
+        return new String(line, fieldStarts[field], length(field));
+    }
+
+    private Status parseStatus() {
+        for (Status status : Status.values()) {
+            if (fieldEquals(STATUS, status.name())) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный статус: " + text(STATUS));
+    }
+
+    private int parseInt(int field) {
+        long value = parseDigits(fieldStarts[field], fieldEnds[field]);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Некорректное число: " + text(field));
+        }
+        return (int) value;
+    }
+
+    /**
+     * @return неотрицательное число или -1, если в диапазоне есть не только цифры
+     */
+    private long parseDigits(int from, int to) {
+        if (from >= to || to - from > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            char c = line[i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Разбирает время в формате {@link LocalDateTime#toString()}. Быстрый путь покрывает
+     * {@code uuuu-MM-ddTHH:mm} и {@code uuuu-MM-ddTHH:mm:ss}, остальное — стандартный разбор.
+     */
+    private LocalDateTime parseDateTime(int field) {
+        int start = fieldStarts[field];
+        int length = length(field);
+        if ((length == 16 || length == 19)
+                && line[start + 4] == '-' && line[start + 7] == '-' && line[start + 10] == 'T'
+                && line[start + 13] == ':' && (length == 16 || line[start + 16] == ':')) {
+            long year = parseDigits(start, start + 4);
+            long month = parseDigits(start + 5, start + 7);
+            long day = parseDigits(start + 8, start + 10);
+            long hour = parseDigits(start + 11, start + 13);
+            long minute = parseDigits(start + 14, start + 16);
+            long second = length == 19 ? parseDigits(start + 17, start + 19) : 0;
+            if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0 && second >= 0) {
+                try {
+                    return LocalDateTime.of((int) year, (int) month, (int) day, (int) hour, (int) minute, (int) second);
+                } catch (DateTimeException e) {
+                    throw new IllegalArgumentException("Некорректное время: " + text(field), e);
+                }
+            }
+        }
+        try {
+            return LocalDateTime.parse(CharBuffer.wrap(line, start, length));
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Некорректное время: " + text(field), e);
+        }
+    }
+
+    /**
+     * Разбирает продолжительность в формате {@link Duration#toString()}. Быстрый путь покрывает
+     * целые неотрицательные часы, минуты и секунды ({@code PT1H30M}), остальное — стандартный разбор.
+     */
+    private Duration parseDuration(int field) {
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        if (end - start > 2 && line[start] == 'P' && line[start + 1] == 'T') {
+            long seconds = 0;
+            int numberStart = start + 2;
+            boolean valid = true;
+            for (int i = numberStart; i < end && valid; i++) {
+                char c = line[i];
+                if (c >= '0' && c <= '9') {
+                    continue;
+                }
+                long value = parseDigits(numberStart, i);
+                long multiplier = switch (c) {
+                    case 'H' -> 3600;
+                    case 'M' -> 60;
+                    case 'S' -> 1;
+                    default -> -1;
+                };
+                valid = value >= 0 && multiplier > 0;
+                seconds += value * multiplier;
+                numberStart = i + 1;
+            }
+            if (valid && numberStart == end) {
+                return Duration.ofSeconds(seconds);
+            }
+        }
+        try {
+            return Duration.parse(CharBuffer.wrap(line, start, end - start));
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Некорректная продолжительность: " + text(field), e);
+        }
+    }
+}
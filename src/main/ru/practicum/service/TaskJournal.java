@@ -0,0 +1,380 @@
+package ru.practicum.service;
+
+import ru.practicum.exception.ManagerSaveException;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Журнал изменений для {@link FileBackedTaskManager}: файл, в который каждая операция
+ * дописывается одной строкой.
+ *
+ * <p>Форматы записей:</p>
+ * <ul>
+ *     <li>{@code PUT,<строка CSV>} — задача, эпик или подзадача в состоянии после изменения;</li>
+ *     <li>{@code DEL,<id>} — удаление по ID;</li>
+ *     <li>{@code CLEAR,<TASK|EPIC|SUBTASK>} — удаление всех объектов типа;</li>
+ *     <li>{@code BATCH,<n>} — следующие {@code n} записей образуют пакет: при воспроизведении
+ *     оборванный пакет отбрасывается целиком.</li>
+ * </ul>
+ *
+ * <p>Записи описывают итоговое состояние, а не приращение, поэтому повторное воспроизведение
+ * журнала поверх снимка, в который он уже вошёл, даёт то же состояние.</p>
+ *
+ * <p>Запись разделена на два шага. {@link #append(String)} кладёт запись в буфер и возвращает
+ * её номер, {@link #awaitCommit(long)} ждёт, пока запись окажется на диске. Между шагами
+ * вызывающий код снимает свои блокировки, поэтому изменения из разных потоков успевают
+ * накопиться и фиксируются одним {@code force}. Когда и кем выполняется фиксация,
+ * определяет {@link PersistencePolicy}.</p>
+ */
+class TaskJournal implements AutoCloseable {
+    static final String PUT = "PUT";
+    static final String DELETE = "DEL";
+    static final String CLEAR = "CLEAR";
+    static final String BATCH = "BATCH";
+
+    private final File file;
+    private final PersistencePolicy policy;
+    private final FileChannel channel;
+    // Запись в канал, фиксация и очистка файла выполняются под этой блокировкой;
+    // состояние буфера и счётчики — под монитором журнала. Порядок: channelLock, затем this
+    private final Object channelLock = new Object();
+    private final Thread committer;
+
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private int pendingRecords;
+    private long appendedSeq;
+    private long durableSeq;
+    private int records;
+    private boolean closed;
+    private IOException failure;
+
+    private long commits;
+    private long committedRecords;
+    private long totalCommitNanos;
+    private long maxCommitNanos;
+
+    TaskJournal(File file, PersistencePolicy policy) {
+        this.file = file;
+        this.policy = policy;
+        try {
+            this.channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка открытия журнала: " + file, e);
+        }
+        if (policy.getMode() == PersistencePolicy.Mode.SYNC) {
+            committer = null;
+        } else {
+            committer = new Thread(this::runCommitter, "task-journal-committer");
+            committer.setDaemon(true);
+            committer.start();
+        }
+    }
+
+    /**
+     * Файл журнала рядом с файлом снимка.
+     */
+    static File journalFile(File snapshot) {
+        return new File(snapshot.getPath() + ".journal");
+    }
+
+    /**
+     * Добавляет запись в буфер журнала. В режиме {@link PersistencePolicy.Mode#ASYNC}
+     * ждёт, если очередь заполнена.
+     *
+     * @return номер записи для {@link #awaitCommit(long)}
+     */
+    synchronized long append(String record) {
+        checkOpen();
+        if (policy.getMode() == PersistencePolicy.Mode.ASYNC) {
+            // Ограничиваем все ещё не записанные на диск записи, включая фиксируемую сейчас группу
+            while (appendedSeq - durableSeq >= policy.getBatchSize() && failure == null) {
+                awaitSignal();
+            }
+            checkOpen();
+        }
+        byte[] bytes = (record + '\n').getBytes(StandardCharsets.UTF_8);
+        pending.write(bytes, 0, bytes.length);
+        pendingRecords++;
+        records++;
+        appendedSeq++;
+        if (committer != null
+                && (policy.getMode() == PersistencePolicy.Mode.ASYNC || pendingRecords >= policy.getBatchSize())) {
+            notifyAll(); // Будим фоновый поток фиксации
+        }
+        return appendedSeq;
+    }
+
+    /**
+     * Ждёт, пока запись с указанным номером окажется на диске. В режиме
+     * {@link PersistencePolicy.Mode#ASYNC} возвращается сразу.
+     */
+    void awaitCommit(long seq) {
+        switch (policy.getMode()) {
+            case ASYNC -> {
+                // Подтверждаем без ожидания
+            }
+            case SYNC -> {
+                // Первый дошедший поток фиксирует всё накопленное, остальные обычно уже покрыты им
+                synchronized (channelLock) {
+                    if (durableSeq() < seq) {
+                        commitPending();
+                    }
+                }
+            }
+            case GROUP_COMMIT -> {
+                synchronized (this) {
+                    while (durableSeq < seq && failure == null) {
+                        awaitSignal();
+                    }
+                    checkFailure();
+                }
+            }
+        }
+    }
+
+    /**
+     * Записывает на диск всё, что добавлено в журнал к этому моменту.
+     */
+    void flush() {
+        synchronized (channelLock) {
+            commitPending();
+        }
+    }
+
+    /**
+     * Количество записей, добавленных с момента открытия или последней очистки.
+     */
+    synchronized int size() {
+        return records;
+    }
+
+    /**
+     * Очищает журнал после того, как его записи вошли в записанный на диск снимок.
+     * Ещё не записанные изменения тоже вошли в снимок, поэтому их ожидание завершается.
+     */
+    void reset() {
+        synchronized (channelLock) {
+            synchronized (this) {
+                pending.reset();
+                pendingRecords = 0;
+                records = 0;
+                durableSeq = appendedSeq;
+                notifyAll();
+            }
+            try {
+                channel.truncate(0);
+                channel.force(false);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка очистки журнала", e);
+            }
+        }
+    }
+
+    synchronized PersistenceMetrics metrics() {
+        return new PersistenceMetrics(
+                (int) (appendedSeq - durableSeq),
+                commits,
+                committedRecords,
+                Duration.ofNanos(commits == 0 ? 0 : totalCommitNanos / commits),
+                Duration.ofNanos(maxCommitNanos));
+    }
+
+    /**
+     * Записывает на диск оставшиеся изменения и закрывает файл.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        if (committer != null) {
+            try {
+                committer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            flush();
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка закрытия журнала", e);
+            }
+        }
+    }
+
+    /**
+     * Цикл фонового потока: ждёт интервала или заполнения группы и фиксирует накопленное.
+     */
+    private void runCommitter() {
+        while (true) {
+            synchronized (this) {
+                if (policy.getMode() == PersistencePolicy.Mode.GROUP_COMMIT) {
+                    if (!closed && pendingRecords < policy.getBatchSize()) {
+                        awaitSignal(policy.getIntervalMillis());
+                    }
+                } else {
+                    while (!closed && pendingRecords == 0) {
+                        awaitSignal();
+                    }
+                }
+                if (closed) {
+                    return; // Остаток записывает close()
+                }
+            }
+            try {
+                synchronized (channelLock) {
+                    commitPending();
+                }
+            } catch (ManagerSaveException e) {
+                System.err.println("Ошибка фиксации журнала: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Переносит буфер в файл и выполняет {@code force}. Вызывается под {@link #channelLock}.
+     */
+    private void commitPending() {
+        byte[] batch;
+        int batchRecords;
+        long batchSeq;
+        synchronized (this) {
+            checkFailure();
+            if (pendingRecords == 0) {
+                return;
+            }
+            batch = pending.toByteArray();
+            batchRecords = pendingRecords;
+            batchSeq = appendedSeq;
+            pending.reset();
+            pendingRecords = 0;
+        }
+
+        long started = System.nanoTime();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(batch);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+                notifyAll();
+            }
+            throw new ManagerSaveException("Ошибка записи в журнал", e);
+        }
+        long elapsed = System.nanoTime() - started;
+
+        synchronized (this) {
+            durableSeq = Math.max(durableSeq, batchSeq);
+            commits++;
+            committedRecords += batchRecords;
+            totalCommitNanos += elapsed;
+            maxCommitNanos = Math.max(maxCommitNanos, elapsed);
+            notifyAll();
+        }
+    }
+
+    private synchronized long durableSeq() {
+        return durableSeq;
+    }
+
+    private void checkOpen() {
+        checkFailure();
+        if (closed) {
+            throw new IllegalStateException("Journal is closed: " + file);
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new ManagerSaveException("Журнал недоступен после ошибки записи", failure);
+        }
+    }
+
+    private void awaitSignal() {
+        awaitSignal(0);
+    }
+
+    private void awaitSignal(long millis) {
+        try {
+            wait(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Ожидание записи журнала прервано", e);
+        }
+    }
+
+    /**
+     * Передаёт записи журнала обработчику по порядку. Последняя строка без перевода строки
+     * считается оборванной при сбое и пропускается, как и пакет, записанный не полностью.
+     *
+     * @return количество воспроизведённых записей
+     */
+    static int replay(File file, Consumer<String> handler) {
+        if (!file.exists() || file.length() == 0) {
+            return 0;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
+            boolean complete = endsWithNewLine(file);
+            int replayed = 0;
+            List<String> batch = null;
+            int batchSize = 0;
+            String line = reader.readLine();
+            while (line != null) {
+                String next = reader.readLine();
+                if (next == null && !complete) {
+                    break;
+                }
+                if (batch != null) {
+                    batch.add(line);
+                    if (batch.size() == batchSize) {
+                        batch.forEach(handler);
+                        replayed += batchSize;
+                        batch = null;
+                    }
+                } else if (line.startsWith(BATCH + ",")) {
+                    batchSize = Integer.parseInt(line.substring(BATCH.length() + 1));
+                    batch = batchSize > 0 ? new ArrayList<>(batchSize) : null;
+                } else if (!line.isBlank()) {
+                    handler.accept(line);
+                    replayed++;
+                }
+                line = next;
+            }
+            return replayed;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения журнала: " + file, e);
+        }
+    }
+
+    private static boolean endsWithNewLine(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(raf.length() - 1);
+            return raf.read() == '\n';
+        }
+    }
+}
@@ -4,13 +4,16 @@ import ru.practicum.model.Epic;
 import ru.practicum.model.Subtask;
 import ru.practicum.model.Task;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
  * Интерфейс TaskManager предоставляет методы для управления задачами, эпиками и подзадачами.
  * Позволяет сохранять, получать, обновлять и удалять задачи, а также управлять историей просмотров.
  */
-public interface TaskManager {
+public interface TaskManager extends AutoCloseable {
     void saveTask(Task task);
 
     void saveEpic(Epic epic);
@@ -23,6 +26,21 @@ public interface TaskManager {
 
     Subtask getSubtaskById(int id);
 
+    /**
+     * Как {@link #getTaskById(int)}, но просмотр записывается в переданную историю, а не в общую.
+     */
+    Task getTaskById(int id, HistoryManager history);
+
+    /**
+     * Как {@link #getEpicById(int)}, но просмотр записывается в переданную историю, а не в общую.
+     */
+    Epic getEpicById(int id, HistoryManager history);
+
+    /**
+     * Как {@link #getSubtaskById(int)}, но просмотр записывается в переданную историю, а не в общую.
+     */
+    Subtask getSubtaskById(int id, HistoryManager history);
+
     void updateTask(Task task);
 
     void updateEpic(Epic epic);
@@ -35,12 +53,43 @@ public interface TaskManager {
 
     void deleteSubtaskById(int id);
 
+    /**
+     * Применяет операции пакета как одно изменение: либо все, либо ни одной. Каждая операция
+     * проверяется так же, как одиночный вызов, с учётом предыдущих операций пакета.
+     * {@link FileBackedTaskManager} записывает пакет на диск один раз.
+     *
+     * @return ID созданных, изменённых или удалённых объектов в порядке операций
+     * @throws ru.practicum.exception.BatchException если операция не прошла проверку; данные не изменены
+     */
+    List<Integer> applyBatch(List<Operation> operations);
+
     List<Task> getAllTasks();
 
     List<Epic> getAllEpics();
 
     List<Subtask> getAllSubtasks();
 
+    /**
+     * Возвращает страницу задач в порядке {@link #getAllTasks()}, отобранную по {@link TaskQuery}.
+     *
+     * @throws IllegalArgumentException если задачи-курсора, заданного только ID, нет
+     */
+    List<Task> findTasks(TaskQuery query);
+
+    /**
+     * Возвращает страницу эпиков в порядке {@link #getAllEpics()}, отобранную по {@link TaskQuery}.
+     *
+     * @throws IllegalArgumentException если эпика-курсора, заданного только ID, нет
+     */
+    List<Epic> findEpics(TaskQuery query);
+
+    /**
+     * Возвращает страницу подзадач в порядке {@link #getAllSubtasks()}, отобранную по {@link TaskQuery}.
+     *
+     * @throws IllegalArgumentException если подзадачи-курсора, заданного только ID, нет
+     */
+    List<Subtask> findSubtasks(TaskQuery query);
+
     List<Subtask> getAllSubtasksByEpic(Epic epic);
 
     void deleteAllTasks();
@@ -49,7 +98,83 @@ public interface TaskManager {
 
     void deleteAllSubtasks();
 
+    /**
+     * Версия данных: увеличивается при каждом изменении задач, эпиков или подзадач и не
+     * меняется при чтении. Подходит для условных запросов и проверки кешей.
+     */
+    long getVersion();
+
+    /**
+     * Время последнего изменения данных, см. {@link #getVersion()}.
+     */
+    Instant getLastModified();
+
+    /**
+     * Подписывает слушателя на изменения задач, эпиков и подзадач.
+     */
+    void addChangeListener(TaskChangeListener listener);
+
+    /**
+     * Отписывает слушателя, добавленного {@link #addChangeListener(TaskChangeListener)}.
+     */
+    void removeChangeListener(TaskChangeListener listener);
+
     List<Task> getHistory();
 
+    /**
+     * Возвращает просмотры из переданной истории. Задачи, удалённые из менеджера после просмотра,
+     * пропускаются и удаляются из этой истории.
+     */
+    List<Task> getHistory(HistoryManager history);
+
     List<Task> getPrioritizedTasks();
+
+    /**
+     * Возвращает следующую страницу приоритетного списка.
+     *
+     * @param from  время, начиная с которого (включительно) берутся задачи
+     * @param limit максимальное количество задач на странице
+     * @return задачи и подзадачи с временем начала не раньше {@code from}, по возрастанию времени
+     */
+    List<Task> getPrioritizedTasks(LocalDateTime from, int limit);
+
+    /**
+     * Возвращает задачи и подзадачи, время начала которых попадает в интервал [from, to).
+     */
+    List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Возвращает задачи и подзадачи, занятые в интервале [from, to): в отличие от
+     * {@link #getPrioritizedTasks(LocalDateTime, LocalDateTime)}, сюда попадают и начавшиеся
+     * раньше {@code from}, но ещё не закончившиеся. Порядок — по времени начала, затем по ID.
+     *
+     * @throws NullPointerException если граница интервала не задана
+     */
+    List<Task> getTasksInRange(LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Ищет самое раннее время начала не раньше {@code notBefore}, с которого задача или подзадача
+     * продолжительностью {@code duration} пройдёт проверку пересечений при сохранении:
+     * задачи проверяются с задачами, подзадачи — с подзадачами.
+     *
+     * @param type {@link Task} или {@link Subtask}; время эпика рассчитывается по подзадачам
+     * @return время начала свободного интервала
+     * @throws IllegalArgumentException если продолжительность отрицательна или тип не задача и не подзадача
+     */
+    LocalDateTime findEarliestSlot(Duration duration, LocalDateTime notBefore, Class<? extends Task> type);
+
+    /**
+     * Дожидается записи на диск всех подтверждённых изменений.
+     * Менеджеры без хранилища ничего не делают.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Записывает оставшиеся изменения и освобождает ресурсы хранилища.
+     */
+    @Override
+    default void close() {
+        flush();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package ru.practicum.service;
+
+import ru.practicum.model.Status;
+import ru.practicum.model.Task;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Параметры выборки одной страницы задач, эпиков или подзадач.
+ *
+ * <p>Страницы идут в том же порядке, что и полные списки менеджера: по времени начала, затем
+ * по ID. Курсор — последний элемент предыдущей страницы (см. {@link Cursor}). Фильтр по времени
+ * начала отбрасывает задачи без времени.</p>
+ *
+ * @param after    элемент, после которого начинается страница, или {@code null} для первой страницы
+ * @param limit    максимальное число элементов на странице
+ * @param statuses допустимые статусы; пустое множество — любой статус
+ * @param from     нижняя граница времени начала включительно или {@code null}
+ * @param to       верхняя граница времени начала не включительно или {@code null}
+ */
+public record TaskQuery(Cursor after, int limit, Set<Status> statuses, LocalDateTime from, LocalDateTime to) {
+
+    public TaskQuery {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative");
+        }
+        statuses = statuses == null || statuses.isEmpty() ? Set.of() : Set.copyOf(statuses);
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало интервала позже его конца");
+        }
+    }
+
+    /**
+     * Первая страница без фильтров.
+     */
+    public static TaskQuery firstPage(int limit) {
+        return new TaskQuery(null, limit, Set.of(), null, null);
+    }
+
+    /**
+     * Та же выборка, начиная после элемента с указанным ID. Элемент должен существовать
+     * в момент запроса.
+     */
+    public TaskQuery after(int id) {
+        return new TaskQuery(new Cursor(id, null, false), limit, statuses, from, to);
+    }
+
+    /**
+     * Та же выборка, начиная после места элемента в порядке списка. Позиция задаётся его
+     * временем начала и ID, поэтому запрос работает и после удаления элемента.
+     */
+    public TaskQuery after(Task task) {
+        return new TaskQuery(Cursor.of(task), limit, statuses, from, to);
+    }
+
+    boolean hasTimeFilter() {
+        return from != null || to != null;
+    }
+
+    boolean matchesStatus(Task task) {
+        return statuses.isEmpty() || statuses.contains(task.getStatus());
+    }
+
+    /**
+     * Курсор страницы — последний элемент предыдущей. Курсор с ключом сортировки сам задаёт
+     * позицию в порядке списка и не зависит от того, существует ли ещё элемент; курсор только
+     * с ID сначала находит элемент, и тот должен существовать.
+     *
+     * @param id        ID элемента
+     * @param startTime время начала элемента или {@code null}, если его нет; без ключа не используется
+     * @param keyed     курсор несёт ключ сортировки
+     */
+    public record Cursor(int id, LocalDateTime startTime, boolean keyed) {
+
+        public static Cursor of(Task task) {
+            return new Cursor(task.getId(), task.getStartTime(), true);
+        }
+    }
+}
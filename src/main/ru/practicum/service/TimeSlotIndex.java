@@ -0,0 +1,362 @@
+package ru.practicum.service;
+
+import ru.practicum.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+/**
+ * Индекс временных интервалов [startTime, endTime) для проверки пересечений.
+ *
+ * <p>Реализован как декартово дерево (treap), упорядоченное по времени начала и ID.
+ * Каждый узел хранит максимальное время окончания в своём поддереве, поэтому поиск
+ * пересечения отбрасывает целые поддеревья и выполняется за O(log n).
+ * Задачи без времени начала в индекс не попадают.</p>
+ *
+ * <p>Для поиска свободного места узел хранит также первое и последнее время начала
+ * в поддереве и наибольший промежуток между интервалами поддерева.</p>
+ *
+ * <p>Время в узлах хранится примитивами — секундами от эпохи в UTC и наносекундами,
+ * без объектов {@link LocalDateTime}, а узлы по ID ищутся в {@link IntMap}.</p>
+ */
+class TimeSlotIndex {
+    private static final long MAX_GAP_SECONDS = Long.MAX_VALUE / 1_000_000_000L - 1;
+
+    private final IntMap<Node> nodesById = new IntMap<>();
+    private final Random random = new Random();
+    private Node root;
+
+    /**
+     * Добавляет интервал задачи в индекс. Если задача с таким ID уже есть, её интервал заменяется.
+     *
+     * @param task задача с установленным ID
+     */
+    void put(Task task) {
+        remove(task.getId());
+        if (task.getStartTime() == null) {
+            return;
+        }
+        LocalDateTime start = task.getStartTime();
+        LocalDateTime end = task.getEndTime();
+        Node node = new Node(task.getId(), start.toEpochSecond(ZoneOffset.UTC), start.getNano(),
+                end.toEpochSecond(ZoneOffset.UTC), end.getNano(), random.nextInt());
+        root = insert(root, node);
+        nodesById.put(node.id, node);
+    }
+
+    /**
+     * Удаляет интервал задачи из индекса.
+     *
+     * @param id ID задачи
+     */
+    void remove(int id) {
+        Node node = nodesById.remove(id);
+        if (node != null) {
+            root = delete(root, node);
+        }
+    }
+
+    void clear() {
+        nodesById.clear();
+        root = null;
+    }
+
+    int size() {
+        return nodesById.size();
+    }
+
+    /**
+     * Ищет интервал, пересекающийся с [start, end).
+     *
+     * @param start     начало проверяемого интервала
+     * @param end       конец проверяемого интервала
+     * @param ignoredId ID, который не считается пересечением (сама задача), может быть null
+     * @return ID пересекающейся задачи или null, если слот свободен
+     */
+    Integer findOverlap(LocalDateTime start, LocalDateTime end, Integer ignoredId) {
+        Node node = findOverlap(root, start.toEpochSecond(ZoneOffset.UTC), start.getNano(),
+                end.toEpochSecond(ZoneOffset.UTC), end.getNano(), ignoredId != null ? ignoredId : Integer.MIN_VALUE);
+        return node != null ? node.id : null;
+    }
+
+    private Node findOverlap(Node node, long startSecond, int startNano, long endSecond, int endNano,
+                             int ignoredId) {
+        // В поддереве нет интервала, заканчивающегося позже start
+        if (node == null || compare(node.maxEndSecond, node.maxEndNano, startSecond, startNano) <= 0) {
+            return null;
+        }
+
+        Node found = findOverlap(node.left, startSecond, startNano, endSecond, endNano, ignoredId);
+        if (found != null) {
+            return found;
+        }
+
+        // Узел и всё правое поддерево начинаются не раньше end
+        if (compare(node.startSecond, node.startNano, endSecond, endNano) >= 0) {
+            return null;
+        }
+        if (compare(node.endSecond, node.endNano, startSecond, startNano) > 0 && node.id != ignoredId) {
+            return node;
+        }
+        return findOverlap(node.right, startSecond, startNano, endSecond, endNano, ignoredId);
+    }
+
+    /**
+     * Передаёт действию ID задач, занятых в интервале [from, to), в порядке времени начала и ID:
+     * начавшихся раньше {@code from} и ещё не закончившихся, а также начинающихся внутри интервала,
+     * в том числе с нулевой продолжительностью. Поддеревья, где все интервалы закончились раньше
+     * {@code from}, и правее начинающихся не раньше {@code to} не обходятся, поэтому для
+     * непересекающихся интервалов поиск стоит O(log n + k).
+     */
+    void forEachInRange(LocalDateTime from, LocalDateTime to, IntConsumer action) {
+        forEachInRange(root, from.toEpochSecond(ZoneOffset.UTC), from.getNano(),
+                to.toEpochSecond(ZoneOffset.UTC), to.getNano(), action);
+    }
+
+    private void forEachInRange(Node node, long fromSecond, int fromNano, long toSecond, int toNano,
+                                IntConsumer action) {
+        // Строгое сравнение: интервал нулевой длины в самом from тоже попадает в выборку
+        if (node == null || compare(node.maxEndSecond, node.maxEndNano, fromSecond, fromNano) < 0) {
+            return;
+        }
+        forEachInRange(node.left, fromSecond, fromNano, toSecond, toNano, action);
+        if (compare(node.startSecond, node.startNano, toSecond, toNano) >= 0) {
+            return;
+        }
+        if (compare(node.endSecond, node.endNano, fromSecond, fromNano) > 0
+                || compare(node.startSecond, node.startNano, fromSecond, fromNano) >= 0) {
+            action.accept(node.id);
+        }
+        forEachInRange(node.right, fromSecond, fromNano, toSecond, toNano, action);
+    }
+
+    /**
+     * Ищет самое раннее время начала не раньше {@code notBefore}, с которого интервал
+     * {@code duration} не пересекается ни с одним интервалом индекса.
+     *
+     * <p>Интервалы обходятся по времени начала с текущим кандидатом — наибольшим временем
+     * окончания среди пройденных, но не раньше {@code notBefore}. Поддерево пропускается
+     * целиком, если в нём нет промежутка длиной {@code duration}: все его интервалы начинаются
+     * раньше кандидата плюс {@code duration}, или и первый промежуток, и наибольший внутренний
+     * короче. Для непересекающихся интервалов поиск стоит O(log n).</p>
+     *
+     * @return время начала свободного интервала
+     */
+    LocalDateTime findEarliestSlot(LocalDateTime notBefore, Duration duration) {
+        SlotSearch search = new SlotSearch(notBefore.toEpochSecond(ZoneOffset.UTC), notBefore.getNano(),
+                saturatedNanos(duration));
+        search.find(root);
+        return LocalDateTime.ofEpochSecond(search.second, search.nano, ZoneOffset.UTC);
+    }
+
+    /**
+     * Состояние поиска свободного места: кандидат на время начала и длина интервала в наносекундах.
+     */
+    private static final class SlotSearch {
+        private final long duration;
+        private long second;
+        private int nano;
+
+        private SlotSearch(long second, int nano, long duration) {
+            this.second = second;
+            this.nano = nano;
+            this.duration = duration;
+        }
+
+        /**
+         * @return {@code true}, если интервал помещается перед одним из узлов поддерева
+         */
+        private boolean find(Node node) {
+            if (node == null) {
+                return false;
+            }
+            if (!fitsBefore(node.lastStartSecond, node.lastStartNano)
+                    || !fitsBefore(node.minStartSecond, node.minStartNano) && node.maxGap < duration) {
+                advanceTo(node.maxEndSecond, node.maxEndNano);
+                return false;
+            }
+            if (find(node.left) || fitsBefore(node.startSecond, node.startNano)) {
+                return true;
+            }
+            advanceTo(node.endSecond, node.endNano);
+            return find(node.right);
+        }
+
+        private boolean fitsBefore(long startSecond, int startNano) {
+            return nanosBetween(second, nano, startSecond, startNano) >= duration;
+        }
+
+        private void advanceTo(long endSecond, int endNano) {
+            if (compare(endSecond, endNano, second, nano) > 0) {
+                second = endSecond;
+                nano = endNano;
+            }
+        }
+    }
+
+    private Node insert(Node node, Node newNode) {
+        if (node == null) {
+            return newNode;
+        }
+        if (compare(newNode, node) < 0) {
+            node.left = insert(node.left, newNode);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, newNode);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private Node delete(Node node, Node target) {
+        if (node == null) {
+            return null;
+        }
+        if (node == target) {
+            return merge(node.left, node.right);
+        }
+        if (compare(target, node) < 0) {
+            node.left = delete(node.left, target);
+        } else {
+            node.right = delete(node.right, target);
+        }
+        node.update();
+        return node;
+    }
+
+    private Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private static int compare(Node node1, Node node2) {
+        int compareByTime = compare(node1.startSecond, node1.startNano, node2.startSecond, node2.startNano);
+        return compareByTime != 0 ? compareByTime : Integer.compare(node1.id, node2.id);
+    }
+
+    private static int compare(long second1, int nano1, long second2, int nano2) {
+        int compareBySecond = Long.compare(second1, second2);
+        return compareBySecond != 0 ? compareBySecond : Integer.compare(nano1, nano2);
+    }
+
+    /**
+     * Промежуток от первого момента до второго в наносекундах; промежутки длиннее
+     * примерно 290 лет насыщаются до {@link Long#MAX_VALUE} или {@link Long#MIN_VALUE}.
+     */
+    private static long nanosBetween(long second1, int nano1, long second2, int nano2) {
+        long seconds = second2 - second1;
+        if (seconds >= MAX_GAP_SECONDS) {
+            return Long.MAX_VALUE;
+        }
+        if (seconds <= -MAX_GAP_SECONDS) {
+            return Long.MIN_VALUE;
+        }
+        return seconds * 1_000_000_000L + (nano2 - nano1);
+    }
+
+    private static long saturatedNanos(Duration duration) {
+        return duration.getSeconds() >= MAX_GAP_SECONDS ? Long.MAX_VALUE : duration.toNanos();
+    }
+
+    private static class Node {
+        final int id;
+        final int priority;
+        final long startSecond;
+        final int startNano;
+        final long endSecond;
+        final int endNano;
+        long maxEndSecond;
+        int maxEndNano;
+        long minStartSecond;
+        int minStartNano;
+        long lastStartSecond;
+        int lastStartNano;
+        // Наибольший промежуток перед узлом поддерева, кроме первого, в наносекундах
+        long maxGap = Long.MIN_VALUE;
+        Node left;
+        Node right;
+
+        Node(int id, long startSecond, int startNano, long endSecond, int endNano, int priority) {
+            this.id = id;
+            this.startSecond = startSecond;
+            this.startNano = startNano;
+            this.endSecond = endSecond;
+            this.endNano = endNano;
+            this.priority = priority;
+            this.maxEndSecond = endSecond;
+            this.maxEndNano = endNano;
+            this.minStartSecond = startSecond;
+            this.minStartNano = startNano;
+            this.lastStartSecond = startSecond;
+            this.lastStartNano = startNano;
+        }
+
+        /**
+         * Пересчитывает показатели поддерева по детям. Промежуток перед узлом отсчитывается
+         * от наибольшего времени окончания среди интервалов, идущих раньше него в поддереве.
+         */
+        void update() {
+            maxEndSecond = endSecond;
+            maxEndNano = endNano;
+            minStartSecond = startSecond;
+            minStartNano = startNano;
+            lastStartSecond = startSecond;
+            lastStartNano = startNano;
+            maxGap = Long.MIN_VALUE;
+            if (left != null) {
+                minStartSecond = left.minStartSecond;
+                minStartNano = left.minStartNano;
+                maxGap = Math.max(left.maxGap,
+                        nanosBetween(left.maxEndSecond, left.maxEndNano, startSecond, startNano));
+                if (compare(left.maxEndSecond, left.maxEndNano, maxEndSecond, maxEndNano) > 0) {
+                    maxEndSecond = left.maxEndSecond;
+                    maxEndNano = left.maxEndNano;
+                }
+            }
+            if (right != null) {
+                lastStartSecond = right.lastStartSecond;
+                lastStartNano = right.lastStartNano;
+                maxGap = Math.max(maxGap, Math.max(right.maxGap,
+                        nanosBetween(maxEndSecond, maxEndNano, right.minStartSecond, right.minStartNano)));
+                if (compare(right.maxEndSecond, right.maxEndNano, maxEndSecond, maxEndNano) > 0) {
+                    maxEndSecond = right.maxEndSecond;
+                    maxEndNano = right.maxEndNano;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ru.practicum.configuration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.model.Task;
+import ru.practicum.service.InMemoryHistoryManager;
+import ru.practicum.service.InMemoryTaskManager;
+import ru.practicum.service.TaskManager;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpTaskServerHistorySessionsTest {
+    private static final String SESSION_HEADER = "X-Session-Id";
+
+    private HttpTaskServer taskServer;
+    private HttpClient client;
+    private Task first;
+    private Task second;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        TaskManager manager = new InMemoryTaskManager(new InMemoryHistoryManager());
+        first = new Task("First task", "Description", Duration.ofHours(1), LocalDateTime.of(2025, 7, 1, 10, 0));
+        second = new Task("Second task", "Description", Duration.ofHours(1), LocalDateTime.of(2025, 7, 2, 10, 0));
+        manager.saveTask(first);
+        manager.saveTask(second);
+        taskServer = new HttpTaskServer(manager);
+        taskServer.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        taskServer.stop();
+    }
+
+    private HttpResponse<String> get(String path, String sessionId) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path)).GET();
+        if (sessionId != null) {
+            request.header(SESSION_HEADER, sessionId);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void testHistoryIsScopedBySessionHeader() throws IOException, InterruptedException {
+        assertEquals(200, get("/tasks/" + first.getId(), "alice").statusCode());
+        assertEquals(200, get("/tasks/" + second.getId(), "bob").statusCode());
+
+        String alice = get("/history", "alice").body();
+        assertTrue(alice.contains("First task") && !alice.contains("Second task"), "История alice: " + alice);
+        String bob = get("/history", "bob").body();
+        assertTrue(bob.contains("Second task") && !bob.contains("First task"), "История bob: " + bob);
+        assertEquals("[]", get("/history", null).body(), "Просмотры с сессией не должны попадать в общую историю");
+
+        get("/tasks/" + first.getId(), null);
+        assertTrue(get("/history", null).body().contains("First task"), "Без заголовка используется общая история");
+    }
+
+    @Test
+    void testTooLongSessionIdIsRejected() throws IOException, InterruptedException {
+        assertEquals(400, get("/history", "x".repeat(129)).statusCode());
+    }
+}
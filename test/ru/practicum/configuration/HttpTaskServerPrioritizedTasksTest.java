@@ -165,4 +165,31 @@ public class HttpTaskServerPrioritizedTasksTest {
         assertEquals(1, prioritizedTasks.size(), "В списке должна остаться только первая задача!");
         assertEquals("Task X", prioritizedTasks.getFirst().getName(), "Оставленная задача должна быть первой созданной!");
     }
-}
\ No newline at end of file
+
+    @Test
+    @Order(5)
+    void testGetPrioritizedTasksPage() throws IOException, InterruptedException {
+        createTestTask("Task 1", Duration.ofMinutes(30), LocalDateTime.of(2025, 7, 1, 8, 0));
+        createTestTask("Task 2", Duration.ofMinutes(30), LocalDateTime.of(2025, 7, 1, 9, 0));
+        createTestTask("Task 3", Duration.ofMinutes(30), LocalDateTime.of(2025, 7, 1, 10, 0));
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized?from=2025-07-01T08:30:00&limit=1"))
+                .GET()
+                .build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), "Ошибка получения страницы приоритетного списка!");
+
+        List<Task> page = List.of(gson.fromJson(response.body(), Task[].class));
+        assertEquals(1, page.size(), "Страница должна содержать не больше limit задач!");
+        assertEquals("Task 2", page.getFirst().getName(), "Страница должна начинаться с первой задачи после from!");
+
+        HttpRequest invalidRequest = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized?limit=abc"))
+                .GET()
+                .build();
+        assertEquals(400, client.send(invalidRequest, HttpResponse.BodyHandlers.ofString()).statusCode(),
+                "Некорректные параметры должны возвращать 400!");
+    }
+}
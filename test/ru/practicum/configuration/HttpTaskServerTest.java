@@ -1,12 +1,18 @@
 package ru.practicum.configuration;
 
 import org.junit.jupiter.api.*;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
 
 import ru.practicum.service.InMemoryHistoryManager;
 import ru.practicum.service.InMemoryTaskManager;
@@ -15,7 +21,14 @@ import ru.practicum.service.TaskManager;
 import ru.practicum.model.Task;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -41,6 +54,16 @@ public class HttpTaskServerTest {
         taskServer.stop();
     }
 
+    @Test
+    public void testStopUnsubscribesResponseCache() {
+        ResponseCache cache = taskServer.getResponseCache();
+        cache.put("/tasks", "[]".getBytes(StandardCharsets.UTF_8), manager.getVersion());
+        taskServer.stop();
+
+        manager.saveTask(new Task("Task", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 0, 0)));
+        assertNotNull(cache.get("/tasks"), "Остановленный сервер не должен держать кеш подписанным на менеджер");
+    }
+
     @Test
     public void testAddTask() throws IOException, InterruptedException {
         Task task = new Task("New Task", "Task description", Duration.ofMinutes(30), LocalDateTime.now());
@@ -76,6 +99,330 @@ public class HttpTaskServerTest {
         assertTrue(response.body().contains("Task 2"), "Вторая задача отсутствует в ответе");
     }
 
+    @Test
+    public void testLargeListIsStreamedChunked() throws IOException, InterruptedException {
+        for (int i = 0; i < 5_000; i++) {
+            manager.saveTask(new Task("Streamed " + i, "Описание", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 0, 0).plusHours(i)));
+        }
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .GET()
+                .build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals("chunked", response.headers().firstValue("Transfer-Encoding").orElse(""),
+                "Список должен отправляться потоком, без Content-Length");
+        Task[] tasks = gson.fromJson(response.body(), Task[].class);
+        assertEquals(5_000, tasks.length);
+        assertEquals("Описание", tasks[4_999].getDescription(), "Текст должен передаваться в UTF-8");
+    }
+
+    @Test
+    public void testTaskPagesWithProjection() throws IOException, InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            manager.saveTask(new Task("Paged " + i, "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 0, 0).plusHours(i)));
+        }
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?limit=2&fields=id,name"))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        JsonArray page = JsonParser.parseString(response.body()).getAsJsonArray();
+        assertEquals(2, page.size());
+        assertEquals(Set.of("id", "name"), page.get(0).getAsJsonObject().keySet(), "Должны передаваться только запрошенные поля");
+        String cursor = response.headers().firstValue("X-Next-Cursor").orElseThrow();
+        int lastId = page.get(1).getAsJsonObject().get("id").getAsInt();
+        assertEquals(lastId + "@" + manager.getTaskById(lastId).getStartTime(), cursor,
+                "Курсор — ID и время начала последнего элемента");
+        manager.deleteTaskById(lastId);
+
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?limit=10&after=" + cursor))
+                .GET()
+                .build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(3, JsonParser.parseString(response.body()).getAsJsonArray().size());
+        assertTrue(response.headers().firstValue("X-Next-Cursor").isEmpty(), "У последней страницы нет курсора");
+
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?status=UNKNOWN"))
+                .GET()
+                .build();
+        assertEquals(400, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    public void testConditionalGetReturnsNotModified() throws IOException, InterruptedException {
+        manager.saveTask(new Task("Cached", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 0, 0)));
+        awaitNextSecond();
+
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/tasks")).GET().build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        String etag = response.headers().firstValue("ETag").orElseThrow();
+        String lastModified = response.headers().firstValue("Last-Modified").orElseThrow();
+
+        HttpRequest conditional = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .header("If-None-Match", etag)
+                .GET()
+                .build();
+        response = client.send(conditional, HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, response.statusCode(), "Неизменённый список не должен отправляться повторно");
+        assertTrue(response.body().isEmpty());
+        assertEquals(etag, response.headers().firstValue("ETag").orElseThrow());
+
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/prioritized"))
+                .header("If-Modified-Since", lastModified)
+                .GET()
+                .build();
+        assertEquals(304, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        manager.saveTask(new Task("Fresh", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 2, 0, 0)));
+        response = client.send(conditional, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), "После изменения список должен отправляться заново");
+        assertTrue(response.body().contains("Fresh"));
+        assertNotEquals(etag, response.headers().firstValue("ETag").orElseThrow());
+    }
+
+    @Test
+    public void testIfModifiedSinceIgnoresWritesInSameSecond() throws IOException, InterruptedException {
+        manager.saveTask(new Task("First", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 0, 0)));
+        String since = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+                manager.getLastModified().truncatedTo(ChronoUnit.SECONDS).atOffset(ZoneOffset.UTC));
+        HttpRequest conditional = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .header("If-Modified-Since", since)
+                .GET()
+                .build();
+        client.send(conditional, HttpResponse.BodyHandlers.ofString());
+
+        // Вторая запись почти всегда попадает в ту же секунду, что и первая
+        manager.saveTask(new Task("Second", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 2, 0, 0)));
+        HttpResponse<String> response = client.send(conditional, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode(), "Запись в ту же секунду не должна давать 304");
+        assertTrue(response.body().contains("Second"));
+    }
+
+    @Test
+    public void testRepeatedGetIsServedFromCache() throws IOException, InterruptedException {
+        Task task = new Task("Cached", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 0, 0));
+        manager.saveTask(task);
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/" + task.getId()))
+                .GET()
+                .build();
+
+        HttpResponse<String> first = client.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> second = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals("MISS", first.headers().firstValue("X-Cache").orElseThrow());
+        assertEquals("HIT", second.headers().firstValue("X-Cache").orElseThrow());
+        assertEquals(first.body(), second.body());
+        assertEquals(1, taskServer.getResponseCache().metrics().hits());
+        assertEquals(1, manager.getHistory().size(), "Ответ из кеша всё равно записывается в историю");
+
+        task.setName("Renamed");
+        manager.updateTask(task);
+        HttpResponse<String> updated = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals("MISS", updated.headers().firstValue("X-Cache").orElseThrow());
+        assertTrue(updated.body().contains("Renamed"), "Изменение задачи должно сбрасывать её ответ");
+    }
+
+    @Test
+    public void testLargeResponsesAreGzippedOnRequest() throws IOException, InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            manager.saveTask(new Task("Compressed " + i, "Описание", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 0, 0).plusHours(i)));
+        }
+        String plain = client.send(HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/tasks")).GET().build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+
+        // Страница передаётся потоком, полный список — из кеша: сжатие одинаково работает в обоих случаях
+        for (String path : new String[]{"/tasks?limit=200", "/tasks", "/tasks"}) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080" + path))
+                    .header("Accept-Encoding", "br;q=1.0, gzip;q=0.8")
+                    .GET()
+                    .build();
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, response.statusCode());
+            assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(""));
+            assertTrue(response.body().length < plain.length() / 4, "Список должен передаваться сжатым");
+            try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+                String json = new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+                assertEquals(200, JsonParser.parseString(json).getAsJsonArray().size());
+            }
+        }
+
+        HttpRequest small = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/1"))
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(small, HttpResponse.BodyHandlers.ofString());
+        assertTrue(response.headers().firstValue("Content-Encoding").isEmpty(), "Короткие ответы не сжимаются");
+        assertTrue(response.body().contains("Compressed 0"));
+
+        HttpRequest refused = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks?limit=200"))
+                .header("Accept-Encoding", "gzip;q=0, identity")
+                .GET()
+                .build();
+        response = client.send(refused, HttpResponse.BodyHandlers.ofString());
+        assertTrue(response.headers().firstValue("Content-Encoding").isEmpty(), "gzip с q=0 запрещён клиентом");
+        assertEquals(200, JsonParser.parseString(response.body()).getAsJsonArray().size());
+    }
+
+    @Test
+    public void testBatchReportsPerOperationResults() throws IOException, InterruptedException {
+        manager.saveTask(new Task("Existing", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 10, 0)));
+        String batch = """
+                [{"op": "create", "type": "epic", "task": {"name": "Epic", "description": "Description"}},
+                 {"op": "create", "type": "subtask", "task": {"name": "Subtask", "description": "Description",
+                  "duration": "PT30M", "startTime": "2025-01-01T10:00:00", "epicId": -1}},
+                 {"op": "create", "type": "task", "task": {"name": "Task", "description": "Description",
+                  "duration": "PT30M", "startTime": "2025-01-01T10:15:00"}}]
+                """;
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(batch))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(406, response.statusCode(), "Пересечение с существующей задачей отменяет весь пакет");
+        JsonArray results = JsonParser.parseString(response.body()).getAsJsonObject().getAsJsonArray("results");
+        assertEquals(424, results.get(0).getAsJsonObject().get("status").getAsInt());
+        assertEquals(406, results.get(2).getAsJsonObject().get("status").getAsInt());
+        assertTrue(manager.getAllEpics().isEmpty());
+
+        request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(batch.replace("10:15", "11:15")))
+                .build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        results = JsonParser.parseString(response.body()).getAsJsonObject().getAsJsonArray("results");
+        assertEquals(3, results.size());
+        assertEquals(201, results.get(1).getAsJsonObject().get("status").getAsInt());
+        int subtaskId = results.get(1).getAsJsonObject().get("id").getAsInt();
+        assertEquals(results.get(0).getAsJsonObject().get("id").getAsInt(), manager.getSubtaskById(subtaskId).getEpicId());
+        assertEquals(2, manager.getAllTasks().size());
+    }
+
+    @Test
+    public void testRoutesMatchWholeSegments() throws IOException, InterruptedException {
+        Task task = new Task("Task", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 10, 0));
+        manager.saveTask(task);
+
+        assertEquals(200, get("/tasks/").statusCode(), "Завершающий / не меняет маршрут");
+        assertEquals(200, get("/tasks/" + task.getId() + "/").statusCode());
+        assertEquals(400, get("/tasks/abc").statusCode(), "Нечисловой id");
+        assertEquals(405, get("/tasks/" + task.getId() + "/subtasks").statusCode(), "Лишний сегмент");
+        assertEquals(405, get("/tasksx").statusCode(), "Сегмент сравнивается целиком, а не по префиксу");
+        assertEquals(404, get("/epics/" + task.getId() + "/subtasks").statusCode());
+    }
+
+    @Test
+    public void testOversizedBodyIsRejected() throws IOException, InterruptedException {
+        // Отдельный сервер с маленьким пределом: тело в пределах дочитывания HttpServer,
+        // поэтому соединение не сбрасывается до получения ответа
+        TaskHandler handler = new TaskHandler(manager, gson);
+        handler.setMaxBodyBytes(1024);
+        HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.createContext("/tasks", handler);
+        server.start();
+        try {
+            URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/tasks");
+            Task small = new Task("Task", "x".repeat(512), Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 10, 0));
+            Task large = new Task("Task", "x".repeat(8 * 1024), Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 2, 10, 0));
+
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri)
+                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(large))).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(413, response.statusCode(), "Content-Length больше предела");
+
+            response = client.send(HttpRequest.newBuilder(uri)
+                    .POST(HttpRequest.BodyPublishers.fromPublisher(
+                            HttpRequest.BodyPublishers.ofString(gson.toJson(large)))).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(413, response.statusCode(), "Тело без Content-Length ограничивается при чтении");
+            assertTrue(manager.getAllTasks().isEmpty());
+
+            response = client.send(HttpRequest.newBuilder(uri)
+                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(small))).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(201, response.statusCode());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testPrioritizedRangeReturnsRunningTasks() throws IOException, InterruptedException {
+        Task running = new Task("Running", "Description", Duration.ofHours(2), LocalDateTime.of(2025, 1, 1, 9, 0));
+        Task later = new Task("Later", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 12, 0));
+        manager.saveTask(running);
+        manager.saveTask(later);
+
+        HttpResponse<String> response = get("/prioritized?from=2025-01-01T10:00&to=2025-01-01T12:00");
+        assertEquals(200, response.statusCode());
+        Task[] tasks = gson.fromJson(response.body(), Task[].class);
+        assertEquals(1, tasks.length, "Задача, начинающаяся в момент to, не должна попадать в интервал");
+        assertEquals("Running", tasks[0].getName());
+
+        assertEquals(400, get("/prioritized?to=2025-01-01T12:00").statusCode(), "Интервал без from недопустим");
+        assertEquals(400, get("/prioritized?from=2025-01-01T10:00&to=2025-01-01T12:00&limit=5").statusCode());
+    }
+
+    @Test
+    public void testPrioritizedPageFromAloneAndLimitIsClamped() throws IOException, InterruptedException {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < 1_050; i++) {
+            manager.saveTask(new Task("Task " + i, "Description", Duration.ofMinutes(30), base.plusHours(i)));
+        }
+
+        HttpResponse<String> response = get("/prioritized?from=2025-01-01T10:00");
+        assertEquals(200, response.statusCode(), "Один from задаёт страницу, открытую справа");
+        Task[] page = gson.fromJson(response.body(), Task[].class);
+        assertEquals(100, page.length, "Без limit отдаётся страница размера по умолчанию");
+        assertEquals("Task 10", page[0].getName());
+
+        response = get("/prioritized?limit=1000000");
+        assertEquals(200, response.statusCode());
+        assertEquals(1_000, gson.fromJson(response.body(), Task[].class).length, "limit ограничен сверху");
+
+        assertEquals(400, get("/prioritized?limit=0").statusCode());
+        assertEquals(400, get("/prioritized?from=2025-01-01T10:00&limit=-1").statusCode());
+    }
+
+    @Test
+    public void testEarliestSlotEndpoint() throws IOException, InterruptedException {
+        manager.saveTask(new Task("Morning", "Description", Duration.ofHours(1), LocalDateTime.of(2025, 1, 1, 9, 0)));
+        manager.saveTask(new Task("Noon", "Description", Duration.ofHours(1), LocalDateTime.of(2025, 1, 1, 10, 30)));
+
+        HttpResponse<String> response = get("/tasks/slot?duration=PT45M&from=2025-01-01T09:00");
+        assertEquals(200, response.statusCode());
+        JsonObject slot = JsonParser.parseString(response.body()).getAsJsonObject();
+        assertEquals("2025-01-01T11:30:00", slot.get("startTime").getAsString(),
+                "Промежуток в 30 минут слишком короток для 45-минутной задачи");
+        assertEquals("2025-01-01T12:15:00", slot.get("endTime").getAsString());
+
+        response = get("/subtasks/slot?duration=PT45M&from=2025-01-01T09:00");
+        assertEquals("2025-01-01T09:00:00", JsonParser.parseString(response.body()).getAsJsonObject()
+                .get("startTime").getAsString(), "Задачи не занимают время подзадач");
+        assertEquals(400, get("/tasks/slot?from=2025-01-01T09:00").statusCode(), "Продолжительность обязательна");
+        assertEquals(400, get("/tasks/slot?duration=45").statusCode());
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
     @Test
     public void testDeleteTask() throws IOException, InterruptedException {
         Task task = new Task("Task to delete", "To be removed", Duration.ofMinutes(10), LocalDateTime.now());
@@ -91,4 +438,14 @@ public class HttpTaskServerTest {
         assertEquals(200, response.statusCode());
         assertTrue(manager.getAllTasks().isEmpty(), "Задача не была удалена");
     }
-}
\ No newline at end of file
+
+    /**
+     * Ждёт окончания секунды последнего изменения: до этого сервер не отдаёт {@code Last-Modified}.
+     */
+    private void awaitNextSecond() throws InterruptedException {
+        Instant changed = manager.getLastModified().truncatedTo(ChronoUnit.SECONDS);
+        while (!changed.isBefore(Instant.now().truncatedTo(ChronoUnit.SECONDS))) {
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package ru.practicum.configuration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+import ru.practicum.service.InMemoryHistoryManager;
+import ru.practicum.service.InMemoryTaskManager;
+import ru.practicum.service.TaskManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+    private TaskManager manager;
+    private ResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        manager = new InMemoryTaskManager(new InMemoryHistoryManager());
+        cache = new ResponseCache(manager, 1024, 512);
+        manager.addChangeListener(cache);
+    }
+
+    private static byte[] json(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testUnsubscribedCacheIsNotInvalidated() {
+        cache.put("/tasks", json("[]"), manager.getVersion());
+        manager.removeChangeListener(cache);
+
+        manager.saveTask(new Task("Task", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 0, 0)));
+        assertArrayEquals(json("[]"), cache.get("/tasks"), "Отписанный кеш не должен получать уведомления");
+    }
+
+    @Test
+    void testCountsHitsAndMisses() {
+        assertNull(cache.get("/tasks/1"));
+        cache.put("/tasks/1", json("{\"id\":1}"), manager.getVersion());
+        assertArrayEquals(json("{\"id\":1}"), cache.get("/tasks/1"));
+
+        ResponseCache.Metrics metrics = cache.metrics();
+        assertEquals(1, metrics.hits());
+        assertEquals(1, metrics.misses());
+        assertEquals(1, metrics.entries());
+    }
+
+    @Test
+    void testChangeInvalidatesOnlyAffectedResponses() {
+        Task task = new Task("Task", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 9, 0));
+        Task other = new Task("Other", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 10, 0));
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, null);
+        manager.saveTask(task);
+        manager.saveTask(other);
+        manager.saveEpic(epic);
+        long version = manager.getVersion();
+        for (String key : new String[]{"/tasks/" + task.getId(), "/tasks/" + other.getId(), "/tasks",
+                "/prioritized", "/epics/" + epic.getId(), "/epics/" + epic.getId() + "/subtasks", "/epics"}) {
+            cache.put(key, json("[]"), version);
+        }
+
+        task.setName("Renamed");
+        manager.updateTask(task);
+        assertNull(cache.get("/tasks/" + task.getId()));
+        assertNull(cache.get("/tasks"));
+        assertNull(cache.get("/prioritized"));
+        assertNotNull(cache.get("/tasks/" + other.getId()), "Ответы других задач должны сохраниться");
+        assertNotNull(cache.get("/epics/" + epic.getId()));
+
+        manager.saveSubtask(new Subtask("Subtask", "Description", Duration.ofMinutes(15),
+                LocalDateTime.of(2025, 1, 2, 9, 0), epic.getId()));
+        assertNull(cache.get("/epics/" + epic.getId()), "Подзадача меняет поля своего эпика");
+        assertNull(cache.get("/epics/" + epic.getId() + "/subtasks"));
+        assertNull(cache.get("/epics"));
+        assertNotNull(cache.get("/tasks/" + other.getId()));
+    }
+
+    @Test
+    void testResponseBuiltBeforeChangeIsNotStored() {
+        long version = manager.getVersion();
+        manager.saveTask(new Task("Task", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 9, 0)));
+
+        cache.put("/tasks", json("[]"), version);
+        assertNull(cache.get("/tasks"), "Ответ, собранный до изменения, устарел");
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedWhenFull() {
+        long version = manager.getVersion();
+        byte[] response = new byte[300];
+        cache.put("/tasks/1", response, version);
+        cache.put("/tasks/2", response, version);
+        cache.get("/tasks/1");
+        cache.put("/tasks/3", response, version);
+
+        assertNotNull(cache.get("/tasks/1"));
+        assertNull(cache.get("/tasks/2"), "Вытесняется давно не запрошенный ответ");
+        assertTrue(cache.metrics().bytes() <= 1024);
+        assertEquals(1, cache.metrics().evictions());
+
+        cache.put("/tasks", new byte[600], version);
+        assertNull(cache.get("/tasks"), "Ответ больше допустимого размера записи не кешируется");
+    }
+
+    @Test
+    void testCompressedVersionIsKeptWithItsResponse() {
+        Task task = new Task("Task", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 9, 0));
+        manager.saveTask(task);
+        String key = "/tasks/" + task.getId();
+        byte[] plain = json("{\"id\":1}");
+        cache.put(key, plain, manager.getVersion());
+
+        cache.putCompressed(key, plain, json("gz"));
+        assertArrayEquals(json("gz"), cache.getCompressed(key));
+
+        manager.updateTask(task);
+        cache.putCompressed(key, plain, json("gz"));
+        assertNull(cache.getCompressed(key), "Сжатая версия сбрасывается вместе с ответом");
+        assertEquals(0, cache.metrics().bytes());
+    }
+}
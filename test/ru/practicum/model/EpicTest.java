@@ -4,6 +4,8 @@ import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -32,6 +34,39 @@ class EpicTest {
         assertEquals(LocalDateTime.of(2025, 1, 1, 10, 0), epic.getStartTime());
     }
 
+    @Test
+    void testEpicStartIsMinimumOverSubtasksOnly() {
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, LocalDateTime.of(2025, 1, 1, 10, 0));
+        epic.setId(1);
+        Subtask withoutStart = new Subtask("Subtask 1", "Description", Duration.ofHours(1), null, epic.getId());
+        Subtask later = new Subtask("Subtask 2", "Description", Duration.ofHours(2), LocalDateTime.of(2025, 1, 1, 12, 0), epic.getId());
+        Subtask earlier = new Subtask("Subtask 3", "Description", null, LocalDateTime.of(2025, 1, 1, 11, 0), epic.getId());
+
+        epic.addSubtask(withoutStart);
+        assertEquals(LocalDateTime.of(2025, 1, 1, 10, 0), epic.getStartTime(),
+                "Без времени у подзадач остаётся собственное время эпика");
+        epic.addSubtask(later);
+        assertEquals(LocalDateTime.of(2025, 1, 1, 12, 0), epic.getStartTime(),
+                "Время начала эпика — минимум только по подзадачам");
+        epic.addSubtask(earlier);
+        assertEquals(LocalDateTime.of(2025, 1, 1, 11, 0), epic.getStartTime());
+        assertEquals(Duration.ofHours(3), epic.getDuration());
+    }
+
+    @Test
+    void testReplacedSubtaskListIsCountedOnNextAdd() {
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, null);
+        epic.setId(1);
+        epic.addSubtask(new Subtask("Subtask 1", "Description", Duration.ofHours(5), LocalDateTime.of(2025, 1, 1, 8, 0), epic.getId()));
+        epic.setSubtasks(new ArrayList<>(List.of(
+                new Subtask("Subtask 2", "Description", Duration.ofHours(1), LocalDateTime.of(2025, 1, 1, 12, 0), epic.getId()))));
+
+        epic.addSubtask(new Subtask("Subtask 3", "Description", Duration.ofHours(2), LocalDateTime.of(2025, 1, 1, 14, 0), epic.getId()));
+
+        assertEquals(LocalDateTime.of(2025, 1, 1, 12, 0), epic.getStartTime());
+        assertEquals(Duration.ofHours(3), epic.getDuration());
+    }
+
     @Test
     void testEpicNullValues() {
         Epic epic = new Epic(null, null, null, null);
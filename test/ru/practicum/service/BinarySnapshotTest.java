@@ -0,0 +1,117 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.exception.ManagerSaveException;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySnapshotTest {
+
+    private static File tempFile(String prefix, String suffix) throws IOException {
+        File file = File.createTempFile(prefix, suffix);
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Заполняет менеджер объектами всех типов, включая задачи без времени и нелатинские строки.
+     */
+    private static void fill(FileBackedTaskManager manager) {
+        Task task = new Task("Задача", "Описание", Duration.ofMinutes(45), LocalDateTime.of(2025, 1, 1, 9, 15, 30));
+        task.setStatus(Status.IN_PROGRESS);
+        manager.saveTask(task);
+        manager.saveTask(new Task("Без времени", "", null, null));
+
+        Epic epic = new Epic("Эпик", "Описание эпика", Duration.ZERO, null);
+        manager.saveEpic(epic);
+        manager.saveEpic(new Epic("Пустой эпик", "Без подзадач", Duration.ZERO, null));
+
+        Subtask done = new Subtask("Подзадача 1", "Описание", Duration.ofHours(2), LocalDateTime.of(2025, 1, 2, 10, 0), epic.getId());
+        done.setStatus(Status.DONE);
+        manager.saveSubtask(done);
+        manager.saveSubtask(new Subtask("Подзадача 2", "Описание", Duration.ofSeconds(90), LocalDateTime.of(2025, 1, 3, 10, 0), epic.getId()));
+    }
+
+    private static void assertSameState(TaskManager expected, TaskManager actual) {
+        assertEquals(expected.getAllTasks(), actual.getAllTasks(), "Задачи должны совпадать");
+        assertEquals(expected.getAllEpics(), actual.getAllEpics(), "Эпики должны совпадать");
+        assertEquals(expected.getAllSubtasks(), actual.getAllSubtasks(), "Подзадачи должны совпадать");
+    }
+
+    @Test
+    void testCsvToBinaryAndBackRoundTrip() throws IOException {
+        File csv = tempFile("round_trip", ".csv");
+        File csvReloaded = tempFile("round_trip_reloaded", ".csv");
+        File binary = tempFile("round_trip", ".bin");
+        File csvAgain = tempFile("round_trip_again", ".csv");
+
+        FileBackedTaskManager original = new FileBackedTaskManager(csv);
+        fill(original);
+        assertEquals(6, original.getAllTasks().size() + original.getAllEpics().size() + original.getAllSubtasks().size());
+
+        SnapshotConverter.convert(csv, binary);
+        SnapshotConverter.convert(binary, csvAgain);
+        // Эталон — CSV, прошедший загрузку: пустая продолжительность при чтении становится нулевой
+        SnapshotConverter.convert(csv, csvReloaded);
+
+        assertSameState(FileBackedTaskManager.loadFromFile(csv), FileBackedTaskManager.loadFromFile(binary));
+        assertEquals(Files.readAllLines(csvReloaded.toPath()), Files.readAllLines(csvAgain.toPath()),
+                "CSV после двоичного снимка должен совпадать с CSV после загрузки исходного файла");
+    }
+
+    @Test
+    void testManagerWritesBinarySnapshotByExtension() throws IOException {
+        File binary = tempFile("manager_snapshot", ".bin");
+
+        FileBackedTaskManager manager = new FileBackedTaskManager(binary);
+        fill(manager);
+
+        assertTrue(BinarySnapshot.isBinary(binary), "Снимок с расширением .bin должен быть двоичным");
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(binary);
+        assertSameState(manager, loaded);
+
+        Task next = new Task("Следующая", "Описание", Duration.ofMinutes(10), LocalDateTime.of(2025, 2, 1, 0, 0));
+        loaded.saveTask(next);
+        assertTrue(next.getId() > manager.getAllSubtasks().getLast().getId(), "ID после загрузки не должны повторяться");
+    }
+
+    @Test
+    void testJournalOnTopOfBinarySnapshot() throws IOException {
+        File binary = tempFile("journal_binary", ".bin");
+        TaskJournal.journalFile(binary).deleteOnExit();
+
+        FileBackedTaskManager manager = new FileBackedTaskManager(binary, FileBackedTaskManager.StorageMode.JOURNAL);
+        fill(manager);
+        manager.compact();
+        manager.deleteTaskById(manager.getAllTasks().getFirst().getId());
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(binary, FileBackedTaskManager.StorageMode.JOURNAL);
+        assertSameState(manager, loaded);
+        loaded.close();
+        manager.close();
+    }
+
+    @Test
+    void testTruncatedBinarySnapshotIsRejected() throws IOException {
+        File binary = tempFile("truncated", ".bin");
+        FileBackedTaskManager manager = new FileBackedTaskManager(binary);
+        fill(manager);
+
+        byte[] bytes = Files.readAllBytes(binary.toPath());
+        Files.write(binary.toPath(), Arrays.copyOf(bytes, bytes.length - 10));
+
+        assertThrows(ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(binary),
+                "Обрезанный снимок должен отклоняться");
+    }
+}
@@ -0,0 +1,81 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarTaskManagerTest extends TaskManagerTest<ColumnarTaskManager> {
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Override
+    ColumnarTaskManager createTaskManager() {
+        return new ColumnarTaskManager(new InMemoryHistoryManager());
+    }
+
+    @Test
+    void testReturnedObjectsAreCopies() {
+        Task task = new Task("Task", "Description", Duration.ofMinutes(30), BASE_TIME);
+        taskManager.saveTask(task);
+
+        taskManager.getTaskById(task.getId()).setName("Changed");
+
+        assertEquals("Task", taskManager.getTaskById(task.getId()).getName(),
+                "Изменение полученной задачи не должно менять хранилище");
+    }
+
+    @Test
+    void testSummarizeMatchesFilteredScan() {
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, null);
+        taskManager.saveEpic(epic);
+        Status[] statuses = Status.values();
+        for (int i = 0; i < 30; i++) {
+            Subtask subtask = new Subtask("Subtask " + i, "Description", Duration.ofMinutes(10),
+                    i % 5 == 0 ? null : BASE_TIME.plusHours(i), epic.getId());
+            subtask.setStatus(statuses[i % statuses.length]);
+            taskManager.saveSubtask(subtask);
+        }
+        TaskQuery query = new TaskQuery(null, 0, Set.of(Status.NEW, Status.DONE),
+                BASE_TIME.plusHours(3), BASE_TIME.plusHours(20));
+
+        ColumnarTaskManager.Summary summary = taskManager.summarize(Subtask.class, query);
+
+        List<Subtask> expected = taskManager.findSubtasks(new TaskQuery(null, 100, query.statuses(),
+                query.from(), query.to()));
+        assertEquals(expected.size(), summary.count(), "Число подзадач должно совпадать с выборкой");
+        assertEquals(expected.stream().filter(s -> s.getStatus() == Status.NEW).count(),
+                summary.byStatus().getOrDefault(Status.NEW, 0L), "Число новых подзадач должно совпадать");
+        assertFalse(summary.byStatus().containsKey(Status.IN_PROGRESS), "Отфильтрованный статус не должен попасть в сводку");
+        assertEquals(Duration.ofMinutes(10L * expected.size()), summary.totalDuration(),
+                "Продолжительность должна быть суммой по выборке");
+        assertEquals(new ColumnarTaskManager.Summary(0, Map.of(), Duration.ZERO),
+                taskManager.summarize(Task.class, TaskQuery.firstPage(0)), "Сводка пустой выборки должна быть нулевой");
+    }
+
+    @Test
+    void testSlotsAreReusedAfterDeletion() {
+        for (int i = 0; i < 100; i++) {
+            Task task = new Task("Task " + i, "Description", Duration.ofMinutes(30), BASE_TIME.plusHours(i));
+            taskManager.saveTask(task);
+            if (i % 2 == 0) {
+                taskManager.deleteTaskById(task.getId());
+            }
+        }
+
+        List<Task> tasks = taskManager.getAllTasks();
+
+        assertEquals(50, tasks.size(), "Должны остаться только неудалённые задачи");
+        assertEquals(BASE_TIME.plusHours(1), tasks.get(0).getStartTime(), "Задачи должны идти по времени начала");
+        assertEquals(50, taskManager.summarize(Task.class, TaskQuery.firstPage(0)).count(),
+                "Сводка не должна учитывать освобождённые слоты");
+    }
+}
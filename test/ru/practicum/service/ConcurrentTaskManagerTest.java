@@ -0,0 +1,185 @@
+package ru.practicum.service;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final int THREADS = 8;
+
+    @Override
+    ConcurrentTaskManager createTaskManager() {
+        return new ConcurrentTaskManager(new InMemoryTaskManager(new InMemoryHistoryManager()));
+    }
+
+    private static <T> List<T> runConcurrently(int count, Callable<T> action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<T>> calls = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                calls.add(action);
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : executor.invokeAll(calls)) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testConcurrentSavesGetUniqueIds() throws Exception {
+        AtomicInteger slot = new AtomicInteger();
+        List<Integer> ids = runConcurrently(1_000, () -> {
+            Task task = new Task("Task", "Description", Duration.ofMinutes(30), BASE_TIME.plusHours(slot.getAndIncrement()));
+            taskManager.saveTask(task);
+            taskManager.getTaskById(task.getId());
+            return task.getId();
+        });
+
+        Set<Integer> uniqueIds = new HashSet<>(ids);
+        assertEquals(1_000, uniqueIds.size(), "Все задачи должны получить разные ID");
+        assertEquals(1_000, taskManager.getAllTasks().size(), "Все задачи должны быть сохранены");
+        assertEquals(1_000, taskManager.getPrioritizedTasks().size(), "Все задачи должны попасть в приоритетный список");
+    }
+
+    @Test
+    void testConcurrentOverlappingSavesAcceptOnlyOne() throws Exception {
+        List<Boolean> results = runConcurrently(200, () -> {
+            try {
+                taskManager.saveTask(new Task("Task", "Description", Duration.ofHours(1), BASE_TIME));
+                return true;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        });
+
+        assertEquals(1, results.stream().filter(Boolean::booleanValue).count(),
+                "Из пересекающихся задач должна сохраниться ровно одна");
+        assertEquals(1, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    void testConcurrentSubtaskUpdatesKeepEpicConsistent() throws Exception {
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, null);
+        taskManager.saveEpic(epic);
+        List<Subtask> subtasks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Subtask subtask = new Subtask("Subtask " + i, "Description", Duration.ofMinutes(10), BASE_TIME.plusHours(i), epic.getId());
+            taskManager.saveSubtask(subtask);
+            subtasks.add(subtask);
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        runConcurrently(subtasks.size(), () -> {
+            Subtask update = new Subtask(subtasks.get(next.getAndIncrement()));
+            update.setStatus(Status.DONE);
+            taskManager.updateSubtask(update);
+            return null;
+        });
+
+        Epic stored = taskManager.getEpicById(epic.getId());
+        assertEquals(Status.DONE, stored.getStatus(), "После завершения всех подзадач эпик должен быть DONE");
+        assertEquals(Duration.ofMinutes(1_000), stored.getDuration(), "Продолжительность эпика не должна искажаться");
+    }
+
+    @Test
+    void testEpicsAreReturnedAsDetachedSnapshots() {
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, null);
+        taskManager.saveEpic(epic);
+        taskManager.saveSubtask(new Subtask("Subtask 1", "Description", Duration.ofMinutes(10), BASE_TIME, epic.getId()));
+
+        Epic byId = taskManager.getEpicById(epic.getId());
+        Epic listed = taskManager.getAllEpics().getFirst();
+        Subtask listedSubtask = listed.getSubtasks().getFirst();
+        taskManager.saveSubtask(new Subtask("Subtask 2", "Description", Duration.ofMinutes(10), BASE_TIME.plusHours(1), epic.getId()));
+        Subtask update = new Subtask(listedSubtask);
+        update.setStatus(Status.DONE);
+        taskManager.updateSubtask(update);
+
+        assertEquals(1, byId.getSubtasks().size(), "Полученный эпик не должен меняться вместе с хранилищем");
+        assertEquals(Duration.ofMinutes(10), listed.getDuration());
+        assertEquals(Status.NEW, listedSubtask.getStatus(), "Подзадачи эпика тоже должны быть копиями");
+        assertEquals(2, taskManager.findEpics(TaskQuery.firstPage(10)).getFirst().getSubtasks().size());
+    }
+
+    @Test
+    void testTasksAreReturnedAsDetachedCopies() {
+        Task task = new Task("Task", "Description", Duration.ofMinutes(30), BASE_TIME);
+        taskManager.saveTask(task);
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, null);
+        taskManager.saveEpic(epic);
+        Subtask subtask = new Subtask("Subtask", "Description", Duration.ofMinutes(10), BASE_TIME.plusHours(1), epic.getId());
+        taskManager.saveSubtask(subtask);
+
+        Task byId = taskManager.getTaskById(task.getId());
+        byId.setName("Changed");
+        byId.setStartTime(BASE_TIME.plusDays(1));
+        Task prioritized = taskManager.getPrioritizedTasks().getFirst();
+        prioritized.setStartTime(BASE_TIME.plusDays(2));
+        Subtask listedSubtask = taskManager.getAllSubtasks().getFirst();
+        listedSubtask.setStatus(Status.DONE);
+        listedSubtask.setStartTime(BASE_TIME.plusDays(3));
+
+        Task stored = taskManager.getTaskById(task.getId());
+        assertEquals("Task", stored.getName(), "Изменение полученной задачи не должно затрагивать хранилище");
+        assertEquals(BASE_TIME, stored.getStartTime());
+        assertEquals(Status.NEW, taskManager.getSubtaskById(subtask.getId()).getStatus());
+        assertEquals(Status.NEW, taskManager.getEpicById(epic.getId()).getStatus(), "Эпик не должен пересчитываться");
+        assertInstanceOf(Subtask.class, taskManager.getPrioritizedTasks().get(1), "Копии должны сохранять тип задачи");
+        assertEquals(List.of(task.getId(), subtask.getId()),
+                taskManager.getPrioritizedTasks().stream().map(Task::getId).toList(), "Порядок и индексы не должны меняться");
+        assertEquals(List.of(task), taskManager.getTasksInRange(BASE_TIME, BASE_TIME.plusMinutes(30)));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.saveTask(
+                new Task("Overlap", "Description", Duration.ofMinutes(10), BASE_TIME.plusMinutes(10))),
+                "Индекс интервалов должен по-прежнему видеть исходное время задачи");
+    }
+
+    @Test
+    void testEpicsSerializeWhileSubtasksChange() throws Exception {
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, null);
+        taskManager.saveEpic(epic);
+        Gson gson = Managers.getDefaultGson();
+        AtomicInteger next = new AtomicInteger();
+
+        List<Boolean> results = runConcurrently(2_000, () -> {
+            int n = next.getAndIncrement();
+            if (n % 2 == 0) {
+                taskManager.saveSubtask(new Subtask("Subtask " + n, "Description", Duration.ofMinutes(1),
+                        BASE_TIME.plusMinutes(n), epic.getId()));
+                return true;
+            }
+            // Сериализация идёт после снятия блокировки, как в обработчиках HTTP
+            for (Epic listed : taskManager.getAllEpics()) {
+                Epic parsed = gson.fromJson(gson.toJson(listed), Epic.class);
+                if (parsed.getSubtasks().size() != listed.getSubtasks().size()) {
+                    return false;
+                }
+            }
+            return true;
+        });
+
+        assertFalse(results.contains(false), "Снимок эпика не должен меняться во время сериализации");
+        assertEquals(1_000, taskManager.getEpicById(epic.getId()).getSubtasks().size());
+    }
+}
@@ -0,0 +1,120 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EpicAggregateTest {
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    /**
+     * Полный пересчёт статуса эпика по всем подзадачам — эталон для сравнения.
+     */
+    private static Status expectedStatus(List<Subtask> subtasks) {
+        if (subtasks.isEmpty()) {
+            return Status.NEW;
+        }
+        if (subtasks.stream().allMatch(subtask -> subtask.getStatus() == Status.DONE)) {
+            return Status.DONE;
+        }
+        if (subtasks.stream().allMatch(subtask -> subtask.getStatus() == Status.NEW)) {
+            return Status.NEW;
+        }
+        return Status.IN_PROGRESS;
+    }
+
+    private static void assertMatchesFullRecompute(Epic epic, List<Subtask> subtasks) {
+        assertEquals(expectedStatus(subtasks), epic.getStatus(), "Статус эпика должен совпадать с полным пересчётом");
+
+        if (subtasks.isEmpty()) {
+            assertNull(epic.getStartTime(), "У эпика без подзадач нет времени начала");
+            assertNull(epic.getDuration(), "У эпика без подзадач нет продолжительности");
+            return;
+        }
+
+        LocalDateTime startTime = subtasks.stream()
+                .map(Subtask::getStartTime)
+                .filter(Objects::nonNull)
+                .min(LocalDateTime::compareTo)
+                .orElse(null);
+        LocalDateTime endTime = subtasks.stream()
+                .map(Subtask::getEndTime)
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo)
+                .orElse(null);
+        Duration duration = subtasks.stream()
+                .map(Subtask::getDuration)
+                .filter(Objects::nonNull)
+                .reduce(Duration.ZERO, Duration::plus);
+
+        assertEquals(startTime, epic.getStartTime(), "Время начала эпика должно совпадать с полным пересчётом");
+        assertEquals(duration, epic.getDuration(), "Продолжительность эпика должна совпадать с полным пересчётом");
+        if (endTime != null) {
+            assertEquals(endTime, epic.getEndTime(), "Время окончания эпика должно совпадать с полным пересчётом");
+        }
+    }
+
+    @Test
+    void testIncrementalAggregatesMatchFullRecompute() {
+        InMemoryTaskManager manager = new InMemoryTaskManager(new InMemoryHistoryManager());
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, null);
+        manager.saveEpic(epic);
+
+        Random random = new Random(11);
+        List<Subtask> saved = new ArrayList<>();
+        int slot = 0;
+
+        for (int step = 0; step < 1_000; step++) {
+            int action = random.nextInt(3);
+            if (action == 0 || saved.isEmpty()) {
+                LocalDateTime startTime = random.nextInt(5) == 0 ? null : BASE_TIME.plusHours(slot++);
+                Subtask subtask = new Subtask("Subtask " + step, "Description",
+                        Duration.ofMinutes(random.nextInt(60)), startTime, epic.getId());
+                manager.saveSubtask(subtask);
+                saved.add(subtask);
+            } else if (action == 1) {
+                Subtask subtask = saved.get(random.nextInt(saved.size()));
+                Subtask update = new Subtask(subtask);
+                update.setStatus(Status.values()[random.nextInt(Status.values().length)]);
+                update.setDuration(Duration.ofMinutes(random.nextInt(60)));
+                update.setStartTime(random.nextInt(5) == 0 ? null : BASE_TIME.plusHours(slot++));
+                manager.updateSubtask(update);
+            } else {
+                Subtask subtask = saved.remove(random.nextInt(saved.size()));
+                manager.deleteSubtaskById(subtask.getId());
+            }
+
+            assertMatchesFullRecompute(epic, saved);
+        }
+
+        manager.deleteAllSubtasks();
+        assertMatchesFullRecompute(epic, List.of());
+    }
+
+    @Test
+    void testInPlaceModifiedSubtaskIsRecountedCorrectly() {
+        InMemoryTaskManager manager = new InMemoryTaskManager(new InMemoryHistoryManager());
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, null);
+        manager.saveEpic(epic);
+
+        Subtask subtask = new Subtask("Subtask", "Description", Duration.ofHours(1), BASE_TIME, epic.getId());
+        manager.saveSubtask(subtask);
+
+        // Изменяем сохранённый объект до вызова updateSubtask
+        subtask.setStatus(Status.DONE);
+        subtask.setStartTime(BASE_TIME.plusDays(1));
+        manager.updateSubtask(subtask);
+
+        assertMatchesFullRecompute(epic, List.of(subtask));
+    }
+}
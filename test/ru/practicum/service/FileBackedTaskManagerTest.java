@@ -11,8 +11,16 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -159,6 +167,274 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
         assertEquals(task2, loadedManager.getAllTasks().get(1), "Вторая задача должна корректно загружаться");
     }
 
+    private static File journalTempFile(String prefix) throws IOException {
+        File tempFile = File.createTempFile(prefix, ".csv");
+        tempFile.deleteOnExit();
+        TaskJournal.journalFile(tempFile).deleteOnExit();
+        return tempFile;
+    }
+
+    @Test
+    void testJournalIsReplayedWithoutSnapshot() throws IOException {
+        File tempFile = journalTempFile("journal_replay_test");
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, FileBackedTaskManager.StorageMode.JOURNAL);
+
+        Task task = new Task("Task", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 0, 0));
+        manager.saveTask(task);
+        Task removed = new Task("Removed", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 1, 0));
+        manager.saveTask(removed);
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, null);
+        manager.saveEpic(epic);
+        Subtask subtask = new Subtask("Subtask", "Description", Duration.ofHours(1), LocalDateTime.of(2025, 1, 2, 0, 0), epic.getId());
+        manager.saveSubtask(subtask);
+
+        Subtask update = new Subtask(subtask);
+        update.setStatus(Status.DONE);
+        manager.updateSubtask(update);
+        manager.deleteTaskById(removed.getId());
+
+        // Менеджер не закрыт: снимок пуст, всё состояние только в журнале
+        assertEquals(0, tempFile.length(), "Изменения не должны перезаписывать снимок");
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile, FileBackedTaskManager.StorageMode.JOURNAL);
+
+        assertEquals(List.of(task), loadedManager.getAllTasks(), "Удалённая задача не должна восстанавливаться");
+        Subtask loadedSubtask = loadedManager.getSubtaskById(subtask.getId());
+        assertNotNull(loadedSubtask, "ID подзадачи должен сохраняться");
+        assertEquals(Status.DONE, loadedSubtask.getStatus(), "Должно восстанавливаться последнее состояние подзадачи");
+        assertEquals(Status.DONE, loadedManager.getEpicById(epic.getId()).getStatus(), "Статус эпика должен пересчитываться");
+
+        Task next = new Task("Next", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 3, 0, 0));
+        loadedManager.saveTask(next);
+        assertTrue(next.getId() > subtask.getId(), "Новые ID не должны совпадать с восстановленными");
+        loadedManager.close();
+    }
+
+    @Test
+    void testCompactionFoldsJournalIntoSnapshot() throws IOException {
+        File tempFile = journalTempFile("journal_compaction_test");
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, FileBackedTaskManager.StorageMode.JOURNAL);
+
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, null);
+        manager.saveEpic(epic);
+        Subtask subtask = new Subtask("Subtask", "Description", Duration.ofHours(1), LocalDateTime.of(2025, 1, 1, 10, 0), epic.getId());
+        manager.saveSubtask(subtask);
+        manager.close();
+
+        assertEquals(0, TaskJournal.journalFile(tempFile).length(), "После сжатия журнал должен быть пуст");
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(List.of(epic), loadedManager.getAllEpics(), "Эпик должен попасть в снимок");
+        assertEquals(List.of(subtask), loadedManager.getAllSubtasks(), "Подзадача должна попасть в снимок");
+    }
+
+    @Test
+    void testJournalReplayOverCompactedSnapshotIsIdempotent() throws IOException {
+        File tempFile = journalTempFile("journal_idempotent_test");
+        File journalFile = TaskJournal.journalFile(tempFile);
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, FileBackedTaskManager.StorageMode.JOURNAL);
+
+        Task moved = new Task("Moved", "Description", Duration.ofHours(1), LocalDateTime.of(2025, 1, 1, 10, 0));
+        manager.saveTask(moved);
+        Task update = new Task(moved.getId(), "Moved", "Description", Duration.ofHours(1), LocalDateTime.of(2025, 1, 1, 12, 0));
+        manager.updateTask(update);
+        // Новая задача занимает освободившееся время
+        Task occupying = new Task("Occupying", "Description", Duration.ofHours(1), LocalDateTime.of(2025, 1, 1, 10, 0));
+        manager.saveTask(occupying);
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, null);
+        manager.saveEpic(epic);
+        manager.saveSubtask(new Subtask("Subtask", "Description", Duration.ofHours(1), LocalDateTime.of(2025, 1, 1, 10, 0), epic.getId()));
+        manager.deleteEpicById(epic.getId());
+
+        // Сбой между записью снимка и очисткой журнала: журнал остаётся целиком
+        List<String> journal = Files.readAllLines(journalFile.toPath());
+        manager.close();
+        Files.write(journalFile.toPath(), journal);
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile, FileBackedTaskManager.StorageMode.JOURNAL);
+
+        List<Task> tasks = loadedManager.getAllTasks();
+        assertEquals(2, tasks.size(), "Повторное применение журнала не должно менять состояние");
+        assertEquals(LocalDateTime.of(2025, 1, 1, 12, 0), loadedManager.getTaskById(moved.getId()).getStartTime());
+        assertEquals(LocalDateTime.of(2025, 1, 1, 10, 0), loadedManager.getTaskById(occupying.getId()).getStartTime());
+        assertTrue(loadedManager.getAllEpics().isEmpty(), "Удалённый эпик не должен восстанавливаться");
+        assertTrue(loadedManager.getAllSubtasks().isEmpty(), "Подзадачи удалённого эпика не должны восстанавливаться");
+        loadedManager.close();
+    }
+
+    @Test
+    void testTornLastJournalRecordIsSkipped() throws IOException {
+        File tempFile = journalTempFile("journal_torn_test");
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, FileBackedTaskManager.StorageMode.JOURNAL);
+        Task task = new Task("Task", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 0, 0));
+        manager.saveTask(task);
+
+        // Запись оборвалась на середине
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(TaskJournal.journalFile(tempFile), true))) {
+            writer.write("PUT,2,TASK,Torn,NEW,Desc");
+        }
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(List.of(task), loadedManager.getAllTasks(), "Оборванная запись должна пропускаться");
+        assertFalse(TaskJournal.journalFile(tempFile).exists(), "В режиме снимка журнал удаляется после загрузки");
+    }
+
+    @Test
+    void testBatchIsJournaledAsOneGroup() throws IOException {
+        File tempFile = journalTempFile("journal_batch_test");
+        File journalFile = TaskJournal.journalFile(tempFile);
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, FileBackedTaskManager.StorageMode.JOURNAL);
+        Task kept = new Task("Kept", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 0, 0));
+        manager.saveTask(kept);
+
+        manager.applyBatch(List.of(
+                Operation.create(new Epic("Epic", "Description", Duration.ZERO, null)),
+                Operation.create(new Subtask("Subtask", "Description", Duration.ofHours(1), LocalDateTime.of(2025, 1, 2, 0, 0), -1))));
+        List<String> journal = Files.readAllLines(journalFile.toPath());
+        assertEquals(4, journal.size(), "Пакет пишется заголовком и записями операций");
+        assertEquals("BATCH,2", journal.get(1));
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile, FileBackedTaskManager.StorageMode.JOURNAL);
+        assertEquals(1, loadedManager.getAllEpics().size());
+        assertEquals(1, loadedManager.getAllSubtasks().size());
+        loadedManager.close();
+        manager.close();
+
+        // Сбой посреди записи пакета: пакет отбрасывается целиком
+        Files.write(journalFile.toPath(), List.of(journal.get(0), journal.get(1), journal.get(2)));
+        Files.writeString(tempFile.toPath(), "");
+        loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(List.of(kept), loadedManager.getAllTasks());
+        assertTrue(loadedManager.getAllEpics().isEmpty(), "Оборванный пакет не должен применяться частично");
+    }
+
+    @Test
+    void testFailedBatchLeavesFileAsBefore() throws IOException {
+        File tempFile = journalTempFile("journal_failed_batch_test");
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, FileBackedTaskManager.StorageMode.JOURNAL);
+        Task kept = new Task("Kept", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 0, 0));
+        manager.saveTask(kept);
+
+        assertThrows(IllegalArgumentException.class, () -> manager.applyBatch(List.of(
+                Operation.create(new Task("Added", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 2, 0, 0))),
+                Operation.create(new Task("Overlapping", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 0, 15))))));
+        manager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile, FileBackedTaskManager.StorageMode.JOURNAL);
+        assertEquals(manager.getAllTasks(), loadedManager.getAllTasks(), "Память и файл должны совпадать после отката");
+        assertEquals(List.of(kept), loadedManager.getAllTasks());
+        loadedManager.close();
+    }
+
+    @Test
+    void testFailedRollbackIsReportedAsSaveError() throws IOException {
+        File tempFile = journalTempFile("journal_failed_rollback_test");
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, FileBackedTaskManager.StorageMode.JOURNAL);
+        Task kept = new Task("Kept", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 0, 0));
+        manager.saveTask(kept);
+
+        // Вторая операция ломает первую задачу, поэтому её удаление при откате не удаётся
+        AtomicBoolean corrupted = new AtomicBoolean();
+        Task fragile = new Task("Fragile", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 2, 0, 0)) {
+            @Override
+            public LocalDateTime getStartTime() {
+                if (corrupted.get()) {
+                    throw new IllegalStateException("Задача повреждена");
+                }
+                return super.getStartTime();
+            }
+        };
+        Task corrupting = new Task("Corrupting", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 3, 0, 0)) {
+            @Override
+            public LocalDateTime getStartTime() {
+                corrupted.set(true);
+                throw new IllegalArgumentException("Некорректное время");
+            }
+        };
+
+        ManagerSaveException exception = assertThrows(ManagerSaveException.class,
+                () -> manager.applyBatch(List.of(Operation.create(fragile), Operation.create(corrupting))));
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause().getSuppressed()[0],
+                "Исходная ошибка пакета не должна теряться");
+        assertThrows(ManagerSaveException.class, () -> manager.saveTask(
+                new Task("Later", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 4, 0, 0))),
+                "Разошедшееся с файлом состояние не должно записываться");
+        manager.close();
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile, FileBackedTaskManager.StorageMode.JOURNAL);
+        assertEquals(List.of(kept), loadedManager.getAllTasks(), "Файл должен хранить состояние до пакета");
+        loadedManager.close();
+    }
+
+    @Test
+    void testConcurrentJournalWritesSurviveRestart() throws Exception {
+        File tempFile = journalTempFile("journal_group_commit_test");
+        FileBackedTaskManager fileBacked = new FileBackedTaskManager(tempFile,
+                FileBackedTaskManager.StorageMode.JOURNAL, PersistencePolicy.groupCommit(5, 64));
+        TaskManager manager = new ConcurrentTaskManager(fileBacked);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Void>> writers = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                LocalDateTime startTime = LocalDateTime.of(2025, 1, 1, 0, 0).plusHours(i);
+                writers.add(() -> {
+                    manager.saveTask(new Task("Task", "Description", Duration.ofMinutes(30), startTime));
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(writers)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        PersistenceMetrics metrics = fileBacked.getPersistenceMetrics();
+        assertEquals(200, metrics.committedRecords(), "Подтверждённые изменения должны быть на диске");
+        assertEquals(0, metrics.queueDepth());
+
+        // Менеджер не закрыт: загружаем только то, что уже записано на диск
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(200, loadedManager.getAllTasks().size(), "После перезапуска должны восстановиться все задачи");
+    }
+
+    @Test
+    void testOverlapValidationIsDeferredAndOptional() throws IOException {
+        File tempFile = File.createTempFile("overlapping_rows", ".csv");
+        tempFile.deleteOnExit();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(tempFile))) {
+            writer.write("id,type,name,status,description,epic,startTime,duration,epicId\n");
+            writer.write("1,TASK,Task 1,NEW,Description,2025-01-01T10:00,PT1H\n");
+            writer.write("2,TASK,Task 2,NEW,Description,2025-01-01T10:30,PT1H\n");
+        }
+
+        assertEquals(2, FileBackedTaskManager.loadFromFile(tempFile).getAllTasks().size(),
+                "Без проверки строки файла загружаются как есть");
+        assertThrows(ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(tempFile,
+                        FileBackedTaskManager.StorageMode.SNAPSHOT, PersistencePolicy.sync(), true),
+                "Отложенная проверка должна находить пересечения");
+    }
+
+    @Test
+    void testSubtaskBeforeItsEpicIsLoaded() throws IOException {
+        File tempFile = File.createTempFile("subtask_first", ".csv");
+        tempFile.deleteOnExit();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(tempFile))) {
+            writer.write("id,type,name,status,description,epic,startTime,duration,epicId\n");
+            writer.write("5,SUBTASK,Subtask,DONE,Description,2025-01-01T10:00,PT1H,4\n");
+            writer.write("4,EPIC,Epic,NEW,Description,null,null\n");
+        }
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile);
+
+        Epic epic = loadedManager.getEpicById(4);
+        assertNotNull(epic, "ID эпика должен сохраняться");
+        assertEquals(Status.DONE, epic.getStatus(), "Статус эпика должен рассчитываться по подзадаче");
+        assertEquals(List.of(loadedManager.getSubtaskById(5)), loadedManager.getAllSubtasksByEpic(epic));
+    }
+
     @Override
     FileBackedTaskManager createTaskManager() {
         return new FileBackedTaskManager(new File("tasks_test.csv"));
@@ -0,0 +1,77 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistorySessionsTest {
+    private final AtomicLong clock = new AtomicLong();
+
+    private HistorySessions sessions(int maxSessions) {
+        return new HistorySessions(maxSessions, Duration.ofMinutes(30),
+                () -> new InMemoryHistoryManager(10, InMemoryHistoryManager.Retention.VIEW), clock::get);
+    }
+
+    @Test
+    void testSessionsHaveSeparateHistories() {
+        InMemoryTaskManager manager = new InMemoryTaskManager(new InMemoryHistoryManager());
+        Task first = new Task("First", "Description", Duration.ofMinutes(10), LocalDateTime.of(2025, 1, 1, 0, 0));
+        Task second = new Task("Second", "Description", Duration.ofMinutes(10), LocalDateTime.of(2025, 1, 2, 0, 0));
+        manager.saveTask(first);
+        manager.saveTask(second);
+        HistorySessions sessions = sessions(10);
+
+        manager.getTaskById(first.getId(), sessions.get("alice"));
+        manager.getTaskById(second.getId(), sessions.get("bob"));
+
+        assertSame(sessions.get("alice"), sessions.get("alice"), "Сессия должна переиспользоваться");
+        assertEquals(List.of(first), manager.getHistory(sessions.get("alice")));
+        assertEquals(List.of(second), manager.getHistory(sessions.get("bob")));
+        assertTrue(manager.getHistory().isEmpty(), "Просмотры сессий не должны попадать в общую историю");
+    }
+
+    @Test
+    void testDeletedTasksAreDroppedFromSessionHistory() {
+        InMemoryTaskManager manager = new InMemoryTaskManager(new InMemoryHistoryManager());
+        Task task = new Task("Task", "Description", Duration.ofMinutes(10), LocalDateTime.of(2025, 1, 1, 0, 0));
+        manager.saveTask(task);
+        HistoryManager history = sessions(10).get("alice");
+        manager.getTaskById(task.getId(), history);
+
+        manager.deleteTaskById(task.getId());
+
+        assertTrue(manager.getHistory(history).isEmpty(), "Удалённая задача не должна возвращаться");
+        assertTrue(history.getHistory().isEmpty(), "Удалённая задача должна удаляться из истории сессии");
+    }
+
+    @Test
+    void testIdleSessionsExpire() {
+        HistorySessions sessions = sessions(10);
+        HistoryManager alice = sessions.get("alice");
+        clock.addAndGet(Duration.ofMinutes(20).toNanos());
+        sessions.get("bob");
+        clock.addAndGet(Duration.ofMinutes(20).toNanos());
+
+        assertEquals(1, sessions.size(), "Сессия без обращений дольше таймаута должна удаляться");
+        assertNotSame(alice, sessions.get("alice"), "После истечения сессия создаётся заново");
+    }
+
+    @Test
+    void testLeastRecentlyUsedSessionIsEvicted() {
+        HistorySessions sessions = sessions(2);
+        HistoryManager alice = sessions.get("alice");
+        HistoryManager bob = sessions.get("bob");
+        sessions.get("alice");
+        sessions.get("carol");
+
+        assertEquals(2, sessions.size());
+        assertSame(alice, sessions.get("alice"), "Недавно использованная сессия должна сохраниться");
+        assertNotSame(bob, sessions.get("bob"), "Самая давняя сессия должна вытесняться");
+    }
+}
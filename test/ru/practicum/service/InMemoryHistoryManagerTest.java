@@ -2,6 +2,8 @@ package ru.practicum.service;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Subtask;
 import ru.practicum.model.Task;
 
 import java.time.Duration;
@@ -128,4 +130,81 @@ class InMemoryHistoryManagerTest {
         assertEquals(task2, history.get(1), "Вторая задача должна совпадать с добавленной второй");
         assertEquals(task3, history.get(2), "Третья задача должна совпадать с добавленной третьей");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testOldestEntryIsEvictedWhenFull() {
+        HistoryManager bounded = new InMemoryHistoryManager(3, InMemoryHistoryManager.Retention.COPY);
+        Task[] tasks = new Task[4];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task(i + 1, "Task " + i, "Description", Duration.ZERO, null);
+        }
+
+        bounded.add(tasks[0]);
+        bounded.add(tasks[1]);
+        bounded.add(tasks[2]);
+        bounded.add(tasks[0]); // Повторный просмотр переносит задачу в конец
+        bounded.add(tasks[3]);
+
+        assertEquals(List.of(tasks[2], tasks[0], tasks[3]), bounded.getHistory(),
+                "Должен вытесняться самый давний просмотр");
+        assertThrows(IllegalArgumentException.class, () -> new InMemoryHistoryManager(0, InMemoryHistoryManager.Retention.COPY));
+    }
+
+    @Test
+    void testCopyRetentionKeepsSnapshotOfEpic() {
+        InMemoryTaskManager manager = new InMemoryTaskManager(new InMemoryHistoryManager());
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, null);
+        manager.saveEpic(epic);
+        manager.saveSubtask(new Subtask("Subtask", "Description", Duration.ofMinutes(10), LocalDateTime.of(2025, 1, 1, 0, 0), epic.getId()));
+
+        manager.getEpicById(epic.getId());
+        manager.saveSubtask(new Subtask("Later", "Description", Duration.ofMinutes(10), LocalDateTime.of(2025, 1, 2, 0, 0), epic.getId()));
+
+        Epic viewed = assertInstanceOf(Epic.class, manager.getHistory().getFirst());
+        assertNotSame(epic, viewed, "История должна хранить копию эпика");
+        assertEquals(1, viewed.getSubtasks().size(), "Копия не должна меняться вместе с эпиком");
+    }
+
+    @Test
+    void testViewRetentionDropsSubtaskList() {
+        InMemoryTaskManager manager = new InMemoryTaskManager(new InMemoryHistoryManager(10, InMemoryHistoryManager.Retention.VIEW));
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, null);
+        manager.saveEpic(epic);
+        manager.saveSubtask(new Subtask("Subtask", "Description", Duration.ofMinutes(10), LocalDateTime.of(2025, 1, 1, 0, 0), epic.getId()));
+
+        manager.getEpicById(epic.getId());
+
+        Epic viewed = assertInstanceOf(Epic.class, manager.getHistory().getFirst());
+        assertTrue(viewed.getSubtasks().isEmpty(), "Облегчённая копия не должна содержать подзадачи");
+        assertEquals(epic.getId(), viewed.getId());
+        assertEquals(epic.getStartTime(), viewed.getStartTime());
+        assertEquals(epic.getEndTime(), viewed.getEndTime());
+    }
+
+    @Test
+    void testIdRetentionReturnsCurrentObjects() {
+        InMemoryTaskManager manager = new InMemoryTaskManager(new InMemoryHistoryManager(10, InMemoryHistoryManager.Retention.ID));
+        Task task = new Task("Task", "Description", Duration.ofMinutes(10), LocalDateTime.of(2025, 1, 1, 0, 0));
+        manager.saveTask(task);
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, null);
+        manager.saveEpic(epic);
+
+        manager.getTaskById(task.getId());
+        manager.getEpicById(epic.getId());
+        Epic renamed = new Epic(epic);
+        renamed.setName("Renamed");
+        manager.updateEpic(renamed);
+
+        List<Task> history = manager.getHistory();
+        assertEquals(2, history.size());
+        assertSame(task, history.getFirst(), "В режиме ID история возвращает объекты менеджера");
+        assertEquals("Renamed", history.get(1).getName(), "Изменения после просмотра должны быть видны");
+
+        manager.deleteTaskById(task.getId());
+        assertEquals(List.of(epic.getId()), manager.getHistory().stream().map(Task::getId).toList());
+
+        HistoryManager unbound = new InMemoryHistoryManager(10, InMemoryHistoryManager.Retention.ID);
+        unbound.add(task);
+        assertThrows(IllegalStateException.class, unbound::getHistory, "Без привязки к менеджеру ID не во что разрешать");
+    }
+}
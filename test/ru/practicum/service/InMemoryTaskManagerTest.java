@@ -9,6 +9,7 @@ import ru.practicum.model.Task;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -155,4 +156,62 @@ class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
         assertThrows(IllegalArgumentException.class, () -> taskManager.saveSubtask(subtask2),
                 "Пересекающиеся подзадачи не должны сохраняться.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testUpdateTaskIntoOccupiedSlotIsRejected() {
+        Task task1 = new Task("Task 1", "Description", Duration.ofHours(1), LocalDateTime.of(2025, 1, 1, 10, 0));
+        Task task2 = new Task("Task 2", "Description", Duration.ofHours(1), LocalDateTime.of(2025, 1, 1, 11, 0));
+        taskManager.saveTask(task1);
+        taskManager.saveTask(task2);
+
+        Task update = new Task(task2);
+        update.setStartTime(LocalDateTime.of(2025, 1, 1, 10, 30));
+        assertThrows(IllegalArgumentException.class, () -> taskManager.updateTask(update),
+                "Обновление не должно переносить задачу в занятый интервал.");
+
+        update.setStartTime(LocalDateTime.of(2025, 1, 1, 12, 0));
+        taskManager.updateTask(update);
+        Task task3 = new Task("Task 3", "Description", Duration.ofHours(1), LocalDateTime.of(2025, 1, 1, 11, 0));
+        assertDoesNotThrow(() -> taskManager.saveTask(task3), "Освободившийся интервал должен быть доступен.");
+    }
+
+    @Test
+    void testSubtasksByEpicIsLiveViewInIdOrder() {
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, null);
+        taskManager.saveEpic(epic);
+        int hashCode = epic.hashCode();
+        Subtask[] saved = new Subtask[5];
+        for (int i = 0; i < saved.length; i++) {
+            saved[i] = new Subtask("Subtask " + i, "Description", Duration.ofMinutes(10),
+                    LocalDateTime.of(2025, 1, 1, 10, 0).minusHours(i), epic.getId());
+            taskManager.saveSubtask(saved[i]);
+        }
+        List<Subtask> view = taskManager.getAllSubtasksByEpic(epic);
+
+        taskManager.deleteSubtaskById(saved[1].getId());
+
+        assertEquals(List.of(saved[0], saved[2], saved[3], saved[4]), view, "Представление должно отражать удаление");
+        assertFalse(view.contains(saved[1]));
+        assertThrows(UnsupportedOperationException.class, () -> view.add(saved[1]), "Представление только для чтения");
+        Subtask extra = new Subtask("Extra", "Description", Duration.ofMinutes(10), null, epic.getId());
+        assertThrows(UnsupportedOperationException.class, () -> epic.addSubtask(extra),
+                "Подзадачи сохранённого эпика добавляются через менеджер");
+        assertEquals(4, epic.getSubtasks().size());
+        assertEquals(Duration.ofMinutes(40), epic.getDuration(), "Неудачное добавление не должно менять время эпика");
+        assertEquals(hashCode, epic.hashCode(), "Хеш-код эпика не должен зависеть от подзадач");
+        assertEquals(epic, new Epic(epic), "Равенство эпиков определяется ID");
+    }
+
+    @Test
+    void testPrioritizedSnapshotIsReusedUntilNextWrite() {
+        Task first = new Task("First", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 10, 0));
+        taskManager.saveTask(first);
+        List<Task> snapshot = taskManager.getPrioritizedTasks();
+        assertSame(snapshot, taskManager.getPrioritizedTasks(), "Без изменений снимок не должен строиться заново");
+
+        Task earlier = new Task("Earlier", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 1, 1, 9, 0));
+        taskManager.saveTask(earlier);
+        assertEquals(List.of(first), snapshot, "Выданный снимок не должен меняться");
+        assertEquals(List.of(earlier, first), taskManager.getPrioritizedTasks());
+    }
+}
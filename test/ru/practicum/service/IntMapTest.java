@@ -0,0 +1,72 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntMapTest {
+
+    @Test
+    void testPutReplacesAndRemoveReturnsValue() {
+        IntMap<String> map = new IntMap<>();
+        assertNull(map.put(1, "a"));
+        assertEquals("a", map.put(1, "b"), "Повторный put возвращает прежнее значение");
+        assertEquals("b", map.get(1));
+        assertEquals(1, map.size());
+
+        assertEquals("b", map.remove(1));
+        assertNull(map.remove(1));
+        assertNull(map.get(1));
+        assertTrue(map.isEmpty());
+        assertThrows(NullPointerException.class, () -> map.put(2, null));
+    }
+
+    @Test
+    void testRemovalKeepsCollidingKeysReachable() {
+        IntMap<Integer> map = new IntMap<>();
+        // Ключи, кратные ёмкости, чаще попадают в одни цепочки пробирования
+        for (int i = 0; i < 12; i++) {
+            map.put(i * 16, i);
+        }
+        for (int i = 0; i < 12; i += 2) {
+            map.remove(i * 16);
+        }
+        for (int i = 0; i < 12; i++) {
+            assertEquals(i % 2 == 0 ? null : i, map.get(i * 16), "Ключ " + i * 16);
+        }
+    }
+
+    @Test
+    void testMatchesHashMapOnRandomOperations() {
+        IntMap<Integer> map = new IntMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(5_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int key = -1_000; key < 4_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+
+        List<Integer> values = new ArrayList<>();
+        map.forEach(values::add);
+        assertEquals(expected.size(), values.size());
+        assertTrue(values.containsAll(expected.values()));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(values.get(0)));
+    }
+}
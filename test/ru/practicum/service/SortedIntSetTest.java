@@ -0,0 +1,65 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedIntSetTest {
+
+    @Test
+    void testRemovedValuesAreSkippedAndCanReturn() {
+        SortedIntSet set = new SortedIntSet();
+        for (int i = 1; i <= 10; i++) {
+            assertTrue(set.add(i));
+        }
+        assertFalse(set.add(5), "Повторное добавление не меняет множество");
+
+        assertTrue(set.remove(2));
+        assertTrue(set.remove(3));
+        assertFalse(set.remove(3), "Удалённый элемент нельзя удалить снова");
+
+        assertEquals(8, set.size());
+        assertFalse(set.contains(2));
+        assertEquals(4, set.get(1), "Порядковый номер не должен учитывать удалённые");
+        assertArrayEquals(new int[]{1, 4, 5, 6, 7, 8, 9, 10}, set.toArray());
+
+        assertTrue(set.add(3), "Удалённый элемент можно вернуть");
+        assertArrayEquals(new int[]{1, 3, 4, 5, 6, 7, 8, 9, 10}, set.toArray());
+    }
+
+    @Test
+    void testMatchesTreeSetOnRandomOperations() {
+        SortedIntSet set = new SortedIntSet();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            // Чаще растущие значения, как ID подзадач, иногда — вставка в середину
+            int value = random.nextInt(4) == 0 ? random.nextInt(i + 1) : i;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+
+        List<Integer> values = new ArrayList<>();
+        PrimitiveIterator.OfInt iterator = set.iterator();
+        while (iterator.hasNext()) {
+            values.add(iterator.nextInt());
+        }
+        assertEquals(new ArrayList<>(expected), values);
+        assertEquals(expected.first(), set.get(0));
+        assertEquals(expected.last(), set.get(set.size() - 1));
+
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(iterator.hasNext());
+    }
+}
@@ -0,0 +1,85 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.model.Epic;
+import ru.practicum.model.Status;
+import ru.practicum.model.Subtask;
+import ru.practicum.model.Task;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskCsvReaderTest {
+
+    private static TaskCsvReader reader() {
+        return new TaskCsvReader(new StringReader(""));
+    }
+
+    @Test
+    void testParsesTaskFields() {
+        Task task = reader().parse("7,TASK,Task,IN_PROGRESS,Description,2025-01-01T10:00,PT1H30M");
+
+        assertEquals(7, task.getId());
+        assertEquals("Task", task.getName());
+        assertEquals("Description", task.getDescription());
+        assertEquals(Status.IN_PROGRESS, task.getStatus());
+        assertEquals(LocalDateTime.of(2025, 1, 1, 10, 0), task.getStartTime());
+        assertEquals(Duration.ofMinutes(90), task.getDuration());
+    }
+
+    @Test
+    void testParsesEpicAndSubtaskWithNulls() {
+        TaskCsvReader reader = reader();
+
+        Task epic = reader.parse("3,EPIC,Epic,null,Description,null,null");
+        assertInstanceOf(Epic.class, epic);
+        assertEquals(Status.NEW, epic.getStatus(), "Пустой статус должен читаться как NEW");
+        assertNull(epic.getStartTime());
+        assertEquals(Duration.ZERO, epic.getDuration(), "Пустая продолжительность должна читаться как ноль");
+
+        Task subtask = reader.parse("4,SUBTASK,Subtask,DONE,Description,2025-01-01T10:00:30,PT45S,3");
+        assertInstanceOf(Subtask.class, subtask);
+        assertEquals(3, ((Subtask) subtask).getEpicId());
+        assertEquals(LocalDateTime.of(2025, 1, 1, 10, 0, 30), subtask.getStartTime());
+        assertEquals(Duration.ofSeconds(45), subtask.getDuration());
+    }
+
+    @Test
+    void testFallsBackToStandardParsingForRareFormats() {
+        Task task = reader().parse("1,TASK,Task,NEW,Description,2025-01-01T10:00:30.250,PT0.5S");
+
+        assertEquals(LocalDateTime.of(2025, 1, 1, 10, 0, 30, 250_000_000), task.getStartTime());
+        assertEquals(Duration.ofMillis(500), task.getDuration());
+    }
+
+    @Test
+    void testReadsLinesAcrossBufferBoundariesAndCrLf() throws IOException {
+        StringBuilder csv = new StringBuilder("header\r\n");
+        String longName = "N".repeat(100_000);
+        csv.append("1,TASK,").append(longName).append(",NEW,Description,null,PT1M\r\n");
+        csv.append("2,TASK,Short,NEW,Description,null,PT2M");
+
+        try (TaskCsvReader reader = new TaskCsvReader(new StringReader(csv.toString()))) {
+            assertTrue(reader.nextLine());
+            assertTrue(reader.nextLine());
+            assertEquals(longName, reader.parseTask().getName());
+            assertTrue(reader.nextLine());
+            assertEquals(Duration.ofMinutes(2), reader.parseTask().getDuration(), "Последняя строка без перевода строки");
+            assertFalse(reader.nextLine());
+        }
+    }
+
+    @Test
+    void testRejectsMalformedRows() {
+        TaskCsvReader reader = reader();
+
+        assertThrows(IllegalArgumentException.class, () -> reader.parse("Некорректные данные"));
+        assertThrows(IllegalArgumentException.class, () -> reader.parse("1,STORY,Task,NEW,Description,null,null"));
+        assertThrows(IllegalArgumentException.class, () -> reader.parse("1,TASK,Task,NEW,Description,2025-13-01T10:00,null"));
+        assertThrows(IllegalArgumentException.class, () -> reader.parse("1,SUBTASK,Subtask,NEW,Description,null,null"));
+    }
+}
@@ -0,0 +1,119 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskJournalTest {
+    private static final int THREADS = 8;
+    private static final int RECORDS_PER_THREAD = 50;
+
+    private static File tempJournal() throws IOException {
+        File file = File.createTempFile("journal_test", ".journal");
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static void appendConcurrently(TaskJournal journal) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<Void>> writers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                writers.add(() -> {
+                    for (int i = 0; i < RECORDS_PER_THREAD; i++) {
+                        long seq = journal.append("DEL," + (thread * RECORDS_PER_THREAD + i));
+                        journal.awaitCommit(seq);
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(writers)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSyncRecordIsOnDiskWhenCommitReturns() throws IOException {
+        File file = tempJournal();
+        TaskJournal journal = new TaskJournal(file, PersistencePolicy.sync());
+
+        journal.awaitCommit(journal.append("DEL,1"));
+
+        assertEquals(List.of("DEL,1"), Files.readAllLines(file.toPath()), "Запись должна быть в файле до подтверждения");
+        assertEquals(1, journal.metrics().commits());
+        assertEquals(0, journal.metrics().queueDepth());
+        journal.close();
+    }
+
+    @Test
+    void testConcurrentSyncWritersShareForce() throws Exception {
+        File file = tempJournal();
+        TaskJournal journal = new TaskJournal(file, PersistencePolicy.sync());
+
+        appendConcurrently(journal);
+
+        PersistenceMetrics metrics = journal.metrics();
+        assertEquals(THREADS * RECORDS_PER_THREAD, metrics.committedRecords(), "Все записи должны попасть на диск");
+        assertEquals(0, metrics.queueDepth());
+        assertEquals(THREADS * RECORDS_PER_THREAD, Files.readAllLines(file.toPath()).size());
+        journal.close();
+    }
+
+    @Test
+    void testGroupCommitBatchesConcurrentWriters() throws Exception {
+        File file = tempJournal();
+        TaskJournal journal = new TaskJournal(file, PersistencePolicy.groupCommit(20, 1_000));
+
+        appendConcurrently(journal);
+
+        PersistenceMetrics metrics = journal.metrics();
+        assertEquals(THREADS * RECORDS_PER_THREAD, metrics.committedRecords(), "Все записи должны попасть на диск");
+        assertTrue(metrics.commits() <= RECORDS_PER_THREAD,
+                "Записи разных потоков должны фиксироваться вместе, фиксаций: " + metrics.commits());
+        assertEquals(THREADS * RECORDS_PER_THREAD, Files.readAllLines(file.toPath()).size());
+        journal.close();
+    }
+
+    @Test
+    void testAsyncQueueIsBoundedAndFlushedOnClose() throws IOException {
+        File file = tempJournal();
+        TaskJournal journal = new TaskJournal(file, PersistencePolicy.async(4));
+
+        for (int i = 0; i < 100; i++) {
+            journal.awaitCommit(journal.append("DEL," + i));
+            assertTrue(journal.metrics().queueDepth() <= 4, "Очередь не должна превышать заданный размер");
+        }
+        journal.close();
+
+        assertEquals(100, Files.readAllLines(file.toPath()).size(), "После закрытия все записи должны быть на диске");
+    }
+
+    @Test
+    void testResetReleasesPendingCommits() throws IOException {
+        File file = tempJournal();
+        TaskJournal journal = new TaskJournal(file, PersistencePolicy.groupCommit(60_000, 1_000));
+
+        long seq = journal.append("DEL,1");
+        assertEquals(1, journal.metrics().queueDepth());
+        journal.reset();
+
+        journal.awaitCommit(seq); // Запись вошла в снимок, ожидание не должно блокироваться
+        assertEquals(0, journal.metrics().queueDepth());
+        assertEquals(0, file.length(), "После очистки журнал должен быть пуст");
+        journal.close();
+    }
+}
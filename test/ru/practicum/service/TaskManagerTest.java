@@ -2,11 +2,15 @@ package ru.practicum.service;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import ru.practicum.exception.BatchException;
 import ru.practicum.model.*;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -185,4 +189,270 @@ abstract class TaskManagerTest<T extends TaskManager> {
         taskManager.deleteAllSubtasks();
         assertTrue(taskManager.getAllSubtasks().isEmpty(), "Все подзадачи должны быть удалены.");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testTaskWithoutStartTimeIsAccessibleById() {
+        Task task = new Task("Task 1", "Description", Duration.ofMinutes(30), null);
+        taskManager.saveTask(task);
+
+        assertEquals(task, taskManager.getTaskById(task.getId()), "Задача без времени начала должна находиться по ID.");
+        assertTrue(taskManager.getAllTasks().contains(task), "Задача без времени начала должна быть в общем списке.");
+    }
+
+    @Test
+    void testDeleteEpicWithSubtasks() {
+        Epic epic = new Epic("Epic 1", "Description", Duration.ZERO, null);
+        taskManager.saveEpic(epic);
+
+        Subtask subtask1 = new Subtask("Subtask 1", "Description", Duration.ofMinutes(30), LocalDateTime.now(), epic.getId());
+        Subtask subtask2 = new Subtask("Subtask 2", "Description", Duration.ofMinutes(30), LocalDateTime.now().plusHours(1), epic.getId());
+        taskManager.saveSubtask(subtask1);
+        taskManager.saveSubtask(subtask2);
+
+        taskManager.deleteEpicById(epic.getId());
+        assertNull(taskManager.getSubtaskById(subtask1.getId()), "Подзадачи удалённого эпика не должны находиться по ID.");
+        assertNull(taskManager.getSubtaskById(subtask2.getId()), "Подзадачи удалённого эпика не должны находиться по ID.");
+        assertTrue(taskManager.getAllSubtasks().isEmpty(), "Подзадачи удалённого эпика должны быть удалены.");
+    }
+
+    @Test
+    void testPrioritizedPagesAndRanges() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 10, 0);
+        Epic epic = new Epic("Epic 1", "Description", Duration.ZERO, null);
+        taskManager.saveEpic(epic);
+
+        Task task1 = new Task("Task 1", "Description", Duration.ofMinutes(30), base.plusHours(2));
+        Task task2 = new Task("Task 2", "Description", Duration.ofMinutes(30), base);
+        Task timeless = new Task("Task 3", "Description", Duration.ofMinutes(30), null);
+        Subtask subtask = new Subtask("Subtask 1", "Description", Duration.ofMinutes(30), base.plusHours(1), epic.getId());
+        taskManager.saveTask(task1);
+        taskManager.saveTask(task2);
+        taskManager.saveTask(timeless);
+        taskManager.saveSubtask(subtask);
+
+        assertEquals(List.of(task2, subtask, task1, timeless), taskManager.getPrioritizedTasks(),
+                "Задачи и подзадачи должны идти по времени начала, задачи без времени — в конце.");
+        assertEquals(List.of(subtask, task1), taskManager.getPrioritizedTasks(base.plusMinutes(1), 10),
+                "Страница должна начинаться с указанного времени и не включать задачи без времени.");
+        assertEquals(List.of(task2), taskManager.getPrioritizedTasks(base, 1),
+                "Страница не должна превышать лимит.");
+        assertEquals(List.of(task2, subtask), taskManager.getPrioritizedTasks(base, base.plusHours(2)),
+                "Диапазон [from, to) не должен включать задачу, начинающуюся в момент to.");
+
+        taskManager.deleteTaskById(task2.getId());
+        assertEquals(List.of(subtask, task1, timeless), taskManager.getPrioritizedTasks(),
+                "Удалённая задача должна исчезать из приоритетного списка.");
+    }
+
+    @Test
+    void testTasksInRangeIncludeRunningTasks() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 10, 0);
+        Epic epic = new Epic("Epic 1", "Description", Duration.ZERO, null);
+        taskManager.saveEpic(epic);
+
+        Task running = new Task("Running", "Description", Duration.ofMinutes(90), base.minusHours(1));
+        Task finished = new Task("Finished", "Description", Duration.ofMinutes(30), base.minusHours(2));
+        Task instant = new Task("Instant", "Description", Duration.ZERO, base.plusMinutes(45));
+        Task later = new Task("Later", "Description", Duration.ofMinutes(30), base.plusHours(3));
+        Subtask subtask = new Subtask("Subtask 1", "Description", Duration.ofMinutes(30), base.plusMinutes(30), epic.getId());
+        taskManager.saveTask(running);
+        taskManager.saveTask(finished);
+        taskManager.saveTask(instant);
+        taskManager.saveTask(later);
+        taskManager.saveTask(new Task("Timeless", "Description", Duration.ofMinutes(30), null));
+        taskManager.saveSubtask(subtask);
+
+        assertEquals(List.of(running, subtask, instant), taskManager.getTasksInRange(base, base.plusHours(3)),
+                "В интервал должны попадать начавшиеся раньше и ещё идущие задачи, но не начинающиеся в момент to.");
+        assertTrue(taskManager.getTasksInRange(base.minusMinutes(90), base.minusHours(1)).isEmpty(),
+                "Задача, закончившаяся в момент from, в интервал не попадает.");
+        assertEquals(List.of(subtask, instant), taskManager.getTasksInRange(base.plusMinutes(45), base.plusHours(1)),
+                "Задача нулевой продолжительности в момент from попадает в интервал.");
+        assertTrue(taskManager.getTasksInRange(base, base).isEmpty(), "Пустой интервал не содержит задач.");
+
+        taskManager.deleteTaskById(running.getId());
+        assertEquals(List.of(subtask, instant), taskManager.getTasksInRange(base, base.plusHours(3)),
+                "Удалённая задача должна исчезать из интервала.");
+    }
+
+    @Test
+    void testEarliestSlotFollowsPerTypeOverlapRules() {
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 10, 0);
+        Epic epic = new Epic("Epic 1", "Description", Duration.ZERO, null);
+        taskManager.saveEpic(epic);
+        taskManager.saveTask(new Task("Task 1", "Description", Duration.ofHours(1), base));
+        taskManager.saveTask(new Task("Task 2", "Description", Duration.ofMinutes(30), base.plusMinutes(90)));
+        taskManager.saveSubtask(new Subtask("Subtask 1", "Description", Duration.ofHours(1), base.plusHours(1), epic.getId()));
+
+        assertEquals(base.plusHours(1), taskManager.findEarliestSlot(Duration.ofMinutes(30), base, Task.class),
+                "Промежуток между задачами подходит, подзадачи задачам не мешают.");
+        assertEquals(base.plusHours(2), taskManager.findEarliestSlot(Duration.ofMinutes(45), base.plusMinutes(10), Task.class),
+                "Слишком короткий промежуток пропускается.");
+        assertEquals(base, taskManager.findEarliestSlot(Duration.ofHours(1), base, Subtask.class),
+                "Подзадача проверяется только с подзадачами.");
+        assertEquals(base.minusHours(1), taskManager.findEarliestSlot(Duration.ofHours(1), base.minusHours(1), Task.class),
+                "Интервал, заканчивающийся в начале задачи, свободен.");
+
+        LocalDateTime slot = taskManager.findEarliestSlot(Duration.ofMinutes(45), base.plusMinutes(10), Task.class);
+        assertDoesNotThrow(() -> taskManager.saveTask(new Task("Task 3", "Description", Duration.ofMinutes(45), slot)),
+                "Задача в найденное время должна сохраняться.");
+        assertThrows(IllegalArgumentException.class, () -> taskManager.findEarliestSlot(Duration.ofHours(1), base, Epic.class));
+        assertThrows(IllegalArgumentException.class,
+                () -> taskManager.findEarliestSlot(Duration.ofHours(-1), base, Task.class));
+    }
+
+    @Test
+    void testFindTasksPagesWithCursorAndFilters() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        for (int i = 0; i < 7; i++) {
+            Task task = new Task("Task " + i, "Description", Duration.ofMinutes(30), base.plusHours(i));
+            if (i % 2 == 0) {
+                task.setStatus(Status.DONE);
+            }
+            taskManager.saveTask(task);
+        }
+        taskManager.saveTask(new Task("Timeless", "Description", Duration.ZERO, null));
+
+        List<Task> all = taskManager.getAllTasks();
+        List<Task> walked = new ArrayList<>();
+        TaskQuery query = TaskQuery.firstPage(3);
+        List<Task> page = taskManager.findTasks(query);
+        while (!page.isEmpty()) {
+            walked.addAll(page);
+            page = taskManager.findTasks(query.after(page.getLast().getId()));
+        }
+        assertEquals(all, walked, "Обход страниц должен дать полный список в том же порядке.");
+
+        TaskQuery filtered = new TaskQuery(null, 10, Set.of(Status.DONE), base.plusHours(1), base.plusHours(6));
+        assertEquals(List.of("Task 2", "Task 4"), taskManager.findTasks(filtered).stream().map(Task::getName).toList(),
+                "Фильтры по статусу и времени начала должны применяться вместе.");
+
+        assertThrows(IllegalArgumentException.class, () -> taskManager.findTasks(TaskQuery.firstPage(3).after(9_999)),
+                "Несуществующий курсор должен отклоняться.");
+    }
+
+    @Test
+    void testKeyedCursorSurvivesDeletion() {
+        LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+        for (int i = 0; i < 5; i++) {
+            taskManager.saveTask(new Task("Task " + i, "Description", Duration.ofMinutes(30), base.plusHours(i)));
+        }
+        taskManager.saveTask(new Task("Timeless 1", "Description", Duration.ZERO, null));
+        taskManager.saveTask(new Task("Timeless 2", "Description", Duration.ZERO, null));
+        List<Task> all = taskManager.getAllTasks();
+
+        List<Task> walked = new ArrayList<>();
+        TaskQuery query = TaskQuery.firstPage(2);
+        List<Task> page = taskManager.findTasks(query);
+        while (!page.isEmpty()) {
+            walked.addAll(page);
+            Task last = page.getLast();
+            taskManager.deleteTaskById(last.getId());
+            page = taskManager.findTasks(query.after(last));
+        }
+        assertEquals(all, walked, "Курсор с ключом сортировки не должен зависеть от удаления элемента.");
+
+        Epic timeless = new Epic("Timeless epic", "Description", Duration.ZERO, null);
+        Epic timed = new Epic("Timed epic", "Description", Duration.ZERO, null);
+        taskManager.saveEpic(timeless);
+        taskManager.saveEpic(timed);
+        taskManager.saveSubtask(new Subtask("Subtask", "Description", Duration.ofMinutes(30), base, timed.getId()));
+        taskManager.deleteEpicById(timeless.getId());
+        assertEquals(List.of(timed.getId()),
+                taskManager.findEpics(TaskQuery.firstPage(10).after(timeless)).stream().map(Task::getId).toList(),
+                "Эпик без времени начала тоже задаёт место курсора.");
+    }
+
+    @Test
+    void testFindEpicsAndSubtasks() {
+        Epic timeless = new Epic("Timeless epic", "Description", Duration.ZERO, null);
+        Epic timed = new Epic("Timed epic", "Description", Duration.ZERO, null);
+        taskManager.saveEpic(timeless);
+        taskManager.saveEpic(timed);
+        LocalDateTime base = LocalDateTime.of(2025, 4, 1, 9, 0);
+        Subtask first = new Subtask("First", "Description", Duration.ofMinutes(30), base, timed.getId());
+        Subtask second = new Subtask("Second", "Description", Duration.ofMinutes(30), base.plusHours(1), timed.getId());
+        taskManager.saveSubtask(first);
+        taskManager.saveSubtask(second);
+
+        assertEquals(List.of(timeless.getId(), timed.getId()),
+                taskManager.findEpics(TaskQuery.firstPage(10)).stream().map(Task::getId).toList(),
+                "Эпики без времени начала идут первыми, как в getAllEpics.");
+        assertEquals(List.of(timed.getId()),
+                taskManager.findEpics(new TaskQuery(null, 10, null, base, null)).stream().map(Task::getId).toList(),
+                "Фильтр по времени должен отбрасывать эпики без времени начала.");
+        assertEquals(List.of(second), taskManager.findSubtasks(TaskQuery.firstPage(10).after(first.getId())));
+    }
+
+    @Test
+    void testVersionChangesOnlyOnWrites() {
+        long initial = taskManager.getVersion();
+        Task task = new Task("Versioned", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 5, 1, 9, 0));
+        taskManager.saveTask(task);
+        long afterSave = taskManager.getVersion();
+        assertTrue(afterSave > initial, "Создание задачи должно менять версию.");
+
+        taskManager.getAllTasks();
+        taskManager.getTaskById(task.getId());
+        taskManager.getPrioritizedTasks();
+        assertEquals(afterSave, taskManager.getVersion(), "Чтение не должно менять версию.");
+
+        taskManager.deleteTaskById(task.getId());
+        assertTrue(taskManager.getVersion() > afterSave, "Удаление задачи должно менять версию.");
+        assertFalse(taskManager.getLastModified().isAfter(Instant.now()));
+    }
+
+    @Test
+    void testApplyBatchIsAllOrNothing() {
+        LocalDateTime base = LocalDateTime.of(2025, 6, 1, 9, 0);
+        Task existing = new Task("Existing", "Description", Duration.ofMinutes(30), base);
+        Task removed = new Task("Removed", "Description", Duration.ofMinutes(30), base.plusHours(1));
+        taskManager.saveTask(existing);
+        taskManager.saveTask(removed);
+
+        Task renamed = new Task(existing);
+        renamed.setName("Renamed");
+        List<Operation> failing = List.of(
+                Operation.create(new Epic("Epic", "Description", Duration.ZERO, null)),
+                Operation.create(new Subtask("Subtask", "Description", Duration.ofMinutes(30), base.plusHours(2), -1)),
+                Operation.update(renamed),
+                Operation.delete(removed.getId()),
+                Operation.create(new Task("Overlapping", "Description", Duration.ofMinutes(30), base.plusMinutes(15))));
+
+        BatchException exception = assertThrows(BatchException.class, () -> taskManager.applyBatch(failing));
+        assertEquals(4, exception.getIndex(), "Должна указываться операция, не прошедшая проверку.");
+        assertEquals(List.of(existing, removed), taskManager.getAllTasks(), "Пакет не должен применяться частично.");
+        assertEquals("Existing", taskManager.getTaskById(existing.getId()).getName());
+        assertTrue(taskManager.getAllEpics().isEmpty());
+        assertTrue(taskManager.getAllSubtasks().isEmpty());
+        assertEquals(2, taskManager.getPrioritizedTasks().size());
+
+        Epic epic = new Epic("Epic", "Description", Duration.ZERO, null);
+        Subtask subtask = new Subtask("Subtask", "Description", Duration.ofMinutes(30), base.plusHours(2), -1);
+        List<Integer> ids = taskManager.applyBatch(List.of(Operation.create(epic), Operation.create(subtask),
+                Operation.update(renamed), Operation.delete(removed.getId())));
+
+        assertEquals(List.of(epic.getId(), subtask.getId(), existing.getId(), removed.getId()), ids);
+        assertEquals(epic.getId(), taskManager.getSubtaskById(subtask.getId()).getEpicId(), "Ссылка -1 указывает на эпик из операции 0.");
+        assertEquals("Renamed", taskManager.getTaskById(existing.getId()).getName());
+        assertNull(taskManager.getTaskById(removed.getId()));
+        assertEquals(base.plusHours(2), taskManager.getEpicById(epic.getId()).getStartTime());
+    }
+
+    @Test
+    void testApplyBatchRollsBackOnUnexpectedException() {
+        Task created = new Task("Created", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 6, 1, 9, 0));
+        Task broken = new Task("Broken", "Description", Duration.ofMinutes(30), LocalDateTime.of(2025, 6, 1, 10, 0)) {
+            @Override
+            public LocalDateTime getStartTime() {
+                throw new IllegalStateException("Сбой при чтении времени");
+            }
+        };
+
+        assertThrows(IllegalStateException.class,
+                () -> taskManager.applyBatch(List.of(Operation.create(created), Operation.create(broken))),
+                "Непредвиденное исключение выбрасывается как есть");
+        assertTrue(taskManager.getAllTasks().isEmpty(), "Пакет должен откатываться при любом исключении.");
+        assertTrue(taskManager.getPrioritizedTasks().isEmpty());
+    }
+}
@@ -0,0 +1,169 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeSlotIndexTest {
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private TimeSlotIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TimeSlotIndex();
+    }
+
+    private Task task(int id, int startMinute, int durationMinutes) {
+        Task task = new Task("Task " + id, "Description", Duration.ofMinutes(durationMinutes), BASE_TIME.plusMinutes(startMinute));
+        task.setId(id);
+        return task;
+    }
+
+    @Test
+    void testEmptyIndexHasNoOverlaps() {
+        assertNull(index.findOverlap(BASE_TIME, BASE_TIME.plusHours(1), null), "В пустом индексе не должно быть пересечений");
+    }
+
+    @Test
+    void testAdjacentIntervalsDoNotOverlap() {
+        index.put(task(1, 0, 60));
+
+        assertNull(index.findOverlap(BASE_TIME.plusMinutes(60), BASE_TIME.plusMinutes(90), null),
+                "Интервал, начинающийся в момент окончания другого, не пересекается с ним");
+        assertNull(index.findOverlap(BASE_TIME.minusMinutes(30), BASE_TIME, null),
+                "Интервал, заканчивающийся в момент начала другого, не пересекается с ним");
+        assertEquals(1, index.findOverlap(BASE_TIME.plusMinutes(59), BASE_TIME.plusMinutes(90), null),
+                "Частично совпадающие интервалы должны пересекаться");
+    }
+
+    @Test
+    void testIgnoredIdIsSkipped() {
+        index.put(task(1, 0, 60));
+
+        assertNull(index.findOverlap(BASE_TIME, BASE_TIME.plusMinutes(30), 1), "Задача не должна пересекаться сама с собой");
+    }
+
+    @Test
+    void testPutReplacesAndRemoveDeletesInterval() {
+        index.put(task(1, 0, 60));
+        index.put(task(1, 120, 60));
+
+        assertEquals(1, index.size(), "Повторное добавление задачи должно заменять её интервал");
+        assertNull(index.findOverlap(BASE_TIME, BASE_TIME.plusMinutes(60), null), "Старый интервал должен быть удалён");
+        assertEquals(1, index.findOverlap(BASE_TIME.plusMinutes(150), BASE_TIME.plusMinutes(160), null));
+
+        index.remove(1);
+        assertEquals(0, index.size(), "Индекс должен быть пуст после удаления");
+        assertNull(index.findOverlap(BASE_TIME.plusMinutes(150), BASE_TIME.plusMinutes(160), null));
+    }
+
+    @Test
+    void testTaskWithoutStartTimeIsNotIndexed() {
+        Task task = new Task("Task", "Description", Duration.ofMinutes(30), null);
+        task.setId(1);
+        index.put(task);
+
+        assertEquals(0, index.size(), "Задача без времени начала не должна попадать в индекс");
+    }
+
+    @Test
+    void testMatchesLinearScan() {
+        Random random = new Random(7);
+        List<Task> stored = new ArrayList<>();
+        for (int id = 1; id <= 500; id++) {
+            Task task = task(id, random.nextInt(10_000), random.nextInt(120));
+            stored.add(task);
+            index.put(task);
+        }
+        for (int i = 0; i < 200; i++) {
+            Task removed = stored.remove(random.nextInt(stored.size()));
+            index.remove(removed.getId());
+        }
+
+        for (int i = 0; i < 2_000; i++) {
+            LocalDateTime start = BASE_TIME.plusMinutes(random.nextInt(10_000));
+            LocalDateTime end = start.plusMinutes(random.nextInt(120));
+
+            boolean expected = stored.stream().anyMatch(task ->
+                    start.isBefore(task.getEndTime()) && task.getStartTime().isBefore(end));
+            Integer found = index.findOverlap(start, end, null);
+
+            assertEquals(expected, found != null, "Результат индекса должен совпадать с полным перебором");
+        }
+    }
+
+    @Test
+    void testRangeMatchesLinearScanInStartOrder() {
+        Random random = new Random(13);
+        List<Task> stored = new ArrayList<>();
+        for (int id = 1; id <= 500; id++) {
+            Task task = task(id, random.nextInt(10_000), random.nextInt(120));
+            stored.add(task);
+            index.put(task);
+        }
+        stored.sort(Comparator.comparing(Task::getStartTime).thenComparing(Task::getId));
+
+        for (int i = 0; i < 1_000; i++) {
+            LocalDateTime from = BASE_TIME.plusMinutes(random.nextInt(10_000));
+            LocalDateTime to = from.plusMinutes(1 + random.nextInt(300));
+
+            List<Integer> expected = stored.stream()
+                    .filter(task -> task.getStartTime().isBefore(to) && (task.getEndTime().isAfter(from)
+                            || !task.getStartTime().isBefore(from)))
+                    .map(Task::getId)
+                    .toList();
+            List<Integer> found = new ArrayList<>();
+            index.forEachInRange(from, to, found::add);
+
+            assertEquals(expected, found, "Выборка индекса должна совпадать с полным перебором");
+        }
+    }
+
+    @Test
+    void testEarliestSlotMatchesLinearSearch() {
+        Random random = new Random(17);
+        for (int round = 0; round < 20; round++) {
+            index.clear();
+            List<Task> stored = new ArrayList<>();
+            // Чётные раунды — непересекающиеся интервалы, как после проверки при сохранении
+            boolean disjoint = round % 2 == 0;
+            int minute = 0;
+            for (int id = 1; id <= 300; id++) {
+                int start = disjoint ? minute + random.nextInt(30) : random.nextInt(10_000);
+                Task task = task(id, start, random.nextInt(60));
+                minute = start + (int) task.getDuration().toMinutes();
+                stored.add(task);
+                index.put(task);
+            }
+
+            for (int i = 0; i < 200; i++) {
+                LocalDateTime notBefore = BASE_TIME.plusMinutes(random.nextInt(12_000) - 1_000);
+                Duration duration = Duration.ofMinutes(random.nextInt(40));
+
+                // Самое раннее свободное время — либо notBefore, либо конец одного из интервалов
+                List<LocalDateTime> candidates = new ArrayList<>(List.of(notBefore));
+                stored.stream().map(Task::getEndTime).filter(end -> end.isAfter(notBefore)).forEach(candidates::add);
+                candidates.sort(Comparator.naturalOrder());
+                LocalDateTime expected = candidates.stream()
+                        .filter(start -> stored.stream().noneMatch(task -> start.isBefore(task.getEndTime())
+                                && task.getStartTime().isBefore(start.plus(duration))))
+                        .findFirst()
+                        .orElseThrow();
+
+                LocalDateTime found = index.findEarliestSlot(notBefore, duration);
+                assertEquals(expected, found, "Свободное время должно совпадать с перебором");
+                assertNull(index.findOverlap(found, found.plus(duration), null), "Найденный интервал должен быть свободен");
+            }
+        }
+    }
+}